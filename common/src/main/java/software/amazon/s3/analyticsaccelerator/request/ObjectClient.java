@@ -15,13 +15,17 @@
  */
 package software.amazon.s3.analyticsaccelerator.request;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 
 /** Represents APIs of an Amazon S3 compatible object store */
 public interface ObjectClient extends Closeable {
-
   /**
    * Make a headObject request to the object store.
    *
@@ -41,4 +45,83 @@ public interface ObjectClient extends Closeable {
    */
   CompletableFuture<ObjectContent> getObject(
       GetRequest getRequest, OpenStreamInformation openStreamInformation);
+
+  /**
+   * Make a getObject request to the object store, handing the body of the response to a sink as it
+   * arrives rather than as a stream. The returned future completes once the whole body has been
+   * handed over.
+   *
+   * <p>Object stores that cannot deliver the body without blocking fall back to draining the
+   * stream of {@link #getObject(GetRequest, OpenStreamInformation)} into the sink, on the thread
+   * completing the request, which is what the default implementation does.
+   *
+   * @param getRequest The GET request to be sent
+   * @param openStreamInformation contains stream information
+   * @param sink the sink to hand the body of the response to
+   * @return an instance of {@link CompletableFuture} completed once the body has been handed over
+   */
+  default CompletableFuture<Void> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation, ObjectContentSink sink) {
+    return getObject(getRequest, openStreamInformation)
+        .thenAccept(
+            objectContent -> {
+              try (InputStream stream = objectContent.getStream()) {
+                // The stream is closed even if the sink turns the response down
+                sink.onResponse();
+                byte[] chunk = new byte[64 * 1024];
+                int bytesRead;
+                while ((bytesRead = stream.read(chunk)) >= 0) {
+                  sink.onChunk(ByteBuffer.wrap(chunk, 0, bytesRead));
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  /**
+   * Make a getObject request for the last bytes of an object whose size and ETag are not known yet,
+   * learning them from the response. The returned content holds the last {@code min(length,
+   * contentLength)} bytes of the object, and its metadata.
+   *
+   * <p>Object stores that cannot learn the metadata from a GET fall back to a HEAD followed by a
+   * ranged GET, which is what the default implementation does.
+   *
+   * @param tailRequest The request for the tail of the object to be sent
+   * @param openStreamInformation contains stream information
+   * @return an instance of {@link CompletableFuture} of type {@link ObjectContent}
+   */
+  default CompletableFuture<ObjectContent> getObjectTail(
+      TailRequest tailRequest, OpenStreamInformation openStreamInformation) {
+    return headObject(
+            HeadRequest.builder().s3Uri(tailRequest.getS3Uri()).build(), openStreamInformation)
+        .thenCompose(
+            metadata -> {
+              long contentLength = metadata.getContentLength();
+              if (contentLength == 0) {
+                return CompletableFuture.completedFuture(
+                    ObjectContent.builder()
+                        .stream(new ByteArrayInputStream(new byte[0]))
+                        .metadata(metadata)
+                        .build());
+              }
+              GetRequest getRequest =
+                  GetRequest.builder()
+                      .s3Uri(tailRequest.getS3Uri())
+                      .range(
+                          new Range(
+                              Math.max(0, contentLength - tailRequest.getLength()),
+                              contentLength - 1))
+                      .etag(metadata.getEtag())
+                      .referrer(tailRequest.getReferrer())
+                      .build();
+              return getObject(getRequest, openStreamInformation)
+                  .thenApply(
+                      objectContent ->
+                          ObjectContent.builder()
+                              .stream(objectContent.getStream())
+                              .metadata(metadata)
+                              .build());
+            });
+  }
 }
@@ -24,4 +24,7 @@ import lombok.Data;
 @Builder
 public class ObjectContent {
   InputStream stream;
+
+  /** Metadata of the object, if the request this content answers learned it; null otherwise */
+  ObjectMetadata metadata;
 }
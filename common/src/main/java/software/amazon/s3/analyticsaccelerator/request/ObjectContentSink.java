@@ -0,0 +1,36 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.request;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the body of a response chunk by chunk, as it arrives from the object store, so that the
+ * body can be ingested without a thread blocking on a stream. Chunks are handed over one at a time
+ * and in order, though not necessarily on the same thread.
+ */
+public interface ObjectContentSink {
+  /** Called once the object store has responded, before the first chunk of the body. */
+  default void onResponse() {}
+
+  /**
+   * Takes the next chunk of the body. Implementations must not block, and must be done with the
+   * chunk when they return, as its memory may be reused. Throwing aborts the request.
+   *
+   * @param chunk the next bytes of the body, between its position and its limit
+   */
+  void onChunk(ByteBuffer chunk);
+}
@@ -23,17 +23,19 @@ import lombok.AllArgsConstructor;
  */
 @AllArgsConstructor
 public enum ReadMode {
-  SYNC(true),
-  ASYNC(true),
-  SMALL_OBJECT_PREFETCH(true),
-  SEQUENTIAL_FILE_PREFETCH(true),
-  DICTIONARY_PREFETCH(false),
-  COLUMN_PREFETCH(false),
-  REMAINING_COLUMN_PREFETCH(false),
-  PREFETCH_TAIL(false),
-  READ_VECTORED(false);
+  SYNC(true, false),
+  ASYNC(true, true),
+  SMALL_OBJECT_PREFETCH(true, false),
+  SEQUENTIAL_FILE_PREFETCH(true, true),
+  DICTIONARY_PREFETCH(false, false),
+  COLUMN_PREFETCH(false, true),
+  REMAINING_COLUMN_PREFETCH(false, true),
+  PREFETCH_TAIL(false, false),
+  READ_VECTORED(false, false),
+  STRIDE_PREFETCH(true, true);
 
   private final boolean allowRequestExtension;
+  private final boolean speculative;
 
   /**
    * Should requests be extended for this read mode?
@@ -46,4 +48,16 @@ public enum ReadMode {
   public boolean allowRequestExtension() {
     return allowRequestExtension;
   }
+
+  /**
+   * Is this read speculative?
+   *
+   * <p>Speculative reads fetch data ahead of a predicted need, rather than data a reader has asked
+   * for or is known to need. Their requests may be cancelled once the prediction no longer holds.
+   *
+   * @return true if reads in this mode are speculative
+   */
+  public boolean isSpeculative() {
+    return speculative;
+  }
 }
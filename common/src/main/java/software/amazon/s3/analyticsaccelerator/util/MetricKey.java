@@ -41,7 +41,82 @@ public enum MetricKey {
   GET_REQUEST_COUNT("GetRequestCount"),
 
   /** Counts number of HEAD requests made. */
-  HEAD_REQUEST_COUNT("HeadRequestCount");
+  HEAD_REQUEST_COUNT("HeadRequestCount"),
+
+  /**
+   * Counts reads served from blocks whose data was still arriving. Such reads only wait for the
+   * bytes they need rather than for the whole block.
+   */
+  PARTIAL_BLOCK_READ("PartialBlockRead"),
+
+  /** Tracks the bytes speculative prefetches did not fetch because they were cancelled. */
+  PREFETCH_CANCELLED_BYTES("PrefetchCancelledBytes"),
+
+  /**
+   * Tracks the bytes fetched by speculative prefetches that were dropped, either cancelled or
+   * evicted, without ever being read.
+   */
+  PREFETCH_WASTED_BYTES("PrefetchWastedBytes"),
+
+  /** Tracks the bytes fetched only because they lay in a hole between two coalesced ranges. */
+  OVER_READ_BYTES("OverReadBytes"),
+
+  /** Tracks memory reserved for blocks whose data is still being fetched */
+  MEMORY_RESERVED("MemoryReserved"),
+
+  /** Bytes of speculative prefetches dropped or truncated for lack of memory headroom */
+  PREFETCH_DROPPED_BYTES("PrefetchDroppedBytes"),
+
+  /** Tracks lookups served by footer and dictionary blocks */
+  CACHE_HIT_METADATA("CacheHitMetadata"),
+
+  /** Tracks footer and dictionary blocks that had to be fetched */
+  CACHE_MISS_METADATA("CacheMissMetadata"),
+
+  /** Tracks lookups served by blocks that were fetched for a read, or have been read since */
+  CACHE_HIT_DATA("CacheHitData"),
+
+  /** Tracks blocks that had to be fetched for a read */
+  CACHE_MISS_DATA("CacheMissData"),
+
+  /** Tracks lookups served by prefetched blocks that have not been read yet */
+  CACHE_HIT_PREFETCH("CacheHitPrefetch"),
+
+  /** Tracks blocks fetched speculatively, ahead of any read */
+  CACHE_MISS_PREFETCH("CacheMissPrefetch"),
+
+  /** Tracks reads of blocks served by the local disk cache */
+  DISK_CACHE_HIT("DiskCacheHit"),
+
+  /** Tracks blocks that were not in the local disk cache and had to be fetched */
+  DISK_CACHE_MISS("DiskCacheMiss"),
+
+  /** Tracks the bytes held by the local disk cache */
+  DISK_CACHE_USAGE("DiskCacheUsage"),
+
+  /** Tracks object metadata lookups served by the metadata store without a HEAD request */
+  METADATA_CACHE_HIT("MetadataCacheHit"),
+
+  /** Tracks duplicate GETs issued for requests that were slow to respond */
+  HEDGED_REQUEST_COUNT("HedgedRequestCount"),
+
+  /** Tracks duplicate GETs that responded before the requests they duplicated */
+  HEDGED_REQUEST_WIN("HedgedRequestWin"),
+
+  /** Tracks slow GETs that were not duplicated because the hedging budget was spent */
+  HEDGE_BUDGET_EXHAUSTED("HedgeBudgetExhausted"),
+
+  /**
+   * Tracks the number of requests to the object store the adaptive concurrency limit allows in
+   * flight at once
+   */
+  CONCURRENCY_LIMIT("ConcurrencyLimit"),
+
+  /** Tracks the number of requests to the object store queued behind the concurrency limit */
+  REQUEST_QUEUE_DEPTH("RequestQueueDepth"),
+
+  /** Counts requests to the object store that failed because they were throttled */
+  THROTTLED_REQUEST_COUNT("ThrottledRequestCount");
 
   /** The string name representation of the metric. */
   private final String name;
@@ -29,16 +29,60 @@ public class MetricKeyTest {
     assertEquals("CacheMiss", MetricKey.CACHE_MISS.getName());
     assertEquals("GetRequestCount", MetricKey.GET_REQUEST_COUNT.getName());
     assertEquals("HeadRequestCount", MetricKey.HEAD_REQUEST_COUNT.getName());
+    assertEquals("PartialBlockRead", MetricKey.PARTIAL_BLOCK_READ.getName());
+    assertEquals("PrefetchCancelledBytes", MetricKey.PREFETCH_CANCELLED_BYTES.getName());
+    assertEquals("PrefetchWastedBytes", MetricKey.PREFETCH_WASTED_BYTES.getName());
+    assertEquals("OverReadBytes", MetricKey.OVER_READ_BYTES.getName());
+    assertEquals("MemoryReserved", MetricKey.MEMORY_RESERVED.getName());
+    assertEquals("PrefetchDroppedBytes", MetricKey.PREFETCH_DROPPED_BYTES.getName());
+    assertEquals("CacheHitMetadata", MetricKey.CACHE_HIT_METADATA.getName());
+    assertEquals("CacheMissMetadata", MetricKey.CACHE_MISS_METADATA.getName());
+    assertEquals("CacheHitData", MetricKey.CACHE_HIT_DATA.getName());
+    assertEquals("CacheMissData", MetricKey.CACHE_MISS_DATA.getName());
+    assertEquals("CacheHitPrefetch", MetricKey.CACHE_HIT_PREFETCH.getName());
+    assertEquals("CacheMissPrefetch", MetricKey.CACHE_MISS_PREFETCH.getName());
+    assertEquals("DiskCacheHit", MetricKey.DISK_CACHE_HIT.getName());
+    assertEquals("DiskCacheMiss", MetricKey.DISK_CACHE_MISS.getName());
+    assertEquals("DiskCacheUsage", MetricKey.DISK_CACHE_USAGE.getName());
+    assertEquals("MetadataCacheHit", MetricKey.METADATA_CACHE_HIT.getName());
+    assertEquals("HedgedRequestCount", MetricKey.HEDGED_REQUEST_COUNT.getName());
+    assertEquals("HedgedRequestWin", MetricKey.HEDGED_REQUEST_WIN.getName());
+    assertEquals("HedgeBudgetExhausted", MetricKey.HEDGE_BUDGET_EXHAUSTED.getName());
+    assertEquals("ConcurrencyLimit", MetricKey.CONCURRENCY_LIMIT.getName());
+    assertEquals("RequestQueueDepth", MetricKey.REQUEST_QUEUE_DEPTH.getName());
+    assertEquals("ThrottledRequestCount", MetricKey.THROTTLED_REQUEST_COUNT.getName());
   }
 
   @Test
   public void testEnumValues() {
     MetricKey[] values = MetricKey.values();
-    assertEquals(5, values.length);
+    assertEquals(27, values.length);
     assertEquals(MetricKey.MEMORY_USAGE, values[0]);
     assertEquals(MetricKey.CACHE_HIT, values[1]);
     assertEquals(MetricKey.CACHE_MISS, values[2]);
     assertEquals(MetricKey.GET_REQUEST_COUNT, values[3]);
     assertEquals(MetricKey.HEAD_REQUEST_COUNT, values[4]);
+    assertEquals(MetricKey.PARTIAL_BLOCK_READ, values[5]);
+    assertEquals(MetricKey.PREFETCH_CANCELLED_BYTES, values[6]);
+    assertEquals(MetricKey.PREFETCH_WASTED_BYTES, values[7]);
+    assertEquals(MetricKey.OVER_READ_BYTES, values[8]);
+    assertEquals(MetricKey.MEMORY_RESERVED, values[9]);
+    assertEquals(MetricKey.PREFETCH_DROPPED_BYTES, values[10]);
+    assertEquals(MetricKey.CACHE_HIT_METADATA, values[11]);
+    assertEquals(MetricKey.CACHE_MISS_METADATA, values[12]);
+    assertEquals(MetricKey.CACHE_HIT_DATA, values[13]);
+    assertEquals(MetricKey.CACHE_MISS_DATA, values[14]);
+    assertEquals(MetricKey.CACHE_HIT_PREFETCH, values[15]);
+    assertEquals(MetricKey.CACHE_MISS_PREFETCH, values[16]);
+    assertEquals(MetricKey.DISK_CACHE_HIT, values[17]);
+    assertEquals(MetricKey.DISK_CACHE_MISS, values[18]);
+    assertEquals(MetricKey.DISK_CACHE_USAGE, values[19]);
+    assertEquals(MetricKey.METADATA_CACHE_HIT, values[20]);
+    assertEquals(MetricKey.HEDGED_REQUEST_COUNT, values[21]);
+    assertEquals(MetricKey.HEDGED_REQUEST_WIN, values[22]);
+    assertEquals(MetricKey.HEDGE_BUDGET_EXHAUSTED, values[23]);
+    assertEquals(MetricKey.CONCURRENCY_LIMIT, values[24]);
+    assertEquals(MetricKey.REQUEST_QUEUE_DEPTH, values[25]);
+    assertEquals(MetricKey.THROTTLED_REQUEST_COUNT, values[26]);
   }
 }
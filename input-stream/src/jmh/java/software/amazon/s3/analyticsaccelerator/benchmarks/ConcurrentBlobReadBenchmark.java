@@ -0,0 +1,175 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.physical.data.Blob;
+import software.amazon.s3.analyticsaccelerator.io.physical.data.BlobStore;
+import software.amazon.s3.analyticsaccelerator.request.GetRequest;
+import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+/**
+ * Micro-benchmark for concurrent reads of the same object that are served from the cache, the way
+ * many tasks read different row groups of the same Parquet file. All blocks are loaded up front, so
+ * the benchmark measures the cost of the read path itself. Compare the throughput across the thread
+ * counts to see how cache hits scale. Does not need S3 access.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ConcurrentBlobReadBenchmark {
+  private static final int OBJECT_SIZE = 64 * 1024 * 1024;
+  private static final String ETAG = "etag";
+  private static final ObjectKey OBJECT_KEY =
+      ObjectKey.builder().s3URI(S3URI.of("bucket", "key")).etag(ETAG).build();
+
+  @Param({"4096", "65536"})
+  public int readSize;
+
+  private BlobStore blobStore;
+  private Blob blob;
+
+  /**
+   * Creates the blob and loads all of its blocks
+   *
+   * @throws IOException on IO error
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    ObjectClient objectClient = new InMemoryObjectClient(new byte[OBJECT_SIZE]);
+    ObjectMetadata metadata =
+        ObjectMetadata.builder().contentLength(OBJECT_SIZE).etag(ETAG).build();
+    this.blobStore =
+        new BlobStore(objectClient, Telemetry.NOOP, PhysicalIOConfiguration.DEFAULT, new Metrics());
+    this.blob = blobStore.get(OBJECT_KEY, metadata, OpenStreamInformation.DEFAULT);
+
+    byte[] buffer = new byte[OBJECT_SIZE];
+    blob.read(buffer, 0, OBJECT_SIZE, 0);
+  }
+
+  /** Releases the blocks */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    blobStore.close();
+  }
+
+  /** The buffer each thread reads into */
+  @State(Scope.Thread)
+  public static class ReaderState {
+    byte[] buffer;
+
+    /**
+     * Allocates the buffer of the reading thread
+     *
+     * @param benchmark the benchmark state
+     */
+    @Setup(Level.Trial)
+    public void setUp(ConcurrentBlobReadBenchmark benchmark) {
+      this.buffer = new byte[benchmark.readSize];
+    }
+  }
+
+  /**
+   * Reads a random range of the cached object on a single thread
+   *
+   * @param reader the state of the reading thread
+   * @return the number of bytes read
+   * @throws IOException on IO error
+   */
+  @Benchmark
+  @Threads(1)
+  public int cachedRead1Thread(ReaderState reader) throws IOException {
+    return readRandomRange(reader);
+  }
+
+  /**
+   * Reads random ranges of the cached object on 4 threads
+   *
+   * @param reader the state of the reading thread
+   * @return the number of bytes read
+   * @throws IOException on IO error
+   */
+  @Benchmark
+  @Threads(4)
+  public int cachedRead4Threads(ReaderState reader) throws IOException {
+    return readRandomRange(reader);
+  }
+
+  /**
+   * Reads random ranges of the cached object on 16 threads
+   *
+   * @param reader the state of the reading thread
+   * @return the number of bytes read
+   * @throws IOException on IO error
+   */
+  @Benchmark
+  @Threads(16)
+  public int cachedRead16Threads(ReaderState reader) throws IOException {
+    return readRandomRange(reader);
+  }
+
+  private int readRandomRange(ReaderState reader) throws IOException {
+    long pos = ThreadLocalRandom.current().nextInt(OBJECT_SIZE - readSize);
+    return blob.read(reader.buffer, 0, readSize, pos);
+  }
+
+  /** An {@link ObjectClient} serving a single object from memory */
+  private static class InMemoryObjectClient implements ObjectClient {
+    private final byte[] data;
+
+    InMemoryObjectClient(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> headObject(
+        HeadRequest headRequest, OpenStreamInformation openStreamInformation) {
+      return CompletableFuture.completedFuture(
+          ObjectMetadata.builder().contentLength(data.length).etag(ETAG).build());
+    }
+
+    @Override
+    public CompletableFuture<ObjectContent> getObject(
+        GetRequest getRequest, OpenStreamInformation openStreamInformation) {
+      int start = (int) getRequest.getRange().getStart();
+      int length = (int) getRequest.getRange().getLength();
+      return CompletableFuture.completedFuture(
+          ObjectContent.builder().stream(new ByteArrayInputStream(data, start, length)).build());
+    }
+
+    @Override
+    public void close() {
+      // Nothing to release
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.s3.analyticsaccelerator.LocalFileObjectClient;
+import software.amazon.s3.analyticsaccelerator.S3SeekableInputStream;
+import software.amazon.s3.analyticsaccelerator.S3SeekableInputStreamConfiguration;
+import software.amazon.s3.analyticsaccelerator.S3SeekableInputStreamFactory;
+import software.amazon.s3.analyticsaccelerator.access.LatencyDistribution;
+import software.amazon.s3.analyticsaccelerator.access.SimulatedS3Configuration;
+import software.amazon.s3.analyticsaccelerator.access.SimulatedS3ObjectClient;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+/**
+ * Benchmark reading an object sequentially, and in a seek-heavy pattern, from a simulated S3 with
+ * the given time to first byte and bandwidth. The object is a local file, so the benchmark does not
+ * need S3 access. Compare the results across latencies to see how well prefetching hides them.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SimulatedS3ReadBenchmark {
+  private static final int OBJECT_SIZE = 64 * 1024 * 1024;
+  private static final int READ_SIZE = 64 * 1024;
+  private static final S3URI S3_URI = S3URI.of("bucket", "data.bin");
+
+  @Param({"20", "100"})
+  public long firstByteMedianMillis;
+
+  @Param({"12500000"})
+  public long connectionBytesPerSecond;
+
+  private Path root;
+  private SimulatedS3ObjectClient objectClient;
+  private S3SeekableInputStreamFactory factory;
+
+  /**
+   * Writes the object to a local file
+   *
+   * @throws IOException on IO error
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.root = Files.createTempDirectory("simulated-s3");
+    Path bucket = Files.createDirectory(root.resolve(S3_URI.getBucket()));
+    byte[] data = new byte[OBJECT_SIZE];
+    new Random(0).nextBytes(data);
+    Files.write(bucket.resolve(S3_URI.getKey()), data);
+  }
+
+  /** Creates a factory without any cached state, so that every iteration reads from S3 */
+  @Setup(Level.Iteration)
+  public void setUpIteration() {
+    this.objectClient =
+        new SimulatedS3ObjectClient(
+            new LocalFileObjectClient(root),
+            SimulatedS3Configuration.builder()
+                .firstByteLatency(
+                    LatencyDistribution.logNormal(firstByteMedianMillis, 4 * firstByteMedianMillis))
+                .connectionBytesPerSecond(connectionBytesPerSecond)
+                .maxConnections(64)
+                .build());
+    this.factory =
+        new S3SeekableInputStreamFactory(objectClient, S3SeekableInputStreamConfiguration.DEFAULT);
+  }
+
+  /**
+   * Closes the factory and the client
+   *
+   * @throws IOException on IO error
+   */
+  @TearDown(Level.Iteration)
+  public void tearDownIteration() throws IOException {
+    factory.close();
+    objectClient.close();
+  }
+
+  /**
+   * Deletes the local file
+   *
+   * @throws IOException on IO error
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.delete(root.resolve(S3_URI.getBucket()).resolve(S3_URI.getKey()));
+    Files.delete(root.resolve(S3_URI.getBucket()));
+    Files.delete(root);
+  }
+
+  /**
+   * Reads the whole object from start to end
+   *
+   * @return the number of bytes read
+   * @throws IOException on IO error
+   */
+  @Benchmark
+  public long sequentialRead() throws IOException {
+    byte[] buffer = new byte[READ_SIZE];
+    long total = 0;
+    try (S3SeekableInputStream stream = factory.createStream(S3_URI)) {
+      int read;
+      while ((read = stream.read(buffer, 0, buffer.length)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Reads the last 64KB of the object, then reads 1MB at 16 positions spread over it, the way a
+   * columnar reader reads a footer and then a few columns
+   *
+   * @return the number of bytes read
+   * @throws IOException on IO error
+   */
+  @Benchmark
+  public long seekingRead() throws IOException {
+    byte[] buffer = new byte[READ_SIZE];
+    long total = 0;
+    try (S3SeekableInputStream stream = factory.createStream(S3_URI)) {
+      total += stream.readTail(buffer, 0, buffer.length);
+      for (int i = 0; i < 16; i++) {
+        stream.seek((long) i * (OBJECT_SIZE / 16));
+        for (int j = 0; j < 16; j++) {
+          total += stream.read(buffer, 0, buffer.length);
+        }
+      }
+    }
+    return total;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+import software.amazon.s3.analyticsaccelerator.util.StreamUtils;
+
+/**
+ * Micro-benchmark for the ingestion of block bodies. Compares {@link StreamUtils#toByteArray} with
+ * the previous approach of draining the stream through a growable buffer on a per-block thread.
+ * Does not need S3 access. Run with the GC profiler (e.g. {@code -prof gc}) and compare {@code
+ * gc.alloc.rate.norm} to see the bytes allocated per ingested block.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StreamUtilsBenchmark {
+  private static final long TIMEOUT_MS = 30_000;
+  private static final int LEGACY_BUFFER_SIZE = 8 * 1024;
+  private static final ObjectKey OBJECT_KEY =
+      ObjectKey.builder().s3URI(S3URI.of("bucket", "key")).etag("etag").build();
+
+  @Param({"65536", "1048576", "8388608"})
+  public int blockSize;
+
+  private byte[] body;
+  private Range range;
+
+  /** Sets up the block body that is ingested on every invocation */
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.body = new byte[blockSize];
+    this.range = new Range(0, blockSize - 1);
+  }
+
+  /**
+   * Ingests a block body through {@link StreamUtils#toByteArray}
+   *
+   * @return the ingested bytes
+   * @throws IOException on IO error
+   * @throws TimeoutException on timeout
+   */
+  @Benchmark
+  public byte[] toByteArray() throws IOException, TimeoutException {
+    return StreamUtils.toByteArray(content(), OBJECT_KEY, range, TIMEOUT_MS);
+  }
+
+  /**
+   * Ingests a block body the way it was done before reads were pre-sized: a new single thread
+   * executor per block, an 8KB copy buffer and a growable output stream.
+   *
+   * @return the ingested bytes
+   * @throws Exception on error
+   */
+  @Benchmark
+  public byte[] legacyToByteArray() throws Exception {
+    InputStream inStream = content().getStream();
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[LEGACY_BUFFER_SIZE];
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> future =
+          executorService.submit(
+              () -> {
+                int numBytesRead;
+                while ((numBytesRead = inStream.read(buffer, 0, buffer.length)) != -1) {
+                  outStream.write(buffer, 0, numBytesRead);
+                }
+                return null;
+              });
+      future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } finally {
+      executorService.shutdown();
+      inStream.close();
+    }
+    return outStream.toByteArray();
+  }
+
+  private ObjectContent content() {
+    return ObjectContent.builder().stream(new ByteArrayInputStream(body)).build();
+  }
+}
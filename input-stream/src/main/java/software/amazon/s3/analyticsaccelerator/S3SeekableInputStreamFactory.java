@@ -16,6 +16,14 @@
 package software.amazon.s3.analyticsaccelerator;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import lombok.AccessLevel;
@@ -30,12 +38,18 @@ import software.amazon.s3.analyticsaccelerator.io.logical.impl.DefaultLogicalIOI
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.ParquetColumnPrefetchStore;
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.ParquetLogicalIOImpl;
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.SequentialLogicalIOImpl;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.BlobStore;
+import software.amazon.s3.analyticsaccelerator.io.physical.data.ConcurrencyLimitedObjectClient;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.MetadataStore;
+import software.amazon.s3.analyticsaccelerator.io.physical.data.PrefetchTracker;
 import software.amazon.s3.analyticsaccelerator.io.physical.impl.PhysicalIOImpl;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.util.ObjectFormat;
 import software.amazon.s3.analyticsaccelerator.util.ObjectFormatSelector;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
 
@@ -48,11 +62,15 @@ import software.amazon.s3.analyticsaccelerator.util.S3URI;
  * responsibility of the caller to close the client and to make sure that it remains active for
  * {@link S3SeekableInputStreamFactory#createStream(S3URI)} to vend correct {@link
  * SeekableInputStream}.
+ *
+ * <p>Requests the factory makes through the client can be held to an adaptive concurrency limit
+ * shared by all its streams, see {@link PhysicalIOConfiguration#isConcurrencyLimitEnabled()}.
  */
 @Getter(AccessLevel.PACKAGE)
 public class S3SeekableInputStreamFactory implements AutoCloseable {
   private final S3SeekableInputStreamConfiguration configuration;
   private final ParquetColumnPrefetchStore parquetColumnPrefetchStore;
+  private final ConcurrencyLimitedObjectClient objectClient;
   private final MetadataStore objectMetadataStore;
   private final BlobStore objectBlobStore;
   private final Telemetry telemetry;
@@ -77,13 +95,19 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
     this.configuration = configuration;
     this.metrics = new Metrics();
     this.telemetry = Telemetry.createTelemetry(configuration.getTelemetryConfiguration());
+    // Every request of the factory is held to the same concurrency limit, if it is enabled
+    this.objectClient =
+        new ConcurrencyLimitedObjectClient(
+            objectClient, configuration.getPhysicalIOConfiguration(), metrics);
     this.parquetColumnPrefetchStore =
         new ParquetColumnPrefetchStore(configuration.getLogicalIOConfiguration());
     this.objectMetadataStore =
-        new MetadataStore(objectClient, telemetry, configuration.getPhysicalIOConfiguration());
+        new MetadataStore(
+            this.objectClient, telemetry, configuration.getPhysicalIOConfiguration(), metrics);
     this.objectFormatSelector = new ObjectFormatSelector(configuration.getLogicalIOConfiguration());
     this.objectBlobStore =
-        new BlobStore(objectClient, telemetry, configuration.getPhysicalIOConfiguration(), metrics);
+        new BlobStore(
+            this.objectClient, telemetry, configuration.getPhysicalIOConfiguration(), metrics);
     // TODO: calling applications should be able to pass in a thread pool if they so wish
     this.threadPool =
         Executors.newFixedThreadPool(
@@ -130,6 +154,119 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
         s3URI, createLogicalIO(s3URI, openStreamInformation), telemetry);
   }
 
+  /**
+   * Prefetches the metadata of objects that are about to be opened. See {@link
+   * #prefetchMetadata(Map)}.
+   *
+   * @param s3URIs the S3 URIs of the objects
+   * @return a future that completes once the metadata of all objects has been looked up
+   */
+  public CompletableFuture<Void> prefetchMetadata(@NonNull Collection<S3URI> s3URIs) {
+    Map<S3URI, OpenStreamInformation> objects = new LinkedHashMap<>();
+    s3URIs.forEach(s3URI -> objects.put(s3URI, OpenStreamInformation.DEFAULT));
+    return prefetchMetadata(objects);
+  }
+
+  /**
+   * Prefetches the metadata of objects that are about to be opened, such as the files a query plan
+   * reads, so that opening them does not wait for it.
+   *
+   * <p>Metadata that is already known from {@link OpenStreamInformation#getObjectMetadata()} is
+   * stored right away. The rest is looked up with at most {@link
+   * PhysicalIOConfiguration#getMetadataPrefetchConcurrency()} requests in flight at once. Parquet
+   * objects are looked up with a GET of their tail when {@link
+   * PhysicalIOConfiguration#isHeadlessOpenEnabled()}, and the tail is kept in the blob store;
+   * other objects with a HEAD. Lookups that fail are left for the streams opening the objects to
+   * retry.
+   *
+   * @param objects the S3 URIs of the objects, with the known information of each
+   * @return a future that completes once the metadata of all objects has been looked up
+   */
+  public CompletableFuture<Void> prefetchMetadata(
+      @NonNull Map<S3URI, OpenStreamInformation> objects) {
+    Queue<Map.Entry<S3URI, OpenStreamInformation>> pending = new ConcurrentLinkedQueue<>();
+    objects.forEach(
+        (s3URI, openStreamInformation) -> {
+          if (openStreamInformation.getObjectMetadata() != null) {
+            storeObjectMetadata(s3URI, openStreamInformation.getObjectMetadata());
+          } else {
+            pending.add(new AbstractMap.SimpleImmutableEntry<>(s3URI, openStreamInformation));
+          }
+        });
+
+    int concurrency =
+        Math.min(
+            pending.size(),
+            configuration.getPhysicalIOConfiguration().getMetadataPrefetchConcurrency());
+    CompletableFuture<?>[] lookups = new CompletableFuture<?>[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      lookups[i] = prefetchPendingMetadata(pending);
+    }
+    return CompletableFuture.allOf(lookups);
+  }
+
+  /**
+   * Looks up the metadata of pending objects one after the other, until there are none left.
+   * Lookups answered from the cache are done in a loop rather than by chaining futures, so that
+   * long runs of them do not grow the stack.
+   *
+   * @param pending the objects whose metadata is still to be looked up
+   * @return a future that completes once there are no objects left to look up
+   */
+  private CompletableFuture<Void> prefetchPendingMetadata(
+      Queue<Map.Entry<S3URI, OpenStreamInformation>> pending) {
+    Map.Entry<S3URI, OpenStreamInformation> next;
+    while ((next = pending.poll()) != null) {
+      CompletableFuture<Void> lookup = prefetchMetadata(next.getKey(), next.getValue());
+      if (!lookup.isDone()) {
+        return lookup
+            .exceptionally(error -> null)
+            .thenCompose(ignored -> prefetchPendingMetadata(pending));
+      }
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private CompletableFuture<Void> prefetchMetadata(
+      S3URI s3URI, OpenStreamInformation openStreamInformation) {
+    CompletableFuture<Optional<ObjectContent>> tail =
+        objectFormatSelector.getObjectFormat(s3URI, openStreamInformation) == ObjectFormat.PARQUET
+            ? objectMetadataStore.asyncGetTail(s3URI, openStreamInformation)
+            : CompletableFuture.completedFuture(Optional.empty());
+    return tail.thenCompose(
+        content ->
+            objectMetadataStore
+                .asyncGet(s3URI, openStreamInformation)
+                .whenComplete(
+                    (metadata, error) -> {
+                      // Without metadata the tail cannot be handed to the blob store, which would
+                      // otherwise close it
+                      if (error != null) {
+                        content.ifPresent(c -> closeTail(s3URI, c));
+                      }
+                    })
+                .thenAccept(
+                    metadata ->
+                        content.ifPresent(
+                            c ->
+                                objectBlobStore.addTail(
+                                    ObjectKey.builder()
+                                        .s3URI(s3URI)
+                                        .etag(metadata.getEtag())
+                                        .build(),
+                                    metadata,
+                                    openStreamInformation,
+                                    c))));
+  }
+
+  private static void closeTail(S3URI s3URI, ObjectContent content) {
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the tail of {}", s3URI, e);
+    }
+  }
+
   LogicalIO createLogicalIO(S3URI s3URI) throws IOException {
     return createLogicalIO(s3URI, OpenStreamInformation.DEFAULT);
   }
@@ -146,7 +283,8 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
                 objectBlobStore,
                 telemetry,
                 openStreamInformation,
-                threadPool),
+                threadPool,
+                new PrefetchTracker(configuration.getPhysicalIOConfiguration())),
             telemetry,
             configuration.getLogicalIOConfiguration(),
             parquetColumnPrefetchStore);
@@ -160,7 +298,8 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
                 objectBlobStore,
                 telemetry,
                 openStreamInformation,
-                threadPool),
+                threadPool,
+                new PrefetchTracker(configuration.getPhysicalIOConfiguration())),
             telemetry,
             configuration.getLogicalIOConfiguration());
 
@@ -173,7 +312,8 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
                 objectBlobStore,
                 telemetry,
                 openStreamInformation,
-                threadPool),
+                threadPool,
+                new PrefetchTracker(configuration.getPhysicalIOConfiguration())),
             telemetry);
     }
   }
@@ -193,6 +333,7 @@ public class S3SeekableInputStreamFactory implements AutoCloseable {
   public void close() throws IOException {
     this.objectMetadataStore.close();
     this.objectBlobStore.close();
+    this.objectClient.close();
     this.telemetry.close();
   }
 }
@@ -45,6 +45,8 @@ public class LogicalIOConfiguration {
   private static final String DEFAULT_JSON_FORMAT_SELECTOR_REGEX = "^.*\\.(json|JSON)$";
   private static final String DEFAULT_TXT_FORMAT_SELECTOR_REGEX = "^.*\\.(txt|TXT)$";
   private static final PrefetchMode DEFAULT_PREFETCHING_MODE = PrefetchMode.ROW_GROUP;
+  private static final String DEFAULT_PARQUET_FOOTER_CACHE_DIRECTORY = "";
+  private static final int DEFAULT_PARQUET_FOOTER_CACHE_SIZE = 10_000;
 
   private static final long DEFAULT_PARTITION_SIZE = 128 * ONE_MB;
 
@@ -117,6 +119,16 @@ public class LogicalIOConfiguration {
   @Builder.Default private String txtFormatSelectorRegex = DEFAULT_TXT_FORMAT_SELECTOR_REGEX;
   private static final String TXT_FORMAT_SELECTOR_REGEX = "txt.format.selector.regex";
 
+  @Builder.Default
+  private String parquetFooterCacheDirectory = DEFAULT_PARQUET_FOOTER_CACHE_DIRECTORY;
+
+  private static final String PARQUET_FOOTER_CACHE_DIRECTORY_KEY =
+      "parquet.footer.cache.directory";
+
+  @Builder.Default private int parquetFooterCacheSize = DEFAULT_PARQUET_FOOTER_CACHE_SIZE;
+
+  private static final String PARQUET_FOOTER_CACHE_SIZE_KEY = "parquet.footer.cache.size";
+
   /**
    * Constructs {@link LogicalIOConfiguration} from {@link ConnectorConfiguration} object.
    *
@@ -165,6 +177,11 @@ public class LogicalIOConfiguration {
             configuration.getString(JSON_FORMAT_SELECTOR_REGEX, DEFAULT_JSON_FORMAT_SELECTOR_REGEX))
         .txtFormatSelectorRegex(
             configuration.getString(TXT_FORMAT_SELECTOR_REGEX, DEFAULT_TXT_FORMAT_SELECTOR_REGEX))
+        .parquetFooterCacheDirectory(
+            configuration.getString(
+                PARQUET_FOOTER_CACHE_DIRECTORY_KEY, DEFAULT_PARQUET_FOOTER_CACHE_DIRECTORY))
+        .parquetFooterCacheSize(
+            configuration.getInt(PARQUET_FOOTER_CACHE_SIZE_KEY, DEFAULT_PARQUET_FOOTER_CACHE_SIZE))
         .build();
   }
 
@@ -189,6 +206,8 @@ public class LogicalIOConfiguration {
     builder.append("\ttxtFormatSelectorRegex: " + txtFormatSelectorRegex + "\n");
     builder.append("\tprefetchingMode: " + prefetchingMode + "\n");
     builder.append("\tpartitionSize: " + partitionSize + "\n");
+    builder.append("\tparquetFooterCacheDirectory: " + parquetFooterCacheDirectory + "\n");
+    builder.append("\tparquetFooterCacheSize: " + parquetFooterCacheSize + "\n");
 
     return builder.toString();
   }
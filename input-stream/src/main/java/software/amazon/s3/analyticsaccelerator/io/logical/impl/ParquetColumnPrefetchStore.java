@@ -23,10 +23,13 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.logical.parquet.CachedFooter;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ColumnMappers;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ColumnMetadata;
+import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetFooterCache;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetMetadataParsingTask;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetPredictivePrefetchingTask;
 import software.amazon.s3.analyticsaccelerator.util.PrefetchMode;
@@ -39,6 +42,9 @@ import software.amazon.s3.analyticsaccelerator.util.S3URI;
  * streams as calling applications may open and close a stream to a file several times while
  * reading. For Spark, this was observed to happen as a stream to a Parquet file is first opened to
  * read the footer, and then a separate stream is opened to read the data.
+ *
+ * <p>Footers can additionally be kept in a {@link ParquetFooterCache} on local disk, which outlives
+ * both the streams and this store.
  */
 @SuppressFBWarnings(
     value = "SE_BAD_FIELD",
@@ -120,6 +126,12 @@ public class ParquetColumnPrefetchStore {
    */
   private final Map<S3URI, List<Integer>> dictionaryRowGroupsPrefetched;
 
+  /**
+   * Footers persisted on local disk, keyed by S3 URI and etag. Unlike columnMappersStore, this
+   * survives JVM restarts. It is disabled unless a directory is configured.
+   */
+  private final ParquetFooterCache footerCache;
+
   private final LogicalIOConfiguration configuration;
 
   /**
@@ -188,6 +200,7 @@ public class ParquetColumnPrefetchStore {
     this.columnRowGroupsPrefetched = columnRowGroupsPrefetched;
     this.recentlyReadDictionariesPerSchema = recentlyReadDictionariesPerSchema;
     this.dictionaryRowGroupsPrefetched = dictionaryRowGroupsPrefetched;
+    this.footerCache = new ParquetFooterCache(configuration);
   }
 
   /**
@@ -210,6 +223,28 @@ public class ParquetColumnPrefetchStore {
     columnMappersStore.put(s3URI, columnMappers);
   }
 
+  /**
+   * Gets the footer of a particular version of an object from the persistent footer cache.
+   *
+   * @param s3URI the S3URI to get the footer for
+   * @param etag the etag of the object
+   * @return the cached footer, or empty if it is not cached or the cache is disabled
+   */
+  public Optional<CachedFooter> getCachedFooter(S3URI s3URI, String etag) {
+    return footerCache.get(s3URI, etag);
+  }
+
+  /**
+   * Stores the footer of a particular version of an object in the persistent footer cache.
+   *
+   * @param s3URI the S3URI to store the footer for
+   * @param etag the etag of the object
+   * @param cachedFooter tail bytes and column mappings of the object
+   */
+  public void putCachedFooter(S3URI s3URI, String etag, CachedFooter cachedFooter) {
+    footerCache.put(s3URI, etag, cachedFooter);
+  }
+
   /**
    * Adds a column to the list of recent columns for a particular schema. This is a fixed sized
    * list, whose size is defined by maxColumnAccessCountStoreSize in {@link LogicalIOConfiguration}.
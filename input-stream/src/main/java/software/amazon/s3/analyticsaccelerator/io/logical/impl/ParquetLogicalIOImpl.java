@@ -66,10 +66,36 @@ public class ParquetLogicalIOImpl extends DefaultLogicalIOImpl {
    */
   @Override
   public int read(byte[] buf, int off, int len, long position) throws IOException {
+    // Footer reads are served from the persistent footer cache, when it holds the footer
+    int cachedBytesRead = this.parquetPrefetcher.readCachedFooter(buf, off, len, position);
+    if (cachedBytesRead >= 0) {
+      return cachedBytesRead;
+    }
+
     // Perform async prefetching before doing the blocking read
     this.parquetPrefetcher.prefetchRemainingColumnChunk(position, len);
     this.parquetPrefetcher.addToRecentColumnList(position, len);
 
     return super.read(buf, off, len, position);
   }
+
+  /**
+   * Reads the last len bytes of the object into the provided buffer, serving them from the
+   * persistent footer cache when it holds them.
+   *
+   * @param buf buffer to read data into
+   * @param off start position in buffer at which data is written
+   * @param len length of data to be read
+   * @return the number of bytes read
+   * @throws IOException IO error, if incurred.
+   */
+  @Override
+  public int readTail(byte[] buf, int off, int len) throws IOException {
+    int cachedBytesRead = this.parquetPrefetcher.readCachedFooterTail(buf, off, len);
+    if (cachedBytesRead >= 0) {
+      return cachedBytesRead;
+    }
+
+    return super.readTail(buf, off, len);
+  }
 }
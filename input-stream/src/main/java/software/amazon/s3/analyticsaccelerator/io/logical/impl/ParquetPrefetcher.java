@@ -16,7 +16,9 @@
 package software.amazon.s3.analyticsaccelerator.io.logical.impl;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -38,6 +40,10 @@ import software.amazon.s3.analyticsaccelerator.util.StreamAttributes;
  * (prefetching and caching footers, parsing and interpreting footers, collecting Parquet usage
  * information and doing prefetching based on them).
  *
+ * <p>When a footer for the object is found in the persistent {@link ParquetFooterCache}, the tail
+ * is neither fetched nor parsed again: its column mappings are used as they are, and reads that
+ * fall within the cached tail are served from it.
+ *
  * <p>The Parquet prefetcher swallows all exceptions arising from the tasks it schedules because
  * exceptions do not escape CompletableFutures.
  */
@@ -54,6 +60,10 @@ public class ParquetPrefetcher {
   @NonNull private final ParquetReadTailTask parquetReadTailTask;
   @NonNull private final ParquetPrefetchRemainingColumnTask parquetPrefetchRemainingColumnTask;
   @NonNull private final ParquetPredictivePrefetchingTask parquetPredictivePrefetchingTask;
+  @NonNull private final ParquetCachedFooterTask parquetCachedFooterTask;
+
+  // Footer restored from the persistent footer cache, if any
+  private final AtomicReference<CachedFooter> cachedFooter = new AtomicReference<>();
 
   private static final Logger LOG = LoggerFactory.getLogger(ParquetPrefetcher.class);
 
@@ -89,7 +99,8 @@ public class ParquetPrefetcher {
         new ParquetPrefetchRemainingColumnTask(
             s3Uri, telemetry, physicalIO, parquetColumnPrefetchStore),
         new ParquetPredictivePrefetchingTask(
-            s3Uri, telemetry, logicalIOConfiguration, physicalIO, parquetColumnPrefetchStore));
+            s3Uri, telemetry, logicalIOConfiguration, physicalIO, parquetColumnPrefetchStore),
+        new ParquetCachedFooterTask(s3Uri, telemetry, physicalIO, parquetColumnPrefetchStore));
   }
 
   /**
@@ -154,17 +165,32 @@ public class ParquetPrefetcher {
    *     result of this call
    */
   private CompletableFuture<IOPlanExecution> prefetchFooterAndBuildMetadataImpl() {
+    boolean shouldPrefetch = shouldPrefetch();
+    Optional<CachedFooter> cachedFooter = parquetCachedFooterTask.loadFooter();
+    cachedFooter.ifPresent(this.cachedFooter::set);
+
     if (logicalIOConfiguration.isPrefetchFooterEnabled()) {
-      parquetPrefetchTailTask.prefetchTail();
+      if (cachedFooter.isPresent()) {
+        parquetPrefetchTailTask.prefetchTail(cachedFooter.get().getTailRange());
+      } else {
+        parquetPrefetchTailTask.prefetchTail();
+      }
     }
 
-    if (shouldPrefetch()) {
-      // TODO: https://github.com/awslabs/analytics-accelerator-s3/issues/88
-      CompletableFuture<ColumnMappers> columnMappersCompletableFuture =
-          CompletableFuture.supplyAsync(parquetReadTailTask::readFileTail)
-              .thenApply(parquetMetadataParsingTask::storeColumnMappers)
-              .exceptionally(
-                  (e) -> new ColumnMappers(Collections.emptyMap(), Collections.emptyMap()));
+    if (shouldPrefetch) {
+      CompletableFuture<ColumnMappers> columnMappersCompletableFuture;
+      if (cachedFooter.isPresent()) {
+        ColumnMappers columnMappers = cachedFooter.get().getColumnMappers();
+        parquetColumnPrefetchStore.putColumnMappers(s3URI, columnMappers);
+        columnMappersCompletableFuture = CompletableFuture.completedFuture(columnMappers);
+      } else {
+        // TODO: https://github.com/awslabs/analytics-accelerator-s3/issues/88
+        columnMappersCompletableFuture =
+            CompletableFuture.supplyAsync(parquetReadTailTask::readFileTail)
+                .thenApply(this::parseAndCacheFooter)
+                .exceptionally(
+                    (e) -> new ColumnMappers(Collections.emptyMap(), Collections.emptyMap()));
+      }
 
       return prefetchPredictedColumns(columnMappersCompletableFuture);
     }
@@ -173,6 +199,44 @@ public class ParquetPrefetcher {
         IOPlanExecution.builder().state(IOPlanState.SKIPPED).build());
   }
 
+  private ColumnMappers parseAndCacheFooter(FileTail fileTail) {
+    ColumnMappers columnMappers = parquetMetadataParsingTask.storeColumnMappers(fileTail);
+    parquetCachedFooterTask.storeFooter(fileTail, columnMappers);
+    return columnMappers;
+  }
+
+  /**
+   * Serves a read from the footer restored from the persistent footer cache.
+   *
+   * @param buf buffer to read data into
+   * @param off start position in buffer at which data is written
+   * @param len length of data to be read
+   * @param position the position to begin reading from
+   * @return the number of bytes read, or -1 if there is no cached footer covering the position
+   */
+  public int readCachedFooter(byte[] buf, int off, int len, long position) {
+    CachedFooter footer = cachedFooter.get();
+    return footer == null ? -1 : footer.read(buf, off, len, position);
+  }
+
+  /**
+   * Serves a read of the last len bytes of the object from the footer restored from the
+   * persistent footer cache.
+   *
+   * @param buf buffer to read data into
+   * @param off start position in buffer at which data is written
+   * @param len length of data to be read
+   * @return the number of bytes read, or -1 if there is no cached footer covering the read
+   */
+  public int readCachedFooterTail(byte[] buf, int off, int len) {
+    CachedFooter footer = cachedFooter.get();
+    if (footer == null || len <= 0) {
+      return -1;
+    }
+    // The cached tail always runs to the last byte of the object
+    return footer.read(buf, off, len, footer.getTailRange().getEnd() + 1 - len);
+  }
+
   private CompletableFuture<IOPlanExecution> prefetchPredictedColumns(
       CompletableFuture<ColumnMappers> columnMappersCompletableFuture) {
 
@@ -29,6 +29,7 @@ import software.amazon.s3.analyticsaccelerator.util.S3URI;
  * Spark's data processing patterns.
  */
 public class SequentialLogicalIOImpl extends DefaultLogicalIOImpl {
+  private final PhysicalIO physicalIO;
   private final SequentialPrefetcher sequentialPrefetcher;
 
   /**
@@ -45,10 +46,25 @@ public class SequentialLogicalIOImpl extends DefaultLogicalIOImpl {
       @NonNull Telemetry telemetry,
       @NonNull LogicalIOConfiguration logicalIOConfiguration) {
     super(s3URI, physicalIO, telemetry);
+    this.physicalIO = physicalIO;
     this.sequentialPrefetcher =
         new SequentialPrefetcher(s3URI, physicalIO, telemetry, logicalIOConfiguration);
   }
 
+  /**
+   * Reads a byte from the given position.
+   *
+   * @param position the position to read
+   * @return an unsigned int representing the byte that was read
+   * @throws IOException IO error, if incurred.
+   */
+  @Override
+  public int read(long position) throws IOException {
+    int byteRead = super.read(position);
+    physicalIO.dropBehind(position);
+    return byteRead;
+  }
+
   /**
    * Reads data into the provided buffer
    *
@@ -62,7 +78,12 @@ public class SequentialLogicalIOImpl extends DefaultLogicalIOImpl {
   @Override
   public int read(byte[] buf, int off, int len, long position) throws IOException {
     sequentialPrefetcher.prefetch(position);
-    return super.read(buf, off, len, position);
+    int bytesRead = super.read(buf, off, len, position);
+    if (bytesRead > 0) {
+      // Sequential readers do not come back, so whatever lies behind them only takes up memory
+      physicalIO.dropBehind(position + bytesRead);
+    }
+    return bytesRead;
   }
 
   @Override
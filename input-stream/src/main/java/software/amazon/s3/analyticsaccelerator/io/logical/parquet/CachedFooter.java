@@ -0,0 +1,87 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+
+/**
+ * A Parquet footer restored from the {@link ParquetFooterCache}: the raw bytes of the file tail
+ * together with the {@link ColumnMappers} that were derived from them.
+ */
+public class CachedFooter {
+  @Getter private final Range tailRange;
+  @Getter private final ColumnMappers columnMappers;
+  private final byte[] tail;
+
+  /**
+   * Creates a new instance of {@link CachedFooter}.
+   *
+   * @param tailRange the range of the object the tail bytes were read from
+   * @param tail the raw tail bytes
+   * @param columnMappers the column mappings derived from the tail
+   */
+  public CachedFooter(
+      @NonNull Range tailRange, @NonNull byte[] tail, @NonNull ColumnMappers columnMappers) {
+    if (tail.length != tailRange.getLength()) {
+      throw new IllegalArgumentException(
+          "Tail of " + tail.length + " bytes does not match range " + tailRange);
+    }
+    this.tailRange = tailRange;
+    this.tail = tail.clone();
+    this.columnMappers = columnMappers;
+  }
+
+  /**
+   * Returns the tail bytes in the same shape {@link ParquetReadTailTask} produces them in.
+   *
+   * @return the file tail
+   */
+  public FileTail getFileTail() {
+    return new FileTail(ByteBuffer.wrap(tail.clone()), tail.length);
+  }
+
+  /**
+   * Serves a read from the cached tail bytes. Because the tail always runs to the end of the
+   * object, a read starting inside the tail can be fully served from it.
+   *
+   * @param buf buffer to read data into
+   * @param off start position in buffer at which data is written
+   * @param len length of data to be read
+   * @param position the position to begin reading from
+   * @return the number of bytes read, or -1 if the position is not covered by the cached tail
+   */
+  public int read(byte[] buf, int off, int len, long position) {
+    if (!tailRange.contains(position)) {
+      return -1;
+    }
+    int start = (int) (position - tailRange.getStart());
+    int bytesRead = Math.min(len, tail.length - start);
+    System.arraycopy(tail, start, buf, off, bytesRead);
+    return bytesRead;
+  }
+
+  /**
+   * Returns the raw tail bytes so they can be persisted.
+   *
+   * @return a copy of the raw tail bytes
+   */
+  byte[] getTailBytes() {
+    return tail.clone();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Operation;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
+import software.amazon.s3.analyticsaccelerator.io.logical.impl.ParquetColumnPrefetchStore;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIO;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+import software.amazon.s3.analyticsaccelerator.util.StreamAttributes;
+
+/**
+ * Task for restoring the footer of a parquet file from the persistent {@link ParquetFooterCache},
+ * and for saving footers that had to be read and parsed into it. Best effort only, failures are
+ * logged and treated as cache misses.
+ */
+public class ParquetCachedFooterTask {
+  private final S3URI s3URI;
+  private final Telemetry telemetry;
+  private final PhysicalIO physicalIO;
+  private final ParquetColumnPrefetchStore parquetColumnPrefetchStore;
+  private static final String OPERATION_PARQUET_LOAD_CACHED_FOOTER =
+      "parquet.task.load.cached.footer";
+  private static final Logger LOG = LoggerFactory.getLogger(ParquetCachedFooterTask.class);
+
+  /**
+   * Creates a new instance of {@link ParquetCachedFooterTask}.
+   *
+   * @param s3URI the S3URI of the object
+   * @param telemetry an instance of {@link Telemetry} to use
+   * @param physicalIO PhysicalIO instance
+   * @param parquetColumnPrefetchStore object containing Parquet usage information
+   */
+  public ParquetCachedFooterTask(
+      @NonNull S3URI s3URI,
+      @NonNull Telemetry telemetry,
+      @NonNull PhysicalIO physicalIO,
+      @NonNull ParquetColumnPrefetchStore parquetColumnPrefetchStore) {
+    this.s3URI = s3URI;
+    this.telemetry = telemetry;
+    this.physicalIO = physicalIO;
+    this.parquetColumnPrefetchStore = parquetColumnPrefetchStore;
+  }
+
+  /**
+   * Restores the footer of the current version of the object from the persistent cache.
+   *
+   * @return the cached footer, or empty if there is none
+   */
+  public Optional<CachedFooter> loadFooter() {
+    return telemetry.measureStandard(
+        () ->
+            Operation.builder()
+                .name(OPERATION_PARQUET_LOAD_CACHED_FOOTER)
+                .attribute(StreamAttributes.uri(this.s3URI))
+                .build(),
+        () -> {
+          try {
+            String etag = physicalIO.metadata().getEtag();
+            return parquetColumnPrefetchStore.getCachedFooter(s3URI, etag);
+          } catch (Exception e) {
+            LOG.debug("Unable to load cached parquet footer for {}.", s3URI.getKey(), e);
+            return Optional.empty();
+          }
+        });
+  }
+
+  /**
+   * Saves the footer of the current version of the object to the persistent cache.
+   *
+   * @param fileTail the tail of the parquet file, as read by {@link ParquetReadTailTask}
+   * @param columnMappers the column mappings parsed from the tail
+   */
+  public void storeFooter(@NonNull FileTail fileTail, @NonNull ColumnMappers columnMappers) {
+    try {
+      int tailLength = fileTail.getFileTailLength();
+      if (tailLength == 0) {
+        return;
+      }
+
+      ObjectMetadata metadata = physicalIO.metadata();
+      long contentLength = metadata.getContentLength();
+      byte[] tail = new byte[tailLength];
+      // Parsing moves the position of the buffer, so read from a rewound view of it
+      ByteBuffer buffer = fileTail.getFileTail().duplicate();
+      buffer.rewind();
+      buffer.get(tail);
+
+      parquetColumnPrefetchStore.putCachedFooter(
+          s3URI,
+          metadata.getEtag(),
+          new CachedFooter(
+              new Range(contentLength - tailLength, contentLength - 1), tail, columnMappers));
+    } catch (Exception e) {
+      LOG.debug("Unable to store parquet footer for {} in the cache.", s3URI.getKey(), e);
+    }
+  }
+}
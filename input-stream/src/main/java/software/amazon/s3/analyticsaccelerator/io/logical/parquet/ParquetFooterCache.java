@@ -0,0 +1,324 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+/**
+ * A cache of Parquet footers on local disk that survives JVM restarts. Each entry holds the raw
+ * tail bytes of an object and the {@link ColumnMappers} parsed from them, so a stream opened on an
+ * object seen before can skip both the tail GET and the Thrift parse.
+ *
+ * <p>Entries are keyed by S3 URI and etag, so a rewritten object never matches a stale footer.
+ * Every entry lives in its own file, named after a hash of the key, and is written to a temporary
+ * file first and then moved into place, so concurrent writers (including other processes sharing
+ * the directory) never observe a partial entry. The number of entries is bounded by {@link
+ * LogicalIOConfiguration#getParquetFooterCacheSize()}; the entries read least recently are
+ * deleted first. Entries are ordered by an index kept in memory, which is rebuilt from the
+ * directory once every as many puts as the cache holds entries, so that entries written by other
+ * processes, or before a restart, are accounted for without listing the directory on every put.
+ *
+ * <p>The cache is best effort: any failure to read or write an entry is logged and treated as a
+ * miss.
+ */
+public class ParquetFooterCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ParquetFooterCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String ENTRY_SUFFIX = ".footer";
+
+  private final Path directory;
+  @Getter private final boolean enabled;
+  private final int maxEntries;
+
+  /** The entries known to be in the directory, read least recently first */
+  private final LinkedHashMap<Path, Boolean> index = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Puts since the index was last rebuilt from the directory, guarded by the index */
+  private int putsSinceScan;
+
+  /**
+   * Creates a new instance of {@link ParquetFooterCache}. The cache is disabled unless {@link
+   * LogicalIOConfiguration#getParquetFooterCacheDirectory()} points to a directory that exists or
+   * can be created.
+   *
+   * @param configuration LogicalIO configuration
+   */
+  public ParquetFooterCache(@NonNull LogicalIOConfiguration configuration) {
+    String directoryName = configuration.getParquetFooterCacheDirectory();
+    this.maxEntries = configuration.getParquetFooterCacheSize();
+    this.directory =
+        directoryName == null || directoryName.isEmpty() ? null : Paths.get(directoryName);
+    this.enabled = directory != null && maxEntries > 0 && createDirectory(directory);
+  }
+
+  private static boolean createDirectory(Path directory) {
+    try {
+      Files.createDirectories(directory);
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Unable to create Parquet footer cache directory {}, cache disabled.", directory, e);
+      return false;
+    }
+  }
+
+  /**
+   * Looks up the footer of an object.
+   *
+   * @param s3URI the S3 URI of the object
+   * @param etag the etag of the object
+   * @return the cached footer, or empty if there is none for this version of the object
+   */
+  public Optional<CachedFooter> get(@NonNull S3URI s3URI, String etag) {
+    if (!enabled || etag == null) {
+      return Optional.empty();
+    }
+
+    Path entry = entryPath(s3URI, etag);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      if (in.readInt() != FORMAT_VERSION
+          || !in.readUTF().equals(s3URI.toString())
+          || !in.readUTF().equals(etag)) {
+        return Optional.empty();
+      }
+      CachedFooter cachedFooter = readFooter(in, Files.size(entry));
+      // Keeps recently read entries from being the first ones deleted when the cache is full, also
+      // after a restart
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      synchronized (index) {
+        index.put(entry, Boolean.TRUE);
+      }
+      return Optional.of(cachedFooter);
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (Exception e) {
+      LOG.debug("Unable to read cached Parquet footer for {}, discarding it.", s3URI.getKey(), e);
+      synchronized (index) {
+        index.remove(entry);
+      }
+      delete(entry);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores the footer of an object.
+   *
+   * @param s3URI the S3 URI of the object
+   * @param etag the etag of the object
+   * @param cachedFooter the footer to store
+   */
+  public void put(@NonNull S3URI s3URI, String etag, @NonNull CachedFooter cachedFooter) {
+    if (!enabled || etag == null) {
+      return;
+    }
+
+    Path entry = entryPath(s3URI, etag);
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(s3URI.toString());
+        out.writeUTF(etag);
+        writeFooter(out, cachedFooter);
+      }
+      move(temp, entry);
+      temp = null;
+      delete(evict(entry));
+    } catch (Exception e) {
+      LOG.debug("Unable to cache Parquet footer for {}.", s3URI.getKey(), e);
+    } finally {
+      if (temp != null) {
+        delete(temp);
+      }
+    }
+  }
+
+  private static void writeFooter(DataOutputStream out, CachedFooter cachedFooter)
+      throws IOException {
+    Range tailRange = cachedFooter.getTailRange();
+    out.writeLong(tailRange.getStart());
+    out.writeLong(tailRange.getEnd());
+    out.write(cachedFooter.getTailBytes());
+
+    // The offset index is keyed by the start position of each column, so it can be rebuilt from
+    // the per column lists alone
+    Map<String, List<ColumnMetadata>> columnNameToColumnMap =
+        cachedFooter.getColumnMappers().getColumnNameToColumnMap();
+    out.writeInt(columnNameToColumnMap.size());
+    for (Map.Entry<String, List<ColumnMetadata>> column : columnNameToColumnMap.entrySet()) {
+      out.writeUTF(column.getKey());
+      out.writeInt(column.getValue().size());
+      for (ColumnMetadata columnMetadata : column.getValue()) {
+        out.writeInt(columnMetadata.getRowGroupIndex());
+        out.writeLong(columnMetadata.getDataPageOffset());
+        out.writeLong(columnMetadata.getDictionaryOffset());
+        out.writeLong(columnMetadata.getStartPos());
+        out.writeLong(columnMetadata.getCompressedSize());
+        out.writeInt(columnMetadata.getSchemaHash());
+      }
+    }
+  }
+
+  private static CachedFooter readFooter(DataInputStream in, long entrySize) throws IOException {
+    Range tailRange = new Range(in.readLong(), in.readLong());
+    // The length comes from the file, so it is checked before allocating that many bytes
+    if (tailRange.getEnd() - tailRange.getStart() + 1 > entrySize) {
+      throw new IOException("Tail of the cached footer is longer than its entry");
+    }
+    byte[] tail = new byte[tailRange.getLength()];
+    in.readFully(tail);
+
+    Map<Long, ColumnMetadata> offsetIndexToColumnMap = new HashMap<>();
+    Map<String, List<ColumnMetadata>> columnNameToColumnMap = new HashMap<>();
+    int columns = in.readInt();
+    for (int i = 0; i < columns; i++) {
+      String columnName = in.readUTF();
+      int rowGroups = in.readInt();
+      List<ColumnMetadata> columnMetadataList = new ArrayList<>(rowGroups);
+      for (int j = 0; j < rowGroups; j++) {
+        ColumnMetadata columnMetadata =
+            new ColumnMetadata(
+                in.readInt(),
+                columnName,
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readInt());
+        columnMetadataList.add(columnMetadata);
+        offsetIndexToColumnMap.put(columnMetadata.getStartPos(), columnMetadata);
+      }
+      columnNameToColumnMap.put(columnName, columnMetadataList);
+    }
+
+    return new CachedFooter(
+        tailRange, tail, new ColumnMappers(offsetIndexToColumnMap, columnNameToColumnMap));
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Adds a newly written entry to the index, and picks the entries read least recently for
+   * deletion until the cache is within its bounds.
+   *
+   * @param entry the entry written
+   * @return the entries to delete
+   */
+  private List<Path> evict(Path entry) throws IOException {
+    List<Path> evicted = new ArrayList<>();
+    synchronized (index) {
+      if (putsSinceScan == 0) {
+        scanDirectory();
+      }
+      putsSinceScan = (putsSinceScan + 1) % maxEntries;
+
+      index.put(entry, Boolean.TRUE);
+      Iterator<Path> eldestFirst = index.keySet().iterator();
+      while (index.size() > maxEntries) {
+        evicted.add(eldestFirst.next());
+        eldestFirst.remove();
+      }
+    }
+    return evicted;
+  }
+
+  /** Rebuilds the index from the entries in the directory, ordered by when they were last read. */
+  private void scanDirectory() throws IOException {
+    Map<Path, FileTime> lastModified = new HashMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+      for (Path entry : stream) {
+        try {
+          lastModified.put(entry, Files.getLastModifiedTime(entry));
+        } catch (IOException e) {
+          // Deleted concurrently, nothing to index
+        }
+      }
+    }
+    List<Path> eldestFirst = new ArrayList<>(lastModified.keySet());
+    eldestFirst.sort(Comparator.comparing(lastModified::get));
+    index.clear();
+    eldestFirst.forEach(entry -> index.put(entry, Boolean.TRUE));
+  }
+
+  private static void delete(Collection<Path> entries) {
+    entries.forEach(ParquetFooterCache::delete);
+  }
+
+  private static void delete(Path entry) {
+    try {
+      Files.deleteIfExists(entry);
+    } catch (IOException e) {
+      LOG.debug("Unable to delete Parquet footer cache file {}.", entry, e);
+    }
+  }
+
+  private Path entryPath(S3URI s3URI, String etag) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(s3URI.toString().getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+      md.update(etag.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder();
+      for (byte b : md.digest()) {
+        name.append(String.format("%02x", b));
+      }
+      return directory.resolve(name.append(ENTRY_SUFFIX).toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm not available", e);
+    }
+  }
+}
@@ -16,7 +16,9 @@
 package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +66,21 @@ public class ParquetPrefetchTailTask {
    * @return range of file prefetched
    */
   public List<Range> prefetchTail() {
+    return prefetchTail(Optional.empty());
+  }
+
+  /**
+   * Prefetch tail of the parquet file, skipping the ranges that are already held by a footer
+   * restored from the {@link ParquetFooterCache}.
+   *
+   * @param cachedTail the range of the object covered by the cached footer
+   * @return range of file prefetched
+   */
+  public List<Range> prefetchTail(@NonNull Range cachedTail) {
+    return prefetchTail(Optional.of(cachedTail));
+  }
+
+  private List<Range> prefetchTail(Optional<Range> cachedTail) {
     return telemetry.measureStandard(
         () ->
             Operation.builder()
@@ -75,6 +92,12 @@ public class ParquetPrefetchTailTask {
             long contentLength = physicalIO.metadata().getContentLength();
             List<Range> ranges =
                 ParquetUtils.getFileTailPrefetchRanges(logicalIOConfiguration, 0, contentLength);
+            if (cachedTail.isPresent()) {
+              ranges =
+                  ranges.stream()
+                      .filter(range -> !isCovered(range, cachedTail.get()))
+                      .collect(Collectors.toList());
+            }
             IOPlan ioPlan = new IOPlan(ranges);
             // Create a non-empty IOPlan only if we have a valid range to work with
             physicalIO.execute(ioPlan, ReadMode.PREFETCH_TAIL);
@@ -88,4 +111,8 @@ public class ParquetPrefetchTailTask {
           }
         });
   }
+
+  private static boolean isCovered(Range range, Range cachedTail) {
+    return cachedTail.getStart() <= range.getStart() && range.getEnd() <= cachedTail.getEnd();
+  }
 }
@@ -49,6 +49,14 @@ public interface PhysicalIO extends RandomAccessReadable {
   void readVectored(List<ObjectRange> objectRanges, IntFunction<ByteBuffer> allocate)
       throws IOException;
 
+  /**
+   * Signals that the reader is not going to read anything before the given position again, so the
+   * data held for it can be released.
+   *
+   * @param pos the position the reader has reached
+   */
+  void dropBehind(long pos);
+
   /**
    * Closes the PhysicalIO and optionally evicts associated data.
    *
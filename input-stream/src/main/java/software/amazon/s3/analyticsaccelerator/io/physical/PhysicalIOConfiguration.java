@@ -25,6 +25,7 @@ import lombok.Getter;
 import software.amazon.s3.analyticsaccelerator.common.ConnectorConfiguration;
 import software.amazon.s3.analyticsaccelerator.common.Preconditions;
 import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.SequentialReadProgression;
+import software.amazon.s3.analyticsaccelerator.util.SequentialPrefetchStrategy;
 
 /** Configuration for {@link PhysicalIO} */
 @Getter
@@ -47,6 +48,37 @@ public class PhysicalIOConfiguration {
   private static final boolean DEFAULT_SMALL_OBJECTS_PREFETCHING_ENABLED = true;
   private static final long DEFAULT_SMALL_OBJECT_SIZE_THRESHOLD = 8 * ONE_MB;
   private static final int DEFAULT_THREAD_POOL_SIZE = 96;
+  private static final boolean DEFAULT_OFF_HEAP_MEMORY_ENABLED = false;
+  private static final long DEFAULT_OFF_HEAP_SLAB_SIZE_BYTES = ONE_MB;
+  private static final long DEFAULT_SEEK_CANCELLATION_THRESHOLD_BYTES = 16 * ONE_MB;
+  private static final long DEFAULT_COALESCE_MAX_GAP_BYTES = 128 * ONE_KB;
+  private static final long DEFAULT_COALESCE_MAX_SIZE_BYTES = 8 * ONE_MB;
+  private static final SequentialPrefetchStrategy DEFAULT_SEQUENTIAL_PREFETCH_STRATEGY =
+      SequentialPrefetchStrategy.GEOMETRIC;
+  private static final boolean DEFAULT_BLOCK_ALIGNMENT_ENABLED = false;
+  private static final long DEFAULT_MEMORY_RESERVATION_TIMEOUT_MILLISECONDS = 100;
+  private static final long DEFAULT_METADATA_CACHE_TIMEOUT_MILLISECONDS = 10_000;
+  private static final long DEFAULT_PREFETCH_CACHE_TIMEOUT_MILLISECONDS = 1000;
+  private static final boolean DEFAULT_DROP_BEHIND_ENABLED = true;
+  private static final boolean DEFAULT_DISK_CACHE_ENABLED = false;
+  private static final String DEFAULT_DISK_CACHE_DIRECTORY = "";
+  private static final long DEFAULT_DISK_CACHE_CAPACITY_BYTES = 10 * ONE_GB;
+  private static final long DEFAULT_METADATA_STORE_TTL_MILLISECONDS = 0;
+  private static final long DEFAULT_METADATA_STORE_NEGATIVE_TTL_MILLISECONDS = 0;
+  private static final boolean DEFAULT_HEADLESS_OPEN_ENABLED = false;
+  private static final long DEFAULT_HEADLESS_OPEN_TAIL_BYTES = ONE_MB;
+  private static final int DEFAULT_METADATA_PREFETCH_CONCURRENCY = 16;
+  private static final boolean DEFAULT_NON_BLOCKING_INGESTION_ENABLED = false;
+  private static final boolean DEFAULT_HEDGING_ENABLED = false;
+  private static final double DEFAULT_HEDGING_PERCENTILE = 0.95;
+  private static final long DEFAULT_HEDGING_MIN_DELAY_MILLISECONDS = 20;
+  private static final double DEFAULT_HEDGING_BUDGET_RATIO = 0.05;
+  private static final boolean DEFAULT_CONCURRENCY_LIMIT_ENABLED = false;
+  private static final int DEFAULT_CONCURRENCY_LIMIT_MIN = 4;
+  private static final int DEFAULT_CONCURRENCY_LIMIT_MAX = 256;
+  private static final int DEFAULT_CONCURRENCY_LIMIT_INITIAL = 32;
+  private static final long DEFAULT_CONCURRENCY_LIMIT_LATENCY_MILLISECONDS = 500;
+  private static final double DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO = 0.9;
 
   /**
    * Capacity, in blobs. {@link PhysicalIOConfiguration#DEFAULT_MEMORY_CAPACITY_BYTES} by default.
@@ -56,7 +88,8 @@ public class PhysicalIOConfiguration {
   private static final String MEMORY_CAPACITY_BYTES_KEY = "max.memory.limit";
 
   /**
-   * Capacity, in blobs. {@link
+   * Period of the clean up that expires cache entries and reclaims idle blobs, in milliseconds.
+   * Evicted blocks are released as they are evicted, not by this clean up. {@link
    * PhysicalIOConfiguration#DEFAULT_MEMORY_CLEANUP_FREQUENCY_MILLISECONDS} by default.
    */
   @Builder.Default
@@ -151,6 +184,284 @@ public class PhysicalIOConfiguration {
 
   @Builder.Default private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
 
+  /**
+   * Controls whether block data is held in pooled off-heap slabs instead of on-heap byte arrays.
+   * {@link PhysicalIOConfiguration#DEFAULT_OFF_HEAP_MEMORY_ENABLED} by default.
+   */
+  @Builder.Default private boolean offHeapMemoryEnabled = DEFAULT_OFF_HEAP_MEMORY_ENABLED;
+
+  private static final String OFF_HEAP_MEMORY_ENABLED_KEY = "offheap.memory.enabled";
+
+  /**
+   * Size, in bytes, of the direct memory slabs blocks are assembled from when off-heap memory is
+   * enabled. Blocks smaller than a slab stay on the heap. {@link
+   * PhysicalIOConfiguration#DEFAULT_OFF_HEAP_SLAB_SIZE_BYTES} by default.
+   */
+  @Builder.Default private long offHeapSlabSizeBytes = DEFAULT_OFF_HEAP_SLAB_SIZE_BYTES;
+
+  private static final String OFF_HEAP_SLAB_SIZE_BYTES_KEY = "offheap.slab.size";
+
+  /**
+   * Distance, in bytes, a stream has to seek for its in-flight position driven prefetches to be
+   * cancelled. Prefetches that do not overlap the window of this size starting at the new position
+   * are cancelled. {@link PhysicalIOConfiguration#DEFAULT_SEEK_CANCELLATION_THRESHOLD_BYTES} by
+   * default.
+   */
+  @Builder.Default
+  private long seekCancellationThresholdBytes = DEFAULT_SEEK_CANCELLATION_THRESHOLD_BYTES;
+
+  private static final String SEEK_CANCELLATION_THRESHOLD_BYTES_KEY =
+      "prefetch.cancellation.seek.threshold";
+
+  /**
+   * Largest hole, in bytes, between two ranges of an IO plan that is read over so that both ranges
+   * are fetched with a single request. 0 disables coalescing. {@link
+   * PhysicalIOConfiguration#DEFAULT_COALESCE_MAX_GAP_BYTES} by default.
+   */
+  @Builder.Default private long coalesceMaxGapBytes = DEFAULT_COALESCE_MAX_GAP_BYTES;
+
+  private static final String COALESCE_MAX_GAP_BYTES_KEY = "coalesce.max.gap";
+
+  /**
+   * Largest size, in bytes, a range can grow to by coalescing ranges of an IO plan. {@link
+   * PhysicalIOConfiguration#DEFAULT_COALESCE_MAX_SIZE_BYTES} by default.
+   */
+  @Builder.Default private long coalesceMaxSizeBytes = DEFAULT_COALESCE_MAX_SIZE_BYTES;
+
+  private static final String COALESCE_MAX_SIZE_BYTES_KEY = "coalesce.max.size";
+
+  /**
+   * How the size of sequential prefetches is chosen, either growing geometrically with each
+   * generation or adapting to the measured consumer read rate and request latency. {@link
+   * PhysicalIOConfiguration#DEFAULT_SEQUENTIAL_PREFETCH_STRATEGY} by default.
+   */
+  @Builder.Default
+  private SequentialPrefetchStrategy sequentialPrefetchStrategy =
+      DEFAULT_SEQUENTIAL_PREFETCH_STRATEGY;
+
+  private static final String SEQUENTIAL_PREFETCH_STRATEGY_KEY = "sequentialprefetch.strategy";
+
+  /**
+   * Whether blocks are aligned to a grid of {@link PhysicalIOConfiguration#blockSizeBytes}. Reads
+   * are then rounded out to the grid, so every block but the last one of an object holds exactly
+   * one cell of it. {@link PhysicalIOConfiguration#DEFAULT_BLOCK_ALIGNMENT_ENABLED} by default.
+   */
+  @Builder.Default private boolean blockAlignmentEnabled = DEFAULT_BLOCK_ALIGNMENT_ENABLED;
+
+  private static final String BLOCK_ALIGNMENT_ENABLED_KEY = "block.alignment.enabled";
+
+  /**
+   * Longest time, in milliseconds, a read that needs data waits for memory headroom before it is
+   * allowed to go over {@link PhysicalIOConfiguration#memoryCapacityBytes}. {@link
+   * PhysicalIOConfiguration#DEFAULT_MEMORY_RESERVATION_TIMEOUT_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long memoryReservationTimeoutMilliseconds =
+      DEFAULT_MEMORY_RESERVATION_TIMEOUT_MILLISECONDS;
+
+  private static final String MEMORY_RESERVATION_TIMEOUT_MILLISECONDS_KEY =
+      "memory.reservation.timeout";
+
+  /**
+   * Cache timeout, in milliseconds, of footer and dictionary blocks. {@link
+   * PhysicalIOConfiguration#DEFAULT_METADATA_CACHE_TIMEOUT_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long metadataCacheTimeoutMilliseconds = DEFAULT_METADATA_CACHE_TIMEOUT_MILLISECONDS;
+
+  private static final String METADATA_CACHE_TIMEOUT_MILLISECONDS_KEY = "cache.timeout.metadata";
+
+  /**
+   * Cache timeout, in milliseconds, of prefetched blocks that have not been read yet. {@link
+   * PhysicalIOConfiguration#DEFAULT_PREFETCH_CACHE_TIMEOUT_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long prefetchCacheTimeoutMilliseconds = DEFAULT_PREFETCH_CACHE_TIMEOUT_MILLISECONDS;
+
+  private static final String PREFETCH_CACHE_TIMEOUT_MILLISECONDS_KEY = "cache.timeout.prefetch";
+
+  /**
+   * Whether sequential streams release the blocks they have read past right away, when no other
+   * stream has the object open. {@link PhysicalIOConfiguration#DEFAULT_DROP_BEHIND_ENABLED} by
+   * default.
+   */
+  @Builder.Default private boolean dropBehindEnabled = DEFAULT_DROP_BEHIND_ENABLED;
+
+  private static final String DROP_BEHIND_ENABLED_KEY = "dropbehind.enabled";
+
+  /**
+   * Whether blocks evicted from memory are spilled to a cache on local disk, from which later reads
+   * of the same data are served instead of the object store. {@link
+   * PhysicalIOConfiguration#DEFAULT_DISK_CACHE_ENABLED} by default.
+   */
+  @Builder.Default private boolean diskCacheEnabled = DEFAULT_DISK_CACHE_ENABLED;
+
+  private static final String DISK_CACHE_ENABLED_KEY = "disk.cache.enabled";
+
+  /**
+   * Directory holding the files of the disk cache. A temporary directory is used when empty. {@link
+   * PhysicalIOConfiguration#DEFAULT_DISK_CACHE_DIRECTORY} by default.
+   */
+  @Builder.Default private String diskCacheDirectory = DEFAULT_DISK_CACHE_DIRECTORY;
+
+  private static final String DISK_CACHE_DIRECTORY_KEY = "disk.cache.directory";
+
+  /**
+   * Capacity, in bytes, of the disk cache, beyond which the blocks read least recently and least
+   * often are deleted. {@link PhysicalIOConfiguration#DEFAULT_DISK_CACHE_CAPACITY_BYTES} by
+   * default.
+   */
+  @Builder.Default private long diskCacheCapacityBytes = DEFAULT_DISK_CACHE_CAPACITY_BYTES;
+
+  private static final String DISK_CACHE_CAPACITY_BYTES_KEY = "disk.cache.capacity";
+
+  /**
+   * Time, in milliseconds, after which cached object metadata is fetched again. 0 keeps metadata
+   * until it is evicted for capacity. {@link
+   * PhysicalIOConfiguration#DEFAULT_METADATA_STORE_TTL_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long metadataStoreTtlMilliseconds = DEFAULT_METADATA_STORE_TTL_MILLISECONDS;
+
+  private static final String METADATA_STORE_TTL_MILLISECONDS_KEY = "metadatastore.ttl";
+
+  /**
+   * Time, in milliseconds, for which a HEAD that found no object is remembered, so opening the same
+   * missing object again fails without another request. 0 disables negative caching. {@link
+   * PhysicalIOConfiguration#DEFAULT_METADATA_STORE_NEGATIVE_TTL_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long metadataStoreNegativeTtlMilliseconds =
+      DEFAULT_METADATA_STORE_NEGATIVE_TTL_MILLISECONDS;
+
+  private static final String METADATA_STORE_NEGATIVE_TTL_MILLISECONDS_KEY =
+      "metadatastore.negative.ttl";
+
+  /**
+   * Whether streams on objects with unknown metadata learn the size and ETag of the object from a
+   * suffix-range GET of its tail, instead of a HEAD. {@link
+   * PhysicalIOConfiguration#DEFAULT_HEADLESS_OPEN_ENABLED} by default.
+   */
+  @Builder.Default private boolean headlessOpenEnabled = DEFAULT_HEADLESS_OPEN_ENABLED;
+
+  private static final String HEADLESS_OPEN_ENABLED_KEY = "headless.open.enabled";
+
+  /**
+   * Number of bytes from the end of the object the GET of a HEAD-less open requests. {@link
+   * PhysicalIOConfiguration#DEFAULT_HEADLESS_OPEN_TAIL_BYTES} by default.
+   */
+  @Builder.Default private long headlessOpenTailBytes = DEFAULT_HEADLESS_OPEN_TAIL_BYTES;
+
+  private static final String HEADLESS_OPEN_TAIL_BYTES_KEY = "headless.open.tail.bytes";
+
+  /**
+   * Maximum number of requests a bulk metadata prefetch has in flight at once. {@link
+   * PhysicalIOConfiguration#DEFAULT_METADATA_PREFETCH_CONCURRENCY} by default.
+   */
+  @Builder.Default private int metadataPrefetchConcurrency = DEFAULT_METADATA_PREFETCH_CONCURRENCY;
+
+  private static final String METADATA_PREFETCH_CONCURRENCY_KEY = "metadata.prefetch.concurrency";
+
+  /**
+   * Whether blocks take the body of their response as the object client hands it over chunk by
+   * chunk, instead of draining a blocking stream, so that no thread is held for the duration of a
+   * transfer. {@link PhysicalIOConfiguration#DEFAULT_NON_BLOCKING_INGESTION_ENABLED} by default.
+   */
+  @Builder.Default
+  private boolean nonBlockingIngestionEnabled = DEFAULT_NON_BLOCKING_INGESTION_ENABLED;
+
+  private static final String NON_BLOCKING_INGESTION_ENABLED_KEY = "nonblocking.ingestion.enabled";
+
+  /**
+   * Whether a GET that has not responded once a percentile of recent response times has passed is
+   * duplicated, the first response to arrive being used. With non-blocking ingestion, the duplicate
+   * that responds last is aborted before any of its body is written into the block. {@link
+   * PhysicalIOConfiguration#DEFAULT_HEDGING_ENABLED} by default.
+   */
+  @Builder.Default private boolean hedgingEnabled = DEFAULT_HEDGING_ENABLED;
+
+  private static final String HEDGING_ENABLED_KEY = "hedging.enabled";
+
+  /**
+   * Percentile of recent times to first byte of GETs after which a GET that has not responded yet
+   * is hedged. {@link PhysicalIOConfiguration#DEFAULT_HEDGING_PERCENTILE} by default.
+   */
+  @Builder.Default private double hedgingPercentile = DEFAULT_HEDGING_PERCENTILE;
+
+  private static final String HEDGING_PERCENTILE_KEY = "hedging.percentile";
+
+  /**
+   * Minimum time in milliseconds a GET is given to respond before it is hedged, whatever the
+   * percentile. {@link PhysicalIOConfiguration#DEFAULT_HEDGING_MIN_DELAY_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long hedgingMinDelayMilliseconds = DEFAULT_HEDGING_MIN_DELAY_MILLISECONDS;
+
+  private static final String HEDGING_MIN_DELAY_MILLISECONDS_KEY = "hedging.min.delay";
+
+  /**
+   * Maximum number of hedges per GET, over time, so that hedging cannot multiply the load on a
+   * struggling object store. {@link PhysicalIOConfiguration#DEFAULT_HEDGING_BUDGET_RATIO} by
+   * default.
+   */
+  @Builder.Default private double hedgingBudgetRatio = DEFAULT_HEDGING_BUDGET_RATIO;
+
+  private static final String HEDGING_BUDGET_RATIO_KEY = "hedging.budget.ratio";
+
+  /**
+   * Whether the requests a factory makes to the object store are queued behind an adaptive
+   * concurrency limit, rather than all sent as soon as they are made. {@link
+   * PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_ENABLED} by default.
+   */
+  @Builder.Default private boolean concurrencyLimitEnabled = DEFAULT_CONCURRENCY_LIMIT_ENABLED;
+
+  private static final String CONCURRENCY_LIMIT_ENABLED_KEY = "concurrency.limit.enabled";
+
+  /**
+   * Lowest the concurrency limit backs off to. {@link
+   * PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_MIN} by default.
+   */
+  @Builder.Default private int concurrencyLimitMin = DEFAULT_CONCURRENCY_LIMIT_MIN;
+
+  private static final String CONCURRENCY_LIMIT_MIN_KEY = "concurrency.limit.min";
+
+  /**
+   * Highest the concurrency limit grows to. {@link
+   * PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_MAX} by default.
+   */
+  @Builder.Default private int concurrencyLimitMax = DEFAULT_CONCURRENCY_LIMIT_MAX;
+
+  private static final String CONCURRENCY_LIMIT_MAX_KEY = "concurrency.limit.max";
+
+  /**
+   * Concurrency limit before any request has completed. {@link
+   * PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_INITIAL} by default.
+   */
+  @Builder.Default private int concurrencyLimitInitial = DEFAULT_CONCURRENCY_LIMIT_INITIAL;
+
+  private static final String CONCURRENCY_LIMIT_INITIAL_KEY = "concurrency.limit.initial";
+
+  /**
+   * Time in milliseconds after which a request that has not responded is taken as a sign of
+   * congestion, and backs the concurrency limit off. {@link
+   * PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_LATENCY_MILLISECONDS} by default.
+   */
+  @Builder.Default
+  private long concurrencyLimitLatencyMilliseconds = DEFAULT_CONCURRENCY_LIMIT_LATENCY_MILLISECONDS;
+
+  private static final String CONCURRENCY_LIMIT_LATENCY_MILLISECONDS_KEY =
+      "concurrency.limit.latency.threshold";
+
+  /**
+   * Ratio the concurrency limit is multiplied by when requests are throttled or slow to respond.
+   * {@link PhysicalIOConfiguration#DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO} by default.
+   */
+  @Builder.Default
+  private double concurrencyLimitBackoffRatio = DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO;
+
+  private static final String CONCURRENCY_LIMIT_BACKOFF_RATIO_KEY =
+      "concurrency.limit.backoff.ratio";
+
   /** Default set of settings for {@link PhysicalIO} */
   public static final PhysicalIOConfiguration DEFAULT = PhysicalIOConfiguration.builder().build();
 
@@ -192,6 +503,85 @@ public class PhysicalIOConfiguration {
             configuration.getLong(
                 SMALL_OBJECT_SIZE_THRESHOLD_KEY, DEFAULT_SMALL_OBJECT_SIZE_THRESHOLD))
         .threadPoolSize(configuration.getInt(THREAD_POOL_SIZE_KEY, DEFAULT_THREAD_POOL_SIZE))
+        .offHeapMemoryEnabled(
+            configuration.getBoolean(OFF_HEAP_MEMORY_ENABLED_KEY, DEFAULT_OFF_HEAP_MEMORY_ENABLED))
+        .offHeapSlabSizeBytes(
+            configuration.getLong(OFF_HEAP_SLAB_SIZE_BYTES_KEY, DEFAULT_OFF_HEAP_SLAB_SIZE_BYTES))
+        .seekCancellationThresholdBytes(
+            configuration.getLong(
+                SEEK_CANCELLATION_THRESHOLD_BYTES_KEY, DEFAULT_SEEK_CANCELLATION_THRESHOLD_BYTES))
+        .coalesceMaxGapBytes(
+            configuration.getLong(COALESCE_MAX_GAP_BYTES_KEY, DEFAULT_COALESCE_MAX_GAP_BYTES))
+        .coalesceMaxSizeBytes(
+            configuration.getLong(COALESCE_MAX_SIZE_BYTES_KEY, DEFAULT_COALESCE_MAX_SIZE_BYTES))
+        .sequentialPrefetchStrategy(
+            SequentialPrefetchStrategy.fromString(
+                configuration.getString(
+                    SEQUENTIAL_PREFETCH_STRATEGY_KEY,
+                    DEFAULT_SEQUENTIAL_PREFETCH_STRATEGY.toString())))
+        .blockAlignmentEnabled(
+            configuration.getBoolean(BLOCK_ALIGNMENT_ENABLED_KEY, DEFAULT_BLOCK_ALIGNMENT_ENABLED))
+        .memoryReservationTimeoutMilliseconds(
+            configuration.getLong(
+                MEMORY_RESERVATION_TIMEOUT_MILLISECONDS_KEY,
+                DEFAULT_MEMORY_RESERVATION_TIMEOUT_MILLISECONDS))
+        .metadataCacheTimeoutMilliseconds(
+            configuration.getLong(
+                METADATA_CACHE_TIMEOUT_MILLISECONDS_KEY,
+                DEFAULT_METADATA_CACHE_TIMEOUT_MILLISECONDS))
+        .prefetchCacheTimeoutMilliseconds(
+            configuration.getLong(
+                PREFETCH_CACHE_TIMEOUT_MILLISECONDS_KEY,
+                DEFAULT_PREFETCH_CACHE_TIMEOUT_MILLISECONDS))
+        .dropBehindEnabled(
+            configuration.getBoolean(DROP_BEHIND_ENABLED_KEY, DEFAULT_DROP_BEHIND_ENABLED))
+        .diskCacheEnabled(
+            configuration.getBoolean(DISK_CACHE_ENABLED_KEY, DEFAULT_DISK_CACHE_ENABLED))
+        .diskCacheDirectory(
+            configuration.getString(DISK_CACHE_DIRECTORY_KEY, DEFAULT_DISK_CACHE_DIRECTORY))
+        .diskCacheCapacityBytes(
+            configuration.getLong(DISK_CACHE_CAPACITY_BYTES_KEY, DEFAULT_DISK_CACHE_CAPACITY_BYTES))
+        .metadataStoreTtlMilliseconds(
+            configuration.getLong(
+                METADATA_STORE_TTL_MILLISECONDS_KEY, DEFAULT_METADATA_STORE_TTL_MILLISECONDS))
+        .metadataStoreNegativeTtlMilliseconds(
+            configuration.getLong(
+                METADATA_STORE_NEGATIVE_TTL_MILLISECONDS_KEY,
+                DEFAULT_METADATA_STORE_NEGATIVE_TTL_MILLISECONDS))
+        .headlessOpenEnabled(
+            configuration.getBoolean(HEADLESS_OPEN_ENABLED_KEY, DEFAULT_HEADLESS_OPEN_ENABLED))
+        .headlessOpenTailBytes(
+            configuration.getLong(HEADLESS_OPEN_TAIL_BYTES_KEY, DEFAULT_HEADLESS_OPEN_TAIL_BYTES))
+        .metadataPrefetchConcurrency(
+            configuration.getInt(
+                METADATA_PREFETCH_CONCURRENCY_KEY, DEFAULT_METADATA_PREFETCH_CONCURRENCY))
+        .nonBlockingIngestionEnabled(
+            configuration.getBoolean(
+                NON_BLOCKING_INGESTION_ENABLED_KEY, DEFAULT_NON_BLOCKING_INGESTION_ENABLED))
+        .hedgingEnabled(configuration.getBoolean(HEDGING_ENABLED_KEY, DEFAULT_HEDGING_ENABLED))
+        .hedgingPercentile(
+            configuration.getDouble(HEDGING_PERCENTILE_KEY, DEFAULT_HEDGING_PERCENTILE))
+        .hedgingMinDelayMilliseconds(
+            configuration.getLong(
+                HEDGING_MIN_DELAY_MILLISECONDS_KEY, DEFAULT_HEDGING_MIN_DELAY_MILLISECONDS))
+        .hedgingBudgetRatio(
+            configuration.getDouble(HEDGING_BUDGET_RATIO_KEY, DEFAULT_HEDGING_BUDGET_RATIO))
+        .concurrencyLimitEnabled(
+            configuration.getBoolean(
+                CONCURRENCY_LIMIT_ENABLED_KEY, DEFAULT_CONCURRENCY_LIMIT_ENABLED))
+        .concurrencyLimitMin(
+            configuration.getInt(CONCURRENCY_LIMIT_MIN_KEY, DEFAULT_CONCURRENCY_LIMIT_MIN))
+        .concurrencyLimitMax(
+            configuration.getInt(CONCURRENCY_LIMIT_MAX_KEY, DEFAULT_CONCURRENCY_LIMIT_MAX))
+        .concurrencyLimitInitial(
+            configuration.getInt(CONCURRENCY_LIMIT_INITIAL_KEY, DEFAULT_CONCURRENCY_LIMIT_INITIAL))
+        .concurrencyLimitLatencyMilliseconds(
+            configuration.getLong(
+                CONCURRENCY_LIMIT_LATENCY_MILLISECONDS_KEY,
+                DEFAULT_CONCURRENCY_LIMIT_LATENCY_MILLISECONDS))
+        .concurrencyLimitBackoffRatio(
+            configuration.getDouble(
+                CONCURRENCY_LIMIT_BACKOFF_RATIO_KEY, DEFAULT_CONCURRENCY_LIMIT_BACKOFF_RATIO))
         .build();
   }
 
@@ -215,6 +605,50 @@ public class PhysicalIOConfiguration {
    * @param smallObjectsPrefetchingEnabled Whether small object prefetching is enabled
    * @param smallObjectSizeThreshold Maximum size in bytes for an object to be considered small
    * @param threadPoolSize Size of thread pool to be used for async operations
+   * @param offHeapMemoryEnabled Whether block data is held in pooled off-heap slabs
+   * @param offHeapSlabSizeBytes Size of the direct memory slabs backing off-heap blocks
+   * @param seekCancellationThresholdBytes Seek distance beyond which in-flight position driven
+   *     prefetches are cancelled
+   * @param coalesceMaxGapBytes Largest hole between two planned ranges that is read over to fetch
+   *     both with one request
+   * @param coalesceMaxSizeBytes Largest size a range can grow to by coalescing planned ranges
+   * @param sequentialPrefetchStrategy How the size of sequential prefetches is chosen
+   * @param blockAlignmentEnabled Whether blocks are aligned to a grid of the block size
+   * @param memoryReservationTimeoutMilliseconds Longest wait for memory headroom before a read goes
+   *     over the memory capacity
+   * @param metadataCacheTimeoutMilliseconds Timeout to retain footer and dictionary blocks
+   * @param prefetchCacheTimeoutMilliseconds Timeout to retain prefetched blocks that have not been
+   *     read yet
+   * @param dropBehindEnabled Whether sequential streams release the blocks they have read past
+   * @param diskCacheEnabled Whether blocks evicted from memory are spilled to local disk
+   * @param diskCacheDirectory Directory holding the files of the disk cache
+   * @param diskCacheCapacityBytes Capacity, in bytes, of the disk cache
+   * @param metadataStoreTtlMilliseconds Time after which cached object metadata is fetched again,
+   *     in milliseconds
+   * @param metadataStoreNegativeTtlMilliseconds Time for which a missing object is remembered, in
+   *     milliseconds
+   * @param headlessOpenEnabled Whether streams learn object metadata from a GET of the tail instead
+   *     of a HEAD
+   * @param headlessOpenTailBytes Number of bytes from the end of the object requested by a
+   *     HEAD-less open
+   * @param metadataPrefetchConcurrency Maximum number of requests a bulk metadata prefetch has in
+   *     flight
+   * @param nonBlockingIngestionEnabled Whether blocks take response bodies chunk by chunk instead
+   *     of through a blocking stream
+   * @param hedgingEnabled Whether GETs slow to respond are duplicated
+   * @param hedgingPercentile Percentile of recent times to first byte after which a GET is hedged
+   * @param hedgingMinDelayMilliseconds Minimum time in milliseconds a GET is given to respond
+   *     before it is hedged
+   * @param hedgingBudgetRatio Maximum number of hedges per GET, over time
+   * @param concurrencyLimitEnabled Whether requests to the object store are queued behind an
+   *     adaptive concurrency limit
+   * @param concurrencyLimitMin Lowest the concurrency limit backs off to
+   * @param concurrencyLimitMax Highest the concurrency limit grows to
+   * @param concurrencyLimitInitial Concurrency limit before any request has completed
+   * @param concurrencyLimitLatencyMilliseconds Time in milliseconds to respond after which a
+   *     request backs the concurrency limit off
+   * @param concurrencyLimitBackoffRatio Ratio the concurrency limit is multiplied by when requests
+   *     are throttled or slow
    */
   @Builder
   private PhysicalIOConfiguration(
@@ -232,7 +666,37 @@ public class PhysicalIOConfiguration {
       int blockReadRetryCount,
       boolean smallObjectsPrefetchingEnabled,
       long smallObjectSizeThreshold,
-      int threadPoolSize) {
+      int threadPoolSize,
+      boolean offHeapMemoryEnabled,
+      long offHeapSlabSizeBytes,
+      long seekCancellationThresholdBytes,
+      long coalesceMaxGapBytes,
+      long coalesceMaxSizeBytes,
+      SequentialPrefetchStrategy sequentialPrefetchStrategy,
+      boolean blockAlignmentEnabled,
+      long memoryReservationTimeoutMilliseconds,
+      long metadataCacheTimeoutMilliseconds,
+      long prefetchCacheTimeoutMilliseconds,
+      boolean dropBehindEnabled,
+      boolean diskCacheEnabled,
+      String diskCacheDirectory,
+      long diskCacheCapacityBytes,
+      long metadataStoreTtlMilliseconds,
+      long metadataStoreNegativeTtlMilliseconds,
+      boolean headlessOpenEnabled,
+      long headlessOpenTailBytes,
+      int metadataPrefetchConcurrency,
+      boolean nonBlockingIngestionEnabled,
+      boolean hedgingEnabled,
+      double hedgingPercentile,
+      long hedgingMinDelayMilliseconds,
+      double hedgingBudgetRatio,
+      boolean concurrencyLimitEnabled,
+      int concurrencyLimitMin,
+      int concurrencyLimitMax,
+      int concurrencyLimitInitial,
+      long concurrencyLimitLatencyMilliseconds,
+      double concurrencyLimitBackoffRatio) {
     Preconditions.checkArgument(memoryCapacityBytes > 0, "`memoryCapacityBytes` must be positive");
     Preconditions.checkArgument(
         memoryCleanupFrequencyMilliseconds > 0,
@@ -254,6 +718,64 @@ public class PhysicalIOConfiguration {
     Preconditions.checkArgument(
         smallObjectSizeThreshold > 0, "`smallObjectSizeThreshold` must be positive");
     Preconditions.checkNotNull(threadPoolSize > 0, "`threadPoolSize` must be positive");
+    Preconditions.checkArgument(
+        offHeapSlabSizeBytes > 0, "`offHeapSlabSizeBytes` must be positive");
+    Preconditions.checkArgument(
+        offHeapSlabSizeBytes <= Integer.MAX_VALUE,
+        "`offHeapSlabSizeBytes` must not be larger than %s",
+        Integer.MAX_VALUE);
+    Preconditions.checkArgument(
+        seekCancellationThresholdBytes > 0, "`seekCancellationThresholdBytes` must be positive");
+    Preconditions.checkArgument(
+        coalesceMaxGapBytes >= 0, "`coalesceMaxGapBytes` must not be negative");
+    Preconditions.checkArgument(
+        coalesceMaxSizeBytes > 0, "`coalesceMaxSizeBytes` must be positive");
+    Preconditions.checkNotNull(
+        sequentialPrefetchStrategy, "`sequentialPrefetchStrategy` must not be null");
+    Preconditions.checkArgument(
+        memoryReservationTimeoutMilliseconds >= 0,
+        "`memoryReservationTimeoutMilliseconds` must be non-negative");
+    Preconditions.checkArgument(
+        metadataCacheTimeoutMilliseconds > 0,
+        "`metadataCacheTimeoutMilliseconds` must be positive");
+    Preconditions.checkArgument(
+        prefetchCacheTimeoutMilliseconds > 0,
+        "`prefetchCacheTimeoutMilliseconds` must be positive");
+    Preconditions.checkNotNull(diskCacheDirectory, "`diskCacheDirectory` must not be null");
+    Preconditions.checkArgument(
+        diskCacheCapacityBytes > 0, "`diskCacheCapacityBytes` must be positive");
+    Preconditions.checkArgument(
+        metadataStoreTtlMilliseconds >= 0, "`metadataStoreTtlMilliseconds` must not be negative");
+    Preconditions.checkArgument(
+        metadataStoreNegativeTtlMilliseconds >= 0,
+        "`metadataStoreNegativeTtlMilliseconds` must not be negative");
+    Preconditions.checkArgument(
+        headlessOpenTailBytes > 0, "`headlessOpenTailBytes` must be positive");
+    Preconditions.checkArgument(
+        metadataPrefetchConcurrency > 0, "`metadataPrefetchConcurrency` must be positive");
+    Preconditions.checkArgument(
+        0 < hedgingPercentile && hedgingPercentile < 1,
+        "`hedgingPercentile` must be between 0 and 1");
+    Preconditions.checkArgument(
+        hedgingMinDelayMilliseconds > 0, "`hedgingMinDelayMilliseconds` must be positive");
+    Preconditions.checkArgument(
+        0 <= hedgingBudgetRatio && hedgingBudgetRatio <= 1,
+        "`hedgingBudgetRatio` must be between 0 and 1");
+    Preconditions.checkArgument(concurrencyLimitMin > 0, "`concurrencyLimitMin` must be positive");
+    Preconditions.checkArgument(
+        concurrencyLimitMax >= concurrencyLimitMin,
+        "`concurrencyLimitMax` must not be smaller than `concurrencyLimitMin`");
+    Preconditions.checkArgument(
+        concurrencyLimitMin <= concurrencyLimitInitial
+            && concurrencyLimitInitial <= concurrencyLimitMax,
+        "`concurrencyLimitInitial` must be between `concurrencyLimitMin` and "
+            + "`concurrencyLimitMax`");
+    Preconditions.checkArgument(
+        concurrencyLimitLatencyMilliseconds > 0,
+        "`concurrencyLimitLatencyMilliseconds` must be positive");
+    Preconditions.checkArgument(
+        0 < concurrencyLimitBackoffRatio && concurrencyLimitBackoffRatio < 1,
+        "`concurrencyLimitBackoffRatio` must be between 0 and 1");
 
     this.memoryCapacityBytes = memoryCapacityBytes;
     this.memoryCleanupFrequencyMilliseconds = memoryCleanupFrequencyMilliseconds;
@@ -270,6 +792,36 @@ public class PhysicalIOConfiguration {
     this.smallObjectsPrefetchingEnabled = smallObjectsPrefetchingEnabled;
     this.smallObjectSizeThreshold = smallObjectSizeThreshold;
     this.threadPoolSize = threadPoolSize;
+    this.offHeapMemoryEnabled = offHeapMemoryEnabled;
+    this.offHeapSlabSizeBytes = offHeapSlabSizeBytes;
+    this.seekCancellationThresholdBytes = seekCancellationThresholdBytes;
+    this.coalesceMaxGapBytes = coalesceMaxGapBytes;
+    this.coalesceMaxSizeBytes = coalesceMaxSizeBytes;
+    this.sequentialPrefetchStrategy = sequentialPrefetchStrategy;
+    this.blockAlignmentEnabled = blockAlignmentEnabled;
+    this.memoryReservationTimeoutMilliseconds = memoryReservationTimeoutMilliseconds;
+    this.metadataCacheTimeoutMilliseconds = metadataCacheTimeoutMilliseconds;
+    this.prefetchCacheTimeoutMilliseconds = prefetchCacheTimeoutMilliseconds;
+    this.dropBehindEnabled = dropBehindEnabled;
+    this.diskCacheEnabled = diskCacheEnabled;
+    this.diskCacheDirectory = diskCacheDirectory;
+    this.diskCacheCapacityBytes = diskCacheCapacityBytes;
+    this.metadataStoreTtlMilliseconds = metadataStoreTtlMilliseconds;
+    this.metadataStoreNegativeTtlMilliseconds = metadataStoreNegativeTtlMilliseconds;
+    this.headlessOpenEnabled = headlessOpenEnabled;
+    this.headlessOpenTailBytes = headlessOpenTailBytes;
+    this.metadataPrefetchConcurrency = metadataPrefetchConcurrency;
+    this.nonBlockingIngestionEnabled = nonBlockingIngestionEnabled;
+    this.hedgingEnabled = hedgingEnabled;
+    this.hedgingPercentile = hedgingPercentile;
+    this.hedgingMinDelayMilliseconds = hedgingMinDelayMilliseconds;
+    this.hedgingBudgetRatio = hedgingBudgetRatio;
+    this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    this.concurrencyLimitMin = concurrencyLimitMin;
+    this.concurrencyLimitMax = concurrencyLimitMax;
+    this.concurrencyLimitInitial = concurrencyLimitInitial;
+    this.concurrencyLimitLatencyMilliseconds = concurrencyLimitLatencyMilliseconds;
+    this.concurrencyLimitBackoffRatio = concurrencyLimitBackoffRatio;
   }
 
   @Override
@@ -293,6 +845,41 @@ public class PhysicalIOConfiguration {
     builder.append("\tsmallObjectsPrefetchingEnabled: " + smallObjectsPrefetchingEnabled + "\n");
     builder.append("\tsmallObjectSizeThreshold: " + smallObjectSizeThreshold + "\n");
     builder.append("\tthreadPoolSize: " + threadPoolSize + "\n");
+    builder.append("\toffHeapMemoryEnabled: " + offHeapMemoryEnabled + "\n");
+    builder.append("\toffHeapSlabSizeBytes: " + offHeapSlabSizeBytes + "\n");
+    builder.append("\tseekCancellationThresholdBytes: " + seekCancellationThresholdBytes + "\n");
+    builder.append("\tcoalesceMaxGapBytes: " + coalesceMaxGapBytes + "\n");
+    builder.append("\tcoalesceMaxSizeBytes: " + coalesceMaxSizeBytes + "\n");
+    builder.append("\tsequentialPrefetchStrategy: " + sequentialPrefetchStrategy + "\n");
+    builder.append("\tblockAlignmentEnabled: " + blockAlignmentEnabled + "\n");
+    builder.append(
+        "\tmemoryReservationTimeoutMilliseconds: " + memoryReservationTimeoutMilliseconds + "\n");
+    builder.append(
+        "\tmetadataCacheTimeoutMilliseconds: " + metadataCacheTimeoutMilliseconds + "\n");
+    builder.append(
+        "\tprefetchCacheTimeoutMilliseconds: " + prefetchCacheTimeoutMilliseconds + "\n");
+    builder.append("\tdropBehindEnabled: " + dropBehindEnabled + "\n");
+    builder.append("\tdiskCacheEnabled: " + diskCacheEnabled + "\n");
+    builder.append("\tdiskCacheDirectory: " + diskCacheDirectory + "\n");
+    builder.append("\tdiskCacheCapacityBytes: " + diskCacheCapacityBytes + "\n");
+    builder.append("\tmetadataStoreTtlMilliseconds: " + metadataStoreTtlMilliseconds + "\n");
+    builder.append(
+        "\tmetadataStoreNegativeTtlMilliseconds: " + metadataStoreNegativeTtlMilliseconds + "\n");
+    builder.append("\theadlessOpenEnabled: " + headlessOpenEnabled + "\n");
+    builder.append("\theadlessOpenTailBytes: " + headlessOpenTailBytes + "\n");
+    builder.append("\tmetadataPrefetchConcurrency: " + metadataPrefetchConcurrency + "\n");
+    builder.append("\tnonBlockingIngestionEnabled: " + nonBlockingIngestionEnabled + "\n");
+    builder.append("\thedgingEnabled: " + hedgingEnabled + "\n");
+    builder.append("\thedgingPercentile: " + hedgingPercentile + "\n");
+    builder.append("\thedgingMinDelayMilliseconds: " + hedgingMinDelayMilliseconds + "\n");
+    builder.append("\thedgingBudgetRatio: " + hedgingBudgetRatio + "\n");
+    builder.append("\tconcurrencyLimitEnabled: " + concurrencyLimitEnabled + "\n");
+    builder.append("\tconcurrencyLimitMin: " + concurrencyLimitMin + "\n");
+    builder.append("\tconcurrencyLimitMax: " + concurrencyLimitMax + "\n");
+    builder.append("\tconcurrencyLimitInitial: " + concurrencyLimitInitial + "\n");
+    builder.append(
+        "\tconcurrencyLimitLatencyMilliseconds: " + concurrencyLimitLatencyMilliseconds + "\n");
+    builder.append("\tconcurrencyLimitBackoffRatio: " + concurrencyLimitBackoffRatio + "\n");
 
     return builder.toString();
   }
@@ -17,6 +17,7 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import lombok.NonNull;
 import org.slf4j.Logger;
@@ -27,9 +28,10 @@ import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlan;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanExecution;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanState;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
-import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
 import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 import software.amazon.s3.analyticsaccelerator.util.StreamAttributes;
 
@@ -51,7 +53,7 @@ public class Blob implements Closeable {
    * - Multiple threads can concurrently read data<br>
    * - Ensures blocks being read cannot be evicted<br>
    *
-   * <p>Write Lock (used in asyncCleanup()):<br>
+   * <p>Write Lock (used in evict(), dropBefore() and close()):<br>
    * - Exclusive lock used during block eviction/cleanup<br>
    * - Blocks any ongoing reads during cleanup<br>
    * - Ensures no threads are reading blocks while they're being evicted<br>
@@ -61,6 +63,9 @@ public class Blob implements Closeable {
    */
   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+  /** Whether the blob held no blocks at the previous idleness check */
+  private boolean emptyAtLastCheck;
+
   /**
    * Construct a new Blob.
    *
@@ -89,11 +94,29 @@ public class Blob implements Closeable {
    * @throws IOException if an I/O error occurs
    */
   public int read(long pos) throws IOException {
+    return read(pos, null);
+  }
+
+  /**
+   * Reads a byte from the underlying object
+   *
+   * @param pos The position to read
+   * @param prefetchTracker tracker of the speculative blocks of the reading stream, or null
+   * @return an unsigned int representing the byte that was read
+   * @throws IOException if an I/O error occurs
+   */
+  public int read(long pos, PrefetchTracker prefetchTracker) throws IOException {
     Preconditions.checkArgument(pos >= 0, "`pos` must be non-negative");
 
+    // Memory is waited for before taking the lock, so that evictions are not held up meanwhile
+    blockManager.awaitMemoryHeadroom(pos, 1);
     try {
       lock.readLock().lock();
-      blockManager.makePositionAvailable(pos, ReadMode.SYNC);
+      if (prefetchTracker == null) {
+        blockManager.makePositionAvailable(pos, ReadMode.SYNC);
+      } else {
+        blockManager.makePositionAvailable(pos, ReadMode.SYNC, prefetchTracker);
+      }
       return blockManager.getBlock(pos).get().read(pos);
     } finally {
       lock.readLock().unlock();
@@ -111,15 +134,33 @@ public class Blob implements Closeable {
    * @throws IOException if an I/O error occurs
    */
   public int read(byte[] buf, int off, int len, long pos) throws IOException {
+    return read(buf, off, len, pos, null);
+  }
+
+  /**
+   * Reads data into the provided buffer
+   *
+   * @param buf buffer to read data into
+   * @param off start position in buffer at which data is written
+   * @param len length of data to be read
+   * @param pos the position to begin reading from
+   * @param prefetchTracker tracker of the speculative blocks of the reading stream, or null
+   * @return the total number of bytes read into the buffer
+   * @throws IOException if an I/O error occurs
+   */
+  public int read(byte[] buf, int off, int len, long pos, PrefetchTracker prefetchTracker)
+      throws IOException {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
     Preconditions.checkArgument(pos < contentLength(), "`pos` must be less than content length");
     Preconditions.checkArgument(0 <= off, "`off` must not be negative");
     Preconditions.checkArgument(0 <= len, "`len` must not be negative");
     Preconditions.checkArgument(off < buf.length, "`off` must be less than size of buffer");
 
+    // Memory is waited for before taking the lock, so that evictions are not held up meanwhile
+    blockManager.awaitMemoryHeadroom(pos, len);
     try {
       lock.readLock().lock();
-      blockManager.makeRangeAvailable(pos, len, ReadMode.SYNC);
+      makeRangeAvailable(pos, len, ReadMode.SYNC, prefetchTracker);
 
       long nextPosition = pos;
       int numBytesRead = 0;
@@ -159,6 +200,19 @@ public class Blob implements Closeable {
    * @return the status of execution
    */
   public IOPlanExecution execute(IOPlan plan, ReadMode readMode) throws IOException {
+    return execute(plan, readMode, null);
+  }
+
+  /**
+   * Execute an IOPlan.
+   *
+   * @param plan the IOPlan to execute
+   * @param readMode the readMode for which this IoPlan is being executed
+   * @param prefetchTracker tracker of the speculative blocks of the executing stream, or null
+   * @return the status of execution
+   */
+  public IOPlanExecution execute(IOPlan plan, ReadMode readMode, PrefetchTracker prefetchTracker)
+      throws IOException {
     return telemetry.measureStandard(
         () ->
             Operation.builder()
@@ -169,9 +223,11 @@ public class Blob implements Closeable {
                 .build(),
         () -> {
           try {
-            for (Range range : plan.getPrefetchRanges()) {
-              this.blockManager.makeRangeAvailable(range.getStart(), range.getLength(), readMode);
+            if (!readMode.isSpeculative()) {
+              this.blockManager.awaitMemoryHeadroom(plan.getPrefetchRanges());
             }
+            this.blockManager.makeRangesAvailable(
+                plan.getPrefetchRanges(), readMode, prefetchTracker);
 
             return IOPlanExecution.builder().state(IOPlanState.SUBMITTED).build();
           } catch (Exception e) {
@@ -181,25 +237,109 @@ public class Blob implements Closeable {
         });
   }
 
-  /** clean up blob */
-  public final void asyncCleanup() {
-    if (blockManager.isBlockStoreEmpty()) {
-      return;
+  /**
+   * Adds the tail of the object, which a HEAD-less open has requested already, as a block.
+   *
+   * @param content the response to the GET of the tail
+   */
+  public void addTail(@NonNull ObjectContent content) {
+    try {
+      lock.readLock().lock();
+      blockManager.addTail(content);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void makeRangeAvailable(
+      long pos, long len, ReadMode readMode, PrefetchTracker prefetchTracker) throws IOException {
+    if (prefetchTracker == null) {
+      blockManager.makeRangeAvailable(pos, len, readMode);
+    } else {
+      blockManager.makeRangeAvailable(pos, len, readMode, prefetchTracker);
+    }
+  }
+
+  /**
+   * Cancels the fetches of all blocks of this object that were prefetched speculatively and have
+   * not been read from yet.
+   *
+   * @return the number of blocks whose fetch was cancelled
+   */
+  public int cancelSpeculativeFetches() {
+    try {
+      lock.readLock().lock();
+      return blockManager.cancelSpeculativeFetches();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Releases the blocks of this object that end before the given position. Readers are locked out
+   * only when there is something to release.
+   *
+   * @param pos the position the reader has reached
+   * @return true if there were blocks to release
+   */
+  public boolean dropBefore(long pos) {
+    if (!blockManager.hasBlocksBefore(pos)) {
+      return false;
     }
     try {
       lock.writeLock().lock();
-      blockManager.cleanUp();
+      blockManager.dropBefore(pos);
+      return true;
     } finally {
       lock.writeLock().unlock();
     }
   }
 
+  /**
+   * Releases the blocks of this object that the index cache has evicted. Readers are locked out
+   * while the blocks are released, once for all of them. Nothing is released if a read is in
+   * progress, as the clean up must not wait for reads, which may take as long as a fetch does.
+   *
+   * @param blockKeys keys of the blocks the index cache has evicted
+   * @return true if the blocks were released, false if a read is in progress and they were not
+   */
+  public boolean evict(@NonNull Collection<BlockKey> blockKeys) {
+    if (!lock.writeLock().tryLock()) {
+      return false;
+    }
+    try {
+      blockManager.evict(blockKeys);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if the blob held no blocks at this call and at the previous one. Blobs that never
+   * held any, or whose data has been cleaned up, and that stay empty that long are not in use by
+   * any read, so they can be reclaimed. Only called by the periodic clean up of the blob store.
+   *
+   * @return true if the blob has stayed empty since the previous call
+   */
+  boolean isIdle() {
+    boolean empty = blockManager.isBlockStoreEmpty();
+    boolean idle = empty && this.emptyAtLastCheck;
+    this.emptyAtLastCheck = empty;
+    return idle;
+  }
+
   private long contentLength() {
     return metadata.getContentLength();
   }
 
   @Override
   public void close() {
-    this.blockManager.close();
+    try {
+      lock.writeLock().lock();
+      this.blockManager.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 }
@@ -17,10 +17,16 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.Closeable;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,28 +38,54 @@ import software.amazon.s3.analyticsaccelerator.common.Metrics;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
 import software.amazon.s3.analyticsaccelerator.util.MetricComputationUtils;
 import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 
-/** A BlobStore is a container for Blobs and functions as a data cache. */
+/**
+ * A BlobStore is a container for Blobs and functions as a data cache. Blocks evicted from it can be
+ * spilled to a second cache tier on local disk, see {@link DiskBlockCache}.
+ *
+ * <p>Blobs are held in a concurrent map, and are built outside of it, so that opening one object
+ * never waits for another object to be set up. The map is bounded by reclaiming the blobs that stay
+ * empty across clean ups and are not open in any stream, so it only holds blobs that are either
+ * being read or hold data, the latter being bounded by the memory capacity.
+ *
+ * <p>Memory is released as the index cache evicts blocks: every eviction is queued, and the queued
+ * blocks are released from the blobs that hold them by the maintenance thread, which only locks
+ * readers out of those blobs. A periodic task makes the index cache expire entries that have not
+ * been accessed in time, and reclaims idle blobs.
+ */
 @SuppressFBWarnings(
     value = "SIC_INNER_SHOULD_BE_STATIC_ANON",
     justification =
         "Inner class is created very infrequently, and fluency justifies the extra pointer")
 public class BlobStore implements Closeable {
   private final Map<ObjectKey, Blob> blobMap;
+  private final Map<ObjectKey, Integer> openStreams = new ConcurrentHashMap<>();
   private final ObjectClient objectClient;
   private final Telemetry telemetry;
-  private final PhysicalIOConfiguration configuration;
+  @Getter private final PhysicalIOConfiguration configuration;
 
   @Getter private final Metrics metrics;
   final BlobStoreIndexCache indexCache;
+  @Getter private final BlockMemoryAllocator memoryAllocator;
+  @Getter private final MemoryReservationGate memoryReservationGate;
+  @Getter private final DiskBlockCache diskBlockCache;
+  @Getter private final RequestHedger requestHedger;
   private final ScheduledExecutorService maintenanceExecutor;
   private static final Logger LOG = LoggerFactory.getLogger(BlobStore.class);
+
+  /** Delay before releasing again the evicted blocks of blobs that were being read from */
+  private static final long EVICTION_RETRY_DELAY_MILLIS = 10;
+
   final AtomicBoolean cleanupInProgress = new AtomicBoolean(false);
+  private final AtomicBoolean cleanupRequested = new AtomicBoolean(false);
+  private final Queue<BlockKey> evictedBlocks = new ConcurrentLinkedQueue<>();
 
   /**
    * Construct an instance of BlobStore.
@@ -71,8 +103,13 @@ public class BlobStore implements Closeable {
     this.objectClient = objectClient;
     this.telemetry = telemetry;
     this.metrics = metrics;
-    this.blobMap = Collections.synchronizedMap(new LinkedHashMap<ObjectKey, Blob>());
-    this.indexCache = new BlobStoreIndexCache(configuration);
+    this.blobMap = new ConcurrentHashMap<>();
+    this.indexCache = new BlobStoreIndexCache(configuration, this::onBlockEvicted);
+    this.memoryAllocator = new BlockMemoryAllocator(configuration);
+    this.memoryReservationGate =
+        new MemoryReservationGate(configuration, metrics, this::requestCleanup);
+    this.diskBlockCache = new DiskBlockCache(configuration, metrics);
+    this.requestHedger = new RequestHedger(configuration, metrics);
     this.maintenanceExecutor =
         Executors.newSingleThreadScheduledExecutor(
             cleanupTask -> {
@@ -84,17 +121,57 @@ public class BlobStore implements Closeable {
     this.configuration = configuration;
   }
 
-  /** Schedules a periodic cleanup task to sync the blop map with the index cache */
+  /**
+   * Schedules a periodic task which expires index entries, reclaims idle blobs and drops idle
+   * off-heap slabs
+   */
   public void schedulePeriodicCleanup() {
     maintenanceExecutor.scheduleAtFixedRate(
-        this::scheduleCleanupIfNotRunning,
+        () -> {
+          indexCache.evictExpired();
+          scheduleCleanupIfNotRunning();
+          reclaimIdleBlobs();
+          memoryAllocator.trimIdleSlabs();
+        },
         configuration.getMemoryCleanupFrequencyMilliseconds(),
         configuration.getMemoryCleanupFrequencyMilliseconds(),
         TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Queues a block the index cache has evicted for its memory to be released, and has that done as
+   * soon as possible. Called on the thread that caused the eviction, so it does not release the
+   * block itself.
+   *
+   * @param blockKey the key of the evicted block
+   */
+  void onBlockEvicted(BlockKey blockKey) {
+    evictedBlocks.add(blockKey);
+    requestCleanup();
+  }
+
+  /**
+   * Runs a clean up as soon as possible, rather than at the next period. Requests made while one is
+   * pending are merged into it.
+   */
+  void requestCleanup() {
+    if (cleanupRequested.compareAndSet(false, true)) {
+      try {
+        maintenanceExecutor.execute(
+            () -> {
+              cleanupRequested.set(false);
+              scheduleCleanupIfNotRunning();
+            });
+      } catch (RejectedExecutionException e) {
+        // The store is being closed
+        cleanupRequested.set(false);
+      }
+    }
+  }
+
   void scheduleCleanupIfNotRunning() {
-    if (metrics.get(MetricKey.MEMORY_USAGE) > 0 && cleanupInProgress.compareAndSet(false, true)) {
+    boolean cleanupNeeded = metrics.get(MetricKey.MEMORY_USAGE) > 0 || !evictedBlocks.isEmpty();
+    if (cleanupNeeded && cleanupInProgress.compareAndSet(false, true)) {
       try {
         asyncCleanup();
       } catch (Exception ex) {
@@ -109,14 +186,80 @@ public class BlobStore implements Closeable {
     LOG.debug(
         "Current memory usage of blobMap in bytes before eviction is: {}",
         metrics.get(MetricKey.MEMORY_USAGE));
-    blobMap.forEach((k, v) -> v.asyncCleanup());
+    releaseEvictedBlocks();
+    if (metrics.get(MetricKey.MEMORY_USAGE) > configuration.getMemoryCapacityBytes()) {
+      // Still over capacity after eviction, so stop fetching data nobody has asked for yet
+      blobMap.forEach((k, v) -> v.cancelSpeculativeFetches());
+    }
+    memoryReservationGate.onMemoryReleased();
     LOG.debug(
-        "Current memory usage of blobMap in bytes after eviction is: {}",
-        metrics.get(MetricKey.MEMORY_USAGE));
+        "Current memory usage of blobMap in bytes after eviction is: {}, with {} bytes reserved",
+        metrics.get(MetricKey.MEMORY_USAGE),
+        metrics.get(MetricKey.MEMORY_RESERVED));
+  }
+
+  /**
+   * Releases the blocks that have been queued since the last clean up, from the blobs that hold
+   * them. The blocks of each blob are released together, so that readers are only locked out of a
+   * blob once. The blocks of blobs being read from are queued again, and their release is retried
+   * shortly, so that a long read does not hold up the clean up of every other blob.
+   */
+  private void releaseEvictedBlocks() {
+    Map<ObjectKey, List<BlockKey>> evictedByObject = new HashMap<>();
+    BlockKey blockKey;
+    while ((blockKey = evictedBlocks.poll()) != null) {
+      evictedByObject
+          .computeIfAbsent(blockKey.getObjectKey(), objectKey -> new ArrayList<>())
+          .add(blockKey);
+    }
+    boolean deferred = false;
+    for (Map.Entry<ObjectKey, List<BlockKey>> evicted : evictedByObject.entrySet()) {
+      Blob blob = blobMap.get(evicted.getKey());
+      if (blob != null && !blob.evict(evicted.getValue())) {
+        evictedBlocks.addAll(evicted.getValue());
+        deferred = true;
+      }
+    }
+    if (deferred) {
+      try {
+        maintenanceExecutor.schedule(
+            this::requestCleanup, EVICTION_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // The store is being closed
+      }
+    }
+  }
+
+  /**
+   * Removes the blobs that have stayed empty since the previous call, and that no stream has open.
+   * Blobs are only removed if they are still in the map and still empty when they are removed. The
+   * removal is made while holding the open stream count of the object, so a stream cannot open the
+   * object in the meantime and go on to read from a blob that is being closed. Only called by the
+   * periodic task, so that calls are spaced out by its period.
+   */
+  void reclaimIdleBlobs() {
+    blobMap.forEach(
+        (objectKey, blob) -> {
+          AtomicBoolean reclaimed = new AtomicBoolean(false);
+          openStreams.compute(
+              objectKey,
+              (key, count) -> {
+                if (count == null && blob.isIdle() && blobMap.remove(key, blob)) {
+                  reclaimed.set(true);
+                }
+                return count;
+              });
+          if (reclaimed.get()) {
+            blob.close();
+            LOG.debug("Reclaimed idle blob of {}", objectKey.getS3URI());
+          }
+        });
   }
 
   /**
-   * Opens a new blob if one does not exist or returns the handle to one that exists already.
+   * Opens a new blob if one does not exist or returns the handle to one that exists already. The
+   * blob is built outside of the map, and only prefetches a small object once it is in the map, so
+   * a blob that loses a race to be created is thrown away without having issued any requests.
    *
    * @param objectKey the etag and S3 URI of the object
    * @param metadata the metadata for the object we are computing
@@ -125,32 +268,112 @@ public class BlobStore implements Closeable {
    */
   public Blob get(
       ObjectKey objectKey, ObjectMetadata metadata, OpenStreamInformation openStreamInformation) {
-    return blobMap.computeIfAbsent(
-        objectKey,
-        uri ->
-            new Blob(
-                uri,
-                metadata,
-                new BlockManager(
-                    uri,
-                    objectClient,
-                    metadata,
-                    telemetry,
-                    configuration,
-                    metrics,
-                    indexCache,
-                    openStreamInformation),
-                telemetry));
+    Blob blob = blobMap.get(objectKey);
+    if (blob != null) {
+      return blob;
+    }
+
+    BlockManager blockManager =
+        BlockManager.builder()
+            .objectKey(objectKey)
+            .objectClient(objectClient)
+            .metadata(metadata)
+            .telemetry(telemetry)
+            .configuration(configuration)
+            .aggregatingMetrics(metrics)
+            .indexCache(indexCache)
+            .openStreamInformation(openStreamInformation)
+            .memoryAllocator(memoryAllocator)
+            .memoryReservationGate(memoryReservationGate)
+            .diskBlockCache(diskBlockCache)
+            .requestHedger(requestHedger)
+            .deferSmallObjectPrefetch(true)
+            .build();
+    Blob created = new Blob(objectKey, metadata, blockManager, telemetry);
+    Blob existing = blobMap.putIfAbsent(objectKey, created);
+    if (existing != null) {
+      created.close();
+      return existing;
+    }
+    blockManager.prefetchSmallObject();
+    return created;
+  }
+
+  /**
+   * Keeps the tail a HEAD-less open has fetched as a block of the object, unless the object has
+   * changed since the tail was fetched.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   * @param metadata the metadata for the object
+   * @param openStreamInformation contains stream information
+   * @param content the response to the GET of the tail
+   */
+  public void addTail(
+      ObjectKey objectKey,
+      ObjectMetadata metadata,
+      OpenStreamInformation openStreamInformation,
+      ObjectContent content) {
+    if (metadata.equals(content.getMetadata())) {
+      get(objectKey, metadata, openStreamInformation).addTail(content);
+      return;
+    }
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the tail of {}", objectKey.getS3URI(), e);
+    }
   }
 
   /**
-   * Evicts the specified key from the cache
+   * Records that a stream has opened the object. Blocks of objects open in more than one stream are
+   * never dropped behind a reader, as the other streams may still read them.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   */
+  public void onStreamOpened(ObjectKey objectKey) {
+    openStreams.merge(objectKey, 1, Integer::sum);
+  }
+
+  /**
+   * Records that a stream which had opened the object has been closed.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   */
+  public void onStreamClosed(ObjectKey objectKey) {
+    openStreams.computeIfPresent(objectKey, (key, count) -> count > 1 ? count - 1 : null);
+  }
+
+  /**
+   * Releases the blocks of the object that end before the position a sequential reader has
+   * reached, unless drop-behind is disabled or another stream has the object open.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   * @param pos the position the reader has reached
+   */
+  public void dropBehind(ObjectKey objectKey, long pos) {
+    if (!configuration.isDropBehindEnabled() || openStreams.getOrDefault(objectKey, 0) > 1) {
+      return;
+    }
+    Blob blob = blobMap.get(objectKey);
+    if (blob != null && blob.dropBefore(pos)) {
+      memoryReservationGate.onMemoryReleased();
+    }
+  }
+
+  /**
+   * Evicts the specified key from the cache, releasing the memory held by its blocks
    *
    * @param objectKey the etag and S3 URI of the object
    * @return a boolean stating if the object existed or not
    */
   public boolean evictKey(ObjectKey objectKey) {
-    return this.blobMap.remove(objectKey) != null;
+    Blob blob = this.blobMap.remove(objectKey);
+    if (blob == null) {
+      return false;
+    }
+    blob.close();
+    memoryReservationGate.onMemoryReleased();
+    return true;
   }
   /**
    * Returns the number of objects currently cached in the blobstore.
@@ -169,6 +392,8 @@ public class BlobStore implements Closeable {
       }
       blobMap.forEach((k, v) -> v.close());
       indexCache.cleanUp();
+      diskBlockCache.close();
+      requestHedger.close();
       long hits = metrics.get(MetricKey.CACHE_HIT);
       long miss = metrics.get(MetricKey.CACHE_MISS);
       LOG.debug(
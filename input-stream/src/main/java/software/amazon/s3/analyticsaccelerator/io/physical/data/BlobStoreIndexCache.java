@@ -17,8 +17,16 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 import lombok.NonNull;
+import lombok.Value;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.util.BlockKey;
 
@@ -27,10 +35,30 @@ import software.amazon.s3.analyticsaccelerator.util.BlockKey;
  * wrapper around a Caffeine cache to store mappings between block keys and their corresponding
  * ranges in the blob store. The cache automatically expires entries based on access time and
  * maintains a maximum weight limit as specified in the configuration.
+ *
+ * <p>Every entry has a {@link CacheEntryClass}, which decides how long it is retained after its
+ * last access, and in which order entries are evicted once the cache is full: prefetched blocks
+ * that have not been read are evicted first, then data blocks, and footer and dictionary blocks
+ * last. A prefetched block becomes a data block once it is read.
  */
 public class BlobStoreIndexCache {
+  /** Entries that are evicted ahead of others when the cache is full, in eviction order */
+  private static final CacheEntryClass[] EVICTION_ORDER = {
+    CacheEntryClass.PREFETCH, CacheEntryClass.DATA
+  };
+
+  /** Number of the coldest entries looked through for entries to evict ahead of others */
+  private static final int EVICTION_SCAN_LIMIT = 64;
+
   /** The underlying Caffeine cache that stores block keys and their ranges */
-  protected final Cache<BlockKey, Integer> indexCache;
+  protected final Cache<BlockKey, IndexEntry> indexCache;
+
+  /** Told about the key of every entry that is evicted, as opposed to removed explicitly */
+  private final Consumer<BlockKey> evictionListener;
+
+  /** Total weight of the entries of each class, kept so that a put does not have to scan them */
+  private final AtomicLongArray classWeights =
+      new AtomicLongArray(CacheEntryClass.values().length);
 
   /**
    * Constructs a new BlobStoreIndexCache with the specified configuration. Initializes the cache
@@ -39,23 +67,74 @@ public class BlobStoreIndexCache {
    * @param configuration the PhysicalIO configuration containing cache settings
    */
   public BlobStoreIndexCache(@NonNull PhysicalIOConfiguration configuration) {
+    this(configuration, blockKey -> {});
+  }
+
+  /**
+   * Constructs a new BlobStoreIndexCache with the specified configuration, which tells the given
+   * listener about every entry it evicts because the cache is full or the entry has expired. The
+   * listener is called on the thread that caused the eviction, so it must not block.
+   *
+   * @param configuration the PhysicalIO configuration containing cache settings
+   * @param evictionListener listener told about the key of every evicted entry
+   */
+  public BlobStoreIndexCache(
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Consumer<BlockKey> evictionListener) {
+    this.evictionListener = evictionListener;
+    long[] timeoutsNanos = new long[CacheEntryClass.values().length];
+    timeoutsNanos[CacheEntryClass.METADATA.ordinal()] =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getMetadataCacheTimeoutMilliseconds());
+    timeoutsNanos[CacheEntryClass.DATA.ordinal()] =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getCacheDataTimeoutMilliseconds());
+    timeoutsNanos[CacheEntryClass.PREFETCH.ordinal()] =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getPrefetchCacheTimeoutMilliseconds());
+
     this.indexCache =
         Caffeine.newBuilder()
-            .expireAfterAccess(
-                configuration.getCacheDataTimeoutMilliseconds(), TimeUnit.MILLISECONDS)
-            .weigher((BlockKey blockKey, Integer blockSize) -> blockSize)
+            .expireAfter(new ExpireAfterAccessByClass(timeoutsNanos))
+            .weigher((BlockKey blockKey, IndexEntry entry) -> entry.getSize())
             .maximumWeight(configuration.getMemoryCapacityBytes())
+            // Run maintenance, and with it the removal listener, on the thread that caused it, so
+            // that the data of an evicted block is released as soon as its entry is evicted
+            .executor(Runnable::run)
+            .removalListener(
+                (BlockKey blockKey, IndexEntry entry, RemovalCause cause) -> {
+                  if (entry != null) {
+                    classWeights.addAndGet(entry.getEntryClass().ordinal(), -entry.getSize());
+                  }
+                  if (blockKey != null && cause.wasEvicted()) {
+                    evictionListener.accept(blockKey);
+                  }
+                })
             .build();
   }
 
   /**
-   * Stores a block key and its associated range value in the cache.
+   * Stores a block key and its associated range value in the cache, as a data block.
    *
    * @param blockKey the key identifying the block
    * @param range the range value associated with the block
    */
   public void put(BlockKey blockKey, int range) {
-    indexCache.put(blockKey, range);
+    put(blockKey, range, CacheEntryClass.DATA);
+  }
+
+  /**
+   * Stores a block key and its associated range value in the cache. If the cache is full, entries
+   * of the classes evicted first make room for it.
+   *
+   * @param blockKey the key identifying the block
+   * @param range the range value associated with the block
+   * @param entryClass the class of the block
+   */
+  public void put(@NonNull BlockKey blockKey, int range, @NonNull CacheEntryClass entryClass) {
+    Preconditions.checkArgument(range >= 0, "`range` must not be negative");
+
+    makeRoom(range, entryClass);
+    // Counted before the put, as the entry it replaces, or the entry itself, may be removed at once
+    classWeights.addAndGet(entryClass.ordinal(), range);
+    indexCache.put(blockKey, new IndexEntry(range, entryClass));
   }
 
   /**
@@ -75,7 +154,8 @@ public class BlobStoreIndexCache {
    * @return the size of the block
    */
   public Integer getIfPresent(BlockKey blockKey) {
-    return indexCache.getIfPresent(blockKey);
+    IndexEntry entry = indexCache.getIfPresent(blockKey);
+    return entry == null ? null : entry.getSize();
   }
 
   /**
@@ -85,13 +165,65 @@ public class BlobStoreIndexCache {
    * @param blockKey the key whose access needs to be updated
    */
   public void recordAccess(BlockKey blockKey) {
+    recordAccess(blockKey, blockKey.getRange().getLength());
+  }
+
+  /**
+   * Records the access of the block key in the index cache when the corresponding block is read
+   * from the blob map
+   *
+   * @param blockKey the key whose access needs to be updated
+   * @param blockSize the memory held by the block, used as its weight if the key is re-inserted
+   */
+  public void recordAccess(BlockKey blockKey, int blockSize) {
+    recordAccess(blockKey, blockSize, CacheEntryClass.DATA);
+  }
+
+  /**
+   * Records the access of the block key in the index cache when the corresponding block is read
+   * from the blob map. The entry is moved to the class of the block, as reading a prefetched block
+   * turns it into a data block.
+   *
+   * @param blockKey the key whose access needs to be updated
+   * @param blockSize the memory held by the block, used as its weight if the key is re-inserted
+   * @param entryClass the class of the block
+   */
+  public void recordAccess(BlockKey blockKey, int blockSize, CacheEntryClass entryClass) {
+    IndexEntry entry = indexCache.getIfPresent(blockKey);
+    if (entry == null || entry.getEntryClass() != entryClass) {
+      put(blockKey, blockSize, entryClass);
+    }
+  }
+
+  /**
+   * Removes a block key from the cache, when its block has been released ahead of its expiry.
+   *
+   * @param blockKey the key to remove
+   */
+  public void invalidate(BlockKey blockKey) {
+    indexCache.invalidate(blockKey);
+  }
+
+  /**
+   * Tells the eviction listener again about an evicted key, unless the key is back in the cache.
+   * Used for the blocks that could not be released when their key was evicted.
+   *
+   * @param blockKey the key of the evicted block
+   */
+  public void reportEvicted(@NonNull BlockKey blockKey) {
     if (!contains(blockKey)) {
-      put(blockKey, blockKey.getRange().getLength());
-    } else {
-      getIfPresent(blockKey);
+      evictionListener.accept(blockKey);
     }
   }
 
+  /**
+   * Runs the maintenance the cache has pending, which evicts the entries that have expired since
+   * the cache was last used. Caffeine only expires entries as part of other operations otherwise.
+   */
+  public void evictExpired() {
+    indexCache.cleanUp();
+  }
+
   /**
    * Cleans up the cache by invalidating all entries and performing maintenance operations. This
    * method should be called when the cache needs to be cleared or during shutdown.
@@ -123,4 +255,93 @@ public class BlobStoreIndexCache {
   public long getCurrentWeight() {
     return indexCache.policy().eviction().get().weightedSize().getAsLong();
   }
+
+  /**
+   * Evicts entries of the classes evicted first, coldest first, until an entry of the given size
+   * fits. Entries of the class being inserted and of classes evicted after it are left to Caffeine,
+   * as are the entries that are not among the coldest ones, so that a put never scans the cache.
+   */
+  private void makeRoom(long size, CacheEntryClass entryClass) {
+    Policy.Eviction<BlockKey, IndexEntry> eviction = indexCache.policy().eviction().get();
+    long excess = totalWeight() + size - eviction.getMaximum();
+    if (excess <= 0 || victimWeight(entryClass) == 0) {
+      return;
+    }
+
+    Map<BlockKey, IndexEntry> coldest = eviction.coldest(EVICTION_SCAN_LIMIT);
+    for (CacheEntryClass victimClass : EVICTION_ORDER) {
+      if (victimClass == entryClass) {
+        return;
+      }
+      for (Map.Entry<BlockKey, IndexEntry> candidate : coldest.entrySet()) {
+        if (candidate.getValue().getEntryClass() == victimClass
+            && indexCache.asMap().remove(candidate.getKey(), candidate.getValue())) {
+          // Removing the entry by hand makes it an explicit removal for Caffeine
+          evictionListener.accept(candidate.getKey());
+          excess -= candidate.getValue().getSize();
+          if (excess <= 0) {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /** @return the total weight of the entries in the cache, including those pending eviction */
+  private long totalWeight() {
+    long total = 0;
+    for (int i = 0; i < classWeights.length(); i++) {
+      total += classWeights.get(i);
+    }
+    return total;
+  }
+
+  /** @return the total weight of the entries evicted ahead of entries of the given class */
+  private long victimWeight(CacheEntryClass entryClass) {
+    long total = 0;
+    for (CacheEntryClass victimClass : EVICTION_ORDER) {
+      if (victimClass == entryClass) {
+        break;
+      }
+      total += classWeights.get(victimClass.ordinal());
+    }
+    return total;
+  }
+
+  /** An entry of the index cache */
+  @Value
+  protected static class IndexEntry {
+    int size;
+    CacheEntryClass entryClass;
+  }
+
+  /** Expires entries after a time since their last access that depends on their class */
+  private static class ExpireAfterAccessByClass implements Expiry<BlockKey, IndexEntry> {
+    private final long[] timeoutsNanos;
+
+    ExpireAfterAccessByClass(long[] timeoutsNanos) {
+      this.timeoutsNanos = timeoutsNanos.clone();
+    }
+
+    private long timeoutOf(IndexEntry entry) {
+      return timeoutsNanos[entry.getEntryClass().ordinal()];
+    }
+
+    @Override
+    public long expireAfterCreate(BlockKey key, IndexEntry entry, long currentTime) {
+      return timeoutOf(entry);
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        BlockKey key, IndexEntry entry, long currentTime, long currentDuration) {
+      return timeoutOf(entry);
+    }
+
+    @Override
+    public long expireAfterRead(
+        BlockKey key, IndexEntry entry, long currentTime, long currentDuration) {
+      return timeoutOf(entry);
+    }
+  }
 }
@@ -17,8 +17,23 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 import org.slf4j.Logger;
@@ -31,6 +46,7 @@ import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.request.GetRequest;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
 import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
 import software.amazon.s3.analyticsaccelerator.request.Referrer;
 import software.amazon.s3.analyticsaccelerator.util.*;
@@ -38,15 +54,66 @@ import software.amazon.s3.analyticsaccelerator.util.*;
 /**
  * A Block holding part of an object's data and owning its own async process for fetching part of
  * the object.
+ *
+ * <p>The data is filled progressively as the response streams in. Reads only wait until the bytes
+ * they ask for have arrived, rather than for the whole block, so a reader trailing a large
+ * prefetch starts getting data as soon as the prefetch has received it.
  */
 public class Block implements Closeable {
-  private CompletableFuture<ObjectContent> source;
-  private CompletableFuture<byte[]> data;
+  private volatile CompletableFuture<?> source;
+  private volatile CompletableFuture<BlockBuffer> data;
+
+  /** The buffer currently being filled, readable up to its high-water mark */
+  private volatile BlockBuffer fillingBuffer;
+
+  /** Keeps a failed fill from releasing its buffer while a partial read is copying from it */
+  private final ReentrantReadWriteLock fillingBufferLock = new ReentrantReadWriteLock();
+
+  private final ReentrantLock fillProgressLock = new ReentrantLock();
+  private final Condition fillProgress = fillProgressLock.newCondition();
+  private final AtomicInteger fillWaiters = new AtomicInteger();
+
+  /** Set if the block holds data fetched ahead of a predicted need rather than an actual read */
+  private volatile boolean speculative;
+
+  /**
+   * Whether the block has been read from, after which its data is no longer speculative, or had
+   * its speculative fetch cancelled, which aborts the fill at its next chunk. Reading and
+   * cancelling race, so the state only ever moves on with a compare-and-set.
+   */
+  private final AtomicReference<ReadState> readState = new AtomicReference<>(ReadState.UNREAD);
+
+  /**
+   * References to the buffer holding the data: the one of the block, handed back when the block is
+   * closed, and those taken by {@link #retainData()}. The buffer is released once all are back.
+   */
+  private final AtomicInteger dataReferences = new AtomicInteger(1);
+
+  /** Serializes the fetches of the data with closing the block, which ends them for good */
+  private final Object fetchLock = new Object();
+
+  /** Set once the block is closed, after which no further fetch is started */
+  private boolean closed;
+
+  /** Timings of the request that filled the block, published by the completion of the data */
+  private long fetchTimeToFirstByteNanos;
+
+  private long fetchTransferNanos;
+
+  /** Told about the speculative bytes of the block that are released without ever being read */
+  private volatile LongConsumer unreadEvictionListener;
+
+  /** Set if the data was read back from the disk cache rather than fetched from the object store */
+  private volatile boolean servedFromDisk;
+
+  /** Response to a request for the data of the block issued before the block was created */
+  private volatile ObjectContent initialContent;
+
   @Getter private final BlockKey blockKey;
   private final Telemetry telemetry;
   private final ObjectClient objectClient;
   private final OpenStreamInformation openStreamInformation;
-  private final ReadMode readMode;
+  @Getter private final ReadMode readMode;
   private final Referrer referrer;
   private final long readTimeout;
   private final int readRetryCount;
@@ -54,6 +121,10 @@ public class Block implements Closeable {
 
   private final Metrics aggregatingMetrics;
   private final BlobStoreIndexCache indexCache;
+  private final BlockMemoryAllocator memoryAllocator;
+  private final DiskBlockCache diskBlockCache;
+  private final boolean nonBlockingIngestion;
+  private final RequestHedger requestHedger;
   private static final String OPERATION_BLOCK_GET_ASYNC = "block.get.async";
   private static final String OPERATION_BLOCK_GET_JOIN = "block.get.join";
 
@@ -72,6 +143,7 @@ public class Block implements Closeable {
    * @param aggregatingMetrics blobstore metrics
    * @param indexCache blobstore index cache
    * @param openStreamInformation contains stream information
+   * @throws IOException if the request for the data cannot be issued
    */
   public Block(
       @NonNull BlockKey blockKey,
@@ -85,6 +157,73 @@ public class Block implements Closeable {
       @NonNull BlobStoreIndexCache indexCache,
       @NonNull OpenStreamInformation openStreamInformation)
       throws IOException {
+    this(
+        blockKey,
+        objectClient,
+        telemetry,
+        generation,
+        readMode,
+        readTimeout,
+        readRetryCount,
+        aggregatingMetrics,
+        indexCache,
+        openStreamInformation,
+        null,
+        null,
+        null,
+        false,
+        null);
+  }
+
+  /**
+   * Constructs a Block data. Use {@link #builder()} to set the optional collaborators, which
+   * default to the plain behaviour of a block when they are left unset.
+   *
+   * <p>The data is read from a response that was requested before the block was created, if there
+   * is one, and should reading that response fail, the data is fetched again. Otherwise it is read
+   * back from the disk cache if it is there, and fetched from the object store if it is not. Data
+   * fetched from the object store is either drained from a stream, or written into the buffer
+   * chunk by chunk as the object client hands the response over.
+   *
+   * @param blockKey the objectkey and range of the object
+   * @param objectClient the object client to use to interact with the object store
+   * @param telemetry an instance of {@link Telemetry} to use
+   * @param generation generation of the block in a sequential read pattern (should be 0 by default)
+   * @param readMode read mode describing whether this is a sync or async fetch
+   * @param readTimeout Timeout duration (in milliseconds) for reading a block object from S3
+   * @param readRetryCount Number of retries for block read failure
+   * @param aggregatingMetrics blobstore metrics
+   * @param indexCache blobstore index cache
+   * @param openStreamInformation contains stream information
+   * @param memoryAllocator allocator of the memory holding the data of the block, {@link
+   *     BlockMemoryAllocator#HEAP} if null
+   * @param diskBlockCache cache of blocks on local disk to read the data from before the object
+   *     store, {@link DiskBlockCache#DISABLED} if null
+   * @param initialContent response holding exactly the data of the block, or null to fetch it
+   * @param nonBlockingIngestion if true, data fetched from the object store is taken chunk by chunk
+   *     rather than drained from a stream by a blocked thread
+   * @param requestHedger hedger of the GETs for the data that are slow to respond, {@link
+   *     RequestHedger#DISABLED} if null
+   * @throws IOException if the request for the data cannot be issued
+   */
+  @Builder
+  public Block(
+      @NonNull BlockKey blockKey,
+      @NonNull ObjectClient objectClient,
+      @NonNull Telemetry telemetry,
+      long generation,
+      @NonNull ReadMode readMode,
+      long readTimeout,
+      int readRetryCount,
+      @NonNull Metrics aggregatingMetrics,
+      @NonNull BlobStoreIndexCache indexCache,
+      @NonNull OpenStreamInformation openStreamInformation,
+      BlockMemoryAllocator memoryAllocator,
+      DiskBlockCache diskBlockCache,
+      ObjectContent initialContent,
+      boolean nonBlockingIngestion,
+      RequestHedger requestHedger)
+      throws IOException {
 
     long start = blockKey.getRange().getStart();
     long end = blockKey.getRange().getEnd();
@@ -110,12 +249,27 @@ public class Block implements Closeable {
     this.readRetryCount = readRetryCount;
     this.aggregatingMetrics = aggregatingMetrics;
     this.indexCache = indexCache;
+    this.memoryAllocator = memoryAllocator == null ? BlockMemoryAllocator.HEAP : memoryAllocator;
+    this.diskBlockCache = diskBlockCache == null ? DiskBlockCache.DISABLED : diskBlockCache;
+    this.initialContent = initialContent;
+    this.nonBlockingIngestion = nonBlockingIngestion;
+    this.requestHedger = requestHedger == null ? RequestHedger.DISABLED : requestHedger;
+    this.speculative = readMode.isSpeculative();
     generateSourceAndData();
   }
 
   /** Method to help construct source and data */
   private void generateSourceAndData() throws IOException {
+    synchronized (fetchLock) {
+      if (this.closed) {
+        throw new IOException("Block was closed, its data can no longer be fetched");
+      }
+      generateSourceAndDataLocked();
+    }
+  }
 
+  private void generateSourceAndDataLocked() throws IOException {
+    this.servedFromDisk = false;
     int retries = 0;
     while (retries < this.readRetryCount) {
       try {
@@ -127,41 +281,18 @@ public class Block implements Closeable {
                 .referrer(referrer)
                 .build();
 
-        this.source =
-            this.telemetry.measureCritical(
-                () ->
-                    Operation.builder()
-                        .name(OPERATION_BLOCK_GET_ASYNC)
-                        .attribute(StreamAttributes.uri(this.blockKey.getObjectKey().getS3URI()))
-                        .attribute(StreamAttributes.etag(this.blockKey.getObjectKey().getEtag()))
-                        .attribute(StreamAttributes.range(this.blockKey.getRange()))
-                        .attribute(StreamAttributes.generation(generation))
-                        .build(),
-                () -> {
-                  this.aggregatingMetrics.add(MetricKey.GET_REQUEST_COUNT, 1);
-                  return objectClient.getObject(getRequest, openStreamInformation);
-                });
-
-        // Handle IOExceptions when converting stream to byte array
-        this.data =
-            this.source.thenApply(
-                objectContent -> {
-                  try {
-                    byte[] bytes =
-                        StreamUtils.toByteArray(
-                            objectContent,
-                            this.blockKey.getObjectKey(),
-                            this.blockKey.getRange(),
-                            this.readTimeout);
-                    int blockRange = blockKey.getRange().getLength();
-                    this.aggregatingMetrics.add(MetricKey.MEMORY_USAGE, blockRange);
-                    this.indexCache.put(blockKey, blockRange);
-                    return bytes;
-                  } catch (IOException | TimeoutException e) {
-                    throw new RuntimeException(
-                        "Error while converting InputStream to byte array", e);
-                  }
-                });
+        final long requestNanos = System.nanoTime();
+        CompletableFuture<ObjectContent> localSource = fetchLocalSource(getRequest);
+        if (localSource == null && this.nonBlockingIngestion) {
+          this.data = ingestFromObjectStore(getRequest, requestNanos);
+        } else {
+          this.data =
+              readFromSource(
+                  localSource == null ? fetchFromObjectStore(getRequest) : localSource,
+                  requestNanos);
+        }
+        // Wake up readers waiting for bytes that are not going to arrive from this request
+        this.data.whenComplete((buffer, throwable) -> signalFillProgress());
 
         return; // Successfully generated source and data, exit loop
       } catch (RuntimeException e) {
@@ -180,11 +311,394 @@ public class Block implements Closeable {
     }
   }
 
+  /**
+   * Reads the data into a buffer by draining the stream of the response, which holds the thread
+   * completing the response for as long as the transfer takes. The read timeout fails the data
+   * from the shared timer, so readers waiting for it are let go even if the stream hangs. The
+   * buffer is released by the reading thread once it stops writing to it, unless it holds the data.
+   *
+   * @param streamSource the future completed by the response to read the data from
+   * @param requestNanos time the request was made at, as of {@link System#nanoTime()}
+   * @return the future completed by the buffer once it has been filled
+   */
+  private CompletableFuture<BlockBuffer> readFromSource(
+      CompletableFuture<ObjectContent> streamSource, long requestNanos) {
+    this.source = streamSource;
+
+    long[] responseNanos = {0};
+    CompletableFuture<BlockBuffer> filled = new CompletableFuture<>();
+    streamSource.whenComplete(
+        (objectContent, throwable) -> {
+          if (throwable != null) {
+            filled.completeExceptionally(throwable);
+            return;
+          }
+          responseNanos[0] = System.nanoTime();
+          BlockBuffer buffer = this.memoryAllocator.allocate(this.blockKey.getRange().getLength());
+          this.fillingBuffer = buffer;
+          try {
+            StreamUtils.readFully(
+                objectContent,
+                inStream ->
+                    buffer.fill(
+                        inStream,
+                        length -> {
+                          if (this.readState.get() == ReadState.CANCELLED) {
+                            throw new CancellationException("Speculative fetch was cancelled");
+                          }
+                          signalFillProgress();
+                        }),
+                this.blockKey.getObjectKey(),
+                this.blockKey.getRange(),
+                this.readTimeout,
+                filled);
+            if (!filled.complete(buffer)) {
+              // The read has been failed in the meantime, e.g. by its timeout
+              releaseFillingBuffer(buffer);
+            }
+          } catch (IOException | TimeoutException | RuntimeException e) {
+            releaseFillingBuffer(buffer);
+            filled.completeExceptionally(
+                new RuntimeException("Error while reading InputStream into block", e));
+          }
+        });
+
+    return filled.handle(
+        (buffer, throwable) -> {
+          if (throwable == null) {
+            onFilled(
+                buffer, responseNanos[0] - requestNanos, System.nanoTime() - responseNanos[0]);
+            return buffer;
+          }
+          Throwable cause =
+              throwable instanceof CompletionException && throwable.getCause() != null
+                  ? throwable.getCause()
+                  : throwable;
+          if (cause instanceof TimeoutException) {
+            throw new RuntimeException("Error while reading InputStream into block", cause);
+          }
+          throw new CompletionException(cause);
+        });
+  }
+
+  /**
+   * Fetches the data from the object store, and writes the body of the response into a buffer chunk
+   * by chunk as the object client hands it over, so that no thread is held for as long as the
+   * transfer takes. The read timeout is enforced by failing the data, after which chunks still
+   * arriving abort the request. A request slow to respond is hedged, the body of whichever responds
+   * first being written into the buffer.
+   *
+   * @param getRequest the request for the data of the block
+   * @param requestNanos time the request was made at, as of {@link System#nanoTime()}
+   * @return the future completed by the buffer once it has been filled
+   */
+  private CompletableFuture<BlockBuffer> ingestFromObjectStore(
+      GetRequest getRequest, long requestNanos) {
+    BufferSink sink = new BufferSink();
+    CompletableFuture<Void> request =
+        this.requestHedger.get(
+            sink,
+            attemptSink ->
+                measureGetFromObjectStore(
+                    () -> objectClient.getObject(getRequest, openStreamInformation, attemptSink)));
+    this.source = request;
+
+    CompletableFuture<BlockBuffer> ingested = new CompletableFuture<>();
+    request.whenComplete(
+        (ignored, throwable) -> {
+          if (throwable != null) {
+            ingested.completeExceptionally(throwable);
+          } else if (sink.buffer == null) {
+            ingested.completeExceptionally(
+                new IllegalStateException("Request completed without a response"));
+          } else {
+            ingested.complete(sink.buffer);
+          }
+        });
+    StreamUtils.failAfterTimeout(ingested, this.readTimeout);
+
+    return ingested.handle(
+        (buffer, throwable) -> {
+          if (throwable == null) {
+            long responseNanos = sink.responseNanos;
+            onFilled(buffer, responseNanos - requestNanos, System.nanoTime() - responseNanos);
+            return buffer;
+          }
+          // Stop the chunks still to come from being written into a buffer that is released
+          request.cancel(false);
+          sink.abort();
+          Throwable cause =
+              throwable instanceof CompletionException && throwable.getCause() != null
+                  ? throwable.getCause()
+                  : throwable;
+          if (cause instanceof TimeoutException) {
+            throw new RuntimeException("Error while reading response into block", cause);
+          }
+          throw new CompletionException(cause);
+        });
+  }
+
+  /**
+   * Records a buffer that has been filled successfully as holding the data of the block.
+   *
+   * @param buffer the buffer holding the data
+   * @param timeToFirstByteNanos time from the request to its response
+   * @param transferNanos time from the response to the end of its body
+   */
+  private void onFilled(BlockBuffer buffer, long timeToFirstByteNanos, long transferNanos) {
+    this.fetchTimeToFirstByteNanos = timeToFirstByteNanos;
+    this.fetchTransferNanos = transferNanos;
+    this.aggregatingMetrics.add(MetricKey.MEMORY_USAGE, buffer.footprint());
+    this.indexCache.put(blockKey, buffer.footprint(), getCacheEntryClass());
+  }
+
+  /**
+   * Reads the data from the response the block was created with the first time round. Otherwise,
+   * reads the data back from the disk cache if it is there, and fetches it from the object store
+   * if reading it back fails. Returns null if the data is neither at hand nor on disk.
+   */
+  private CompletableFuture<ObjectContent> fetchLocalSource(GetRequest getRequest) {
+    ObjectContent initial = this.initialContent;
+    if (initial != null) {
+      this.initialContent = null;
+      return CompletableFuture.completedFuture(initial);
+    }
+    CompletableFuture<ObjectContent> local = this.diskBlockCache.getIfPresent(this.blockKey);
+    if (local == null) {
+      return null;
+    }
+    return local
+        .handle(
+            (objectContent, throwable) -> {
+              if (throwable == null) {
+                this.servedFromDisk = true;
+                return CompletableFuture.completedFuture(objectContent);
+              }
+              LOG.debug("Failed to read block back from disk, fetching it instead", throwable);
+              return fetchFromObjectStore(getRequest);
+            })
+        .thenCompose(Function.identity());
+  }
+
+  private CompletableFuture<ObjectContent> fetchFromObjectStore(GetRequest getRequest) {
+    return this.requestHedger.get(
+        () ->
+            measureGetFromObjectStore(
+                () -> objectClient.getObject(getRequest, openStreamInformation)));
+  }
+
+  private <T> CompletableFuture<T> measureGetFromObjectStore(Supplier<CompletableFuture<T>> get) {
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(OPERATION_BLOCK_GET_ASYNC)
+                .attribute(StreamAttributes.uri(this.blockKey.getObjectKey().getS3URI()))
+                .attribute(StreamAttributes.etag(this.blockKey.getObjectKey().getEtag()))
+                .attribute(StreamAttributes.range(this.blockKey.getRange()))
+                .attribute(StreamAttributes.generation(generation))
+                .build(),
+        () -> {
+          this.aggregatingMetrics.add(MetricKey.GET_REQUEST_COUNT, 1);
+          return get.get();
+        });
+  }
+
   /** @return if data is loaded */
   public boolean isDataLoaded() {
     return data.isDone();
   }
 
+  /** @return if the data failed to be fetched, or its fetch was cancelled */
+  public boolean isDataFailed() {
+    return data.isCompletedExceptionally();
+  }
+
+  /**
+   * Returns the amount of memory held by the data of this block, as accounted for in {@link
+   * MetricKey#MEMORY_USAGE}.
+   *
+   * @return the number of bytes of memory held, 0 if the data has not been loaded successfully
+   */
+  public int getMemoryFootprint() {
+    if (!data.isDone() || data.isCompletedExceptionally()) {
+      return 0;
+    }
+    return data.join().footprint();
+  }
+
+  /**
+   * Registers a listener to be told about the request that fetches the data of this block, once
+   * the data has been fetched successfully. Data read back from the disk cache is not reported.
+   *
+   * @param listener the listener to notify
+   */
+  public void onFetched(@NonNull BlockFetchListener listener) {
+    this.data.thenAccept(
+        buffer -> {
+          // Reading back from local disk says nothing about the object store
+          if (!this.servedFromDisk) {
+            listener.onFetched(
+                buffer.length(), this.fetchTimeToFirstByteNanos, this.fetchTransferNanos);
+          }
+        });
+  }
+
+  /**
+   * Takes a reference to the buffer holding the data of this block, once it has been loaded. The
+   * buffer stays readable after the block is closed, until the reference is handed back with
+   * {@link #releaseData(BlockBuffer)}.
+   *
+   * @return the buffer holding the data, or empty if the data has not been loaded successfully or
+   *     has already been released
+   */
+  public Optional<BlockBuffer> retainData() {
+    CompletableFuture<BlockBuffer> loaded = this.data;
+    if (!loaded.isDone() || loaded.isCompletedExceptionally()) {
+      return Optional.empty();
+    }
+    int references;
+    do {
+      references = dataReferences.get();
+      if (references == 0) {
+        return Optional.empty();
+      }
+    } while (!dataReferences.compareAndSet(references, references + 1));
+    return Optional.of(loaded.join());
+  }
+
+  /**
+   * Hands back a reference to the buffer holding the data of this block, and releases the buffer
+   * if it was the last one.
+   *
+   * @param buffer the buffer taken with {@link #retainData()}
+   */
+  public void releaseData(@NonNull BlockBuffer buffer) {
+    if (dataReferences.decrementAndGet() == 0) {
+      buffer.close();
+    }
+  }
+
+  /**
+   * Registers an action to run once the data of this block has settled, i.e. has been fetched or
+   * has failed to be.
+   *
+   * @param action the action to run
+   */
+  public void onSettled(@NonNull Runnable action) {
+    this.data.whenComplete((buffer, throwable) -> action.run());
+  }
+
+  /**
+   * Returns the class of this block in the cache, which changes once a prefetched block is read.
+   *
+   * @return the cache class of this block
+   */
+  public CacheEntryClass getCacheEntryClass() {
+    return CacheEntryClass.of(readMode, speculative, isAccessed());
+  }
+
+  /**
+   * Is the data of this block fetched ahead of a predicted need, rather than for an actual read?
+   *
+   * @return true if the block is speculative
+   */
+  public boolean isSpeculative() {
+    return speculative;
+  }
+
+  /**
+   * Marks the block as speculative. This is used for blocks that a read only asked for because its
+   * request was extended, e.g. by sequential read-ahead.
+   */
+  void markSpeculative() {
+    this.speculative = true;
+  }
+
+  /**
+   * Has the data of this block been read?
+   *
+   * @return true if any read has been served from this block
+   */
+  public boolean isAccessed() {
+    return readState.get() == ReadState.READ;
+  }
+
+  /**
+   * Cancels the fetch of a block that was prefetched speculatively and has not been read from yet.
+   * The request is cancelled if it has not responded yet, otherwise the fill is aborted at its next
+   * chunk and the memory is released. The data of a cancelled block fails, upon which the block is
+   * removed from its {@link BlockStore} and closed, unless a read reached it in the meantime, in
+   * which case that read fetches the data again.
+   *
+   * @return true if the fetch was cancelled, false if the block was not speculative, has already
+   *     been read from, cancelled or has already finished loading
+   */
+  public boolean cancelSpeculativeFetch() {
+    // Only a read fetches the data again, so this is the source of the first fetch unless the
+    // block is read from before the compare-and-set, which then fails
+    CompletableFuture<?> speculativeSource = this.source;
+    if (!speculative
+        || data.isDone()
+        || !readState.compareAndSet(ReadState.UNREAD, ReadState.CANCELLED)) {
+      return false;
+    }
+    speculativeSource.cancel(false);
+
+    int filled = filledLength();
+    aggregatingMetrics.add(MetricKey.PREFETCH_WASTED_BYTES, filled);
+    aggregatingMetrics.add(
+        MetricKey.PREFETCH_CANCELLED_BYTES, blockKey.getRange().getLength() - filled);
+    LOG.debug(
+        "Cancelled speculative fetch for block with key {}-{}-{} after {} bytes",
+        blockKey.getObjectKey().getS3URI(),
+        blockKey.getRange().getStart(),
+        blockKey.getRange().getEnd(),
+        filled);
+    return true;
+  }
+
+  /**
+   * Returns the number of bytes fetched speculatively into this block that were never read. These
+   * are the bytes wasted by the prefetch if the block is evicted now.
+   *
+   * @return the number of fetched bytes that were never read, 0 if the block is not speculative or
+   *     has been read from
+   */
+  public int getUnreadSpeculativeBytes() {
+    if (!speculative || readState.get() != ReadState.UNREAD) {
+      return 0;
+    }
+    return filledLength();
+  }
+
+  /**
+   * Registers a listener to be told about the bytes fetched speculatively into this block that are
+   * released without ever being read, e.g. the read-ahead policy that planned the block.
+   *
+   * @param listener the listener to notify with the number of bytes never read
+   */
+  public void onUnreadEviction(@NonNull LongConsumer listener) {
+    this.unreadEvictionListener = listener;
+  }
+
+  /**
+   * Tells the listener registered with {@link #onUnreadEviction(LongConsumer)}, if any, that the
+   * block is being released with some of its speculative bytes never read.
+   *
+   * @param unreadBytes the number of bytes never read
+   */
+  void notifyUnreadEviction(long unreadBytes) {
+    LongConsumer listener = this.unreadEvictionListener;
+    if (listener != null && unreadBytes > 0) {
+      listener.accept(unreadBytes);
+    }
+  }
+
+  private int filledLength() {
+    BlockBuffer buffer = this.fillingBuffer;
+    return buffer == null ? 0 : buffer.length();
+  }
+
   /**
    * Reads a byte from the underlying object
    *
@@ -195,9 +709,8 @@ public class Block implements Closeable {
   public int read(long pos) throws IOException {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
 
-    byte[] content = this.getDataWithRetries();
-    indexCache.recordAccess(blockKey);
-    return Byte.toUnsignedInt(content[posToOffset(pos)]);
+    int offset = posToOffset(pos);
+    return readContent(offset + 1, content -> content.get(offset));
   }
 
   /**
@@ -216,17 +729,168 @@ public class Block implements Closeable {
     Preconditions.checkArgument(0 <= len, "`len` must not be negative");
     Preconditions.checkArgument(off < buf.length, "`off` must be less than size of buffer");
 
-    byte[] content = this.getDataWithRetries();
-    indexCache.recordAccess(blockKey);
-    int contentOffset = posToOffset(pos);
-    int available = content.length - contentOffset;
-    int bytesToCopy = Math.min(len, available);
+    int offset = posToOffset(pos);
+    int requiredLength = (int) Math.min(this.blockKey.getRange().getLength(), (long) offset + len);
+    return readContent(requiredLength, content -> content.get(offset, buf, off, len));
+  }
 
-    for (int i = 0; i < bytesToCopy; ++i) {
-      buf[off + i] = content[contentOffset + i];
+  /**
+   * Runs a read against the data of the block once the first `requiredLength` bytes of the block
+   * are available. If the block is still being filled, the read is served from the filled part of
+   * the buffer as soon as it is large enough, otherwise it waits for the whole block.
+   *
+   * @param requiredLength number of bytes from the start of the block the read needs
+   * @param reader the read to run against the block data
+   * @return the result of the read
+   * @throws IOException if an I/O error occurs
+   */
+  private int readContent(int requiredLength, ToIntFunction<BlockBuffer> reader)
+      throws IOException {
+    this.readState.set(ReadState.READ);
+    if (!this.data.isDone() && awaitFill(requiredLength)) {
+      fillingBufferLock.readLock().lock();
+      try {
+        BlockBuffer buffer = this.fillingBuffer;
+        if (buffer != null && buffer.length() >= requiredLength) {
+          aggregatingMetrics.add(MetricKey.PARTIAL_BLOCK_READ, 1);
+          indexCache.recordAccess(blockKey, buffer.footprint(), getCacheEntryClass());
+          return reader.applyAsInt(buffer);
+        }
+      } finally {
+        fillingBufferLock.readLock().unlock();
+      }
     }
 
-    return bytesToCopy;
+    BlockBuffer content = this.getDataWithRetries();
+    indexCache.recordAccess(blockKey, content.footprint(), getCacheEntryClass());
+    return reader.applyAsInt(content);
+  }
+
+  /**
+   * Waits until the buffer being filled holds at least `requiredLength` bytes, the request filling
+   * it completes, or the read timeout elapses, whichever comes first.
+   *
+   * @param requiredLength number of bytes from the start of the block to wait for
+   * @return true if the bytes are available while the block is still being filled
+   * @throws IOException if interrupted while waiting
+   */
+  private boolean awaitFill(int requiredLength) throws IOException {
+    if (isFilledTo(requiredLength)) {
+      return true;
+    }
+
+    long remainingNanos = TimeUnit.MILLISECONDS.toNanos(this.readTimeout);
+    fillWaiters.incrementAndGet();
+    fillProgressLock.lock();
+    try {
+      while (!this.data.isDone() && !isFilledTo(requiredLength) && remainingNanos > 0) {
+        remainingNanos = fillProgress.awaitNanos(remainingNanos);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for block data", e);
+    } finally {
+      fillProgressLock.unlock();
+      fillWaiters.decrementAndGet();
+    }
+    return !this.data.isDone() && isFilledTo(requiredLength);
+  }
+
+  private boolean isFilledTo(int requiredLength) {
+    BlockBuffer buffer = this.fillingBuffer;
+    return buffer != null && buffer.length() >= requiredLength;
+  }
+
+  /** Wakes up readers waiting in {@link #awaitFill(int)}, if there are any */
+  private void signalFillProgress() {
+    if (fillWaiters.get() > 0) {
+      fillProgressLock.lock();
+      try {
+        fillProgress.signalAll();
+      } finally {
+        fillProgressLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Writes the body of a response into a buffer as the object client hands it over. The buffer is
+   * allocated once the object store responds, so that no memory is held while waiting for it.
+   */
+  private final class BufferSink implements ObjectContentSink {
+    private volatile BlockBuffer buffer;
+    private volatile long responseNanos;
+
+    /** Set once the fill has failed, after which no chunk is written into the buffer anymore */
+    private boolean aborted;
+
+    @Override
+    public void onResponse() {
+      this.responseNanos = System.nanoTime();
+      BlockBuffer allocated = memoryAllocator.allocate(blockKey.getRange().getLength());
+      fillingBufferLock.writeLock().lock();
+      try {
+        if (!this.aborted) {
+          this.buffer = allocated;
+          fillingBuffer = allocated;
+          return;
+        }
+      } finally {
+        fillingBufferLock.writeLock().unlock();
+      }
+      allocated.close();
+      throw new CancellationException("Block fetch was aborted");
+    }
+
+    @Override
+    public void onChunk(ByteBuffer chunk) {
+      if (readState.get() == ReadState.CANCELLED) {
+        throw new CancellationException("Speculative fetch was cancelled");
+      }
+      // Readers only take the read lock too, and the buffer is written by one thread at a time
+      fillingBufferLock.readLock().lock();
+      try {
+        if (this.aborted) {
+          throw new CancellationException("Block fetch was aborted");
+        }
+        this.buffer.append(chunk);
+      } finally {
+        fillingBufferLock.readLock().unlock();
+      }
+      signalFillProgress();
+    }
+
+    /** Stops any further chunk from being written, and releases the buffer if there is one. */
+    private void abort() {
+      BlockBuffer allocated;
+      fillingBufferLock.writeLock().lock();
+      try {
+        this.aborted = true;
+        allocated = this.buffer;
+      } finally {
+        fillingBufferLock.writeLock().unlock();
+      }
+      if (allocated != null) {
+        releaseFillingBuffer(allocated);
+      }
+    }
+  }
+
+  /**
+   * Releases the buffer of a failed fill, once no partial read is copying from it anymore.
+   *
+   * @param buffer the buffer to release
+   */
+  private void releaseFillingBuffer(BlockBuffer buffer) {
+    fillingBufferLock.writeLock().lock();
+    try {
+      if (this.fillingBuffer == buffer) {
+        this.fillingBuffer = null;
+      }
+    } finally {
+      fillingBufferLock.writeLock().unlock();
+    }
+    buffer.close();
   }
 
   /**
@@ -257,7 +921,7 @@ public class Block implements Closeable {
    * @return the bytes fetched by the issued {@link GetRequest}.
    * @throws IOException if an I/O error occurs after maximum retry counts
    */
-  private byte[] getDataWithRetries() throws IOException {
+  private BlockBuffer getDataWithRetries() throws IOException {
     for (int i = 0; i < this.readRetryCount; i++) {
       try {
         return this.getData();
@@ -285,7 +949,7 @@ public class Block implements Closeable {
    * @return the bytes fetched by the issued {@link GetRequest}.
    * @throws IOException if an I/O error occurs
    */
-  private byte[] getData() throws IOException {
+  private BlockBuffer getData() throws IOException {
     return this.telemetry.measureJoinCritical(
         () ->
             Operation.builder()
@@ -299,10 +963,25 @@ public class Block implements Closeable {
         this.readTimeout);
   }
 
-  /** Closes the {@link Block} and frees up all resources it holds */
+  /**
+   * Closes the {@link Block} and frees up all resources it holds. The memory holding the data is
+   * released as soon as the data is no longer being written, and no reference taken with {@link
+   * #retainData()} is left, so the block must not be read from after it has been closed.
+   */
   @Override
   public void close() {
-    // Only the source needs to be canceled, the continuation will cancel on its own
-    this.source.cancel(false);
+    synchronized (fetchLock) {
+      this.closed = true;
+      // Only the source needs to be canceled, the continuation will cancel on its own
+      this.source.cancel(false);
+      this.data.thenAccept(this::releaseData);
+    }
+  }
+
+  /** Whether a block has been read from, or had its speculative fetch cancelled first */
+  private enum ReadState {
+    UNREAD,
+    READ,
+    CANCELLED
   }
 }
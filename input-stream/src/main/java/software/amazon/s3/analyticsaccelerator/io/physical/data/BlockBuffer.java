@@ -0,0 +1,97 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * Memory holding the data of a {@link Block}. A buffer is filled once from the response of the
+ * request backing the block and read from any number of times. Reads do not have to wait for the
+ * fill to finish: bytes below the high-water mark reported by {@link #length()} can be read while
+ * the rest of the buffer is still being filled. Closing the buffer hands its memory back to the
+ * {@link BlockMemoryAllocator} it came from, so it must not be read from after it has been closed.
+ */
+public interface BlockBuffer extends Closeable {
+  /**
+   * Returns the number of bytes this buffer can hold.
+   *
+   * @return the number of bytes this buffer can hold
+   */
+  int capacity();
+
+  /**
+   * Returns the number of bytes this buffer has been filled with so far. This is a high-water mark
+   * that only grows while the buffer is being filled, and can be read from any thread.
+   *
+   * @return the number of bytes this buffer has been filled with
+   */
+  int length();
+
+  /**
+   * Returns the number of bytes of memory this buffer occupies. This is what the buffer is
+   * accounted for in memory usage and cache weights, and can be larger than its capacity.
+   *
+   * @return the number of bytes of memory this buffer occupies
+   */
+  int footprint();
+
+  /**
+   * Fills this buffer from a stream, until either the buffer is full or the stream ends.
+   *
+   * @param inputStream the stream to read from
+   * @param progressListener notified with the new high-water mark every time it is raised
+   * @return the number of bytes the buffer has been filled with
+   * @throws IOException if an I/O error occurs
+   */
+  int fill(InputStream inputStream, IntConsumer progressListener) throws IOException;
+
+  /**
+   * Appends a chunk of the response to the filled part of the buffer. Bytes past the capacity of
+   * the buffer are dropped. Like {@link #fill(InputStream, IntConsumer)}, this must only be called
+   * by one thread at a time.
+   *
+   * @param chunk the bytes to append, between its position and its limit, which are consumed
+   * @return the number of bytes the buffer has been filled with
+   */
+  int append(ByteBuffer chunk);
+
+  /**
+   * Reads a byte from the filled part of the buffer.
+   *
+   * @param offset offset of the byte in the buffer
+   * @return an unsigned int representing the byte that was read
+   */
+  int get(int offset);
+
+  /**
+   * Copies bytes from the filled part of the buffer into an array.
+   *
+   * @param offset offset in the buffer to start copying from
+   * @param dst the array to copy into
+   * @param dstOffset offset in the array at which bytes are written
+   * @param len maximum number of bytes to copy
+   * @return the number of bytes copied, which is less than `len` if the buffer holds fewer bytes
+   */
+  int get(int offset, byte[] dst, int dstOffset, int len);
+
+  /** Releases the memory held by this buffer. Calling this more than once has no effect. */
+  @Override
+  void close();
+}
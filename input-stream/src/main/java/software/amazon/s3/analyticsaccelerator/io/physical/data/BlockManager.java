@@ -17,9 +17,13 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalLong;
+import lombok.Builder;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,15 +32,24 @@ import software.amazon.s3.analyticsaccelerator.common.Preconditions;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Operation;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.ReadAheadPolicy;
 import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.SequentialPatternDetector;
 import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.SequentialReadProgression;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
 import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
 import software.amazon.s3.analyticsaccelerator.util.*;
 
-/** Implements a Block Manager responsible for planning and scheduling reads on a key. */
+/**
+ * Implements a Block Manager responsible for planning and scheduling reads on a key.
+ *
+ * <p>Reads served by blocks that are already in the {@link BlockStore} do not take any lock, so
+ * threads reading the same object only contend when they have to plan and fetch missing ranges.
+ * Planning is serialized, as it has to see the blocks the previous plan added to avoid fetching
+ * the same range twice.
+ */
 public class BlockManager implements Closeable {
   private final ObjectKey objectKey;
   private final ObjectMetadata metadata;
@@ -44,13 +57,25 @@ public class BlockManager implements Closeable {
   private final ObjectClient objectClient;
   private final Telemetry telemetry;
   private final SequentialPatternDetector patternDetector;
-  private final SequentialReadProgression sequentialReadProgression;
+
+  /**
+   * Read-ahead policy of the reads that are not made by a stream, e.g. small object prefetches. It
+   * observes nothing, so such reads neither shape nor trigger prefetches. Streams have their own
+   * policy and stride detector, held by their {@link PrefetchTracker}.
+   */
+  private final ReadAheadPolicy untrackedReadAheadPolicy;
+
   private final IOPlanner ioPlanner;
   private final PhysicalIOConfiguration configuration;
   private final RangeOptimiser rangeOptimiser;
   private OpenStreamInformation openStreamInformation;
   private final Metrics aggregatingMetrics;
   private final BlobStoreIndexCache indexCache;
+  private final BlockMemoryAllocator memoryAllocator;
+  private final MemoryReservationGate memoryReservationGate;
+  private final DiskBlockCache diskBlockCache;
+  private final RequestHedger requestHedger;
+  private final Object planningLock = new Object();
   private static final String OPERATION_MAKE_RANGE_AVAILABLE = "block.manager.make.range.available";
 
   private static final Logger LOG = LoggerFactory.getLogger(BlockManager.class);
@@ -76,6 +101,61 @@ public class BlockManager implements Closeable {
       @NonNull Metrics aggregatingMetrics,
       @NonNull BlobStoreIndexCache indexCache,
       @NonNull OpenStreamInformation openStreamInformation) {
+    this(
+        objectKey,
+        objectClient,
+        metadata,
+        telemetry,
+        configuration,
+        aggregatingMetrics,
+        indexCache,
+        openStreamInformation,
+        null,
+        null,
+        null,
+        null,
+        false);
+  }
+
+  /**
+   * Constructs a new BlockManager. Use {@link #builder()} to set the optional collaborators, which
+   * default to those of a BlockManager that stands on its own when they are left unset.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   * @param objectClient object client capable of interacting with the underlying object store
+   * @param telemetry an instance of {@link Telemetry} to use
+   * @param metadata the metadata for the object
+   * @param configuration the physicalIO configuration
+   * @param aggregatingMetrics factory metrics
+   * @param indexCache blobstore index cache
+   * @param openStreamInformation contains stream information
+   * @param memoryAllocator allocator of the memory holding block data, {@link
+   *     BlockMemoryAllocator#HEAP} if null
+   * @param memoryReservationGate gate admitting blocks into memory before they are fetched, a gate
+   *     of this BlockManager's own if null
+   * @param diskBlockCache cache of blocks on local disk that evicted blocks are spilled to, and
+   *     read back from, {@link DiskBlockCache#DISABLED} if null
+   * @param requestHedger hedger of block GETs that are slow to respond, {@link
+   *     RequestHedger#DISABLED} if null
+   * @param deferSmallObjectPrefetch if true, a small object is only prefetched once {@link
+   *     #prefetchSmallObject()} is called, which lets the blob store build a BlockManager that may
+   *     be thrown away without issuing any requests
+   */
+  @Builder
+  public BlockManager(
+      @NonNull ObjectKey objectKey,
+      @NonNull ObjectClient objectClient,
+      @NonNull ObjectMetadata metadata,
+      @NonNull Telemetry telemetry,
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Metrics aggregatingMetrics,
+      @NonNull BlobStoreIndexCache indexCache,
+      @NonNull OpenStreamInformation openStreamInformation,
+      BlockMemoryAllocator memoryAllocator,
+      MemoryReservationGate memoryReservationGate,
+      DiskBlockCache diskBlockCache,
+      RequestHedger requestHedger,
+      boolean deferSmallObjectPrefetch) {
     this.objectKey = objectKey;
     this.objectClient = objectClient;
     this.metadata = metadata;
@@ -83,21 +163,31 @@ public class BlockManager implements Closeable {
     this.configuration = configuration;
     this.aggregatingMetrics = aggregatingMetrics;
     this.indexCache = indexCache;
-    this.blockStore = new BlockStore(objectKey, metadata, aggregatingMetrics, indexCache);
+    this.memoryAllocator = memoryAllocator == null ? BlockMemoryAllocator.HEAP : memoryAllocator;
+    this.memoryReservationGate =
+        memoryReservationGate == null
+            ? new MemoryReservationGate(configuration, aggregatingMetrics)
+            : memoryReservationGate;
+    this.diskBlockCache = diskBlockCache == null ? DiskBlockCache.DISABLED : diskBlockCache;
+    this.requestHedger = requestHedger == null ? RequestHedger.DISABLED : requestHedger;
+    this.blockStore =
+        new BlockStore(objectKey, metadata, aggregatingMetrics, indexCache, this.diskBlockCache);
     this.patternDetector = new SequentialPatternDetector(blockStore);
-    this.sequentialReadProgression = new SequentialReadProgression(configuration);
+    this.untrackedReadAheadPolicy = new SequentialReadProgression(configuration);
     this.ioPlanner = new IOPlanner(blockStore);
     this.rangeOptimiser = new RangeOptimiser(configuration);
     this.openStreamInformation = openStreamInformation;
 
-    prefetchSmallObject();
+    if (!deferSmallObjectPrefetch) {
+      prefetchSmallObject();
+    }
   }
 
   /**
    * Initializes the BlockManager with small object prefetching if applicable. This is done
    * asynchronously to avoid blocking the constructor.
    */
-  private void prefetchSmallObject() {
+  void prefetchSmallObject() {
     if (AnalyticsAcceleratorUtils.isSmallObject(configuration, metadata.getContentLength())) {
       try {
         makeRangeAvailable(0, metadata.getContentLength(), ReadMode.SMALL_OBJECT_PREFETCH);
@@ -118,7 +208,7 @@ public class BlockManager implements Closeable {
    * @param pos the position of a byte
    * @return the Block holding the byte or empty if the byte is not in the BlockStore
    */
-  public synchronized Optional<Block> getBlock(long pos) {
+  public Optional<Block> getBlock(long pos) {
     return this.blockStore.getBlock(pos);
   }
 
@@ -129,15 +219,29 @@ public class BlockManager implements Closeable {
    * @param readMode whether this ask corresponds to a sync or async read
    * @throws IOException if an I/O error occurs
    */
-  public synchronized void makePositionAvailable(long pos, ReadMode readMode) throws IOException {
+  public void makePositionAvailable(long pos, ReadMode readMode) throws IOException {
+    makePositionAvailable(pos, readMode, null);
+  }
+
+  /**
+   * Make sure that the byte at a give position is in the BlockStore.
+   *
+   * @param pos the position of the byte
+   * @param readMode whether this ask corresponds to a sync or async read
+   * @param prefetchTracker tracker of the speculative blocks of the stream, or null if the blocks
+   *     need not be tracked
+   * @throws IOException if an I/O error occurs
+   */
+  public void makePositionAvailable(
+      long pos, ReadMode readMode, PrefetchTracker prefetchTracker) throws IOException {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
+    List<Range> predictedReads = recordRead(pos, 1, readMode, prefetchTracker);
 
-    // Position is already available --> return corresponding block
-    if (getBlock(pos).isPresent()) {
-      return;
+    // Position is already available --> no need to fetch it
+    if (!getBlock(pos).isPresent()) {
+      ensureRangeAvailable(pos, 1, readMode, prefetchTracker);
     }
-
-    makeRangeAvailable(pos, 1, readMode);
+    prefetchPredictedReads(predictedReads, prefetchTracker);
   }
 
   private boolean isRangeAvailable(long pos, long len) throws IOException {
@@ -165,31 +269,152 @@ public class BlockManager implements Closeable {
    * @param readMode whether this ask corresponds to a sync or async read
    * @throws IOException if an I/O error occurs
    */
-  public synchronized void makeRangeAvailable(long pos, long len, ReadMode readMode)
-      throws IOException {
+  public void makeRangeAvailable(long pos, long len, ReadMode readMode) throws IOException {
+    makeRangeAvailable(pos, len, readMode, null);
+  }
+
+  /**
+   * Method that ensures that a range is fully available in the object store. After calling this
+   * method the BlockStore should contain all bytes in the range and we should be able to service a
+   * read through the BlockStore. Speculative blocks created along the way are handed to the
+   * tracker of the stream asking for the range, so they can be cancelled if they become irrelevant.
+   *
+   * @param pos start of a read
+   * @param len length of the read
+   * @param readMode whether this ask corresponds to a sync or async read
+   * @param prefetchTracker tracker of the speculative blocks of the stream, or null if the blocks
+   *     need not be tracked
+   * @throws IOException if an I/O error occurs
+   */
+  public void makeRangeAvailable(
+      long pos, long len, ReadMode readMode, PrefetchTracker prefetchTracker) throws IOException {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
     Preconditions.checkArgument(0 <= len, "`len` must not be negative");
+    List<Range> predictedReads = recordRead(pos, len, readMode, prefetchTracker);
+
+    ensureRangeAvailable(pos, len, readMode, prefetchTracker);
+    prefetchPredictedReads(predictedReads, prefetchTracker);
+  }
 
+  /**
+   * Lets the read-ahead policy and the stride detector of the reading stream observe synchronous
+   * reads. Reads that are not made by a stream are not observed, as the prefetches they would
+   * trigger could not be cancelled.
+   *
+   * @return the ranges the stride detector predicts the next reads to ask for
+   */
+  private List<Range> recordRead(
+      long pos, long len, ReadMode readMode, PrefetchTracker prefetchTracker) {
+    if (readMode != ReadMode.SYNC || prefetchTracker == null) {
+      return Collections.emptyList();
+    }
+    prefetchTracker.getReadAheadPolicy().onRead(pos, len);
+    return prefetchTracker.getStridePatternDetector(metadata.getContentLength()).onRead(pos, len);
+  }
+
+  private ReadAheadPolicy readAheadPolicyOf(PrefetchTracker prefetchTracker) {
+    return prefetchTracker == null
+        ? untrackedReadAheadPolicy
+        : prefetchTracker.getReadAheadPolicy();
+  }
+
+  private void prefetchPredictedReads(List<Range> predictedReads, PrefetchTracker prefetchTracker) {
+    if (predictedReads.isEmpty()) {
+      return;
+    }
+    try {
+      makeRangesAvailable(predictedReads, ReadMode.STRIDE_PREFETCH, prefetchTracker);
+    } catch (IOException e) {
+      LOG.debug("Failed to prefetch predicted reads for key: {}", objectKey.getS3URI().getKey(), e);
+    }
+  }
+
+  private void ensureRangeAvailable(
+      long pos, long len, ReadMode readMode, PrefetchTracker prefetchTracker) throws IOException {
+    // Cache hits are served without coordinating with other readers
     if (isRangeAvailable(pos, len)) {
       return;
     }
 
+    // Another reader may have planned part of the range in the meantime. The planner only returns
+    // ranges that are still missing once the lock is held, so no range is ever fetched twice.
+    synchronized (planningLock) {
+      planAndFetch(pos, len, readMode, prefetchTracker);
+    }
+  }
+
+  /**
+   * Makes all ranges of a plan available. Ranges that are not available yet and are close to each
+   * other are coalesced, so that they are fetched with fewer requests. The bytes in the holes
+   * between coalesced ranges are fetched without being asked for, and are reported in {@link
+   * MetricKey#OVER_READ_BYTES}.
+   *
+   * @param ranges the ranges to make available
+   * @param readMode whether this ask corresponds to a sync or async read
+   * @param prefetchTracker tracker of the speculative blocks of the stream, or null if the blocks
+   *     need not be tracked
+   * @throws IOException if an I/O error occurs
+   */
+  public void makeRangesAvailable(
+      @NonNull List<Range> ranges, ReadMode readMode, PrefetchTracker prefetchTracker)
+      throws IOException {
+    List<Range> missingRanges = new ArrayList<>();
+    for (Range range : ranges) {
+      if (!isRangeAvailable(range.getStart(), range.getLength())) {
+        missingRanges.add(range);
+      }
+    }
+
+    long[] overReadBytes = {0};
+    List<Range> coalescedRanges =
+        rangeOptimiser.coalesceRanges(
+            missingRanges,
+            hole -> {
+              // Reading over cached bytes would fetch them twice, so only entirely missing holes
+              // are read over
+              OptionalLong nextLoadedByte = blockStore.findNextLoadedByte(hole.getStart());
+              if (nextLoadedByte.isPresent() && nextLoadedByte.getAsLong() <= hole.getEnd()) {
+                return false;
+              }
+              overReadBytes[0] += hole.getLength();
+              return true;
+            });
+    if (overReadBytes[0] > 0) {
+      aggregatingMetrics.add(MetricKey.OVER_READ_BYTES, overReadBytes[0]);
+    }
+
+    for (Range range : coalescedRanges) {
+      makeRangeAvailable(range.getStart(), range.getLength(), readMode, prefetchTracker);
+    }
+  }
+
+  private void planAndFetch(
+      long pos, long len, ReadMode readMode, PrefetchTracker prefetchTracker) throws IOException {
+
     // In case of a sequential reading pattern, calculate the generation and adjust the requested
     // effectiveEnd of the requested range
     long effectiveEnd = pos + Math.max(len, configuration.getReadAheadBytes()) - 1;
 
+    ReadAheadPolicy policy = readAheadPolicyOf(prefetchTracker);
     final long generation;
     if (readMode.allowRequestExtension() && patternDetector.isSequentialRead(pos)) {
       generation = patternDetector.getGeneration(pos);
       effectiveEnd =
-          Math.max(
-              effectiveEnd,
-              truncatePos(pos + sequentialReadProgression.getSizeForGeneration(generation)));
+          Math.max(effectiveEnd, truncatePos(pos + policy.getSizeForGeneration(generation)));
     } else {
       generation = 0;
     }
 
-    // Fix "effectiveEnd", so we can pass it into the lambda
+    // In block aligned mode, the range is rounded out to whole cells of the grid
+    long effectiveStart = pos;
+    if (configuration.isBlockAlignmentEnabled()) {
+      long blockSize = configuration.getBlockSizeBytes();
+      effectiveStart = pos / blockSize * blockSize;
+      effectiveEnd = truncatePos((effectiveEnd / blockSize + 1) * blockSize - 1);
+    }
+
+    // Fix "effectiveStart" and "effectiveEnd", so we can pass them into the lambda
+    final long effectiveStartFinal = effectiveStart;
     final long effectiveEndFinal = effectiveEnd;
     this.telemetry.measureStandard(
         () ->
@@ -198,33 +423,238 @@ public class BlockManager implements Closeable {
                 .attribute(StreamAttributes.uri(this.objectKey.getS3URI()))
                 .attribute(StreamAttributes.etag(this.objectKey.getEtag()))
                 .attribute(StreamAttributes.range(pos, pos + len - 1))
-                .attribute(StreamAttributes.effectiveRange(pos, effectiveEndFinal))
+                .attribute(StreamAttributes.effectiveRange(effectiveStartFinal, effectiveEndFinal))
                 .attribute(StreamAttributes.generation(generation))
                 .build(),
         () -> {
           // Determine the missing ranges and fetch them
           List<Range> missingRanges =
-              ioPlanner.planRead(pos, effectiveEndFinal, getLastObjectByte());
-          List<Range> splits = rangeOptimiser.splitRanges(missingRanges);
-          for (Range r : splits) {
+              ioPlanner.planRead(effectiveStartFinal, effectiveEndFinal, getLastObjectByte());
+          List<Range> splits =
+              configuration.isBlockAlignmentEnabled()
+                  ? rangeOptimiser.alignRanges(missingRanges)
+                  : rangeOptimiser.splitRanges(missingRanges);
+          for (Range split : splits) {
+            // Blocks past the end of the requested range are only there because the request was
+            // extended, so nothing has asked for them yet
+            boolean extension = split.getStart() > pos + len - 1;
+            Range r = reserveMemory(split, readMode.isSpeculative() || extension);
+            if (r == null) {
+              continue;
+            }
             BlockKey blockKey = new BlockKey(objectKey, r);
-            Block block =
-                new Block(
-                    blockKey,
-                    objectClient,
-                    telemetry,
-                    generation,
-                    readMode,
-                    this.configuration.getBlockReadTimeout(),
-                    this.configuration.getBlockReadRetryCount(),
-                    aggregatingMetrics,
-                    indexCache,
-                    openStreamInformation);
+            Block block;
+            try {
+              block =
+                  Block.builder()
+                      .blockKey(blockKey)
+                      .objectClient(objectClient)
+                      .telemetry(telemetry)
+                      .generation(generation)
+                      .readMode(readMode)
+                      .readTimeout(this.configuration.getBlockReadTimeout())
+                      .readRetryCount(this.configuration.getBlockReadRetryCount())
+                      .aggregatingMetrics(aggregatingMetrics)
+                      .indexCache(indexCache)
+                      .openStreamInformation(openStreamInformation)
+                      .memoryAllocator(memoryAllocator)
+                      .diskBlockCache(diskBlockCache)
+                      .nonBlockingIngestion(this.configuration.isNonBlockingIngestionEnabled())
+                      .requestHedger(requestHedger)
+                      .build();
+            } catch (IOException | RuntimeException e) {
+              memoryReservationGate.release(r.getLength());
+              throw e;
+            }
+            block.onSettled(() -> memoryReservationGate.release(r.getLength()));
+            if (extension) {
+              block.markSpeculative();
+            }
+            aggregatingMetrics.add(block.getCacheEntryClass().getMissKey(), 1L);
             blockStore.add(blockKey, block);
+            if (prefetchTracker != null) {
+              block.onFetched(policy::onFetch);
+              block.onUnreadEviction(policy::onUnreadEviction);
+              prefetchTracker.track(block);
+            }
           }
         });
   }
 
+  /**
+   * Adds the tail of the object, which a HEAD-less open has requested already, as a block, so that
+   * reading the tail does not fetch it again. The content holds the last {@link
+   * PhysicalIOConfiguration#getHeadlessOpenTailBytes()} bytes of the object, or the whole object if
+   * it is smaller than that. The content is discarded if any of the tail is planned already, or
+   * there is no memory to hold it without waiting.
+   *
+   * @param content the response to the GET of the tail
+   */
+  public void addTail(@NonNull ObjectContent content) {
+    long contentLength = metadata.getContentLength();
+    if (contentLength == 0) {
+      closeContent(content);
+      return;
+    }
+    Range tail =
+        new Range(
+            Math.max(0, contentLength - configuration.getHeadlessOpenTailBytes()),
+            contentLength - 1);
+
+    synchronized (planningLock) {
+      if (!isMissing(tail)
+          || memoryReservationGate.tryReserve(tail.getLength(), tail.getLength()) == 0) {
+        closeContent(content);
+        return;
+      }
+
+      BlockKey blockKey = new BlockKey(objectKey, tail);
+      Block block;
+      try {
+        block =
+            Block.builder()
+                .blockKey(blockKey)
+                .objectClient(objectClient)
+                .telemetry(telemetry)
+                .readMode(ReadMode.PREFETCH_TAIL)
+                .readTimeout(this.configuration.getBlockReadTimeout())
+                .readRetryCount(this.configuration.getBlockReadRetryCount())
+                .aggregatingMetrics(aggregatingMetrics)
+                .indexCache(indexCache)
+                .openStreamInformation(openStreamInformation)
+                .memoryAllocator(memoryAllocator)
+                .diskBlockCache(diskBlockCache)
+                .initialContent(content)
+                .nonBlockingIngestion(this.configuration.isNonBlockingIngestionEnabled())
+                .requestHedger(requestHedger)
+                .build();
+      } catch (IOException | RuntimeException e) {
+        memoryReservationGate.release(tail.getLength());
+        closeContent(content);
+        LOG.debug("Failed to add the tail of key: {}", objectKey.getS3URI().getKey(), e);
+        return;
+      }
+      block.onSettled(() -> memoryReservationGate.release(tail.getLength()));
+      blockStore.add(blockKey, block);
+    }
+  }
+
+  private boolean isMissing(Range range) {
+    try {
+      return ioPlanner
+          .planRead(range.getStart(), range.getEnd(), getLastObjectByte())
+          .equals(Collections.singletonList(range));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void closeContent(ObjectContent content) {
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the tail of key: {}", objectKey.getS3URI().getKey(), e);
+    }
+  }
+
+  /**
+   * Waits for memory headroom for the parts of a range that are not available yet, for up to
+   * {@link PhysicalIOConfiguration#getMemoryReservationTimeoutMilliseconds()}. Making the range
+   * available does not wait for headroom itself, as it runs with the planning lock held and often
+   * under the read lock of the blob, so callers that do not hold any lock wait here first.
+   *
+   * @param pos the starting position of the range
+   * @param len the length of the range
+   * @throws IOException if an I/O error occurs
+   */
+  public void awaitMemoryHeadroom(long pos, long len) throws IOException {
+    awaitMemoryHeadroom(Collections.singletonList(new Range(pos, pos + Math.max(len, 1) - 1)));
+  }
+
+  /**
+   * Waits for memory headroom for the parts of ranges that are not available yet. See {@link
+   * #awaitMemoryHeadroom(long, long)}.
+   *
+   * @param ranges the ranges about to be made available
+   * @throws IOException if an I/O error occurs
+   */
+  public void awaitMemoryHeadroom(@NonNull List<Range> ranges) throws IOException {
+    long missingBytes = 0;
+    for (Range range : ranges) {
+      if (range.getStart() > getLastObjectByte()) {
+        continue;
+      }
+      for (Range missing :
+          ioPlanner.planRead(range.getStart(), truncatePos(range.getEnd()), getLastObjectByte())) {
+        missingBytes += missing.getLength();
+      }
+    }
+    if (missingBytes > 0) {
+      memoryReservationGate.awaitHeadroom(missingBytes);
+    }
+  }
+
+  /**
+   * Reserves the memory a block needs before it is created. Speculative blocks are truncated to the
+   * headroom there is, or dropped if there is too little of it. Aligned blocks cannot be truncated
+   * without breaking the grid, so they are either fully admitted or dropped.
+   *
+   * @return the range of the block to create, or null if the block is dropped
+   */
+  private Range reserveMemory(Range range, boolean speculative) {
+    if (!speculative) {
+      // Waiting for headroom is done by the caller before taking any lock, see awaitMemoryHeadroom
+      memoryReservationGate.forceReserve(range.getLength());
+      return range;
+    }
+
+    long minBytes = configuration.isBlockAlignmentEnabled() ? range.getLength() : 0;
+    long reserved = memoryReservationGate.tryReserve(range.getLength(), minBytes);
+    if (reserved == 0) {
+      return null;
+    }
+    return new Range(range.getStart(), range.getStart() + reserved - 1);
+  }
+
+  /**
+   * Cancels the fetches of all blocks of this object that were prefetched speculatively and have
+   * not been read from yet.
+   *
+   * @return the number of blocks whose fetch was cancelled
+   */
+  public int cancelSpeculativeFetches() {
+    return blockStore.cancelSpeculativeFetches();
+  }
+
+  /**
+   * Returns true if a block of this object ends before the given position.
+   *
+   * @param pos a byte position
+   * @return true if there is a block ending before the position
+   */
+  public boolean hasBlocksBefore(long pos) {
+    return blockStore.hasBlocksBefore(pos);
+  }
+
+  /**
+   * Releases the loaded blocks that end before the given position, as a reader that only moves
+   * forward is not going to read them again.
+   *
+   * @param pos the position the reader has reached
+   */
+  public void dropBefore(long pos) {
+    blockStore.dropBefore(pos);
+  }
+
+  /**
+   * Releases the loaded blocks of this object that the index cache has evicted.
+   *
+   * @param blockKeys keys of the blocks the index cache has evicted
+   */
+  public void evict(@NonNull Collection<BlockKey> blockKeys) {
+    blockStore.evict(blockKeys);
+  }
+
   /** cleans data from memory */
   public void cleanUp() {
     blockStore.cleanUp();
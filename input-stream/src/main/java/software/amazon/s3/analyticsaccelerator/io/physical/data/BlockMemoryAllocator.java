@@ -0,0 +1,188 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+
+/**
+ * Allocates the memory backing {@link Block}s.
+ *
+ * <p>When off-heap memory is enabled, blocks are assembled from fixed size direct memory slabs.
+ * Slabs are allocated lazily, up to as many as fit into {@link
+ * PhysicalIOConfiguration#getMemoryCapacityBytes()}, and are returned to a free list rather than
+ * dropped when the block holding them is evicted. This keeps large block data out of the garbage
+ * collected heap and avoids paying for fresh allocations on every block. Blocks smaller than a
+ * slab, as well as any block requested once the pool is exhausted, are allocated on the heap.
+ *
+ * <p>Should the JVM run out of direct memory before the pool is full, the pool stops growing and
+ * blocks go on the heap instead. Slabs that have sat in the pool unused since the previous {@link
+ * #trimIdleSlabs()} are dropped, so that the pool shrinks back after a burst of reads.
+ */
+public class BlockMemoryAllocator {
+  private static final Logger LOG = LoggerFactory.getLogger(BlockMemoryAllocator.class);
+
+  /** An allocator keeping all block data on the heap. */
+  public static final BlockMemoryAllocator HEAP = new BlockMemoryAllocator(false, 1, 0);
+
+  private final boolean offHeapMemoryEnabled;
+  @Getter private final int slabSize;
+  private final long maxSlabs;
+  private final Queue<ByteBuffer> freeSlabs = new ConcurrentLinkedQueue<>();
+  private final AtomicLong allocatedSlabs = new AtomicLong();
+  private final AtomicLong slabLimit;
+  private final AtomicInteger freeSlabCount = new AtomicInteger();
+  private final AtomicInteger idleSlabCount = new AtomicInteger();
+
+  /**
+   * Constructs a new BlockMemoryAllocator.
+   *
+   * @param configuration the PhysicalIO configuration
+   */
+  public BlockMemoryAllocator(@NonNull PhysicalIOConfiguration configuration) {
+    this(
+        configuration.isOffHeapMemoryEnabled(),
+        (int) configuration.getOffHeapSlabSizeBytes(),
+        configuration.getMemoryCapacityBytes() / configuration.getOffHeapSlabSizeBytes());
+  }
+
+  private BlockMemoryAllocator(boolean offHeapMemoryEnabled, int slabSize, long maxSlabs) {
+    Preconditions.checkArgument(slabSize > 0, "`slabSize` must be positive");
+    Preconditions.checkArgument(maxSlabs >= 0, "`maxSlabs` must not be negative");
+
+    this.offHeapMemoryEnabled = offHeapMemoryEnabled;
+    this.slabSize = slabSize;
+    this.maxSlabs = maxSlabs;
+    this.slabLimit = new AtomicLong(maxSlabs);
+  }
+
+  /**
+   * Allocates a buffer for a block.
+   *
+   * @param capacity the number of bytes the buffer needs to hold
+   * @return a pooled off-heap buffer if possible, a heap buffer otherwise
+   */
+  public BlockBuffer allocate(int capacity) {
+    Preconditions.checkArgument(0 <= capacity, "`capacity` must not be negative");
+
+    if (!offHeapMemoryEnabled || capacity < slabSize) {
+      return new HeapBlockBuffer(capacity);
+    }
+
+    ByteBuffer[] slabs = new ByteBuffer[(int) ((capacity + (long) slabSize - 1) / slabSize)];
+    for (int i = 0; i < slabs.length; i++) {
+      slabs[i] = acquireSlab();
+      if (slabs[i] == null) {
+        // The pool is exhausted, give back what was taken and fall back to the heap
+        release(slabs);
+        return new HeapBlockBuffer(capacity);
+      }
+    }
+    return new SlabBlockBuffer(capacity, slabs, this);
+  }
+
+  private ByteBuffer acquireSlab() {
+    ByteBuffer slab = freeSlabs.poll();
+    if (slab != null) {
+      // Slabs taken out of the pool are not idle, however few remain
+      idleSlabCount.accumulateAndGet(freeSlabCount.decrementAndGet(), Math::min);
+      return slab;
+    }
+
+    long allocated;
+    do {
+      allocated = allocatedSlabs.get();
+      if (allocated >= slabLimit.get()) {
+        return null;
+      }
+    } while (!allocatedSlabs.compareAndSet(allocated, allocated + 1));
+    try {
+      return ByteBuffer.allocateDirect(slabSize);
+    } catch (OutOfMemoryError e) {
+      // Direct memory is capped below the pool size, so stop growing the pool until it is trimmed
+      allocatedSlabs.decrementAndGet();
+      slabLimit.accumulateAndGet(allocated, Math::min);
+      LOG.warn(
+          "Out of direct memory with {} bytes allocated for slabs, block data goes on the heap",
+          allocated * slabSize,
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns slabs to the pool.
+   *
+   * @param slabs the slabs to return, null entries are skipped
+   */
+  void release(ByteBuffer[] slabs) {
+    for (ByteBuffer slab : slabs) {
+      if (slab != null) {
+        slab.clear();
+        freeSlabs.offer(slab);
+        freeSlabCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Drops the slabs that have stayed in the pool since the previous call, leaving their memory to
+   * be reclaimed by the garbage collector. The pool may grow up to its full size again afterwards,
+   * even if it had stopped growing for lack of direct memory. Meant to be called periodically, so
+   * that calls are spaced out by a period.
+   */
+  public void trimIdleSlabs() {
+    int idle = idleSlabCount.getAndSet(freeSlabCount.get());
+    int dropped = 0;
+    while (dropped < idle && freeSlabs.poll() != null) {
+      dropped++;
+    }
+    if (dropped > 0) {
+      freeSlabCount.addAndGet(-dropped);
+      idleSlabCount.addAndGet(-dropped);
+      allocatedSlabs.addAndGet(-dropped);
+      LOG.debug("Dropped {} idle slabs from the pool", dropped);
+    }
+    slabLimit.set(maxSlabs);
+  }
+
+  /**
+   * Returns the amount of direct memory allocated for slabs, whether they are in use or not.
+   *
+   * @return the number of bytes of direct memory allocated
+   */
+  public long getAllocatedBytes() {
+    return allocatedSlabs.get() * slabSize;
+  }
+
+  /**
+   * Returns the amount of direct memory sitting in the pool, ready to be handed out again.
+   *
+   * @return the number of bytes of direct memory not held by any block
+   */
+  public long getPooledBytes() {
+    return (long) freeSlabCount.get() * slabSize;
+  }
+}
@@ -17,11 +17,13 @@ package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.s3.analyticsaccelerator.common.Metrics;
@@ -31,16 +33,28 @@ import software.amazon.s3.analyticsaccelerator.util.BlockKey;
 import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 
-/** A BlockStore, which is a collection of Blocks. */
+/**
+ * A BlockStore, which is a collection of Blocks.
+ *
+ * <p>Blocks never overlap (this is guaranteed by {@link IOPlanner}), so they are indexed by the
+ * start of their range. This makes the block holding a given position the floor entry of that
+ * position, and lookups and gap finding logarithmic in the number of blocks.
+ *
+ * <p>The index is a concurrent map, so lookups never block and can run alongside the insertion of
+ * new blocks. Inserting blocks is coordinated by the {@link BlockManager}, and removing them by the
+ * {@link Blob}, which locks out readers while it releases their memory. Blocks whose fetch fails
+ * hold no memory, and are removed as soon as they fail, so that the next read fetches them again.
+ */
 public class BlockStore implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(BlockStore.class);
 
   private final ObjectKey s3URI;
   private final ObjectMetadata metadata;
-  private final Map<BlockKey, Block> blocks;
+  private final NavigableMap<Long, Block> blocks;
   private final Metrics aggregatingMetrics;
   private final BlobStoreIndexCache indexCache;
+  private final DiskBlockCache diskBlockCache;
 
   /**
    * Constructs a new instance of a BlockStore.
@@ -55,14 +69,34 @@ public class BlockStore implements Closeable {
       ObjectMetadata metadata,
       Metrics aggregatingMetrics,
       BlobStoreIndexCache indexCache) {
+    this(objectKey, metadata, aggregatingMetrics, indexCache, DiskBlockCache.DISABLED);
+  }
+
+  /**
+   * Constructs a new instance of a BlockStore, which spills the blocks it cleans up to disk.
+   *
+   * @param objectKey the etag and S3 URI of the object
+   * @param metadata the metadata for the object
+   * @param aggregatingMetrics blobstore metrics
+   * @param indexCache blobstore index cache
+   * @param diskBlockCache cache of blocks on local disk that cleaned up blocks are spilled to
+   */
+  public BlockStore(
+      ObjectKey objectKey,
+      ObjectMetadata metadata,
+      Metrics aggregatingMetrics,
+      BlobStoreIndexCache indexCache,
+      DiskBlockCache diskBlockCache) {
     Preconditions.checkNotNull(objectKey, "`objectKey` must not be null");
     Preconditions.checkNotNull(metadata, "`metadata` must not be null");
+    Preconditions.checkNotNull(diskBlockCache, "`diskBlockCache` must not be null");
 
     this.s3URI = objectKey;
     this.metadata = metadata;
-    this.blocks = new LinkedHashMap<>();
+    this.blocks = new ConcurrentSkipListMap<>();
     this.aggregatingMetrics = aggregatingMetrics;
     this.indexCache = indexCache;
+    this.diskBlockCache = diskBlockCache;
   }
 
   /**
@@ -84,13 +118,24 @@ public class BlockStore implements Closeable {
   public Optional<Block> getBlock(long pos) {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
 
-    Optional<Block> block = blocks.values().stream().filter(b -> b.contains(pos)).findFirst();
-    if (block.isPresent()) {
-      aggregatingMetrics.add(MetricKey.CACHE_HIT, 1L);
-    } else {
-      aggregatingMetrics.add(MetricKey.CACHE_MISS, 1L);
+    Block block = findBlockContaining(pos);
+    recordLookup(block);
+    return Optional.ofNullable(block);
+  }
+
+  /**
+   * Finds the block containing the position. As blocks do not overlap, the only candidate is the
+   * block with the greatest start that is less than or equal to the position.
+   *
+   * @param pos the position of the byte
+   * @return the Block containing the byte or null if there is no such block
+   */
+  private Block findBlockContaining(long pos) {
+    Map.Entry<Long, Block> candidate = blocks.floorEntry(pos);
+    if (candidate != null && candidate.getValue().contains(pos)) {
+      return candidate.getValue();
     }
-    return block;
+    return null;
   }
 
   /**
@@ -108,10 +153,8 @@ public class BlockStore implements Closeable {
       return OptionalLong.of(pos);
     }
 
-    return blocks.values().stream()
-        .mapToLong(block -> block.getBlockKey().getRange().getStart())
-        .filter(startPos -> pos < startPos)
-        .min();
+    Long nextBlockStart = blocks.higherKey(pos);
+    return nextBlockStart == null ? OptionalLong.empty() : OptionalLong.of(nextBlockStart);
   }
 
   /**
@@ -127,10 +170,12 @@ public class BlockStore implements Closeable {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
 
     long nextMissingByte = pos;
-    Optional<Block> nextBlock;
-    while ((nextBlock = getBlock(nextMissingByte)).isPresent()) {
-      nextMissingByte = nextBlock.get().getBlockKey().getRange().getEnd() + 1;
+    Block nextBlock;
+    while ((nextBlock = findBlockContaining(nextMissingByte)) != null) {
+      recordLookup(nextBlock);
+      nextMissingByte = nextBlock.getBlockKey().getRange().getEnd() + 1;
     }
+    recordLookup(null);
 
     return nextMissingByte <= getLastObjectByte()
         ? OptionalLong.of(nextMissingByte)
@@ -146,29 +191,93 @@ public class BlockStore implements Closeable {
   public void add(BlockKey blockKey, Block block) {
     Preconditions.checkNotNull(block, "`block` must not be null");
 
-    this.blocks.put(blockKey, block);
+    Block replaced = this.blocks.put(blockKey.getRange().getStart(), block);
+    if (replaced != null && replaced != block) {
+      // Blocks are planned not to overlap, so this should never happen. If it does, make sure the
+      // replaced block does not keep its request running.
+      safeClose(replaced);
+    }
+    // A failed block is dropped so that the next read plans its range again, unless a read has
+    // already reached it, as that read fetches the data again into the same block
+    block.onSettled(
+        () -> {
+          if (block.isDataFailed()
+              && !block.isAccessed()
+              && blocks.remove(blockKey.getRange().getStart(), block)) {
+            safeClose(block);
+          }
+        });
+  }
+
+  /**
+   * Removes the given blocks from memory if they are still in the store, have their data loaded
+   * and are no longer in the index cache. This is how the store learns about blocks that the index
+   * cache has evicted, and each removed block is spilled and released as in {@link #cleanUp()}.
+   *
+   * @param blockKeys keys of the blocks the index cache has evicted
+   * @return the number of speculatively fetched bytes that were evicted without being read
+   */
+  public long evict(Collection<BlockKey> blockKeys) {
+    long evictedUnreadBytes = 0;
+    for (BlockKey blockKey : blockKeys) {
+      long start = blockKey.getRange().getStart();
+      Block block = blocks.get(start);
+      // The key may have been put back into the index cache since it was evicted
+      if (block == null
+          || !block.getBlockKey().equals(blockKey)
+          || indexCache.contains(blockKey)) {
+        continue;
+      }
+      if (!block.isDataLoaded()) {
+        // Blocks enter the index cache just before their data completes, so they can be evicted
+        // while still loading. These are released once loaded.
+        block.onSettled(() -> indexCache.reportEvicted(blockKey));
+        continue;
+      }
+      if (!blocks.remove(start, block)) {
+        continue;
+      }
+      try {
+        diskBlockCache.spill(block);
+        // Readers are locked out during eviction, so the block memory can be released right away
+        evictedUnreadBytes += release(block);
+        LOG.debug(
+            "Evicted block with key {}-{}-{} from block store",
+            blockKey.getObjectKey().getS3URI(),
+            blockKey.getRange().getStart(),
+            blockKey.getRange().getEnd());
+      } catch (Exception e) {
+        LOG.error("Error in evicting block {}", e.getMessage());
+      }
+    }
+    return evictedUnreadBytes;
   }
 
   /**
    * Cleans data from memory by removing blocks that are no longer needed. This method iterates
    * through all blocks in memory and removes those that: 1. Have their data loaded AND 2. Are not
    * present in the index cache For each removed block, the method: - Removes the block from the
-   * internal block store - Updates memory usage metrics
+   * internal block store - Spills the block to the disk cache, if there is one - Releases the
+   * memory held by the block - Updates memory usage metrics
+   *
+   * @return the number of speculatively fetched bytes that were evicted without being read
    */
-  public void cleanUp() {
+  public long cleanUp() {
+    long evictedUnreadBytes = 0;
 
-    Iterator<Map.Entry<BlockKey, Block>> iterator = blocks.entrySet().iterator();
+    Iterator<Block> iterator = blocks.values().iterator();
 
     while (iterator.hasNext()) {
-      Map.Entry<BlockKey, Block> entry = iterator.next();
-      BlockKey blockKey = entry.getKey();
+      Block block = iterator.next();
+      BlockKey blockKey = block.getBlockKey();
 
-      if (entry.getValue().isDataLoaded() && !indexCache.contains(blockKey)) {
+      if (block.isDataLoaded() && !indexCache.contains(blockKey)) {
         // The block is not in the index cache, so remove it from the block store
-        int range = blockKey.getRange().getLength();
         try {
           iterator.remove(); // Remove from the iterator as well
-          aggregatingMetrics.reduce(MetricKey.MEMORY_USAGE, range);
+          diskBlockCache.spill(block);
+          // Readers are locked out during clean up, so the block memory can be released right away
+          evictedUnreadBytes += release(block);
           LOG.debug(
               "Removed block with key {}-{}-{} from block store during cleanup",
               blockKey.getObjectKey().getS3URI(),
@@ -180,6 +289,95 @@ public class BlockStore implements Closeable {
         }
       }
     }
+    return evictedUnreadBytes;
+  }
+
+  /**
+   * Returns true if the store holds a block that ends before the given position.
+   *
+   * @param pos a byte position
+   * @return true if the first block of the store ends before the position
+   */
+  public boolean hasBlocksBefore(long pos) {
+    Map.Entry<Long, Block> first = blocks.firstEntry();
+    return first != null && first.getValue().getBlockKey().getRange().getEnd() < pos;
+  }
+
+  /**
+   * Removes the loaded blocks that end before the given position, along with their index cache
+   * entries, whatever their remaining time in the cache. Blocks still being fetched are left to the
+   * next clean up.
+   *
+   * @param pos a byte position
+   * @return the number of speculatively fetched bytes that were evicted without being read
+   */
+  public long dropBefore(long pos) {
+    long evictedUnreadBytes = 0;
+
+    Iterator<Block> iterator = blocks.headMap(pos).values().iterator();
+
+    while (iterator.hasNext()) {
+      Block block = iterator.next();
+      BlockKey blockKey = block.getBlockKey();
+
+      if (blockKey.getRange().getEnd() >= pos) {
+        break;
+      }
+      if (block.isDataLoaded()) {
+        iterator.remove();
+        indexCache.invalidate(blockKey);
+        evictedUnreadBytes += release(block);
+        LOG.debug(
+            "Dropped block with key {}-{}-{} from block store behind position {}",
+            blockKey.getObjectKey().getS3URI(),
+            blockKey.getRange().getStart(),
+            blockKey.getRange().getEnd(),
+            pos);
+      }
+    }
+    return evictedUnreadBytes;
+  }
+
+  /**
+   * Closes a block that has been removed from the store and accounts for the memory it held. The
+   * block tells the read-ahead policy that planned it about the bytes it fetched for nothing.
+   *
+   * @return the number of speculatively fetched bytes of the block that were never read
+   */
+  private long release(Block block) {
+    int footprint = block.getMemoryFootprint();
+    int unreadBytes = block.getUnreadSpeculativeBytes();
+    block.notifyUnreadEviction(unreadBytes);
+    safeClose(block);
+    aggregatingMetrics.reduce(MetricKey.MEMORY_USAGE, footprint);
+    aggregatingMetrics.add(MetricKey.PREFETCH_WASTED_BYTES, unreadBytes);
+    return unreadBytes;
+  }
+
+  /**
+   * Cancels the fetches of all blocks that were prefetched speculatively and have not been read
+   * from yet. Cancelled blocks are removed from the store and closed once their data fails, unless
+   * they are read from first, in which case they fetch their data again.
+   *
+   * @return the number of blocks whose fetch was cancelled
+   */
+  public int cancelSpeculativeFetches() {
+    int cancelled = 0;
+    for (Block block : blocks.values()) {
+      if (block.cancelSpeculativeFetch()) {
+        cancelled++;
+      }
+    }
+    return cancelled;
+  }
+
+  private void recordLookup(Block block) {
+    if (block == null) {
+      aggregatingMetrics.add(MetricKey.CACHE_MISS, 1L);
+    } else {
+      aggregatingMetrics.add(MetricKey.CACHE_HIT, 1L);
+      aggregatingMetrics.add(block.getCacheEntryClass().getHitKey(), 1L);
+    }
   }
 
   private long getLastObjectByte() {
@@ -196,6 +394,12 @@ public class BlockStore implements Closeable {
 
   @Override
   public void close() {
-    blocks.forEach((key, block) -> this.safeClose(block));
+    for (Block block : blocks.values()) {
+      aggregatingMetrics.reduce(MetricKey.MEMORY_USAGE, block.getMemoryFootprint());
+      aggregatingMetrics.add(MetricKey.PREFETCH_WASTED_BYTES, block.getUnreadSpeculativeBytes());
+      safeClose(block);
+    }
+    // Closed blocks hand their memory back, so they must not be found by later lookups
+    blocks.clear();
   }
 }
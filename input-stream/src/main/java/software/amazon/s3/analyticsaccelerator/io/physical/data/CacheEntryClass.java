@@ -0,0 +1,54 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+/**
+ * Classes of blocks in the cache, which decide how long blocks are retained and in which order
+ * they are evicted when the cache is full.
+ */
+@Getter
+@AllArgsConstructor
+public enum CacheEntryClass {
+  /** Footers and dictionaries, which every reader of a file needs. Evicted last. */
+  METADATA(MetricKey.CACHE_HIT_METADATA, MetricKey.CACHE_MISS_METADATA),
+  /** Blocks that were fetched for a read, or have been read since they were prefetched */
+  DATA(MetricKey.CACHE_HIT_DATA, MetricKey.CACHE_MISS_DATA),
+  /** Blocks that were prefetched and have not been read yet. Evicted first. */
+  PREFETCH(MetricKey.CACHE_HIT_PREFETCH, MetricKey.CACHE_MISS_PREFETCH);
+
+  private final MetricKey hitKey;
+  private final MetricKey missKey;
+
+  /**
+   * Returns the class of a block.
+   *
+   * @param readMode the read mode the block was fetched with
+   * @param speculative whether the block was fetched speculatively
+   * @param accessed whether the block has been read from
+   * @return the class of the block
+   */
+  public static CacheEntryClass of(ReadMode readMode, boolean speculative, boolean accessed) {
+    if (readMode == ReadMode.PREFETCH_TAIL || readMode == ReadMode.DICTIONARY_PREFETCH) {
+      return METADATA;
+    }
+    return speculative && !accessed ? PREFETCH : DATA;
+  }
+}
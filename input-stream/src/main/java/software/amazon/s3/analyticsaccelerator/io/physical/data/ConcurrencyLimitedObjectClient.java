@@ -0,0 +1,289 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.GetRequest;
+import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.Referrer;
+import software.amazon.s3.analyticsaccelerator.request.TailRequest;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+
+/**
+ * Object client that holds the requests of another object client to an adaptive concurrency limit,
+ * so that a factory does not send more requests than the object store and the network can take.
+ * See {@link ConcurrencyLimiter} for how the limit adapts, and how queued requests are ordered.
+ *
+ * <p>A HEAD, or a GET handing its body to a sink, holds its place under the limit until it
+ * completes. A GET returning a stream holds it until the stream is closed or read to its end, as
+ * that is when the connection is free for another request. Its time to respond is its time to first
+ * byte.
+ *
+ * <p>Closing this client fails the requests still queued, but does not close the client it wraps,
+ * which remains owned by the caller. The client passes requests straight through if the
+ * concurrency limit is disabled in the configuration.
+ */
+public class ConcurrencyLimitedObjectClient implements ObjectClient {
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimitedObjectClient.class);
+
+  private final ObjectClient objectClient;
+  private final ConcurrencyLimiter limiter;
+
+  /**
+   * Constructs a new ConcurrencyLimitedObjectClient.
+   *
+   * @param objectClient the object client to send the requests with
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics to report the limit and the queue depth to
+   */
+  public ConcurrencyLimitedObjectClient(
+      @NonNull ObjectClient objectClient,
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Metrics metrics) {
+    this.objectClient = objectClient;
+    this.limiter = new ConcurrencyLimiter(configuration, metrics);
+  }
+
+  /**
+   * Sends a HEAD once it is within the limit. HEADs are queued with synchronous reads, as opening a
+   * stream waits on them.
+   *
+   * @param headRequest The HEAD request to be sent
+   * @param openStreamInformation contains stream information
+   * @return an instance of {@link CompletableFuture} of type {@link ObjectMetadata}
+   */
+  @Override
+  public CompletableFuture<ObjectMetadata> headObject(
+      HeadRequest headRequest, OpenStreamInformation openStreamInformation) {
+    if (!limiter.isEnabled()) {
+      return objectClient.headObject(headRequest, openStreamInformation);
+    }
+    return limit(
+        ConcurrencyLimiter.PRIORITY_SYNC,
+        permit -> objectClient.headObject(headRequest, openStreamInformation),
+        ConcurrencyLimitedObjectClient::releaseOnResponse,
+        metadata -> {});
+  }
+
+  @Override
+  public CompletableFuture<ObjectContent> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation) {
+    if (!limiter.isEnabled()) {
+      return objectClient.getObject(getRequest, openStreamInformation);
+    }
+    return limit(
+        priorityOf(getRequest.getReferrer()),
+        permit -> objectClient.getObject(getRequest, openStreamInformation),
+        ConcurrencyLimitedObjectClient::releaseOnClose,
+        ConcurrencyLimitedObjectClient::closeQuietly);
+  }
+
+  @Override
+  public CompletableFuture<Void> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation, ObjectContentSink sink) {
+    if (!limiter.isEnabled()) {
+      return objectClient.getObject(getRequest, openStreamInformation, sink);
+    }
+    return limit(
+        priorityOf(getRequest.getReferrer()),
+        permit ->
+            objectClient.getObject(
+                getRequest,
+                openStreamInformation,
+                new ObjectContentSink() {
+                  @Override
+                  public void onResponse() {
+                    permit.onResponse();
+                    sink.onResponse();
+                  }
+
+                  @Override
+                  public void onChunk(ByteBuffer chunk) {
+                    sink.onChunk(chunk);
+                  }
+                }),
+        ConcurrencyLimitedObjectClient::releaseOnResponse,
+        ignored -> {});
+  }
+
+  @Override
+  public CompletableFuture<ObjectContent> getObjectTail(
+      TailRequest tailRequest, OpenStreamInformation openStreamInformation) {
+    if (!limiter.isEnabled()) {
+      return objectClient.getObjectTail(tailRequest, openStreamInformation);
+    }
+    return limit(
+        priorityOf(tailRequest.getReferrer()),
+        permit -> objectClient.getObjectTail(tailRequest, openStreamInformation),
+        ConcurrencyLimitedObjectClient::releaseOnClose,
+        ConcurrencyLimitedObjectClient::closeQuietly);
+  }
+
+  /** @return the number of requests currently allowed in flight at once */
+  public int getConcurrencyLimit() {
+    return limiter.getLimit();
+  }
+
+  /** Fails the requests still queued. The wrapped object client is left open. */
+  @Override
+  public void close() {
+    limiter.close();
+  }
+
+  /**
+   * Sends a request once it is within the limit. Cancelling the returned future gives up the place
+   * of the request in the queue, or cancels the request if it has been sent.
+   *
+   * @param priority the priority of the request
+   * @param request sends the request, once granted a permit
+   * @param onSuccess tells the permit how the request responded, and hands over the result
+   * @param discard disposes of a result that arrived after the returned future was cancelled
+   * @param <T> the type of the result of the request
+   * @return the future completed by the result of the request
+   */
+  private <T> CompletableFuture<T> limit(
+      int priority,
+      Function<ConcurrencyLimiter.Permit, CompletableFuture<T>> request,
+      BiFunction<T, ConcurrencyLimiter.Permit, T> onSuccess,
+      Consumer<T> discard) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicReference<CompletableFuture<T>> sent = new AtomicReference<>();
+    CompletableFuture<ConcurrencyLimiter.Permit> granted = limiter.acquire(priority);
+    granted.whenComplete(
+        (permit, throwable) -> {
+          if (throwable != null) {
+            result.completeExceptionally(throwable);
+            return;
+          }
+          CompletableFuture<T> response;
+          try {
+            response = request.apply(permit);
+          } catch (RuntimeException e) {
+            permit.onFailure(e);
+            result.completeExceptionally(e);
+            return;
+          }
+          sent.set(response);
+          response.whenComplete(
+              (value, failure) -> {
+                if (failure != null) {
+                  permit.onFailure(failure);
+                  result.completeExceptionally(failure);
+                  return;
+                }
+                T limited = onSuccess.apply(value, permit);
+                if (!result.complete(limited)) {
+                  discard.accept(limited);
+                }
+              });
+          if (result.isCancelled()) {
+            response.cancel(true);
+          }
+        });
+    result.whenComplete(
+        (value, throwable) -> {
+          if (result.isCancelled()) {
+            granted.cancel(false);
+            CompletableFuture<T> response = sent.get();
+            if (response != null) {
+              response.cancel(true);
+            }
+          }
+        });
+    return result;
+  }
+
+  private static int priorityOf(Referrer referrer) {
+    return ConcurrencyLimiter.priorityOf(referrer == null ? null : referrer.getReadMode());
+  }
+
+  private static <T> T releaseOnResponse(T value, ConcurrencyLimiter.Permit permit) {
+    permit.onResponse();
+    permit.release();
+    return value;
+  }
+
+  private static ObjectContent releaseOnClose(
+      ObjectContent objectContent, ConcurrencyLimiter.Permit permit) {
+    permit.onResponse();
+    return ObjectContent.builder()
+        .stream(new PermitReleasingInputStream(objectContent.getStream(), permit))
+        .metadata(objectContent.getMetadata())
+        .build();
+  }
+
+  private static void closeQuietly(ObjectContent objectContent) {
+    try {
+      objectContent.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Error while closing the stream of a cancelled request", e);
+    }
+  }
+
+  /** Stream of a response that releases the permit of its request once closed or read to its end */
+  private static class PermitReleasingInputStream extends FilterInputStream {
+    private final ConcurrencyLimiter.Permit permit;
+
+    PermitReleasingInputStream(InputStream in, ConcurrencyLimiter.Permit permit) {
+      super(in);
+      this.permit = permit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        permit.release();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int bytesRead = super.read(b, off, len);
+      if (bytesRead < 0) {
+        permit.release();
+      }
+      return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        permit.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.exceptions.ExceptionHandler;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+/**
+ * Adaptive limit on the number of requests to the object store in flight at once, adjusted by
+ * additive increase and multiplicative decrease. Every request that responds within {@link
+ * PhysicalIOConfiguration#getConcurrencyLimitLatencyMilliseconds()} while at least half the limit
+ * is in use grows the limit by one over a limit's worth of such requests. A request that is
+ * throttled, or is slower to respond than that, multiplies the limit by {@link
+ * PhysicalIOConfiguration#getConcurrencyLimitBackoffRatio()}. Only requests sent after the last
+ * back off can back it off again, so that a burst of throttling backs off once rather than once
+ * per request.
+ *
+ * <p>Requests over the limit are queued, and permits are granted to synchronous reads first, then
+ * to other reads, and to speculative reads last.
+ */
+class ConcurrencyLimiter {
+  /** Priority of requests a reader is waiting on */
+  static final int PRIORITY_SYNC = 0;
+
+  /** Priority of requests that are neither waited on nor speculative */
+  static final int PRIORITY_DEFAULT = 1;
+
+  /** Priority of requests for data ahead of a predicted need */
+  static final int PRIORITY_SPECULATIVE = 2;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+  private final boolean enabled;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final double backoffRatio;
+  private final Metrics metrics;
+
+  private final List<Deque<CompletableFuture<Permit>>> queues = new ArrayList<>();
+  private final AtomicInteger drains = new AtomicInteger();
+  private double limit;
+  private int reportedLimit;
+  private int inFlight;
+  private long lastBackoffNanos;
+  private boolean closed;
+
+  /**
+   * Constructs a new ConcurrencyLimiter. The limiter grants every permit right away if the
+   * concurrency limit is disabled in the configuration.
+   *
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics to report the limit and the queue depth to
+   */
+  ConcurrencyLimiter(@NonNull PhysicalIOConfiguration configuration, @NonNull Metrics metrics) {
+    this.enabled = configuration.isConcurrencyLimitEnabled();
+    this.minLimit = configuration.getConcurrencyLimitMin();
+    this.maxLimit = configuration.getConcurrencyLimitMax();
+    this.latencyThresholdNanos =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getConcurrencyLimitLatencyMilliseconds());
+    this.backoffRatio = configuration.getConcurrencyLimitBackoffRatio();
+    this.metrics = metrics;
+    this.limit = configuration.getConcurrencyLimitInitial();
+    // Requests granted from now on may back the limit off
+    this.lastBackoffNanos = System.nanoTime();
+    for (int priority = PRIORITY_SYNC; priority <= PRIORITY_SPECULATIVE; priority++) {
+      queues.add(new ArrayDeque<>());
+    }
+    if (enabled) {
+      this.reportedLimit = (int) limit;
+      metrics.add(MetricKey.CONCURRENCY_LIMIT, reportedLimit);
+    }
+  }
+
+  /** @return true if requests are held to the concurrency limit */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the number of requests currently allowed in flight at once */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /** @return the number of permits granted and not yet released */
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Works out the priority of a request from the read mode it was made for.
+   *
+   * @param readMode the read mode of the request, or null if it was not made for a read
+   * @return the priority of the request
+   */
+  static int priorityOf(ReadMode readMode) {
+    if (readMode == ReadMode.SYNC) {
+      return PRIORITY_SYNC;
+    }
+    return readMode != null && readMode.isSpeculative() ? PRIORITY_SPECULATIVE : PRIORITY_DEFAULT;
+  }
+
+  /**
+   * Queues for a permit to send a request. The returned future is completed with the permit once
+   * the request is within the limit, and cancelling it gives up its place in the queue.
+   *
+   * @param priority the priority of the request, one of the {@code PRIORITY_} constants
+   * @return the future completed with the permit
+   */
+  CompletableFuture<Permit> acquire(int priority) {
+    CompletableFuture<Permit> waiter = new CompletableFuture<>();
+    if (!enabled) {
+      waiter.complete(new Permit());
+      return waiter;
+    }
+    synchronized (this) {
+      if (closed) {
+        waiter.completeExceptionally(new IOException("Concurrency limiter is closed"));
+        return waiter;
+      }
+      queues.get(priority).add(waiter);
+    }
+    metrics.add(MetricKey.REQUEST_QUEUE_DEPTH, 1);
+    waiter.whenComplete(
+        (permit, throwable) -> {
+          if (waiter.isCancelled()) {
+            dequeue(priority, waiter);
+          }
+        });
+    drain();
+    return waiter;
+  }
+
+  /** Fails the requests still queued, and every request queued from now on. */
+  void close() {
+    List<CompletableFuture<Permit>> waiters = new ArrayList<>();
+    synchronized (this) {
+      closed = true;
+      queues.forEach(
+          queue -> {
+            waiters.addAll(queue);
+            queue.clear();
+          });
+    }
+    metrics.reduce(MetricKey.REQUEST_QUEUE_DEPTH, waiters.size());
+    waiters.forEach(
+        waiter -> waiter.completeExceptionally(new IOException("Concurrency limiter is closed")));
+  }
+
+  /**
+   * Grants permits to queued requests for as long as there is room under the limit. Requests are
+   * sent from the thread granting their permit, so only one thread grants at a time and the others
+   * leave their grants to it, which keeps a request completing right away from granting the next
+   * one recursively.
+   */
+  private void drain() {
+    if (drains.getAndIncrement() != 0) {
+      return;
+    }
+    do {
+      CompletableFuture<Permit> waiter;
+      while ((waiter = nextWaiter()) != null) {
+        Permit permit = new Permit();
+        try {
+          if (!waiter.complete(permit)) {
+            // Cancelled while being granted
+            permit.release();
+          }
+        } catch (RuntimeException e) {
+          LOG.debug("Error while sending a request granted a permit", e);
+        }
+      }
+    } while (drains.decrementAndGet() != 0);
+  }
+
+  private synchronized CompletableFuture<Permit> nextWaiter() {
+    if (inFlight >= (int) limit) {
+      return null;
+    }
+    for (Deque<CompletableFuture<Permit>> queue : queues) {
+      CompletableFuture<Permit> waiter = queue.poll();
+      if (waiter != null) {
+        inFlight++;
+        metrics.reduce(MetricKey.REQUEST_QUEUE_DEPTH, 1);
+        return waiter;
+      }
+    }
+    return null;
+  }
+
+  private void dequeue(int priority, CompletableFuture<Permit> waiter) {
+    boolean removed;
+    synchronized (this) {
+      removed = queues.get(priority).remove(waiter);
+    }
+    if (removed) {
+      metrics.reduce(MetricKey.REQUEST_QUEUE_DEPTH, 1);
+    }
+  }
+
+  /**
+   * Adjusts the limit to how a request responded.
+   *
+   * @param grantedNanos time the permit of the request was granted at, as of {@link
+   *     System#nanoTime()}
+   * @param congested whether the request was throttled or slow to respond
+   */
+  private void adjust(long grantedNanos, boolean congested) {
+    int delta;
+    synchronized (this) {
+      if (congested) {
+        if (grantedNanos - lastBackoffNanos >= 0) {
+          limit = Math.max(minLimit, limit * backoffRatio);
+          lastBackoffNanos = System.nanoTime();
+        }
+      } else if (inFlight * 2 >= limit) {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      delta = (int) limit - reportedLimit;
+      reportedLimit += delta;
+    }
+    if (delta != 0) {
+      metrics.add(MetricKey.CONCURRENCY_LIMIT, delta);
+    }
+    if (delta > 0) {
+      drain();
+    }
+  }
+
+  private void release() {
+    synchronized (this) {
+      inFlight--;
+    }
+    drain();
+  }
+
+  /**
+   * Permit to send a request to the object store. The request holds its place under the limit
+   * until the permit is released, and tells the limiter how it responded on the way.
+   */
+  class Permit {
+    private final long grantedNanos = System.nanoTime();
+    private final AtomicBoolean responded = new AtomicBoolean();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Tells the limiter that the request has responded, at the time of the call. Only the first
+     * call of {@link #onResponse()} and {@link #onFailure(Throwable)} counts.
+     */
+    void onResponse() {
+      if (enabled && responded.compareAndSet(false, true)) {
+        adjust(grantedNanos, System.nanoTime() - grantedNanos > latencyThresholdNanos);
+      }
+    }
+
+    /**
+     * Tells the limiter that the request has failed, and releases the permit. Requests that were
+     * cancelled do not adjust the limit.
+     *
+     * @param throwable the failure of the request
+     */
+    void onFailure(Throwable throwable) {
+      Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+      if (enabled && !(cause instanceof CancellationException)) {
+        boolean throttled = ExceptionHandler.isThrottling(cause);
+        if (throttled) {
+          metrics.add(MetricKey.THROTTLED_REQUEST_COUNT, 1);
+        }
+        if (responded.compareAndSet(false, true)) {
+          adjust(
+              grantedNanos, throttled || System.nanoTime() - grantedNanos > latencyThresholdNanos);
+        }
+      }
+      release();
+    }
+
+    /** Releases the place of the request under the limit. Only the first call counts. */
+    void release() {
+      if (enabled && released.compareAndSet(false, true)) {
+        ConcurrencyLimiter.this.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_MB;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
+
+/**
+ * A second cache tier on local disk, holding blocks evicted from memory so that later reads of the
+ * same data do not go to the object store again.
+ *
+ * <p>Blocks are keyed by their object key, i.e. the URI and etag of the object, and their range,
+ * and each block is held in a file of its own. A block evicted from memory keeps its buffer until
+ * it has been written in the background with a {@link FileChannel}. Lookups are served by any block
+ * on disk that holds the whole of the requested range, which is read back with positional reads.
+ * The cache has a capacity of its own, {@link PhysicalIOConfiguration#getDiskCacheCapacityBytes()},
+ * beyond which the blocks that have been read least recently and least often are deleted.
+ *
+ * <p>Only blocks that have been asked for are spilled: prefetched blocks that were never read are
+ * not worth the disk bandwidth, and neither are blocks a sequential reader has left behind.
+ */
+public class DiskBlockCache implements Closeable {
+  /** Blocks evicted while this many bytes are waiting to be written are not spilled */
+  static final long MAX_PENDING_WRITE_BYTES = 64 * ONE_MB;
+
+  /** Size of the pieces a block is copied out of memory and written to its file in */
+  private static final int WRITE_CHUNK_BYTES = 64 * ONE_KB;
+
+  private static final int IO_THREADS = 4;
+  private static final String DIRECTORY_PREFIX = "analytics-accelerator-disk-cache";
+  private static final String FILE_PREFIX = "block-";
+  private static final String FILE_SUFFIX = ".bin";
+
+  private static final Logger LOG = LoggerFactory.getLogger(DiskBlockCache.class);
+
+  /** A cache that holds nothing, for block managers that are not backed by a disk cache */
+  public static final DiskBlockCache DISABLED =
+      new DiskBlockCache(PhysicalIOConfiguration.DEFAULT, new Metrics());
+
+  private final boolean enabled;
+  private final Metrics metrics;
+  private Path directory;
+  private boolean ownsDirectory;
+  private Cache<BlockKey, Path> files;
+  private final Map<ObjectKey, NavigableMap<Long, BlockKey>> blocksByObject =
+      new ConcurrentHashMap<>();
+  private ExecutorService ioExecutor;
+  private final AtomicLong pendingWriteBytes = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Constructs a new DiskBlockCache. The cache holds nothing if it is disabled in the
+   * configuration, or if its directory cannot be created.
+   *
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics to report hits, misses and disk usage to
+   */
+  public DiskBlockCache(@NonNull PhysicalIOConfiguration configuration, @NonNull Metrics metrics) {
+    this.metrics = metrics;
+    this.enabled = configuration.isDiskCacheEnabled() && createDirectory(configuration);
+    if (!enabled) {
+      return;
+    }
+
+    this.files =
+        Caffeine.newBuilder()
+            .weigher((BlockKey blockKey, Path file) -> blockKey.getRange().getLength())
+            .maximumWeight(configuration.getDiskCacheCapacityBytes())
+            .removalListener(this::onRemoval)
+            // Delete files in the thread evicting them, rather than in the common pool
+            .executor(Runnable::run)
+            .build();
+    this.ioExecutor =
+        Executors.newFixedThreadPool(
+            IO_THREADS,
+            ioTask -> {
+              Thread ioThread = new Thread(ioTask);
+              ioThread.setDaemon(true);
+              return ioThread;
+            });
+  }
+
+  private boolean createDirectory(PhysicalIOConfiguration configuration) {
+    try {
+      if (configuration.getDiskCacheDirectory().isEmpty()) {
+        this.directory = Files.createTempDirectory(DIRECTORY_PREFIX);
+        this.ownsDirectory = true;
+      } else {
+        this.directory =
+            Files.createDirectories(Paths.get(configuration.getDiskCacheDirectory()));
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Unable to create the disk cache directory, the disk cache is disabled", e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns true if the cache is enabled.
+   *
+   * @return true if blocks are spilled to and read back from disk
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the number of bytes of spilled blocks that are waiting to be written.
+   *
+   * @return the number of bytes waiting to be written
+   */
+  long getPendingWriteBytes() {
+    return pendingWriteBytes.get();
+  }
+
+  /**
+   * Spills a block evicted from memory to disk. This takes a reference to the buffer holding the
+   * data of the block and returns, so the block can be closed straight away, and the data is
+   * copied and written in the background, after which the buffer is released. Blocks that have
+   * not been loaded, prefetched blocks that were never read and blocks already on disk are not
+   * spilled, and neither are blocks evicted while too much is waiting to be written.
+   *
+   * @param block the block evicted from memory
+   */
+  public void spill(@NonNull Block block) {
+    BlockKey blockKey = block.getBlockKey();
+    if (!enabled
+        || closed
+        || block.getCacheEntryClass() == CacheEntryClass.PREFETCH
+        || findContaining(blockKey) != null) {
+      return;
+    }
+
+    int length = blockKey.getRange().getLength();
+    if (pendingWriteBytes.addAndGet(length) > MAX_PENDING_WRITE_BYTES) {
+      pendingWriteBytes.addAndGet(-length);
+      LOG.debug("Too many pending writes, not spilling block of {} bytes to disk", length);
+      return;
+    }
+
+    Optional<BlockBuffer> data = block.retainData();
+    if (!data.isPresent() || data.get().length() != length) {
+      data.ifPresent(block::releaseData);
+      pendingWriteBytes.addAndGet(-length);
+      return;
+    }
+    BlockBuffer buffer = data.get();
+    try {
+      ioExecutor.execute(
+          () -> {
+            try {
+              write(blockKey, buffer);
+            } finally {
+              block.releaseData(buffer);
+              pendingWriteBytes.addAndGet(-length);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // The cache is being closed
+      block.releaseData(buffer);
+      pendingWriteBytes.addAndGet(-length);
+    }
+  }
+
+  private void write(BlockKey blockKey, BlockBuffer data) {
+    Path file = null;
+    try {
+      if (closed) {
+        return;
+      }
+      file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        byte[] chunk = new byte[Math.min(WRITE_CHUNK_BYTES, data.length())];
+        int offset = 0;
+        while (offset < data.length()) {
+          int copied = data.get(offset, chunk, 0, chunk.length);
+          if (copied <= 0) {
+            throw new IOException("Block buffer holds fewer bytes than its length");
+          }
+          ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, copied);
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          offset += copied;
+        }
+      }
+
+      // Index the block before caching it, so that evicting it right away also unindexes it
+      BlockKey[] replaced = new BlockKey[1];
+      blocksByObject.compute(
+          blockKey.getObjectKey(),
+          (key, blocks) -> {
+            NavigableMap<Long, BlockKey> indexed =
+                blocks == null ? new ConcurrentSkipListMap<>() : blocks;
+            replaced[0] = indexed.put(blockKey.getRange().getStart(), blockKey);
+            return indexed;
+          });
+      metrics.add(MetricKey.DISK_CACHE_USAGE, data.length());
+      files.put(blockKey, file);
+      if (replaced[0] != null && !replaced[0].equals(blockKey)) {
+        // A shorter block starting at the same position is of no further use
+        files.invalidate(replaced[0]);
+      }
+      if (closed) {
+        files.invalidate(blockKey);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Failed to spill block to disk", e);
+      if (file != null) {
+        delete(file);
+      }
+    }
+  }
+
+  /**
+   * Returns the content of the range of a block, if a block on disk holds all of it. The file is
+   * opened in the background, and the content is read from it as the returned stream is consumed.
+   *
+   * @param blockKey the object key and range to look up
+   * @return a future completed with the content of the range, or null if the range is not on disk
+   */
+  public CompletableFuture<ObjectContent> getIfPresent(@NonNull BlockKey blockKey) {
+    if (!enabled || closed) {
+      return null;
+    }
+
+    BlockKey containing = findContaining(blockKey);
+    Path file = containing == null ? null : files.getIfPresent(containing);
+    if (file == null) {
+      metrics.add(MetricKey.DISK_CACHE_MISS, 1L);
+      return null;
+    }
+    metrics.add(MetricKey.DISK_CACHE_HIT, 1L);
+
+    long offset = blockKey.getRange().getStart() - containing.getRange().getStart();
+    try {
+      return CompletableFuture.supplyAsync(() -> open(file, offset), ioExecutor);
+    } catch (RejectedExecutionException e) {
+      // The cache is being closed
+      return null;
+    }
+  }
+
+  private static ObjectContent open(Path file, long offset) {
+    try {
+      // The file stays readable through the channel even if its block is evicted in the meantime
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+      channel.position(offset);
+      return ObjectContent.builder().stream(Channels.newInputStream(channel)).build();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Finds a block on disk holding the whole of a range. As blocks of an object are indexed by their
+   * start, the only candidate is the block with the greatest start not after the start of the
+   * range.
+   */
+  private BlockKey findContaining(BlockKey blockKey) {
+    NavigableMap<Long, BlockKey> blocks = blocksByObject.get(blockKey.getObjectKey());
+    if (blocks == null) {
+      return null;
+    }
+    Range range = blockKey.getRange();
+    Map.Entry<Long, BlockKey> candidate = blocks.floorEntry(range.getStart());
+    if (candidate != null && candidate.getValue().getRange().getEnd() >= range.getEnd()) {
+      return candidate.getValue();
+    }
+    return null;
+  }
+
+  private void onRemoval(BlockKey blockKey, Path file, RemovalCause cause) {
+    if (blockKey == null || file == null) {
+      return;
+    }
+    if (cause != RemovalCause.REPLACED) {
+      blocksByObject.computeIfPresent(
+          blockKey.getObjectKey(),
+          (key, blocks) -> {
+            blocks.remove(blockKey.getRange().getStart(), blockKey);
+            return blocks.isEmpty() ? null : blocks;
+          });
+    }
+    metrics.reduce(MetricKey.DISK_CACHE_USAGE, blockKey.getRange().getLength());
+    delete(file);
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.debug("Failed to delete disk cache file {}", file, e);
+    }
+  }
+
+  /** Closes the cache and deletes the files it holds. */
+  @Override
+  public void close() {
+    if (!enabled || closed) {
+      return;
+    }
+    closed = true;
+    // Writes that have not started hold the buffers of their blocks, which they release when run
+    for (Runnable write : ioExecutor.shutdownNow()) {
+      write.run();
+    }
+    files.invalidateAll();
+    files.cleanUp();
+    if (ownsDirectory) {
+      try {
+        Files.deleteIfExists(directory);
+      } catch (IOException e) {
+        LOG.debug("Failed to delete disk cache directory {}", directory, e);
+      }
+    }
+  }
+}
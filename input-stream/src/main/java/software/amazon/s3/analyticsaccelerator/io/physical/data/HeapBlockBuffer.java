@@ -0,0 +1,97 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+
+/** A {@link BlockBuffer} backed by a byte array on the heap. */
+public class HeapBlockBuffer implements BlockBuffer {
+  private final byte[] data;
+  private volatile int length;
+
+  /**
+   * Constructs a new HeapBlockBuffer.
+   *
+   * @param capacity the number of bytes the buffer can hold
+   */
+  public HeapBlockBuffer(int capacity) {
+    Preconditions.checkArgument(0 <= capacity, "`capacity` must not be negative");
+    this.data = new byte[capacity];
+  }
+
+  @Override
+  public int capacity() {
+    return data.length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public int footprint() {
+    return data.length;
+  }
+
+  @Override
+  public int fill(InputStream inputStream, IntConsumer progressListener) throws IOException {
+    // Only this thread writes the length, so the increments are not racy
+    int filled = length;
+    while (filled < data.length) {
+      int bytesRead = inputStream.read(data, filled, data.length - filled);
+      if (bytesRead < 0) {
+        break;
+      }
+      filled += bytesRead;
+      length = filled;
+      progressListener.accept(filled);
+    }
+    return filled;
+  }
+
+  @Override
+  public int append(ByteBuffer chunk) {
+    // Only the filling thread writes the length, so the increment is not racy
+    int bytesToCopy = Math.min(chunk.remaining(), data.length - length);
+    chunk.get(data, length, bytesToCopy);
+    length += bytesToCopy;
+    return length;
+  }
+
+  @Override
+  public int get(int offset) {
+    Preconditions.checkArgument(
+        0 <= offset && offset < length, "`offset` must be within the filled buffer");
+    return Byte.toUnsignedInt(data[offset]);
+  }
+
+  @Override
+  public int get(int offset, byte[] dst, int dstOffset, int len) {
+    int bytesToCopy = Math.max(0, Math.min(len, length - offset));
+    System.arraycopy(data, offset, dst, dstOffset, bytesToCopy);
+    return bytesToCopy;
+  }
+
+  @Override
+  public void close() {
+    // The array is reclaimed by the garbage collector once the block is dropped
+  }
+}
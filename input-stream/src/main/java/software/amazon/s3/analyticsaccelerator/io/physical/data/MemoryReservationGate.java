@@ -0,0 +1,232 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+/**
+ * Admits blocks into memory before their data is fetched, so that {@link
+ * PhysicalIOConfiguration#getMemoryCapacityBytes()} is enforced when requests are issued rather
+ * than only by the periodic clean up.
+ *
+ * <p>Memory is either used, by blocks whose data has been fetched ({@link MetricKey#MEMORY_USAGE}),
+ * or reserved, by blocks whose data is still being fetched ({@link MetricKey#MEMORY_RESERVED}). A
+ * block reserves the length of its range before it is created, and releases the reservation once
+ * its data has settled, at which point the data is accounted as used. The headroom is whatever is
+ * left of the capacity.
+ *
+ * <p>Speculative fetches only get the headroom there is. They are truncated to it, or dropped if it
+ * is smaller than {@link #MIN_SPECULATIVE_RESERVATION_BYTES}. Fetches of data that has been asked
+ * for wait for headroom for up to {@link
+ * PhysicalIOConfiguration#getMemoryReservationTimeoutMilliseconds()}, and then go over the capacity
+ * rather than fail the read. Reads wait before taking any lock, so that readers and evictions of
+ * the object are not held up while they do. Whenever headroom runs out, the gate asks for a clean
+ * up, so that blocks already dropped from the index cache release their memory straight away.
+ */
+public class MemoryReservationGate {
+  /** Speculative fetches are not worth a request if there is less headroom than this */
+  static final long MIN_SPECULATIVE_RESERVATION_BYTES = 64 * ONE_KB;
+
+  private static final Logger LOG = LoggerFactory.getLogger(MemoryReservationGate.class);
+
+  private final long capacityBytes;
+  private final long timeoutNanos;
+  private final Metrics metrics;
+  private final Runnable cleanupRequest;
+  private long reservedBytes;
+
+  /**
+   * Constructs a new MemoryReservationGate that does not ask for clean ups.
+   *
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics tracking memory usage and reservations
+   */
+  public MemoryReservationGate(
+      @NonNull PhysicalIOConfiguration configuration, @NonNull Metrics metrics) {
+    this(configuration, metrics, () -> {});
+  }
+
+  /**
+   * Constructs a new MemoryReservationGate.
+   *
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics tracking memory usage and reservations
+   * @param cleanupRequest called when headroom runs out, to have memory released sooner
+   */
+  public MemoryReservationGate(
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Metrics metrics,
+      @NonNull Runnable cleanupRequest) {
+    this.capacityBytes = configuration.getMemoryCapacityBytes();
+    this.timeoutNanos =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getMemoryReservationTimeoutMilliseconds());
+    this.metrics = metrics;
+    this.cleanupRequest = cleanupRequest;
+  }
+
+  /**
+   * Reserves memory for a speculative fetch, without waiting for headroom.
+   *
+   * @param bytes the number of bytes the fetch would like to reserve
+   * @param minBytes the smallest reservation the fetch can do with
+   * @return the number of bytes reserved, which is either 0 if the fetch should be dropped or at
+   *     least `minBytes`
+   */
+  public long tryReserve(long bytes, long minBytes) {
+    Preconditions.checkArgument(bytes >= 0, "`bytes` must be non-negative");
+    Preconditions.checkArgument(minBytes >= 0, "`minBytes` must be non-negative");
+
+    long reserved;
+    synchronized (this) {
+      long headroom = getHeadroom();
+      if (headroom >= bytes) {
+        reserved = bytes;
+      } else if (headroom >= Math.max(minBytes, MIN_SPECULATIVE_RESERVATION_BYTES)) {
+        reserved = headroom;
+      } else {
+        reserved = 0;
+      }
+      addReservation(reserved);
+    }
+
+    if (reserved < bytes) {
+      metrics.add(MetricKey.PREFETCH_DROPPED_BYTES, bytes - reserved);
+      cleanupRequest.run();
+    }
+    return reserved;
+  }
+
+  /**
+   * Reserves memory for a fetch of data that has been asked for. If there is not enough headroom,
+   * waits for it for a bounded time, and then reserves the memory regardless.
+   *
+   * @param bytes the number of bytes to reserve
+   */
+  public synchronized void reserve(long bytes) {
+    awaitHeadroom(bytes);
+    forceReserve(bytes);
+  }
+
+  /**
+   * Waits for headroom for a fetch of data that has been asked for, for a bounded time, without
+   * reserving it. Reads wait here before they take any lock, and reserve with {@link
+   * #forceReserve(long)} once they hold them, so that no lock is held while memory is waited for.
+   * The headroom may be taken by another read in between, in which case the read goes over the
+   * capacity.
+   *
+   * @param bytes the number of bytes of headroom to wait for
+   */
+  public void awaitHeadroom(long bytes) {
+    Preconditions.checkArgument(bytes >= 0, "`bytes` must be non-negative");
+
+    synchronized (this) {
+      if (getHeadroom() >= bytes) {
+        return;
+      }
+      cleanupRequest.run();
+      long deadline = System.nanoTime() + timeoutNanos;
+      long remainingNanos = timeoutNanos;
+      try {
+        while (getHeadroom() < bytes && remainingNanos > 0) {
+          TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+          remainingNanos = deadline - System.nanoTime();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Reserves memory for a fetch of data that has been asked for, without waiting. If there is not
+   * enough headroom, the reservation goes over the capacity.
+   *
+   * @param bytes the number of bytes to reserve
+   */
+  public void forceReserve(long bytes) {
+    Preconditions.checkArgument(bytes >= 0, "`bytes` must be non-negative");
+
+    synchronized (this) {
+      if (getHeadroom() < bytes) {
+        LOG.debug(
+            "No memory headroom for {} bytes, going over capacity of {} bytes",
+            bytes,
+            capacityBytes);
+      }
+      addReservation(bytes);
+    }
+  }
+
+  /**
+   * Releases a reservation, once the data it was made for has settled.
+   *
+   * @param bytes the number of bytes reserved
+   */
+  public synchronized void release(long bytes) {
+    Preconditions.checkArgument(bytes >= 0, "`bytes` must be non-negative");
+
+    addReservation(-bytes);
+    notifyAll();
+  }
+
+  /** Wakes up reads waiting for headroom, after memory has been released */
+  @SuppressFBWarnings(
+      value = "NN_NAKED_NOTIFY",
+      justification = "The memory usage the waiters check is tracked by the metrics")
+  public synchronized void onMemoryReleased() {
+    notifyAll();
+  }
+
+  /**
+   * Returns the memory currently reserved for blocks whose data is being fetched.
+   *
+   * @return the number of reserved bytes
+   */
+  public synchronized long getReservedBytes() {
+    return reservedBytes;
+  }
+
+  /**
+   * Returns the memory that is neither used nor reserved.
+   *
+   * @return the headroom in bytes, which is negative if the capacity has been gone over
+   */
+  public synchronized long getHeadroom() {
+    return capacityBytes - metrics.get(MetricKey.MEMORY_USAGE) - reservedBytes;
+  }
+
+  private void addReservation(long bytes) {
+    if (bytes == 0) {
+      return;
+    }
+    reservedBytes += bytes;
+    if (bytes > 0) {
+      metrics.add(MetricKey.MEMORY_RESERVED, bytes);
+    } else {
+      metrics.reduce(MetricKey.MEMORY_RESERVED, -bytes);
+    }
+  }
+}
@@ -15,40 +15,63 @@
  */
 package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Operation;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.request.Referrer;
+import software.amazon.s3.analyticsaccelerator.request.TailRequest;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
 import software.amazon.s3.analyticsaccelerator.util.StreamAttributes;
 
-/** Class responsible for fetching and potentially caching object metadata. */
-@SuppressFBWarnings(
-    value = "SIC_INNER_SHOULD_BE_STATIC_ANON",
-    justification =
-        "Inner class is created very infrequently, and fluency justifies the extra pointer")
+/**
+ * Class responsible for fetching and potentially caching object metadata.
+ *
+ * <p>Metadata is held in a concurrent cache bounded by {@link
+ * PhysicalIOConfiguration#getMetadataStoreCapacity()}, and optionally expires after {@link
+ * PhysicalIOConfiguration#getMetadataStoreTtlMilliseconds()}. Concurrent lookups of an object that
+ * is not cached share a single HEAD request. Failed HEADs are not cached, except for objects that
+ * do not exist, which are remembered for {@link
+ * PhysicalIOConfiguration#getMetadataStoreNegativeTtlMilliseconds()} when that is set.
+ *
+ * <p>With {@link PhysicalIOConfiguration#isHeadlessOpenEnabled()}, metadata that is not cached is
+ * learned from a GET of the tail of the object instead, see {@link #getTail(S3URI,
+ * OpenStreamInformation)}.
+ */
 public class MetadataStore implements Closeable {
   private final ObjectClient objectClient;
   private final Telemetry telemetry;
-  private final Map<S3URI, CompletableFuture<ObjectMetadata>> cache;
+  private final Cache<S3URI, CompletableFuture<ObjectMetadata>> cache;
+  private final Cache<S3URI, Throwable> missingObjects;
   private final PhysicalIOConfiguration configuration;
+  private final Metrics metrics;
 
   private static final Logger LOG = LoggerFactory.getLogger(MetadataStore.class);
   private static final String OPERATION_METADATA_HEAD_ASYNC = "metadata.store.head.async";
   private static final String OPERATION_METADATA_HEAD_JOIN = "metadata.store.head.join";
+  private static final String OPERATION_METADATA_TAIL_ASYNC = "metadata.store.tail.async";
+  private static final String OPERATION_METADATA_TAIL_JOIN = "metadata.store.tail.join";
 
   /**
    * Constructs a new MetadataStore.
@@ -61,18 +84,64 @@ public class MetadataStore implements Closeable {
       @NonNull ObjectClient objectClient,
       @NonNull Telemetry telemetry,
       @NonNull PhysicalIOConfiguration configuration) {
+    this(objectClient, telemetry, configuration, new Metrics());
+  }
+
+  /**
+   * Constructs a new MetadataStore.
+   *
+   * @param objectClient the object client to use for object store interactions.
+   * @param telemetry The {@link Telemetry} to use to report measurements.
+   * @param configuration a configuration of PhysicalIO.
+   * @param metrics the metrics to count HEAD requests and cache hits in
+   */
+  public MetadataStore(
+      @NonNull ObjectClient objectClient,
+      @NonNull Telemetry telemetry,
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Metrics metrics) {
+    this(objectClient, telemetry, configuration, metrics, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructs a new MetadataStore. This constructor is useful for testing as it allows the passage
+   * of time to be controlled.
+   *
+   * @param objectClient the object client to use for object store interactions.
+   * @param telemetry The {@link Telemetry} to use to report measurements.
+   * @param configuration a configuration of PhysicalIO.
+   * @param metrics the metrics to count HEAD requests and cache hits in
+   * @param ticker the time source of the cache
+   */
+  MetadataStore(
+      @NonNull ObjectClient objectClient,
+      @NonNull Telemetry telemetry,
+      @NonNull PhysicalIOConfiguration configuration,
+      @NonNull Metrics metrics,
+      @NonNull Ticker ticker) {
     this.objectClient = objectClient;
     this.telemetry = telemetry;
-    this.cache =
-        Collections.synchronizedMap(
-            new LinkedHashMap<S3URI, CompletableFuture<ObjectMetadata>>() {
-              @Override
-              protected boolean removeEldestEntry(
-                  final Map.Entry<S3URI, CompletableFuture<ObjectMetadata>> eldest) {
-                return this.size() > configuration.getMetadataStoreCapacity();
-              }
-            });
     this.configuration = configuration;
+    this.metrics = metrics;
+
+    Caffeine<Object, Object> cacheBuilder =
+        Caffeine.newBuilder()
+            .maximumSize(configuration.getMetadataStoreCapacity())
+            .ticker(ticker)
+            .executor(Runnable::run);
+    if (configuration.getMetadataStoreTtlMilliseconds() > 0) {
+      cacheBuilder.expireAfterWrite(
+          configuration.getMetadataStoreTtlMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+    this.cache = cacheBuilder.build();
+    this.missingObjects =
+        Caffeine.newBuilder()
+            .maximumSize(configuration.getMetadataStoreCapacity())
+            .expireAfterWrite(
+                configuration.getMetadataStoreNegativeTtlMilliseconds(), TimeUnit.MILLISECONDS)
+            .ticker(ticker)
+            .executor(Runnable::run)
+            .build();
   }
 
   /**
@@ -96,6 +165,118 @@ public class MetadataStore implements Closeable {
         this.configuration.getBlockReadTimeout());
   }
 
+  /**
+   * Learns the metadata of an object that is not cached from a GET of the tail of the object rather
+   * than a HEAD, when HEAD-less opens are enabled. This saves a round trip for readers that start
+   * at the tail, like readers of Parquet files. The metadata is cached as if it came from a HEAD,
+   * and concurrent lookups of the object wait for it rather than issuing HEADs of their own.
+   *
+   * @param s3URI the object to fetch the metadata for
+   * @param openStreamInformation contains the open stream information
+   * @return the last {@link PhysicalIOConfiguration#getHeadlessOpenTailBytes()} bytes of the
+   *     object, if this call issued the GET. Empty if HEAD-less opens are disabled, the metadata is
+   *     known or being fetched already, or the GET failed, in which case {@link #get(S3URI,
+   *     OpenStreamInformation)} falls back to a HEAD.
+   */
+  public Optional<ObjectContent> getTail(S3URI s3URI, OpenStreamInformation openStreamInformation) {
+    CompletableFuture<Optional<ObjectContent>> tail = asyncGetTail(s3URI, openStreamInformation);
+    try {
+      return telemetry.measureJoinCritical(
+          () ->
+              Operation.builder()
+                  .name(OPERATION_METADATA_TAIL_JOIN)
+                  .attribute(StreamAttributes.uri(s3URI))
+                  .build(),
+          tail,
+          this.configuration.getBlockReadTimeout());
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Timed out learning metadata of {} from its tail, falling back to HEAD", s3URI, e);
+      tail.thenAccept(content -> content.ifPresent(MetadataStore::closeQuietly));
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Learns the metadata of an object that is not cached from a GET of the tail of the object
+   * asynchronously, see {@link #getTail(S3URI, OpenStreamInformation)}. The returned future does
+   * not fail: it holds nothing if the GET failed.
+   *
+   * @param s3URI the object to fetch the metadata for
+   * @param openStreamInformation contains the open stream information
+   * @return the {@link CompletableFuture} that holds the tail of the object, if this call issued
+   *     the GET
+   */
+  public CompletableFuture<Optional<ObjectContent>> asyncGetTail(
+      S3URI s3URI, OpenStreamInformation openStreamInformation) {
+    if (!configuration.isHeadlessOpenEnabled() || missingObjects.getIfPresent(s3URI) != null) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    AtomicReference<CompletableFuture<ObjectContent>> tail = new AtomicReference<>();
+    CompletableFuture<ObjectMetadata> metadata =
+        this.cache.get(
+            s3URI,
+            uri -> {
+              TailRequest tailRequest =
+                  TailRequest.builder()
+                      .s3Uri(s3URI)
+                      .length(configuration.getHeadlessOpenTailBytes())
+                      .referrer(
+                          new Referrer(
+                              "bytes=-" + configuration.getHeadlessOpenTailBytes(),
+                              ReadMode.PREFETCH_TAIL))
+                      .build();
+              CompletableFuture<ObjectContent> content =
+                  telemetry.measureCritical(
+                      () ->
+                          Operation.builder()
+                              .name(OPERATION_METADATA_TAIL_ASYNC)
+                              .attribute(StreamAttributes.uri(s3URI))
+                              .build(),
+                      objectClient.getObjectTail(tailRequest, openStreamInformation));
+              tail.set(content);
+              return content.thenApply(MetadataStore::metadataOf);
+            });
+
+    CompletableFuture<ObjectContent> content = tail.get();
+    if (content == null) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    metrics.add(MetricKey.GET_REQUEST_COUNT, 1);
+    // Registered outside the cache's computation, as the GET may have failed already
+    metadata.whenComplete(
+        (objectMetadata, error) -> {
+          if (error != null) {
+            onFetchFailed(s3URI, metadata, error);
+          }
+        });
+
+    return metadata.handle(
+        (objectMetadata, error) -> {
+          if (error != null) {
+            LOG.debug("Failed to learn metadata of {} from its tail", s3URI, error);
+            return Optional.empty();
+          }
+          return Optional.of(content.join());
+        });
+  }
+
+  private static ObjectMetadata metadataOf(ObjectContent content) {
+    if (content.getMetadata() == null) {
+      closeQuietly(content);
+      throw new IllegalStateException("Response to the GET of the tail has no object metadata");
+    }
+    return content.getMetadata();
+  }
+
+  private static void closeQuietly(ObjectContent content) {
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the tail of an object", e);
+    }
+  }
+
   /**
    * Evicts the specified key from the cache
    *
@@ -103,7 +284,8 @@ public class MetadataStore implements Closeable {
    * @return a boolean stating if the object existed or not
    */
   public boolean evictKey(S3URI s3URI) {
-    return this.cache.remove(s3URI) != null;
+    this.missingObjects.invalidate(s3URI);
+    return this.cache.asMap().remove(s3URI) != null;
   }
 
   /**
@@ -114,19 +296,71 @@ public class MetadataStore implements Closeable {
    * @param openStreamInformation contains the open stream information
    * @return returns the {@link CompletableFuture} that holds object's metadata.
    */
-  public synchronized CompletableFuture<ObjectMetadata> asyncGet(
+  public CompletableFuture<ObjectMetadata> asyncGet(
       S3URI s3URI, OpenStreamInformation openStreamInformation) {
-    return this.cache.computeIfAbsent(
-        s3URI,
-        uri ->
-            telemetry.measureCritical(
-                () ->
-                    Operation.builder()
-                        .name(OPERATION_METADATA_HEAD_ASYNC)
-                        .attribute(StreamAttributes.uri(s3URI))
-                        .build(),
-                objectClient.headObject(
-                    HeadRequest.builder().s3Uri(s3URI).build(), openStreamInformation)));
+    Throwable missingObjectError = this.missingObjects.getIfPresent(s3URI);
+    if (missingObjectError != null) {
+      metrics.add(MetricKey.METADATA_CACHE_HIT, 1);
+      CompletableFuture<ObjectMetadata> metadata = new CompletableFuture<>();
+      metadata.completeExceptionally(missingObjectError);
+      return metadata;
+    }
+
+    AtomicBoolean fetched = new AtomicBoolean(false);
+    CompletableFuture<ObjectMetadata> metadata =
+        this.cache.get(
+            s3URI,
+            uri -> {
+              fetched.set(true);
+              return telemetry.measureCritical(
+                  () ->
+                      Operation.builder()
+                          .name(OPERATION_METADATA_HEAD_ASYNC)
+                          .attribute(StreamAttributes.uri(s3URI))
+                          .build(),
+                  objectClient.headObject(
+                      HeadRequest.builder().s3Uri(s3URI).build(), openStreamInformation));
+            });
+
+    if (fetched.get()) {
+      metrics.add(MetricKey.HEAD_REQUEST_COUNT, 1);
+      // Registered outside the cache's computation, as the HEAD may have failed already
+      metadata.whenComplete(
+          (objectMetadata, error) -> {
+            if (error != null) {
+              onFetchFailed(s3URI, metadata, error);
+            }
+          });
+    } else {
+      metrics.add(MetricKey.METADATA_CACHE_HIT, 1);
+    }
+
+    return metadata;
+  }
+
+  /**
+   * Drops a failed HEAD, or GET of the tail, from the cache, so that the next lookup retries it,
+   * unless the object does not exist and negative caching is enabled.
+   *
+   * @param s3URI the object whose metadata could not be fetched
+   * @param metadata the failed future
+   * @param error the reason of the failure
+   */
+  private void onFetchFailed(
+      S3URI s3URI, CompletableFuture<ObjectMetadata> metadata, Throwable error) {
+    this.cache.asMap().remove(s3URI, metadata);
+    if (configuration.getMetadataStoreNegativeTtlMilliseconds() > 0 && isNotFound(error)) {
+      this.missingObjects.put(s3URI, error);
+    }
+  }
+
+  private static boolean isNotFound(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof FileNotFoundException) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -136,8 +370,9 @@ public class MetadataStore implements Closeable {
    * @param s3URI the object to store metadata for
    * @param objectMetadata Object metadata
    */
-  public synchronized void storeObjectMetadata(S3URI s3URI, ObjectMetadata objectMetadata) {
+  public void storeObjectMetadata(S3URI s3URI, ObjectMetadata objectMetadata) {
     if (objectMetadata != null) {
+      this.missingObjects.invalidate(s3URI);
       this.cache.put(s3URI, CompletableFuture.completedFuture(objectMetadata));
     }
   }
@@ -160,6 +395,6 @@ public class MetadataStore implements Closeable {
   /** Closes the {@link MetadataStore} and frees up all resources it holds. */
   @Override
   public void close() {
-    this.cache.values().forEach(this::safeCancel);
+    this.cache.asMap().values().forEach(this::safeCancel);
   }
 }
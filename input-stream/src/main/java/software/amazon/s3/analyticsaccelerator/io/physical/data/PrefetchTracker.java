@@ -0,0 +1,174 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import lombok.Getter;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.ReadAheadPolicy;
+import software.amazon.s3.analyticsaccelerator.io.physical.prefetcher.StridePatternDetector;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+
+/**
+ * Tracks the speculative blocks a single stream has caused to be fetched, so that their requests
+ * can be cancelled once the stream has made them irrelevant. The tracker also holds the read-ahead
+ * policy and the stride detector of the stream, so that they only observe the reads of that
+ * stream, however many other streams read the same object.
+ *
+ * <p>Blocks are cancelled when:
+ *
+ * <ul>
+ *   <li>the stream seeks further than {@link
+ *       PhysicalIOConfiguration#getSeekCancellationThresholdBytes()} away from where it last read.
+ *       Position driven prefetches (sequential read-ahead) that do not overlap the window of that
+ *       size starting at the new position are cancelled. Column prefetches are planned from the
+ *       file footer rather than from the read position, so they survive seeks. So do stride
+ *       prefetches, as every read of a reader with a large stride is a seek.
+ *   <li>the stream is closed, in which case all its prefetches that have not been read from are
+ *       cancelled.
+ * </ul>
+ *
+ * <p>Blocks that have finished loading or have been read from are never cancelled, and stop being
+ * tracked.
+ */
+public class PrefetchTracker {
+  private static final Logger LOG = LoggerFactory.getLogger(PrefetchTracker.class);
+
+  private final long seekCancellationThresholdBytes;
+  private final List<Block> inFlightBlocks = new ArrayList<>();
+  private long lastReadEnd = -1;
+  @Getter private final ReadAheadPolicy readAheadPolicy;
+  private StridePatternDetector stridePatternDetector;
+
+  /**
+   * Constructs a new PrefetchTracker.
+   *
+   * @param configuration the physicalIO configuration
+   */
+  public PrefetchTracker(@NonNull PhysicalIOConfiguration configuration) {
+    this.seekCancellationThresholdBytes = configuration.getSeekCancellationThresholdBytes();
+    this.readAheadPolicy = ReadAheadPolicy.create(configuration);
+  }
+
+  /**
+   * Returns the detector of the stride patterns of the stream, which is created on first use as
+   * the stream only ever reads one object.
+   *
+   * @param contentLength the length of the object the stream reads
+   * @return the stride detector of the stream
+   */
+  public synchronized StridePatternDetector getStridePatternDetector(long contentLength) {
+    if (stridePatternDetector == null) {
+      stridePatternDetector = new StridePatternDetector(contentLength);
+    }
+    return stridePatternDetector;
+  }
+
+  /**
+   * Starts tracking a block, if it is speculative and still being fetched.
+   *
+   * @param block the block to track
+   */
+  public synchronized void track(@NonNull Block block) {
+    pruneSettledBlocks();
+    if (block.isSpeculative() && !block.isDataLoaded()) {
+      inFlightBlocks.add(block);
+    }
+  }
+
+  /**
+   * Records a read of the stream. If the read is further away from the previous read than the
+   * cancellation threshold, position driven prefetches that do not overlap the window starting at
+   * the read are cancelled.
+   *
+   * @param pos the position the read starts at
+   * @param len the length of the read
+   * @return the number of blocks whose fetch was cancelled
+   */
+  public synchronized int onRead(long pos, long len) {
+    Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
+    Preconditions.checkArgument(0 <= len, "`len` must not be negative");
+
+    boolean largeSeek =
+        lastReadEnd >= 0 && Math.abs(pos - lastReadEnd) > seekCancellationThresholdBytes;
+    lastReadEnd = pos + len;
+    if (!largeSeek) {
+      return 0;
+    }
+
+    pruneSettledBlocks();
+    long windowEnd = pos + seekCancellationThresholdBytes - 1;
+    int cancelled = 0;
+    Iterator<Block> iterator = inFlightBlocks.iterator();
+    while (iterator.hasNext()) {
+      Block block = iterator.next();
+      Range range = block.getBlockKey().getRange();
+      boolean outsideWindow = range.getEnd() < pos || range.getStart() > windowEnd;
+      if (outsideWindow && isPositionDriven(block.getReadMode())) {
+        iterator.remove();
+        if (block.cancelSpeculativeFetch()) {
+          cancelled++;
+        }
+      }
+    }
+    if (cancelled > 0) {
+      LOG.debug("Cancelled {} speculative fetches after seeking to {}", cancelled, pos);
+    }
+    return cancelled;
+  }
+
+  /**
+   * Cancels all tracked prefetches that have not been read from. Called when the stream is closed.
+   *
+   * @return the number of blocks whose fetch was cancelled
+   */
+  public synchronized int cancelAll() {
+    int cancelled = 0;
+    for (Block block : inFlightBlocks) {
+      if (block.cancelSpeculativeFetch()) {
+        cancelled++;
+      }
+    }
+    inFlightBlocks.clear();
+    return cancelled;
+  }
+
+  /**
+   * Returns the number of blocks currently tracked.
+   *
+   * @return the number of tracked blocks
+   */
+  public synchronized int size() {
+    return inFlightBlocks.size();
+  }
+
+  private void pruneSettledBlocks() {
+    inFlightBlocks.removeIf(block -> block.isDataLoaded() || block.isAccessed());
+  }
+
+  private static boolean isPositionDriven(ReadMode readMode) {
+    return readMode != ReadMode.COLUMN_PREFETCH
+        && readMode != ReadMode.REMAINING_COLUMN_PREFETCH
+        && readMode != ReadMode.STRIDE_PREFETCH;
+  }
+}
@@ -15,8 +15,11 @@
  */
 package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Predicate;
 import lombok.Value;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.Range;
@@ -27,7 +30,8 @@ import software.amazon.s3.analyticsaccelerator.request.Range;
  * of an object is needed with high confidence, then we should not fetch this in a single request.
  *
  * <p>This class is capable of implementing heuristics on how to fetch ranges of different sizes
- * optimally.
+ * optimally. Conversely, small ranges that are close to each other are coalesced, as reading over a
+ * small hole is cheaper than paying for the latency of another request.
  */
 @Value
 public class RangeOptimiser {
@@ -53,6 +57,74 @@ public class RangeOptimiser {
     return splits;
   }
 
+  /**
+   * Given a list of ranges, split them at the boundaries of the grid of {@link
+   * PhysicalIOConfiguration#getBlockSizeBytes()}. Ranges that start and end on the grid are split
+   * into ranges covering exactly one cell each.
+   *
+   * @param ranges a list of ranges
+   * @return the ranges split at the boundaries of the grid
+   */
+  public List<Range> alignRanges(List<Range> ranges) {
+    long blockSize = configuration.getBlockSizeBytes();
+    List<Range> cells = new LinkedList<>();
+    for (Range range : ranges) {
+      long start = range.getStart();
+      while (start <= range.getEnd()) {
+        long end = Math.min((start / blockSize + 1) * blockSize - 1, range.getEnd());
+        cells.add(new Range(start, end));
+        start = end + 1;
+      }
+    }
+
+    return cells;
+  }
+
+  /**
+   * Given a list of ranges, return a list of ranges which covers them with fewer requests. Ranges
+   * that overlap or touch are merged. Ranges separated by a hole of at most {@link
+   * PhysicalIOConfiguration#getCoalesceMaxGapBytes()} are merged as long as the merged range does
+   * not grow larger than {@link PhysicalIOConfiguration#getCoalesceMaxSizeBytes()}, and the hole
+   * is accepted by `canReadOver`.
+   *
+   * @param ranges a list of ranges, in any order
+   * @param canReadOver called with each hole that is about to be read over, the ranges on either
+   *     side are merged only if it returns true
+   * @return the coalesced ranges, ordered by their start
+   */
+  public List<Range> coalesceRanges(List<Range> ranges, Predicate<Range> canReadOver) {
+    List<Range> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(Range::getStart));
+
+    List<Range> coalesced = new LinkedList<>();
+    Range current = null;
+    for (Range next : sorted) {
+      if (current == null) {
+        current = next;
+      } else if (next.getStart() <= current.getEnd() + 1) {
+        current = new Range(current.getStart(), Math.max(current.getEnd(), next.getEnd()));
+      } else if (canCoalesce(current, next)
+          && canReadOver.test(new Range(current.getEnd() + 1, next.getStart() - 1))) {
+        current = new Range(current.getStart(), next.getEnd());
+      } else {
+        coalesced.add(current);
+        current = next;
+      }
+    }
+    if (current != null) {
+      coalesced.add(current);
+    }
+
+    return coalesced;
+  }
+
+  private boolean canCoalesce(Range current, Range next) {
+    long gap = next.getStart() - current.getEnd() - 1;
+    long mergedLength = Math.max(current.getEnd(), next.getEnd()) - current.getStart() + 1;
+    return gap <= configuration.getCoalesceMaxGapBytes()
+        && mergedLength <= configuration.getCoalesceMaxSizeBytes();
+  }
+
   private List<Range> splitRange(long start, long end) {
     long nextRangeStart = start;
     List<Range> generatedRanges = new LinkedList<>();
@@ -0,0 +1,465 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+/**
+ * Hedges GETs that are slow to respond. A GET that has not responded once {@link
+ * PhysicalIOConfiguration#getHedgingPercentile()} of the recent times to first byte has passed is
+ * issued a second time, and whichever of the two responds first is used. The other one is
+ * cancelled, or closed if it responds anyway.
+ *
+ * <p>Times to first byte are tracked over a sliding window of the last GETs across the factory, and
+ * nothing is hedged until the window holds enough of them. Hedges are paid for from a budget that
+ * every GET adds {@link PhysicalIOConfiguration#getHedgingBudgetRatio()} of a hedge to, so that
+ * when every GET is slow, such as during an outage, hedging adds at most that much to the load.
+ *
+ * <p>GETs whose body is handed over to a sink are hedged up to the response only: the first request
+ * to respond hands its body over, and the other one is aborted before any of its body is.
+ */
+public class RequestHedger implements Closeable {
+  /** Number of the most recent times to first byte the hedging delay is worked out from */
+  static final int WINDOW_SIZE = 256;
+
+  /** Number of times to first byte to track before any GET is hedged */
+  static final int MIN_SAMPLES = 32;
+
+  /** Number of new times to first byte after which the hedging delay is worked out again */
+  private static final int RECOMPUTE_INTERVAL = 16;
+
+  /** Budget is tracked in thousandths of a hedge, so that fractions of a hedge add up exactly */
+  private static final long HEDGE_COST = 1000;
+
+  /** Number of hedges the budget can save up for bursts of slow GETs */
+  private static final long MAX_BUDGET = 10 * HEDGE_COST;
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestHedger.class);
+
+  /** A hedger that never hedges, for block managers that are not backed by one */
+  public static final RequestHedger DISABLED =
+      new RequestHedger(PhysicalIOConfiguration.DEFAULT, new Metrics());
+
+  private final boolean enabled;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final long budgetDeposit;
+  private final Metrics metrics;
+  private final AtomicLong budget = new AtomicLong();
+  private ScheduledThreadPoolExecutor timer;
+
+  private final long[] samples = new long[WINDOW_SIZE];
+  private int sampleCount;
+  private int nextSample;
+  private int samplesSinceRecompute;
+
+  /** Time after which a GET is hedged, or -1 while too few times to first byte are known */
+  private volatile long hedgeDelayNanos = -1;
+
+  /**
+   * Constructs a new RequestHedger. The hedger never hedges if hedging is disabled in the
+   * configuration.
+   *
+   * @param configuration the physicalIO configuration
+   * @param metrics the metrics to report hedges to
+   */
+  public RequestHedger(@NonNull PhysicalIOConfiguration configuration, @NonNull Metrics metrics) {
+    this.enabled = configuration.isHedgingEnabled();
+    this.percentile = configuration.getHedgingPercentile();
+    this.minDelayNanos =
+        TimeUnit.MILLISECONDS.toNanos(configuration.getHedgingMinDelayMilliseconds());
+    this.budgetDeposit = Math.round(configuration.getHedgingBudgetRatio() * HEDGE_COST);
+    this.metrics = metrics;
+    if (!enabled) {
+      return;
+    }
+
+    this.timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            task -> {
+              Thread timerThread = new Thread(task, "s3-analytics-accelerator-request-hedger");
+              timerThread.setDaemon(true);
+              return timerThread;
+            });
+    // Almost every GET responds before it is hedged, so cancelled tasks should not pile up
+    this.timer.setRemoveOnCancelPolicy(true);
+  }
+
+  /** @return true if GETs may be hedged */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Issues a GET, and issues it again if it is slow to respond. The returned future completes with
+   * the first response, and cancelling it cancels every request issued for it.
+   *
+   * @param request issues the GET, each time it is called
+   * @return the future completed with the first response to the GET
+   */
+  public CompletableFuture<ObjectContent> get(
+      @NonNull Supplier<CompletableFuture<ObjectContent>> request) {
+    if (!enabled) {
+      return request.get();
+    }
+    depositHedge();
+    return new HedgedRequest(request).start();
+  }
+
+  /**
+   * Issues a GET whose body is handed over to a sink, and issues it again if it is slow to respond.
+   * Only the first request to respond hands its body over to the sink, and the other one is aborted
+   * when it responds. The returned future completes once the body of the first response has been
+   * handed over, and cancelling it cancels every request issued for it.
+   *
+   * @param sink the sink to hand the body of the first response over to
+   * @param request issues the GET with the given sink, each time it is called
+   * @return the future completed once the body of the first response has been handed over
+   */
+  public CompletableFuture<Void> get(
+      @NonNull ObjectContentSink sink,
+      @NonNull Function<ObjectContentSink, CompletableFuture<Void>> request) {
+    if (!enabled) {
+      return request.apply(sink);
+    }
+    depositHedge();
+    return new HedgedIngestion(sink, request).start();
+  }
+
+  /**
+   * Returns the time after which a GET that has not responded is hedged.
+   *
+   * @return the delay in nanoseconds, or -1 while too few times to first byte are known
+   */
+  long getHedgeDelayNanos() {
+    return hedgeDelayNanos;
+  }
+
+  /**
+   * Tracks the time a GET took to respond, and works out the hedging delay again every {@link
+   * #RECOMPUTE_INTERVAL} times.
+   *
+   * @param nanos the time to first byte of the GET
+   */
+  synchronized void recordTimeToFirstByte(long nanos) {
+    samples[nextSample] = nanos;
+    nextSample = (nextSample + 1) % WINDOW_SIZE;
+    sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+    if (++samplesSinceRecompute < RECOMPUTE_INTERVAL || sampleCount < MIN_SAMPLES) {
+      return;
+    }
+    samplesSinceRecompute = 0;
+    long[] sorted = Arrays.copyOf(samples, sampleCount);
+    Arrays.sort(sorted);
+    int index = Math.max(0, (int) Math.ceil(percentile * sampleCount) - 1);
+    hedgeDelayNanos = Math.max(minDelayNanos, sorted[index]);
+  }
+
+  private void depositHedge() {
+    budget.accumulateAndGet(
+        budgetDeposit, (saved, deposit) -> Math.min(MAX_BUDGET, saved + deposit));
+  }
+
+  private boolean withdrawHedge() {
+    long saved;
+    do {
+      saved = budget.get();
+      if (saved < HEDGE_COST) {
+        return false;
+      }
+    } while (!budget.compareAndSet(saved, saved - HEDGE_COST));
+    return true;
+  }
+
+  private void refundHedge() {
+    budget.accumulateAndGet(HEDGE_COST, (saved, refund) -> Math.min(MAX_BUDGET, saved + refund));
+  }
+
+  private static void closeQuietly(ObjectContent content) {
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the response of a hedged GET", e);
+    }
+  }
+
+  /** Shuts down the timer hedges are issued from. */
+  @Override
+  public void close() {
+    if (timer != null) {
+      timer.shutdownNow();
+    }
+  }
+
+  /** A GET, and its hedge if it is slow to respond, racing to complete the same future */
+  private final class HedgedRequest {
+    private final Supplier<CompletableFuture<ObjectContent>> request;
+    private final CompletableFuture<ObjectContent> result = new CompletableFuture<>();
+    private final List<CompletableFuture<ObjectContent>> attempts = new CopyOnWriteArrayList<>();
+
+    /** Requests that have neither responded nor failed, 0 once the result is settled */
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private HedgedRequest(Supplier<CompletableFuture<ObjectContent>> request) {
+      this.request = request;
+    }
+
+    private CompletableFuture<ObjectContent> start() {
+      // A GET that cannot be issued fails the same way whether or not it is hedged
+      track(request.get(), System.nanoTime(), false);
+
+      long delay = hedgeDelayNanos;
+      if (delay >= 0 && !result.isDone()) {
+        ScheduledFuture<?> hedge = timer.schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+        result.whenComplete((content, throwable) -> hedge.cancel(false));
+      }
+      // Cancelling the result, as a block being closed does, cancels every request too
+      result.whenComplete((content, throwable) -> attempts.forEach(a -> a.cancel(false)));
+      return result;
+    }
+
+    private void hedge() {
+      if (result.isDone()) {
+        return;
+      }
+      if (!withdrawHedge()) {
+        metrics.add(MetricKey.HEDGE_BUDGET_EXHAUSTED, 1);
+        return;
+      }
+      int inFlight;
+      do {
+        inFlight = pending.get();
+        if (inFlight == 0) {
+          refundHedge();
+          return;
+        }
+      } while (!pending.compareAndSet(inFlight, inFlight + 1));
+
+      metrics.add(MetricKey.HEDGED_REQUEST_COUNT, 1);
+      long startNanos = System.nanoTime();
+      CompletableFuture<ObjectContent> attempt;
+      try {
+        attempt = request.get();
+      } catch (RuntimeException e) {
+        LOG.debug("Failed to issue hedged GET", e);
+        onCompleted(null, e, startNanos, true);
+        return;
+      }
+      track(attempt, startNanos, true);
+    }
+
+    private void track(CompletableFuture<ObjectContent> attempt, long startNanos, boolean hedge) {
+      attempts.add(attempt);
+      if (result.isDone()) {
+        attempt.cancel(false);
+      }
+      attempt.whenComplete(
+          (content, throwable) -> onCompleted(content, throwable, startNanos, hedge));
+    }
+
+    private void onCompleted(
+        ObjectContent content, Throwable throwable, long startNanos, boolean hedge) {
+      if (throwable == null) {
+        recordTimeToFirstByte(System.nanoTime() - startNanos);
+        if (result.complete(content)) {
+          pending.set(0);
+          if (hedge) {
+            metrics.add(MetricKey.HEDGED_REQUEST_WIN, 1);
+          }
+        } else {
+          closeQuietly(content);
+        }
+        return;
+      }
+
+      // The result only fails once no request is left that may still respond
+      int inFlight;
+      do {
+        inFlight = pending.get();
+        if (inFlight == 0) {
+          return;
+        }
+      } while (!pending.compareAndSet(inFlight, inFlight - 1));
+      if (inFlight == 1) {
+        result.completeExceptionally(throwable);
+      }
+    }
+  }
+
+  /**
+   * A GET handing its body over to a sink, and its hedge if it is slow to respond, racing to
+   * respond first. The result completes once the winner has handed its whole body over.
+   */
+  private final class HedgedIngestion {
+    private final ObjectContentSink sink;
+    private final Function<ObjectContentSink, CompletableFuture<Void>> request;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    private final List<AttemptSink> attempts = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean responded = new AtomicBoolean();
+
+    /** Requests that have neither responded nor failed, 0 once one of them has responded */
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private HedgedIngestion(
+        ObjectContentSink sink, Function<ObjectContentSink, CompletableFuture<Void>> request) {
+      this.sink = sink;
+      this.request = request;
+    }
+
+    private CompletableFuture<Void> start() {
+      // A GET that cannot be issued fails the same way whether or not it is hedged
+      issue(System.nanoTime(), false);
+
+      long delay = hedgeDelayNanos;
+      if (delay >= 0 && !responded.get() && !result.isDone()) {
+        ScheduledFuture<?> hedge = timer.schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+        result.whenComplete((ignored, throwable) -> hedge.cancel(false));
+      }
+      // Cancelling the result, as a block being closed does, cancels every request too
+      result.whenComplete((ignored, throwable) -> attempts.forEach(a -> a.future.cancel(false)));
+      return result;
+    }
+
+    private void hedge() {
+      if (responded.get() || result.isDone()) {
+        return;
+      }
+      if (!withdrawHedge()) {
+        metrics.add(MetricKey.HEDGE_BUDGET_EXHAUSTED, 1);
+        return;
+      }
+      int inFlight;
+      do {
+        inFlight = pending.get();
+        if (inFlight == 0) {
+          refundHedge();
+          return;
+        }
+      } while (!pending.compareAndSet(inFlight, inFlight + 1));
+
+      metrics.add(MetricKey.HEDGED_REQUEST_COUNT, 1);
+      try {
+        issue(System.nanoTime(), true);
+      } catch (RuntimeException e) {
+        LOG.debug("Failed to issue hedged GET", e);
+        onFailed(e);
+      }
+    }
+
+    private void issue(long startNanos, boolean hedge) {
+      AttemptSink attemptSink = new AttemptSink(startNanos, hedge);
+      attemptSink.future = request.apply(attemptSink);
+      attempts.add(attemptSink);
+      if (result.isDone() || (responded.get() && !attemptSink.won)) {
+        attemptSink.future.cancel(false);
+      }
+      attemptSink.future.whenComplete(
+          (ignored, throwable) -> {
+            if (attemptSink.won) {
+              if (throwable == null) {
+                result.complete(null);
+              } else {
+                result.completeExceptionally(throwable);
+              }
+            } else if (throwable != null) {
+              onFailed(throwable);
+            } else if (responded.compareAndSet(false, true)) {
+              // Completed without ever responding, which the sink is left to make sense of
+              pending.set(0);
+              result.complete(null);
+            }
+          });
+    }
+
+    private void onFailed(Throwable throwable) {
+      // The result only fails once no request is left that may still respond
+      int inFlight;
+      do {
+        inFlight = pending.get();
+        if (inFlight == 0) {
+          return;
+        }
+      } while (!pending.compareAndSet(inFlight, inFlight - 1));
+      if (inFlight == 1) {
+        result.completeExceptionally(throwable);
+      }
+    }
+
+    /** Passes the response and the body of one request on to the sink, if it responds first */
+    private final class AttemptSink implements ObjectContentSink {
+      private final long startNanos;
+      private final boolean hedge;
+      private volatile CompletableFuture<Void> future;
+      private volatile boolean won;
+
+      private AttemptSink(long startNanos, boolean hedge) {
+        this.startNanos = startNanos;
+        this.hedge = hedge;
+      }
+
+      @Override
+      public void onResponse() {
+        if (!responded.compareAndSet(false, true)) {
+          throw new CancellationException("Another request for the data responded first");
+        }
+        this.won = true;
+        pending.set(0);
+        recordTimeToFirstByte(System.nanoTime() - startNanos);
+        if (hedge) {
+          metrics.add(MetricKey.HEDGED_REQUEST_WIN, 1);
+        }
+        for (AttemptSink other : attempts) {
+          if (other != this) {
+            other.future.cancel(false);
+          }
+        }
+        sink.onResponse();
+      }
+
+      @Override
+      public void onChunk(ByteBuffer chunk) {
+        if (!won) {
+          throw new CancellationException("Another request for the data responded first");
+        }
+        sink.onChunk(chunk);
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+
+/**
+ * A {@link BlockBuffer} assembled from fixed size direct memory slabs handed out by a {@link
+ * BlockMemoryAllocator}. Slabs go back to the allocator when the buffer is closed.
+ */
+public class SlabBlockBuffer implements BlockBuffer {
+  private static final int FILL_CHUNK_SIZE = 64 * 1024;
+
+  private final ByteBuffer[] slabs;
+  private final int slabSize;
+  private final int capacity;
+  private final BlockMemoryAllocator allocator;
+  private final AtomicBoolean released = new AtomicBoolean(false);
+  private volatile int length;
+
+  /**
+   * Constructs a new SlabBlockBuffer.
+   *
+   * @param capacity the number of bytes the buffer can hold
+   * @param slabs the slabs backing the buffer, all of the same size
+   * @param allocator the allocator the slabs are returned to on close
+   */
+  SlabBlockBuffer(
+      int capacity, @NonNull ByteBuffer[] slabs, @NonNull BlockMemoryAllocator allocator) {
+    Preconditions.checkArgument(slabs.length > 0, "`slabs` must not be empty");
+    Preconditions.checkArgument(
+        capacity <= (long) slabs.length * slabs[0].capacity(),
+        "`slabs` must be able to hold %s bytes",
+        capacity);
+
+    this.slabs = slabs;
+    this.slabSize = slabs[0].capacity();
+    this.capacity = capacity;
+    this.allocator = allocator;
+  }
+
+  @Override
+  public int capacity() {
+    return capacity;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public int footprint() {
+    return slabs.length * slabSize;
+  }
+
+  @Override
+  public int fill(InputStream inputStream, IntConsumer progressListener) throws IOException {
+    // Direct memory cannot be read into by an InputStream, so stage the bytes through a chunk
+    byte[] chunk = new byte[Math.min(FILL_CHUNK_SIZE, capacity)];
+    // Only this thread writes the length, so the increments are not racy
+    int filled = length;
+    while (filled < capacity) {
+      int bytesRead = inputStream.read(chunk, 0, Math.min(chunk.length, capacity - filled));
+      if (bytesRead < 0) {
+        break;
+      }
+      put(filled, chunk, bytesRead);
+      filled += bytesRead;
+      length = filled;
+      progressListener.accept(filled);
+    }
+    return filled;
+  }
+
+  @Override
+  public int append(ByteBuffer chunk) {
+    int filled = length;
+    int bytesToCopy = Math.min(chunk.remaining(), capacity - filled);
+    int copied = 0;
+    while (copied < bytesToCopy) {
+      int position = filled + copied;
+      ByteBuffer slab = slabs[position / slabSize].duplicate();
+      int slabOffset = position % slabSize;
+      int bytesToSlab = Math.min(bytesToCopy - copied, slabSize - slabOffset);
+      slab.position(slabOffset);
+      // Copies buffer to buffer, so direct chunks go into direct slabs without a stage on the heap
+      ByteBuffer src = chunk.duplicate();
+      src.limit(src.position() + bytesToSlab);
+      slab.put(src);
+      chunk.position(chunk.position() + bytesToSlab);
+      copied += bytesToSlab;
+    }
+    length = filled + bytesToCopy;
+    return length;
+  }
+
+  private void put(int offset, byte[] src, int len) {
+    int copied = 0;
+    while (copied < len) {
+      int position = offset + copied;
+      // Duplicates keep positions private, so that concurrent readers do not interfere
+      ByteBuffer slab = slabs[position / slabSize].duplicate();
+      int slabOffset = position % slabSize;
+      int bytesToCopy = Math.min(len - copied, slabSize - slabOffset);
+      slab.position(slabOffset);
+      slab.put(src, copied, bytesToCopy);
+      copied += bytesToCopy;
+    }
+  }
+
+  @Override
+  public int get(int offset) {
+    Preconditions.checkArgument(
+        0 <= offset && offset < length, "`offset` must be within the filled buffer");
+    return Byte.toUnsignedInt(slabs[offset / slabSize].get(offset % slabSize));
+  }
+
+  @Override
+  public int get(int offset, byte[] dst, int dstOffset, int len) {
+    int bytesToCopy = Math.max(0, Math.min(len, length - offset));
+    int copied = 0;
+    while (copied < bytesToCopy) {
+      int position = offset + copied;
+      ByteBuffer slab = slabs[position / slabSize].duplicate();
+      int slabOffset = position % slabSize;
+      int chunk = Math.min(bytesToCopy - copied, slabSize - slabOffset);
+      slab.position(slabOffset);
+      slab.get(dst, dstOffset + copied, chunk);
+      copied += chunk;
+    }
+    return bytesToCopy;
+  }
+
+  @Override
+  public void close() {
+    if (released.compareAndSet(false, true)) {
+      allocator.release(slabs);
+    }
+  }
+}
@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntFunction;
 import lombok.NonNull;
 import org.slf4j.Logger;
@@ -33,8 +35,10 @@ import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIO;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.Blob;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.BlobStore;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.MetadataStore;
+import software.amazon.s3.analyticsaccelerator.io.physical.data.PrefetchTracker;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlan;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanExecution;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
 import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
@@ -52,6 +56,8 @@ public class PhysicalIOImpl implements PhysicalIO {
   private ObjectKey objectKey;
   private final ObjectMetadata metadata;
   private final ExecutorService threadPool;
+  private final PrefetchTracker prefetchTracker;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
 
   private final long physicalIOBirth = System.nanoTime();
 
@@ -64,7 +70,8 @@ public class PhysicalIOImpl implements PhysicalIO {
   private static final Logger LOG = LoggerFactory.getLogger(PhysicalIOImpl.class);
 
   /**
-   * Construct a new instance of PhysicalIOV2.
+   * Construct a new instance of PhysicalIOV2, which tracks its speculative fetches as configured
+   * for the blob store.
    *
    * @param s3URI the S3 URI of the object
    * @param metadataStore a metadata cache
@@ -81,13 +88,63 @@ public class PhysicalIOImpl implements PhysicalIO {
       @NonNull OpenStreamInformation openStreamInformation,
       @NonNull ExecutorService threadPool)
       throws IOException {
+    this(
+        s3URI,
+        metadataStore,
+        blobStore,
+        telemetry,
+        openStreamInformation,
+        threadPool,
+        new PrefetchTracker(blobStore.getConfiguration()));
+  }
+
+  /**
+   * Construct a new instance of PhysicalIOV2.
+   *
+   * @param s3URI the S3 URI of the object
+   * @param metadataStore a metadata cache
+   * @param blobStore a data cache
+   * @param telemetry The {@link Telemetry} to use to report measurements.
+   * @param openStreamInformation contains stream information
+   * @param threadPool Thread pool for async operations
+   * @param prefetchTracker tracker of the speculative fetches of this stream
+   */
+  public PhysicalIOImpl(
+      @NonNull S3URI s3URI,
+      @NonNull MetadataStore metadataStore,
+      @NonNull BlobStore blobStore,
+      @NonNull Telemetry telemetry,
+      @NonNull OpenStreamInformation openStreamInformation,
+      @NonNull ExecutorService threadPool,
+      @NonNull PrefetchTracker prefetchTracker)
+      throws IOException {
     this.metadataStore = metadataStore;
     this.blobStore = blobStore;
     this.telemetry = telemetry;
     this.openStreamInformation = openStreamInformation;
-    this.metadata = this.metadataStore.get(s3URI, openStreamInformation);
+    Optional<ObjectContent> tail = this.metadataStore.getTail(s3URI, openStreamInformation);
+    try {
+      this.metadata = this.metadataStore.get(s3URI, openStreamInformation);
+    } catch (IOException | RuntimeException e) {
+      // Without metadata the tail cannot be handed to the blob store, which would close it
+      tail.ifPresent(content -> closeTail(s3URI, content));
+      throw e;
+    }
     this.objectKey = ObjectKey.builder().s3URI(s3URI).etag(metadata.getEtag()).build();
     this.threadPool = threadPool;
+    this.prefetchTracker = prefetchTracker;
+    this.blobStore.onStreamOpened(this.objectKey);
+    tail.ifPresent(
+        content ->
+            this.blobStore.addTail(this.objectKey, this.metadata, openStreamInformation, content));
+  }
+
+  private static void closeTail(S3URI s3URI, ObjectContent content) {
+    try {
+      content.getStream().close();
+    } catch (IOException e) {
+      LOG.debug("Failed to close the tail of {}", s3URI, e);
+    }
   }
 
   /**
@@ -111,6 +168,7 @@ public class PhysicalIOImpl implements PhysicalIO {
   public int read(long pos) throws IOException {
     Preconditions.checkArgument(0 <= pos, "`pos` must not be negative");
     Preconditions.checkArgument(pos < contentLength(), "`pos` must be less than content length");
+    prefetchTracker.onRead(pos, 1);
     try {
       return this.telemetry.measureVerbose(
           () ->
@@ -124,7 +182,10 @@ public class PhysicalIOImpl implements PhysicalIO {
                       StreamAttributes.physicalIORelativeTimestamp(
                           System.nanoTime() - physicalIOBirth))
                   .build(),
-          () -> blobStore.get(this.objectKey, this.metadata, openStreamInformation).read(pos));
+          () ->
+              blobStore
+                  .get(this.objectKey, this.metadata, openStreamInformation)
+                  .read(pos, prefetchTracker));
     } catch (Exception e) {
       handleOperationExceptions(e);
       throw e;
@@ -148,6 +209,7 @@ public class PhysicalIOImpl implements PhysicalIO {
     Preconditions.checkArgument(0 <= off, "`off` must not be negative");
     Preconditions.checkArgument(0 <= len, "`len` must not be negative");
     Preconditions.checkArgument(off < buf.length, "`off` must be less than size of buffer");
+    prefetchTracker.onRead(pos, len);
 
     try {
       return this.telemetry.measureVerbose(
@@ -164,7 +226,7 @@ public class PhysicalIOImpl implements PhysicalIO {
           () ->
               blobStore
                   .get(objectKey, this.metadata, openStreamInformation)
-                  .read(buf, off, len, pos));
+                  .read(buf, off, len, pos, prefetchTracker));
     } catch (Exception e) {
       handleOperationExceptions(e);
       throw e;
@@ -201,7 +263,7 @@ public class PhysicalIOImpl implements PhysicalIO {
           () ->
               blobStore
                   .get(objectKey, this.metadata, openStreamInformation)
-                  .read(buf, off, len, contentLength - len));
+                  .read(buf, off, len, contentLength - len, prefetchTracker));
     } catch (Exception e) {
       handleOperationExceptions(e);
       throw e;
@@ -230,7 +292,7 @@ public class PhysicalIOImpl implements PhysicalIO {
         () ->
             blobStore
                 .get(objectKey, this.metadata, openStreamInformation)
-                .execute(ioPlan, readMode));
+                .execute(ioPlan, readMode, prefetchTracker));
   }
 
   @SuppressFBWarnings(
@@ -263,7 +325,12 @@ public class PhysicalIOImpl implements PhysicalIO {
               } else {
                 // there is no use of a temp byte buffer, or buffer.put() calls,
                 // so flip() is not needed.
-                blob.read(buffer.array(), 0, objectRange.getLength(), objectRange.getOffset());
+                blob.read(
+                    buffer.array(),
+                    0,
+                    objectRange.getLength(),
+                    objectRange.getOffset(),
+                    prefetchTracker);
               }
               objectRange.getByteBuffer().complete(buffer);
             } catch (Exception e) {
@@ -290,7 +357,7 @@ public class PhysicalIOImpl implements PhysicalIO {
           (readBytes + tmpBufferMaxSize) < length ? tmpBufferMaxSize : (length - readBytes);
       LOG.debug(
           "Reading {} bytes from position {} (bytes read={}", currentLength, position, readBytes);
-      blob.read(tmp, 0, currentLength, position);
+      blob.read(tmp, 0, currentLength, position, prefetchTracker);
       buffer.put(tmp, 0, currentLength);
       position = position + currentLength;
       readBytes = readBytes + currentLength;
@@ -314,6 +381,17 @@ public class PhysicalIOImpl implements PhysicalIO {
     execute(new IOPlan(ranges), ReadMode.READ_VECTORED);
   }
 
+  /**
+   * Releases the blocks of the object that end before the given position, unless another stream has
+   * the object open.
+   *
+   * @param pos the position the reader has reached
+   */
+  @Override
+  public void dropBehind(long pos) {
+    blobStore.dropBehind(objectKey, pos);
+  }
+
   private void handleOperationExceptions(Exception e) {
     if (e.getCause() != null
         && e.getCause().getMessage() != null
@@ -333,6 +411,11 @@ public class PhysicalIOImpl implements PhysicalIO {
 
   @Override
   public void close(boolean shouldEvict) throws IOException {
+    // Whatever this stream prefetched and has not read yet is not going to be read by it anymore
+    prefetchTracker.cancelAll();
+    if (closed.compareAndSet(false, true)) {
+      blobStore.onStreamClosed(this.objectKey);
+    }
     if (shouldEvict) {
       blobStore.evictKey(this.objectKey);
     }
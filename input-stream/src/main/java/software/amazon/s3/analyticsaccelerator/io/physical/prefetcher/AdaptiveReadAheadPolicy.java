@@ -0,0 +1,152 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.prefetcher;
+
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_MB;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+
+/**
+ * A {@link ReadAheadPolicy} that sizes sequential prefetches from measurements rather than from a
+ * fixed progression.
+ *
+ * <p>It keeps moving averages of the rate at which the consumer reads, of the time to first byte of
+ * requests and of the throughput of a single request. A prefetch is split into parts that are
+ * fetched in parallel, so its data arrives about one time to first byte plus the transfer time of a
+ * part after it is issued. The prefetch is sized to cover what the consumer reads in that time,
+ * twice over so the next prefetch can be issued before the current one runs out. This is the
+ * bandwidth-delay product of the stream as seen from the consumer.
+ *
+ * <p>Whenever prefetched data is evicted without being read, the size is halved, and it recovers
+ * gradually with each prefetch that follows. Until both the consumer and the requests have been
+ * measured, sizes follow the geometric {@link SequentialReadProgression}.
+ */
+public class AdaptiveReadAheadPolicy implements ReadAheadPolicy {
+  /** Smallest prefetch issued, which matches the first generation of the geometric progression */
+  static final long MIN_PREFETCH_SIZE = 2 * ONE_MB;
+
+  /** Largest prefetch issued, so a fast consumer cannot take over the cache */
+  static final long MAX_PREFETCH_SIZE = 128 * ONE_MB;
+
+  /** Consumer reads are aggregated over windows of at least this length to measure their rate */
+  private static final long RATE_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /** Requests smaller than this are dominated by their latency and do not measure throughput */
+  private static final long MIN_THROUGHPUT_SAMPLE_BYTES = 256 * ONE_KB;
+
+  private static final double SMOOTHING = 0.3;
+  private static final double HEADROOM = 2.0;
+  private static final double MIN_BACKOFF = 1.0 / 16;
+  private static final double BACKOFF_RECOVERY = 1.25;
+
+  private final SequentialReadProgression fallback;
+  private final long partSizeBytes;
+  private final LongSupplier nanoClock;
+
+  private double consumerBytesPerNano;
+  private double timeToFirstByteNanos;
+  private double requestBytesPerNano;
+  private double backoff = 1.0;
+
+  private long lastReadEnd = -1;
+  private long windowStartNanos;
+  private long windowBytes;
+
+  /**
+   * Constructs a new AdaptiveReadAheadPolicy.
+   *
+   * @param configuration the physicalIO configuration
+   */
+  public AdaptiveReadAheadPolicy(@NonNull PhysicalIOConfiguration configuration) {
+    this(configuration, System::nanoTime);
+  }
+
+  /**
+   * Constructs a new AdaptiveReadAheadPolicy.
+   *
+   * @param configuration the physicalIO configuration
+   * @param nanoClock source of the current time, in nanoseconds
+   */
+  AdaptiveReadAheadPolicy(
+      @NonNull PhysicalIOConfiguration configuration, @NonNull LongSupplier nanoClock) {
+    this.fallback = new SequentialReadProgression(configuration);
+    this.partSizeBytes = configuration.getPartSizeBytes();
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public synchronized long getSizeForGeneration(long generation) {
+    Preconditions.checkArgument(0 <= generation, "`generation` must be non-negative");
+
+    double size;
+    if (consumerBytesPerNano > 0 && requestBytesPerNano > 0) {
+      double partArrivalNanos =
+          timeToFirstByteNanos + Math.min(partSizeBytes, MAX_PREFETCH_SIZE) / requestBytesPerNano;
+      size = HEADROOM * consumerBytesPerNano * partArrivalNanos;
+    } else {
+      size = fallback.getSizeForGeneration(generation);
+    }
+    size *= backoff;
+    backoff = Math.min(1.0, backoff * BACKOFF_RECOVERY);
+
+    return Math.max(MIN_PREFETCH_SIZE, Math.min(MAX_PREFETCH_SIZE, (long) size));
+  }
+
+  @Override
+  public synchronized void onRead(long pos, long len) {
+    long now = nanoClock.getAsLong();
+    long previousReadEnd = lastReadEnd;
+    lastReadEnd = pos + len;
+    if (pos != previousReadEnd) {
+      // Not a continuation of the previous read, so the time since then is not reading time
+      windowStartNanos = now;
+      windowBytes = 0;
+      return;
+    }
+    windowBytes += len;
+
+    long elapsed = now - windowStartNanos;
+    if (elapsed >= RATE_WINDOW_NANOS) {
+      consumerBytesPerNano = smooth(consumerBytesPerNano, (double) windowBytes / elapsed);
+      windowStartNanos = now;
+      windowBytes = 0;
+    }
+  }
+
+  @Override
+  public synchronized void onFetch(long bytes, long timeToFirstByteNanos, long transferNanos) {
+    this.timeToFirstByteNanos = smooth(this.timeToFirstByteNanos, timeToFirstByteNanos);
+    if (bytes >= MIN_THROUGHPUT_SAMPLE_BYTES && transferNanos > 0) {
+      requestBytesPerNano = smooth(requestBytesPerNano, (double) bytes / transferNanos);
+    }
+  }
+
+  @Override
+  public synchronized void onUnreadEviction(long bytes) {
+    if (bytes > 0) {
+      backoff = Math.max(MIN_BACKOFF, backoff / 2);
+    }
+  }
+
+  private static double smooth(double average, double sample) {
+    return average == 0 ? sample : average + SMOOTHING * (sample - average);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.prefetcher;
+
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+
+/**
+ * Decides how far ahead a sequential read prefetches. The policy is told about the reads of the
+ * consumer, the requests fetching the data and the prefetched data that was evicted without being
+ * read, and may use these observations to size the next prefetch.
+ */
+public interface ReadAheadPolicy {
+
+  /**
+   * Given a generation, returns the size of a sequential prefetch block for that generation.
+   *
+   * @param generation zero-indexed integer representing the generation of a read
+   * @return a block size in bytes
+   */
+  long getSizeForGeneration(long generation);
+
+  /**
+   * Observes a read of the consumer.
+   *
+   * @param pos the position the read starts at
+   * @param len the length of the read
+   */
+  default void onRead(long pos, long len) {}
+
+  /**
+   * Observes a completed request.
+   *
+   * @param bytes the number of bytes fetched
+   * @param timeToFirstByteNanos the time between issuing the request and its response arriving
+   * @param transferNanos the time it took to receive the body of the response
+   */
+  default void onFetch(long bytes, long timeToFirstByteNanos, long transferNanos) {}
+
+  /**
+   * Observes prefetched data being evicted before it was ever read.
+   *
+   * @param bytes the number of bytes evicted without being read
+   */
+  default void onUnreadEviction(long bytes) {}
+
+  /**
+   * Creates the policy selected by {@link PhysicalIOConfiguration#getSequentialPrefetchStrategy()}.
+   *
+   * @param configuration the physicalIO configuration
+   * @return a new policy, to be used for a single stream
+   */
+  static ReadAheadPolicy create(@NonNull PhysicalIOConfiguration configuration) {
+    switch (configuration.getSequentialPrefetchStrategy()) {
+      case ADAPTIVE:
+        return new AdaptiveReadAheadPolicy(configuration);
+      case GEOMETRIC:
+      default:
+        return new SequentialReadProgression(configuration);
+    }
+  }
+}
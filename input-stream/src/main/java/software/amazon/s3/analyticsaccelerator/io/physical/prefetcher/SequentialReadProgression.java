@@ -26,7 +26,7 @@ import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfigurati
  * a sequential read.
  */
 @AllArgsConstructor
-public class SequentialReadProgression {
+public class SequentialReadProgression implements ReadAheadPolicy {
 
   private final PhysicalIOConfiguration configuration;
 
@@ -37,6 +37,7 @@ public class SequentialReadProgression {
    * @param generation zero-indexed integer representing the generation of a read
    * @return a block size in bytes
    */
+  @Override
   public long getSizeForGeneration(long generation) {
     Preconditions.checkArgument(0 <= generation, "`generation` must be non-negative");
 
@@ -0,0 +1,120 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.prefetcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+
+/**
+ * Class capable of detecting constant stride read patterns, and of predicting the reads that
+ * follow them.
+ *
+ * <p>The detector looks at the distance between the starts of consecutive reads. When that
+ * distance is the same for {@link #MIN_MATCHING_STRIDES} reads in a row, the reads are considered
+ * to be strided: reads skipping forward over fixed size gaps have a positive stride, and reverse
+ * scans have a negative one. Contiguous forward reads are left to the {@link
+ * SequentialPatternDetector}.
+ *
+ * <p>The number of reads predicted ahead grows with the confidence in the pattern, i.e. the number
+ * of reads that matched it, up to {@link #MAX_PREDICTED_READS}. Any read that breaks the pattern
+ * resets the confidence.
+ */
+public class StridePatternDetector {
+  /** Number of consecutive equal strides after which reads are predicted */
+  static final int MIN_MATCHING_STRIDES = 2;
+
+  /** Most reads predicted ahead of a strided reader */
+  static final int MAX_PREDICTED_READS = 8;
+
+  private final long contentLength;
+
+  private long lastPos = -1;
+  private long lastLen;
+  private long stride;
+  private int matchingStrides;
+
+  /**
+   * Constructs a new StridePatternDetector.
+   *
+   * @param contentLength the length of the object read
+   */
+  public StridePatternDetector(long contentLength) {
+    Preconditions.checkArgument(contentLength >= 0, "`contentLength` must be non-negative");
+    this.contentLength = contentLength;
+  }
+
+  /**
+   * Records a read and predicts the reads that follow it.
+   *
+   * @param pos the position the read starts at
+   * @param len the length of the read
+   * @return the ranges the next reads are predicted to ask for, nearest first. The list is empty
+   *     if the reads do not follow a stride pattern.
+   */
+  public synchronized List<Range> onRead(long pos, long len) {
+    Preconditions.checkArgument(pos >= 0, "`pos` must be non-negative");
+    Preconditions.checkArgument(len >= 0, "`len` must be non-negative");
+
+    if (len == 0 || pos == lastPos) {
+      return Collections.emptyList();
+    }
+
+    long distance = pos - lastPos;
+    if (lastPos < 0 || distance == lastLen) {
+      // First read, or a contiguous forward read
+      matchingStrides = 0;
+    } else if (distance == stride) {
+      matchingStrides++;
+    } else {
+      stride = distance;
+      matchingStrides = 1;
+    }
+    lastPos = pos;
+    lastLen = len;
+
+    return predict();
+  }
+
+  /**
+   * Returns the number of consecutive reads that matched the current stride.
+   *
+   * @return the number of matching strides
+   */
+  public synchronized int getConfidence() {
+    return matchingStrides;
+  }
+
+  private List<Range> predict() {
+    if (matchingStrides < MIN_MATCHING_STRIDES) {
+      return Collections.emptyList();
+    }
+
+    int predictedReads =
+        Math.min(MAX_PREDICTED_READS, 1 << Math.min(30, matchingStrides - MIN_MATCHING_STRIDES));
+    List<Range> ranges = new ArrayList<>(predictedReads);
+    for (int i = 1; i <= predictedReads; i++) {
+      long start = lastPos + i * stride;
+      if (start < 0 || start >= contentLength) {
+        break;
+      }
+      ranges.add(new Range(start, Math.min(start + lastLen, contentLength) - 1));
+    }
+    return ranges;
+  }
+}
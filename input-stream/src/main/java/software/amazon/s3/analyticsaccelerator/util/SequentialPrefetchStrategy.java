@@ -0,0 +1,53 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Class defining how the size of sequential prefetches is chosen. */
+public enum SequentialPrefetchStrategy {
+  /** Prefetch sizes grow geometrically with the generation of the sequential read. */
+  GEOMETRIC("geometric"),
+  /** Prefetch sizes follow the measured read rate of the consumer and the latency of requests. */
+  ADAPTIVE("adaptive");
+
+  private final String name;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SequentialPrefetchStrategy.class);
+
+  SequentialPrefetchStrategy(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Converts user supplied configuration to enum. Defaults to GEOMETRIC if user input is not
+   * recognised.
+   *
+   * @param strategy user supplied sequential prefetch strategy
+   * @return SequentialPrefetchStrategy enum to use
+   */
+  public static SequentialPrefetchStrategy fromString(String strategy) {
+    for (SequentialPrefetchStrategy value : values()) {
+      if (value.name.equalsIgnoreCase(strategy)) {
+        return value;
+      }
+    }
+    LOG.debug("Unknown sequential prefetch strategy {}, using geometric strategy.", strategy);
+
+    return GEOMETRIC;
+  }
+}
@@ -15,12 +15,11 @@
  */
 package software.amazon.s3.analyticsaccelerator.util;
 
-import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
@@ -29,11 +28,43 @@ import software.amazon.s3.analyticsaccelerator.request.Range;
 /** Utility class for stream operations. */
 public class StreamUtils {
 
-  private static final int BUFFER_SIZE = 8 * ONE_KB;
   private static final Logger LOG = LoggerFactory.getLogger(StreamUtils.class);
 
   /**
-   * Convert an InputStream from the underlying object to a byte array.
+   * Timer shared by all reads to enforce read timeouts, so no thread is created per read. The timer
+   * only fails reads, which is quick, and leaves closing their streams to {@link #READ_ABORTER}.
+   */
+  private static final ScheduledThreadPoolExecutor READ_TIMEOUT_TIMER = createReadTimeoutTimer();
+
+  /**
+   * Thread closing the streams of timed out reads, which unblocks the threads reading them. Closing
+   * a stream may block, so it is kept off the timer. Only reads that time out ever use it.
+   */
+  private static final ExecutorService READ_ABORTER =
+      Executors.newSingleThreadExecutor(
+          task -> {
+            Thread abortThread = new Thread(task, "s3-analytics-accelerator-read-abort");
+            abortThread.setDaemon(true);
+            return abortThread;
+          });
+
+  /** Reads the stream of a response into whatever holds the data read. */
+  @FunctionalInterface
+  public interface StreamReader {
+    /**
+     * Reads the stream, until either it ends or there is no room left for more data.
+     *
+     * @param inStream the stream to read
+     * @return the number of bytes read
+     * @throws IOException if the stream could not be read
+     */
+    int read(InputStream inStream) throws IOException;
+  }
+
+  /**
+   * Convert an InputStream from the underlying object to a byte array. The stream is read straight
+   * into an array sized to the requested range, so on the happy path the body is copied exactly
+   * once.
    *
    * @param objectContent the part of the object
    * @param objectKey container for S3 object to read
@@ -44,43 +75,78 @@ public class StreamUtils {
   public static byte[] toByteArray(
       ObjectContent objectContent, ObjectKey objectKey, Range range, long timeoutMs)
       throws IOException, TimeoutException {
+    byte[] data = new byte[range.getLength()];
+    int length =
+        readFully(
+            objectContent,
+            inStream -> fill(inStream, data),
+            objectKey,
+            range,
+            timeoutMs,
+            new CompletableFuture<>());
+
+    // The object store may return fewer bytes than requested, e.g. when the range runs past the end
+    // of the object. Only in this case is the data copied a second time.
+    return length == data.length ? data : Arrays.copyOf(data, length);
+  }
+
+  /**
+   * Reads an InputStream from the underlying object with the given reader, on the calling thread.
+   * The stream is closed once read.
+   *
+   * <p>Should the read not be done within the timeout, the shared timer fails the result of the
+   * read with a {@link TimeoutException}, so that whoever waits for it is let go even if the stream
+   * does not give up the read when it is closed, and then closes the stream. The read goes on to
+   * throw a {@link TimeoutException} once the reader returns.
+   *
+   * @param objectContent the part of the object
+   * @param reader reads the stream into whatever holds the data
+   * @param objectKey container for S3 object to read
+   * @param range range of the S3 object to read
+   * @param timeoutMs read timeout in milliseconds
+   * @param result the future completed by the read, failed by the timer on timeout
+   * @return the number of bytes read
+   */
+  public static int readFully(
+      ObjectContent objectContent,
+      StreamReader reader,
+      ObjectKey objectKey,
+      Range range,
+      long timeoutMs,
+      CompletableFuture<?> result)
+      throws IOException, TimeoutException {
     InputStream inStream = objectContent.getStream();
-    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-    byte[] buffer = new byte[BUFFER_SIZE];
-
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-    Future<Void> future =
-        executorService.submit(
-            () -> {
-              try {
-                int numBytesRead;
-                LOG.debug(
-                    "Starting to read from InputStream for Block s3URI={}, etag={}, start={}, end={}",
-                    objectKey.s3URI,
-                    objectKey.etag,
-                    range.getStart(),
-                    range.getEnd());
-                while ((numBytesRead = inStream.read(buffer, 0, buffer.length)) != -1) {
-                  outStream.write(buffer, 0, numBytesRead);
-                }
-                LOG.debug(
-                    "Successfully read from InputStream for Block numBytesRead={}, s3URI={}, etag={}, start={}, end={}",
-                    numBytesRead,
-                    objectKey.s3URI,
-                    objectKey.etag,
-                    range.getStart(),
-                    range.getEnd());
-                return null;
-              } finally {
-                inStream.close();
-              }
-            });
+    AtomicBoolean timedOut = new AtomicBoolean(false);
+    ScheduledFuture<?> timeout =
+        READ_TIMEOUT_TIMER.schedule(
+            () -> abortRead(inStream, result, timedOut), timeoutMs, TimeUnit.MILLISECONDS);
 
+    int totalBytesRead = 0;
     try {
-      future.get(timeoutMs, TimeUnit.MILLISECONDS);
+      LOG.debug(
+          "Starting to read from InputStream for Block s3URI={}, etag={}, start={}, end={}",
+          objectKey.s3URI,
+          objectKey.etag,
+          range.getStart(),
+          range.getEnd());
+      totalBytesRead = reader.read(inStream);
+      LOG.debug(
+          "Successfully read from InputStream for Block numBytesRead={}, s3URI={}, etag={}, start={}, end={}",
+          totalBytesRead,
+          objectKey.s3URI,
+          objectKey.etag,
+          range.getStart(),
+          range.getEnd());
+    } catch (Exception e) {
+      if (!timedOut.get()) {
+        throw new IOException("Error reading stream", e);
+      }
+    } finally {
+      timeout.cancel(false);
+      closeQuietly(inStream);
+    }
 
-    } catch (TimeoutException e) {
-      future.cancel(true);
+    if (timedOut.get()) {
       LOG.debug(
           "Reading from InputStream has timed out for Block s3URI={}, etag={}, start={}, end={}",
           objectKey.s3URI,
@@ -88,12 +154,74 @@ public class StreamUtils {
           range.getStart(),
           range.getEnd());
       throw new TimeoutException("Read operation timed out");
+    }
+    return totalBytesRead;
+  }
+
+  /**
+   * Aborts a read that has exceeded its timeout. Its result is failed right away, and its stream is
+   * closed by {@link #READ_ABORTER}, which unblocks the reading thread unless the stream ignores
+   * being closed.
+   */
+  private static void abortRead(
+      InputStream inStream, CompletableFuture<?> result, AtomicBoolean timedOut) {
+    timedOut.set(true);
+    result.completeExceptionally(new TimeoutException("Read operation timed out"));
+    try {
+      READ_ABORTER.execute(() -> closeQuietly(inStream));
+    } catch (RejectedExecutionException e) {
+      closeQuietly(inStream);
+    }
+  }
+
+  private static int fill(InputStream inStream, byte[] data) throws IOException {
+    int filled = 0;
+    while (filled < data.length) {
+      int bytesRead = inStream.read(data, filled, data.length - filled);
+      if (bytesRead < 0) {
+        break;
+      }
+      filled += bytesRead;
+    }
+    return filled;
+  }
+
+  /**
+   * Fails a read that is not waited on by any thread with a {@link TimeoutException}, unless it
+   * completes within the read timeout. The timeout is enforced by the same timer as that of
+   * blocking reads, so no thread is created per read.
+   *
+   * @param read the future completed by the read
+   * @param timeoutMs read timeout in milliseconds
+   */
+  public static void failAfterTimeout(CompletableFuture<?> read, long timeoutMs) {
+    ScheduledFuture<?> timeout =
+        READ_TIMEOUT_TIMER.schedule(
+            () -> read.completeExceptionally(new TimeoutException("Read operation timed out")),
+            timeoutMs,
+            TimeUnit.MILLISECONDS);
+    read.whenComplete((result, throwable) -> timeout.cancel(false));
+  }
+
+  private static void closeQuietly(InputStream inStream) {
+    try {
+      inStream.close();
     } catch (Exception e) {
-      throw new IOException("Error reading stream", e);
-    } finally {
-      executorService.shutdown();
+      LOG.debug("Error while closing InputStream", e);
     }
+  }
 
-    return outStream.toByteArray();
+  private static ScheduledThreadPoolExecutor createReadTimeoutTimer() {
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            task -> {
+              Thread timerThread = new Thread(task, "s3-analytics-accelerator-read-timeout");
+              timerThread.setDaemon(true);
+              return timerThread;
+            });
+    // Almost every read completes before its timeout, so cancelled tasks should not pile up
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
   }
 }
@@ -19,10 +19,17 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
@@ -41,9 +48,12 @@ import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.DefaultLogicalIOImpl;
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.ParquetLogicalIOImpl;
 import software.amazon.s3.analyticsaccelerator.io.logical.impl.SequentialLogicalIOImpl;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
 import software.amazon.s3.analyticsaccelerator.util.InputPolicy;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
 
@@ -408,6 +418,109 @@ public class S3SeekableInputStreamFactoryTest {
     assertDoesNotThrow(() -> stream2.close());
   }
 
+  @Test
+  void testPrefetchMetadataCapsRequestsInFlight() throws IOException {
+    // Given: a factory that has at most 2 metadata requests in flight, and HEADs that hang
+    ObjectClient objectClient = mock(ObjectClient.class);
+    List<CompletableFuture<ObjectMetadata>> heads = new ArrayList<>();
+    when(objectClient.headObject(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              CompletableFuture<ObjectMetadata> head = new CompletableFuture<>();
+              heads.add(head);
+              return head;
+            });
+    S3SeekableInputStreamFactory factory =
+        new S3SeekableInputStreamFactory(
+            objectClient,
+            S3SeekableInputStreamConfiguration.builder()
+                .physicalIOConfiguration(
+                    PhysicalIOConfiguration.builder().metadataPrefetchConcurrency(2).build())
+                .build());
+    List<S3URI> s3URIs =
+        Arrays.asList(
+            S3URI.of("bucket", "key1"),
+            S3URI.of("bucket", "key2"),
+            S3URI.of("bucket", "key3"),
+            S3URI.of("bucket", "key4"),
+            S3URI.of("bucket", "key5"));
+
+    // When: the metadata of 5 objects is prefetched
+    CompletableFuture<Void> prefetch = factory.prefetchMetadata(s3URIs);
+
+    // Then: 2 HEADs are issued, and each one that completes makes way for another
+    assertEquals(2, heads.size());
+    heads.get(0).complete(objectMetadata);
+    assertEquals(3, heads.size());
+    heads.get(1).completeExceptionally(new IOException("Server error"));
+    assertEquals(4, heads.size());
+    heads.get(2).complete(objectMetadata);
+    heads.get(3).complete(objectMetadata);
+    assertEquals(5, heads.size());
+    assertFalse(prefetch.isDone());
+    heads.get(4).complete(objectMetadata);
+    assertTrue(prefetch.isDone());
+
+    // Then: opening the objects is a cache hit
+    assertEquals(
+        objectMetadata,
+        factory.getObjectMetadataStore().get(s3URIs.get(4), OpenStreamInformation.DEFAULT));
+    verify(objectClient, times(5)).headObject(any(), any());
+  }
+
+  @Test
+  void testPrefetchMetadataStoresKnownMetadata() throws IOException {
+    // Given: an object whose metadata is known
+    ObjectClient objectClient = mock(ObjectClient.class);
+    S3SeekableInputStreamFactory factory =
+        new S3SeekableInputStreamFactory(objectClient, S3SeekableInputStreamConfiguration.DEFAULT);
+
+    // When: its metadata is prefetched
+    factory
+        .prefetchMetadata(
+            Collections.singletonMap(
+                s3URI, OpenStreamInformation.builder().objectMetadata(objectMetadata).build()))
+        .join();
+
+    // Then: it is stored without a HEAD
+    assertEquals(
+        objectMetadata,
+        factory.getObjectMetadataStore().get(s3URI, OpenStreamInformation.DEFAULT));
+    verify(objectClient, never()).headObject(any(), any());
+  }
+
+  @Test
+  void testPrefetchMetadataKeepsTailsOfParquetObjects() throws IOException {
+    // Given: a factory with HEAD-less opens enabled
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[1000]));
+    S3SeekableInputStreamFactory factory =
+        new S3SeekableInputStreamFactory(
+            objectClient,
+            S3SeekableInputStreamConfiguration.builder()
+                .physicalIOConfiguration(
+                    PhysicalIOConfiguration.builder()
+                        .headlessOpenEnabled(true)
+                        .headlessOpenTailBytes(100)
+                        .smallObjectsPrefetchingEnabled(false)
+                        .build())
+                .build());
+    S3URI parquetURI = S3URI.of("bucket", "data.parquet");
+
+    // When: the metadata of a Parquet object is prefetched
+    factory.prefetchMetadata(Collections.singletonList(parquetURI)).join();
+
+    // Then: the tail of the object is fetched and kept, and its metadata is cached
+    assertEquals(1, objectClient.getGetRequestCount().get());
+    assertEquals(1, factory.getObjectBlobStore().blobCount());
+    assertEquals(
+        1000,
+        factory
+            .getObjectMetadataStore()
+            .get(parquetURI, OpenStreamInformation.DEFAULT)
+            .getContentLength());
+    assertEquals(1, factory.getMetrics().get(MetricKey.GET_REQUEST_COUNT));
+  }
+
   private static Exception[] exceptions() {
     return ExceptionHandler.getSampleExceptions();
   }
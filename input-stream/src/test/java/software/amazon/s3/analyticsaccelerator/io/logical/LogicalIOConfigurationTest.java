@@ -85,6 +85,8 @@ public class LogicalIOConfigurationTest {
             + "\tjsonFormatSelectorRegex: ^.*\\.(json|JSON)$\n"
             + "\ttxtFormatSelectorRegex: ^.*\\.(txt|TXT)$\n"
             + "\tprefetchingMode: ROW_GROUP\n"
-            + "\tpartitionSize: 134217728\n");
+            + "\tpartitionSize: 134217728\n"
+            + "\tparquetFooterCacheDirectory: \n"
+            + "\tparquetFooterCacheSize: 10000\n");
   }
 }
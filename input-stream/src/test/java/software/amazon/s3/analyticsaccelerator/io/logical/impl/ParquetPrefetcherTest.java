@@ -21,7 +21,9 @@ import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -30,12 +32,16 @@ import static org.mockito.Mockito.when;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Optional;
 import java.util.concurrent.CompletionException;
 import org.junit.jupiter.api.Test;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.logical.parquet.CachedFooter;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ColumnMappers;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.FileTail;
+import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetCachedFooterTask;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetMetadataParsingTask;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetPredictivePrefetchingTask;
 import software.amazon.s3.analyticsaccelerator.io.logical.parquet.ParquetPrefetchRemainingColumnTask;
@@ -45,6 +51,7 @@ import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIO;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlan;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanExecution;
 import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanState;
+import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
 import software.amazon.s3.analyticsaccelerator.util.PrefetchMode;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
@@ -80,7 +87,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
 
     assertThrows(
         NullPointerException.class,
@@ -94,7 +102,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -107,7 +116,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -120,7 +130,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -133,7 +144,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -146,7 +158,8 @@ public class ParquetPrefetcherTest {
                 null,
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -159,7 +172,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 null,
                 mock(ParquetPrefetchRemainingColumnTask.class),
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -172,7 +186,8 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 null,
-                mock(ParquetPredictivePrefetchingTask.class)));
+                mock(ParquetPredictivePrefetchingTask.class),
+                mock(ParquetCachedFooterTask.class)));
     assertThrows(
         NullPointerException.class,
         () ->
@@ -185,6 +200,21 @@ public class ParquetPrefetcherTest {
                 mock(ParquetPrefetchTailTask.class),
                 mock(ParquetReadTailTask.class),
                 mock(ParquetPrefetchRemainingColumnTask.class),
+                null,
+                mock(ParquetCachedFooterTask.class)));
+    assertThrows(
+        NullPointerException.class,
+        () ->
+            new ParquetPrefetcher(
+                mock(S3URI.class),
+                mock(LogicalIOConfiguration.class),
+                mock(ParquetColumnPrefetchStore.class),
+                mock(Telemetry.class),
+                mock(ParquetMetadataParsingTask.class),
+                mock(ParquetPrefetchTailTask.class),
+                mock(ParquetReadTailTask.class),
+                mock(ParquetPrefetchRemainingColumnTask.class),
+                mock(ParquetPredictivePrefetchingTask.class),
                 null));
 
     assertThrows(
@@ -527,6 +557,97 @@ public class ParquetPrefetcherTest {
     assertEquals(parquetPrefetcher.prefetchFooterAndBuildMetadata().join(), skippedIoPlanExecution);
   }
 
+  @Test
+  public void testPrefetchFooterAndBuildMetadataUsesCachedFooter() {
+    // Given: a footer for the object in the persistent footer cache
+    LogicalIOConfiguration logicalIOConfiguration =
+        LogicalIOConfiguration.builder().prefetchingMode(PrefetchMode.ALL).build();
+    ColumnMappers columnMappers = new ColumnMappers(Collections.emptyMap(), Collections.emptyMap());
+    CachedFooter cachedFooter =
+        new CachedFooter(
+            new Range(90, 99), new byte[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, columnMappers);
+    ParquetCachedFooterTask parquetCachedFooterTask = mock(ParquetCachedFooterTask.class);
+    when(parquetCachedFooterTask.loadFooter()).thenReturn(Optional.of(cachedFooter));
+
+    ParquetColumnPrefetchStore parquetColumnPrefetchStore = mock(ParquetColumnPrefetchStore.class);
+    ParquetPrefetchTailTask parquetPrefetchTailTask = mock(ParquetPrefetchTailTask.class);
+    ParquetReadTailTask parquetReadTailTask = mock(ParquetReadTailTask.class);
+    ParquetMetadataParsingTask parquetMetadataParsingTask = mock(ParquetMetadataParsingTask.class);
+    ParquetPredictivePrefetchingTask parquetPredictivePrefetchingTask =
+        mock(ParquetPredictivePrefetchingTask.class);
+
+    ParquetPrefetcher parquetPrefetcher =
+        getTestPrefetcher(
+            logicalIOConfiguration,
+            parquetColumnPrefetchStore,
+            parquetMetadataParsingTask,
+            parquetPrefetchTailTask,
+            parquetReadTailTask,
+            mock(ParquetPrefetchRemainingColumnTask.class),
+            parquetPredictivePrefetchingTask,
+            parquetCachedFooterTask);
+
+    // When: footer prefetching and metadata build is requested
+    parquetPrefetcher.prefetchFooterAndBuildMetadata().join();
+
+    // Then: only the part of the tail that is not cached is prefetched
+    verify(parquetPrefetchTailTask, times(1)).prefetchTail(cachedFooter.getTailRange());
+    verify(parquetPrefetchTailTask, never()).prefetchTail();
+    // Then: the tail is neither read nor parsed, the cached column mappings are used instead
+    verifyNoInteractions(parquetReadTailTask);
+    verifyNoInteractions(parquetMetadataParsingTask);
+    verify(parquetColumnPrefetchStore, times(1)).putColumnMappers(TEST_URI, columnMappers);
+    verify(parquetPredictivePrefetchingTask, times(1))
+        .prefetchRecentColumns(eq(columnMappers), anyList(), anyBoolean());
+
+    // Then: reads within the cached tail are served from it
+    byte[] buffer = new byte[4];
+    assertEquals(4, parquetPrefetcher.readCachedFooter(buffer, 0, 4, 95));
+    assertArrayEquals(new byte[] {5, 6, 7, 8}, buffer);
+    assertEquals(2, parquetPrefetcher.readCachedFooter(buffer, 0, 4, 98));
+    assertEquals(-1, parquetPrefetcher.readCachedFooter(buffer, 0, 4, 50));
+    assertEquals(3, parquetPrefetcher.readCachedFooterTail(buffer, 1, 3));
+    assertArrayEquals(new byte[] {8, 7, 8, 9}, buffer);
+    assertEquals(-1, parquetPrefetcher.readCachedFooterTail(buffer, 0, 11));
+  }
+
+  @Test
+  public void testPrefetchFooterAndBuildMetadataCachesParsedFooter() {
+    // Given: no footer for the object in the persistent footer cache
+    LogicalIOConfiguration logicalIOConfiguration =
+        LogicalIOConfiguration.builder().prefetchingMode(PrefetchMode.ALL).build();
+    ParquetCachedFooterTask parquetCachedFooterTask = mock(ParquetCachedFooterTask.class);
+    when(parquetCachedFooterTask.loadFooter()).thenReturn(Optional.empty());
+
+    FileTail fileTail = new FileTail(ByteBuffer.allocate(10), 10);
+    ParquetReadTailTask parquetReadTailTask = mock(ParquetReadTailTask.class);
+    when(parquetReadTailTask.readFileTail()).thenReturn(fileTail);
+    ColumnMappers columnMappers = new ColumnMappers(Collections.emptyMap(), Collections.emptyMap());
+    ParquetMetadataParsingTask parquetMetadataParsingTask = mock(ParquetMetadataParsingTask.class);
+    when(parquetMetadataParsingTask.storeColumnMappers(fileTail)).thenReturn(columnMappers);
+    ParquetPrefetchTailTask parquetPrefetchTailTask = mock(ParquetPrefetchTailTask.class);
+
+    ParquetPrefetcher parquetPrefetcher =
+        getTestPrefetcher(
+            logicalIOConfiguration,
+            mock(ParquetColumnPrefetchStore.class),
+            parquetMetadataParsingTask,
+            parquetPrefetchTailTask,
+            parquetReadTailTask,
+            mock(ParquetPrefetchRemainingColumnTask.class),
+            mock(ParquetPredictivePrefetchingTask.class),
+            parquetCachedFooterTask);
+
+    // When: footer prefetching and metadata build is requested
+    parquetPrefetcher.prefetchFooterAndBuildMetadata().join();
+
+    // Then: the whole tail is prefetched, and the parsed footer is cached
+    verify(parquetPrefetchTailTask, times(1)).prefetchTail();
+    verify(parquetCachedFooterTask, times(1)).storeFooter(fileTail, columnMappers);
+    // Then: no reads are served from a cached footer
+    assertEquals(-1, parquetPrefetcher.readCachedFooter(new byte[4], 0, 4, 0));
+  }
+
   private ParquetReadTailTask getTestParquetReadTailTask() {
     ParquetReadTailTask parquetReadTailTask = mock(ParquetReadTailTask.class);
     when(parquetReadTailTask.readFileTail()).thenReturn(new FileTail(ByteBuffer.allocate(10), 10));
@@ -548,6 +669,26 @@ public class ParquetPrefetcherTest {
       ParquetReadTailTask parquetReadTailTask,
       ParquetPrefetchRemainingColumnTask parquetPrefetchRemainingColumnTask,
       ParquetPredictivePrefetchingTask parquetPredictivePrefetchingTask) {
+    return getTestPrefetcher(
+        logicalIOConfiguration,
+        parquetColumnPrefetchStore,
+        parquetMetadataParsingTask,
+        parquetPrefetchTailTask,
+        parquetReadTailTask,
+        parquetPrefetchRemainingColumnTask,
+        parquetPredictivePrefetchingTask,
+        mock(ParquetCachedFooterTask.class));
+  }
+
+  private ParquetPrefetcher getTestPrefetcher(
+      LogicalIOConfiguration logicalIOConfiguration,
+      ParquetColumnPrefetchStore parquetColumnPrefetchStore,
+      ParquetMetadataParsingTask parquetMetadataParsingTask,
+      ParquetPrefetchTailTask parquetPrefetchTailTask,
+      ParquetReadTailTask parquetReadTailTask,
+      ParquetPrefetchRemainingColumnTask parquetPrefetchRemainingColumnTask,
+      ParquetPredictivePrefetchingTask parquetPredictivePrefetchingTask,
+      ParquetCachedFooterTask parquetCachedFooterTask) {
 
     return new ParquetPrefetcher(
         TEST_URI,
@@ -558,6 +699,7 @@ public class ParquetPrefetcherTest {
         parquetPrefetchTailTask,
         parquetReadTailTask,
         parquetPrefetchRemainingColumnTask,
-        parquetPredictivePrefetchingTask);
+        parquetPredictivePrefetchingTask,
+        parquetCachedFooterTask);
   }
 }
@@ -17,9 +17,15 @@ package software.amazon.s3.analyticsaccelerator.io.logical.impl;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
@@ -86,6 +92,30 @@ public class SequentialLogicalIOImplTest {
     }
   }
 
+  @Test
+  void testReadDropsBehindTheReader() throws IOException {
+    PhysicalIO physicalIO = mock(PhysicalIO.class);
+    LogicalIOConfiguration configuration = LogicalIOConfiguration.builder().build();
+    when(physicalIO.read(any(byte[].class), anyInt(), anyInt(), anyLong())).thenReturn(10, -1);
+
+    try (MockedConstruction<SequentialPrefetcher> mockedPrefetcher =
+        mockConstruction(SequentialPrefetcher.class)) {
+      SequentialLogicalIOImpl logicalIO =
+          new SequentialLogicalIOImpl(TEST_URI, physicalIO, TestTelemetry.DEFAULT, configuration);
+
+      // A read releases what lies before the position the reader has reached
+      logicalIO.read(new byte[10], 0, 10, 100);
+      verify(physicalIO).dropBehind(110);
+
+      // Reads that return nothing do not move the reader
+      logicalIO.read(new byte[10], 0, 10, 110);
+      verify(physicalIO, never()).dropBehind(eq(120L));
+
+      logicalIO.read(120);
+      verify(physicalIO).dropBehind(120);
+    }
+  }
+
   @Test
   void testClose() throws IOException {
     PhysicalIO physicalIO = mock(PhysicalIO.class);
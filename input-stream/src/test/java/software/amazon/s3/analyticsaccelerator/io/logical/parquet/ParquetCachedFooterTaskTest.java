@@ -0,0 +1,142 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
+import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.io.logical.impl.ParquetColumnPrefetchStore;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIO;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+@SuppressFBWarnings(
+    value = "NP_NONNULL_PARAM_VIOLATION",
+    justification = "We mean to pass nulls to checks")
+public class ParquetCachedFooterTaskTest {
+  private static final S3URI TEST_URI = S3URI.of("foo", "bar.parquet");
+
+  @TempDir Path directory;
+
+  @Test
+  void testConstructor() {
+    assertNotNull(
+        new ParquetCachedFooterTask(
+            TEST_URI,
+            Telemetry.NOOP,
+            mock(PhysicalIO.class),
+            mock(ParquetColumnPrefetchStore.class)));
+  }
+
+  @Test
+  void testConstructorFailsOnNull() {
+    assertThrows(
+        NullPointerException.class,
+        () ->
+            new ParquetCachedFooterTask(
+                null,
+                Telemetry.NOOP,
+                mock(PhysicalIO.class),
+                mock(ParquetColumnPrefetchStore.class)));
+    assertThrows(
+        NullPointerException.class,
+        () ->
+            new ParquetCachedFooterTask(
+                TEST_URI, null, mock(PhysicalIO.class), mock(ParquetColumnPrefetchStore.class)));
+    assertThrows(
+        NullPointerException.class,
+        () ->
+            new ParquetCachedFooterTask(
+                TEST_URI, Telemetry.NOOP, null, mock(ParquetColumnPrefetchStore.class)));
+    assertThrows(
+        NullPointerException.class,
+        () -> new ParquetCachedFooterTask(TEST_URI, Telemetry.NOOP, mock(PhysicalIO.class), null));
+  }
+
+  @Test
+  void testStoredFooterIsLoadedForSameVersion() throws IOException {
+    // Given: a store backed by a persistent footer cache
+    ParquetColumnPrefetchStore store =
+        new ParquetColumnPrefetchStore(
+            LogicalIOConfiguration.builder()
+                .parquetFooterCacheDirectory(directory.toString())
+                .build());
+    byte[] tail = new byte[] {1, 2, 3, 4};
+    ColumnMappers columnMappers = new ColumnMappers(Collections.emptyMap(), Collections.emptyMap());
+
+    // When: the footer of a parsed tail is stored, even after parsing moved the buffer
+    ByteBuffer buffer = ByteBuffer.wrap(tail.clone());
+    buffer.position(3);
+    new ParquetCachedFooterTask(TEST_URI, Telemetry.NOOP, physicalIO("etag"), store)
+        .storeFooter(new FileTail(buffer, tail.length), columnMappers);
+
+    // Then: it is loaded for the same version of the object
+    Optional<CachedFooter> cachedFooter =
+        new ParquetCachedFooterTask(TEST_URI, Telemetry.NOOP, physicalIO("etag"), store)
+            .loadFooter();
+    assertTrue(cachedFooter.isPresent());
+    assertEquals(new Range(96, 99), cachedFooter.get().getTailRange());
+    assertArrayEquals(tail, cachedFooter.get().getTailBytes());
+    assertEquals(columnMappers, cachedFooter.get().getColumnMappers());
+
+    // Then: but not for another version
+    assertFalse(
+        new ParquetCachedFooterTask(TEST_URI, Telemetry.NOOP, physicalIO("other"), store)
+            .loadFooter()
+            .isPresent());
+  }
+
+  @Test
+  void testFailuresAreTreatedAsMisses() throws IOException {
+    PhysicalIO physicalIO = mock(PhysicalIO.class);
+    when(physicalIO.metadata()).thenThrow(new IOException("Error in getting metadata"));
+    ParquetCachedFooterTask parquetCachedFooterTask =
+        new ParquetCachedFooterTask(
+            TEST_URI, Telemetry.NOOP, physicalIO, mock(ParquetColumnPrefetchStore.class));
+
+    assertFalse(parquetCachedFooterTask.loadFooter().isPresent());
+    assertDoesNotThrow(
+        () ->
+            parquetCachedFooterTask.storeFooter(
+                new FileTail(ByteBuffer.allocate(4), 4),
+                new ColumnMappers(Collections.emptyMap(), Collections.emptyMap())));
+  }
+
+  private static PhysicalIO physicalIO(String etag) throws IOException {
+    PhysicalIO physicalIO = mock(PhysicalIO.class);
+    when(physicalIO.metadata())
+        .thenReturn(ObjectMetadata.builder().etag(etag).contentLength(100).build());
+    return physicalIO;
+  }
+}
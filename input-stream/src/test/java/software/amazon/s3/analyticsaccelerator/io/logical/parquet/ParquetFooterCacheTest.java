@@ -0,0 +1,195 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.logical.parquet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.s3.analyticsaccelerator.io.logical.LogicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+public class ParquetFooterCacheTest {
+  private static final S3URI TEST_URI = S3URI.of("foo", "bar.parquet");
+  private static final String ETAG = "etag";
+
+  @TempDir Path directory;
+
+  @Test
+  void testCacheIsDisabledByDefault() {
+    ParquetFooterCache cache = new ParquetFooterCache(LogicalIOConfiguration.DEFAULT);
+
+    assertFalse(cache.isEnabled());
+    cache.put(TEST_URI, ETAG, footer(10));
+    assertFalse(cache.get(TEST_URI, ETAG).isPresent());
+  }
+
+  @Test
+  void testFooterSurvivesNewCacheInstance() {
+    CachedFooter footer = footer(10);
+    new ParquetFooterCache(configuration(10)).put(TEST_URI, ETAG, footer);
+
+    // A new instance over the same directory, as after a restart, sees the footer
+    Optional<CachedFooter> cached = new ParquetFooterCache(configuration(10)).get(TEST_URI, ETAG);
+
+    assertTrue(cached.isPresent());
+    assertEquals(footer.getTailRange(), cached.get().getTailRange());
+    assertArrayEquals(footer.getTailBytes(), cached.get().getTailBytes());
+    assertEquals(footer.getColumnMappers(), cached.get().getColumnMappers());
+  }
+
+  @Test
+  void testFooterOfOtherVersionIsNotReturned() {
+    ParquetFooterCache cache = new ParquetFooterCache(configuration(10));
+    cache.put(TEST_URI, ETAG, footer(10));
+
+    assertFalse(cache.get(TEST_URI, "other-etag").isPresent());
+    assertFalse(cache.get(S3URI.of("foo", "baz.parquet"), ETAG).isPresent());
+    assertFalse(cache.get(TEST_URI, null).isPresent());
+  }
+
+  @Test
+  void testCorruptEntryIsDiscarded() throws IOException {
+    ParquetFooterCache cache = new ParquetFooterCache(configuration(10));
+    cache.put(TEST_URI, ETAG, footer(10));
+    Path entry = entries().get(0);
+    Files.write(entry, new byte[] {0, 0, 0, 1, 0});
+
+    assertFalse(cache.get(TEST_URI, ETAG).isPresent());
+    assertFalse(Files.exists(entry));
+  }
+
+  @Test
+  void testEntryWithTailLongerThanItselfIsDiscarded() throws IOException {
+    ParquetFooterCache cache = new ParquetFooterCache(configuration(10));
+    cache.put(TEST_URI, ETAG, footer(10));
+    Path entry = entries().get(0);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(1);
+      out.writeUTF(TEST_URI.toString());
+      out.writeUTF(ETAG);
+      out.writeLong(0);
+      out.writeLong(Integer.MAX_VALUE - 1);
+    }
+    Files.write(entry, bytes.toByteArray());
+
+    assertFalse(cache.get(TEST_URI, ETAG).isPresent());
+    assertFalse(Files.exists(entry));
+  }
+
+  @Test
+  void testEntriesOfOtherInstancesCountTowardsTheBound() throws IOException {
+    // Entries written before a restart, or by another process sharing the directory
+    S3URI first = S3URI.of("foo", "first.parquet");
+    S3URI second = S3URI.of("foo", "second.parquet");
+    new ParquetFooterCache(configuration(2)).put(first, ETAG, footer(10));
+    new ParquetFooterCache(configuration(2)).put(second, ETAG, footer(10));
+
+    new ParquetFooterCache(configuration(2)).put(TEST_URI, ETAG, footer(10));
+
+    assertEquals(2, entries().size());
+    assertTrue(new ParquetFooterCache(configuration(2)).get(TEST_URI, ETAG).isPresent());
+  }
+
+  @Test
+  void testEntriesReadLeastRecentlyAreDeletedFirst() throws IOException {
+    ParquetFooterCache cache = new ParquetFooterCache(configuration(2));
+    S3URI first = S3URI.of("foo", "first.parquet");
+    S3URI second = S3URI.of("foo", "second.parquet");
+    S3URI third = S3URI.of("foo", "third.parquet");
+
+    cache.put(first, ETAG, footer(10));
+    cache.put(second, ETAG, footer(10));
+    // Make sure the two entries are ordered even on file systems with coarse timestamps
+    for (Path entry : entries()) {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+    }
+    assertTrue(cache.get(first, ETAG).isPresent());
+    cache.put(third, ETAG, footer(10));
+
+    assertEquals(2, entries().size());
+    assertTrue(cache.get(first, ETAG).isPresent());
+    assertFalse(cache.get(second, ETAG).isPresent());
+    assertTrue(cache.get(third, ETAG).isPresent());
+  }
+
+  @Test
+  void testCachedFooterServesReadsWithinTail() {
+    CachedFooter footer = footer(10);
+    byte[] buffer = new byte[5];
+
+    assertEquals(3, footer.read(buffer, 1, 4, 97));
+    assertArrayEquals(new byte[] {0, 7, 8, 9, 0}, buffer);
+    assertEquals(-1, footer.read(buffer, 0, 4, 89));
+    assertEquals(-1, footer.read(buffer, 0, 4, 100));
+  }
+
+  private LogicalIOConfiguration configuration(int size) {
+    return LogicalIOConfiguration.builder()
+        .parquetFooterCacheDirectory(directory.toString())
+        .parquetFooterCacheSize(size)
+        .build();
+  }
+
+  private List<Path> entries() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> entries = new ArrayList<>();
+      files.filter(file -> file.toString().endsWith(".footer")).forEach(entries::add);
+      return entries;
+    }
+  }
+
+  private static CachedFooter footer(int tailLength) {
+    byte[] tail = new byte[tailLength];
+    for (int i = 0; i < tailLength; i++) {
+      tail[i] = (byte) i;
+    }
+
+    ColumnMetadata first = new ColumnMetadata(0, "ss_a", 4, 0, 4, 40, 1234);
+    ColumnMetadata second = new ColumnMetadata(1, "ss_a", 50, 44, 44, 30, 1234);
+    ColumnMetadata third = new ColumnMetadata(0, "ss_b", 74, 0, 74, 10, 1234);
+    Map<Long, ColumnMetadata> offsetIndexToColumnMap = new HashMap<>();
+    offsetIndexToColumnMap.put(4L, first);
+    offsetIndexToColumnMap.put(44L, second);
+    offsetIndexToColumnMap.put(74L, third);
+    Map<String, List<ColumnMetadata>> columnNameToColumnMap = new HashMap<>();
+    List<ColumnMetadata> ssA = new ArrayList<>();
+    ssA.add(first);
+    ssA.add(second);
+    columnNameToColumnMap.put("ss_a", ssA);
+    columnNameToColumnMap.put("ss_b", Collections.singletonList(third));
+
+    return new CachedFooter(
+        new Range(100 - tailLength, 99),
+        tail,
+        new ColumnMappers(offsetIndexToColumnMap, columnNameToColumnMap));
+  }
+}
@@ -133,6 +133,30 @@ public class ParquetPrefetchTailTaskTest {
     assertThrows(CompletionException.class, () -> parquetPrefetchTailTask.prefetchTail());
   }
 
+  @Test
+  @SneakyThrows
+  void testTailPrefetchSkipsCachedTail() {
+    // Given: a large file, whose file metadata is held by a cached footer
+    long contentLength = 5L * LogicalIOConfiguration.DEFAULT.getLargeFileSize();
+    PhysicalIO mockedPhysicalIO = mock(PhysicalIO.class);
+    ObjectMetadata metadata =
+        ObjectMetadata.builder().contentLength(contentLength).etag("random").build();
+    when(mockedPhysicalIO.metadata()).thenReturn(metadata);
+    ParquetPrefetchTailTask parquetPrefetchTailTask =
+        new ParquetPrefetchTailTask(
+            TEST_URI, Telemetry.NOOP, LogicalIOConfiguration.DEFAULT, mockedPhysicalIO);
+
+    // When: the tail is prefetched
+    List<Range> prefetched =
+        parquetPrefetchTailTask.prefetchTail(new Range(contentLength - ONE_MB, contentLength - 1));
+
+    // Then: only the page index is prefetched
+    List<Range> expected = new ArrayList<>();
+    expected.add(new Range(contentLength - ONE_MB - (8 * ONE_MB), contentLength - ONE_MB - 1));
+    assertEquals(expected, prefetched);
+    verify(mockedPhysicalIO).execute(argThat(new IOPlanMatcher(expected)), any(ReadMode.class));
+  }
+
   private HashMap<Long, List<Range>> getPrefetchRangeList(long footerSize, long largeFileSize) {
     return new HashMap<Long, List<Range>>() {
       {
@@ -77,6 +77,36 @@ public class PhysicalIOConfigurationTest {
             + "\tblockReadRetryCount: 20\n"
             + "\tsmallObjectsPrefetchingEnabled: true\n"
             + "\tsmallObjectSizeThreshold: 8388608\n"
-            + "\tthreadPoolSize: 96\n");
+            + "\tthreadPoolSize: 96\n"
+            + "\toffHeapMemoryEnabled: false\n"
+            + "\toffHeapSlabSizeBytes: 1048576\n"
+            + "\tseekCancellationThresholdBytes: 16777216\n"
+            + "\tcoalesceMaxGapBytes: 131072\n"
+            + "\tcoalesceMaxSizeBytes: 8388608\n"
+            + "\tsequentialPrefetchStrategy: GEOMETRIC\n"
+            + "\tblockAlignmentEnabled: false\n"
+            + "\tmemoryReservationTimeoutMilliseconds: 100\n"
+            + "\tmetadataCacheTimeoutMilliseconds: 10000\n"
+            + "\tprefetchCacheTimeoutMilliseconds: 1000\n"
+            + "\tdropBehindEnabled: true\n"
+            + "\tdiskCacheEnabled: false\n"
+            + "\tdiskCacheDirectory: \n"
+            + "\tdiskCacheCapacityBytes: 10737418240\n"
+            + "\tmetadataStoreTtlMilliseconds: 0\n"
+            + "\tmetadataStoreNegativeTtlMilliseconds: 0\n"
+            + "\theadlessOpenEnabled: false\n"
+            + "\theadlessOpenTailBytes: 1048576\n"
+            + "\tmetadataPrefetchConcurrency: 16\n"
+            + "\tnonBlockingIngestionEnabled: false\n"
+            + "\thedgingEnabled: false\n"
+            + "\thedgingPercentile: 0.95\n"
+            + "\thedgingMinDelayMilliseconds: 20\n"
+            + "\thedgingBudgetRatio: 0.05\n"
+            + "\tconcurrencyLimitEnabled: false\n"
+            + "\tconcurrencyLimitMin: 4\n"
+            + "\tconcurrencyLimitMax: 256\n"
+            + "\tconcurrencyLimitInitial: 32\n"
+            + "\tconcurrencyLimitLatencyMilliseconds: 500\n"
+            + "\tconcurrencyLimitBackoffRatio: 0.9\n");
   }
 }
@@ -359,6 +359,132 @@ public class BlobStoreIndexCacheTest {
     assertThrows(NullPointerException.class, () -> cache.getIfPresent(null));
   }
 
+  @Test
+  @DisplayName("Test prefetched blocks that were not read are evicted first")
+  void testPrefetchedBlocksAreEvictedFirst() {
+    BlobStoreIndexCache cache =
+        new BlobStoreIndexCache(
+            PhysicalIOConfiguration.builder().memoryCapacityBytes(1000).build());
+    BlockKey prefetched = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey footer = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey data = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey newData = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+
+    cache.put(prefetched, 300, CacheEntryClass.PREFETCH);
+    cache.put(footer, 300, CacheEntryClass.METADATA);
+    cache.put(data, 300, CacheEntryClass.DATA);
+    cache.put(newData, 300, CacheEntryClass.DATA);
+
+    assertFalse(cache.contains(prefetched));
+    assertTrue(cache.contains(footer));
+    assertTrue(cache.contains(data));
+    assertTrue(cache.contains(newData));
+  }
+
+  @Test
+  @DisplayName("Test entries that changed class are evicted as entries of their new class")
+  void testReplacedEntriesAreWeighedByTheirNewClass() {
+    BlobStoreIndexCache cache =
+        new BlobStoreIndexCache(
+            PhysicalIOConfiguration.builder().memoryCapacityBytes(1000).build());
+    BlockKey read = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey prefetched = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey data = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+
+    cache.put(read, 300, CacheEntryClass.PREFETCH);
+    cache.recordAccess(read, 300, CacheEntryClass.DATA);
+    cache.put(prefetched, 300, CacheEntryClass.PREFETCH);
+    cache.put(data, 300, CacheEntryClass.DATA);
+    cache.put(new BlockKey(mock(ObjectKey.class), mock(Range.class)), 300, CacheEntryClass.DATA);
+
+    assertFalse(cache.contains(prefetched));
+    assertTrue(cache.contains(read));
+    assertTrue(cache.contains(data));
+    assertTrue(cache.getCurrentWeight() <= cache.getMaximumWeight());
+  }
+
+  @Test
+  @DisplayName("Test entries expire after the timeout of their class")
+  void testExpiryDependsOnClass() throws InterruptedException {
+    BlobStoreIndexCache cache =
+        new BlobStoreIndexCache(
+            PhysicalIOConfiguration.builder()
+                .cacheDataTimeoutMilliseconds(100)
+                .prefetchCacheTimeoutMilliseconds(100)
+                .metadataCacheTimeoutMilliseconds(60_000)
+                .build());
+    BlockKey footer = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey data = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey prefetched = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    cache.put(footer, 100, CacheEntryClass.METADATA);
+    cache.put(data, 100, CacheEntryClass.DATA);
+    cache.put(prefetched, 100, CacheEntryClass.PREFETCH);
+
+    Thread.sleep(300);
+
+    assertTrue(cache.contains(footer));
+    assertFalse(cache.contains(data));
+    assertFalse(cache.contains(prefetched));
+  }
+
+  @Test
+  @DisplayName("Test reading a prefetched block turns it into a data block")
+  void testAccessMovesEntryToItsNewClass() {
+    BlobStoreIndexCache cache = new BlobStoreIndexCache(PhysicalIOConfiguration.DEFAULT);
+    BlockKey key = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    cache.put(key, 100, CacheEntryClass.PREFETCH);
+    assertEquals(CacheEntryClass.PREFETCH, cache.indexCache.getIfPresent(key).getEntryClass());
+
+    cache.recordAccess(key, 100, CacheEntryClass.DATA);
+
+    assertEquals(CacheEntryClass.DATA, cache.indexCache.getIfPresent(key).getEntryClass());
+    assertEquals(100, cache.getIfPresent(key));
+  }
+
+  @Test
+  @DisplayName("Test evicted entries are reported, and removed ones are not")
+  void testEvictionsAreReported() {
+    List<BlockKey> evicted = new ArrayList<>();
+    BlobStoreIndexCache cache =
+        new BlobStoreIndexCache(
+            PhysicalIOConfiguration.builder().memoryCapacityBytes(1000).build(), evicted::add);
+    BlockKey prefetched = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey data = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey newData = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    BlockKey footer = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+
+    cache.put(prefetched, 300, CacheEntryClass.PREFETCH);
+    cache.put(data, 300, CacheEntryClass.DATA);
+    cache.put(footer, 300, CacheEntryClass.METADATA);
+    cache.put(newData, 300, CacheEntryClass.DATA);
+    cache.invalidate(data);
+
+    assertEquals(Collections.singletonList(prefetched), evicted);
+  }
+
+  @Test
+  @DisplayName("Test expired entries are reported once maintenance runs")
+  void testExpiredEntriesAreReported() throws InterruptedException {
+    List<BlockKey> evicted = new CopyOnWriteArrayList<>();
+    BlobStoreIndexCache cache =
+        new BlobStoreIndexCache(
+            PhysicalIOConfiguration.builder().cacheDataTimeoutMilliseconds(100).build(),
+            evicted::add);
+    BlockKey data = new BlockKey(mock(ObjectKey.class), mock(Range.class));
+    cache.put(data, 100, CacheEntryClass.DATA);
+
+    Thread.sleep(300);
+    cache.evictExpired();
+
+    assertEquals(Collections.singletonList(data), evicted);
+
+    // A key that is reported again is only reported while it is not back in the cache
+    cache.reportEvicted(data);
+    cache.put(data, 100, CacheEntryClass.DATA);
+    cache.reportEvicted(data);
+    assertEquals(Arrays.asList(data, data), evicted);
+  }
+
   @AfterEach
   void tearDown() {
     if (cache != null) {
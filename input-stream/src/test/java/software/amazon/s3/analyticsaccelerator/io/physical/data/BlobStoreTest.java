@@ -183,6 +183,53 @@ public class BlobStoreTest {
     assertEquals(0, blobStore.blobCount(), "Cache should remain empty");
   }
 
+  @Test
+  void testDropBehindReleasesBlocksOfUnsharedObjects() throws IOException {
+    Metrics metrics = new Metrics();
+    BlobStore blobStore =
+        new BlobStore(
+            new FakeObjectClient(TEST_DATA),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.DEFAULT,
+            metrics);
+    Blob blob = blobStore.get(objectKey, objectMetadata, mock(OpenStreamInformation.class));
+    byte[] b = new byte[TEST_DATA.length()];
+
+    // When: the object is open in two streams, what one has read past is kept for the other
+    blobStore.onStreamOpened(objectKey);
+    blobStore.onStreamOpened(objectKey);
+    blob.read(b, 0, b.length, 0);
+    blobStore.dropBehind(objectKey, TEST_DATA.length());
+    assertEquals(TEST_DATA.length(), metrics.get(MetricKey.MEMORY_USAGE));
+
+    // When: only one stream is left, it is released right away
+    blobStore.onStreamClosed(objectKey);
+    blobStore.dropBehind(objectKey, TEST_DATA.length());
+    assertEquals(0, metrics.get(MetricKey.MEMORY_USAGE));
+    assertFalse(
+        blobStore.indexCache.contains(
+            new BlockKey(objectKey, new Range(0, TEST_DATA.length() - 1))));
+  }
+
+  @Test
+  void testDropBehindCanBeDisabled() throws IOException {
+    Metrics metrics = new Metrics();
+    BlobStore blobStore =
+        new BlobStore(
+            new FakeObjectClient(TEST_DATA),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().dropBehindEnabled(false).build(),
+            metrics);
+    Blob blob = blobStore.get(objectKey, objectMetadata, mock(OpenStreamInformation.class));
+    byte[] b = new byte[TEST_DATA.length()];
+
+    blobStore.onStreamOpened(objectKey);
+    blob.read(b, 0, b.length, 0);
+    blobStore.dropBehind(objectKey, TEST_DATA.length());
+
+    assertEquals(TEST_DATA.length(), metrics.get(MetricKey.MEMORY_USAGE));
+  }
+
   @Test
   void testMemoryUsageTracking() throws IOException {
     // Given: Initial memory usage is 0
@@ -720,4 +767,96 @@ public class BlobStoreTest {
     // Check for any exceptions
     assertNull(testException.get(), "No exceptions should have occurred during test");
   }
+
+  @Test
+  void testEvictedBlocksAreReleasedWithoutPeriodicCleanup() throws Exception {
+    PhysicalIOConfiguration config =
+        PhysicalIOConfiguration.builder()
+            .memoryCapacityBytes(2 * TEST_DATA.length())
+            .smallObjectsPrefetchingEnabled(false)
+            .build();
+    ObjectClient objectClient = new FakeObjectClient(TEST_DATA);
+    BlobStore blobStore = new BlobStore(objectClient, TestTelemetry.DEFAULT, config, new Metrics());
+
+    byte[] data = new byte[TEST_DATA.length()];
+    for (String name : new String[] {"test1", "test2", "test3"}) {
+      ObjectKey key = ObjectKey.builder().s3URI(S3URI.of("test", name)).etag(ETAG).build();
+      blobStore.get(key, objectMetadata, mock(OpenStreamInformation.class)).read(data, 0, 9, 0);
+    }
+
+    // The index cache evicts one of the blocks, which is released without any periodic clean up
+    awaitMemoryUsage(blobStore, 2 * TEST_DATA.length());
+    blobStore.close();
+  }
+
+  @Test
+  void testIdleBlobsAreReclaimedUnlessOpen() throws Exception {
+    PhysicalIOConfiguration config =
+        PhysicalIOConfiguration.builder()
+            .cacheDataTimeoutMilliseconds(50)
+            .smallObjectsPrefetchingEnabled(false)
+            .build();
+    ObjectClient objectClient = new FakeObjectClient(TEST_DATA);
+    BlobStore blobStore = new BlobStore(objectClient, TestTelemetry.DEFAULT, config, new Metrics());
+    ObjectKey openKey = ObjectKey.builder().s3URI(S3URI.of("test", "open")).etag(ETAG).build();
+    ObjectKey closedKey = ObjectKey.builder().s3URI(S3URI.of("test", "closed")).etag(ETAG).build();
+    ObjectKey unreadKey = ObjectKey.builder().s3URI(S3URI.of("test", "unread")).etag(ETAG).build();
+    blobStore.onStreamOpened(openKey);
+
+    byte[] data = new byte[TEST_DATA.length()];
+    for (ObjectKey key : new ObjectKey[] {openKey, closedKey}) {
+      blobStore.get(key, objectMetadata, mock(OpenStreamInformation.class)).read(data, 0, 9, 0);
+    }
+    blobStore.get(unreadKey, objectMetadata, mock(OpenStreamInformation.class));
+    assertEquals(3, blobStore.blobCount());
+
+    // The blocks expire and are released, which empties the blobs
+    Thread.sleep(200);
+    blobStore.indexCache.evictExpired();
+    awaitMemoryUsage(blobStore, 0);
+
+    // The first check finds the blobs empty, and the second finds them still empty. Only the blob
+    // of the object a stream has open is kept, and the one that never held a block goes too
+    blobStore.reclaimIdleBlobs();
+    assertEquals(3, blobStore.blobCount());
+    blobStore.reclaimIdleBlobs();
+    assertEquals(1, blobStore.blobCount());
+
+    // A blob taken again after being reclaimed is a new one, which reads the object again
+    Blob blob = blobStore.get(closedKey, objectMetadata, mock(OpenStreamInformation.class));
+    assertEquals(9, blob.read(data, 0, 9, 0));
+    assertEquals(TEST_DATA, new String(data, StandardCharsets.UTF_8));
+    assertEquals(2, blobStore.blobCount());
+    blobStore.close();
+  }
+
+  @Test
+  void testConcurrentGetsShareOneBlob() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Blob>> blobs = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        blobs.add(
+            executor.submit(
+                () -> blobStore.get(objectKey, objectMetadata, mock(OpenStreamInformation.class))));
+      }
+      Blob blob = blobs.get(0).get();
+      for (Future<Blob> other : blobs) {
+        assertSame(blob, other.get());
+      }
+      assertEquals(1, blobStore.blobCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void awaitMemoryUsage(BlobStore blobStore, long expected)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (blobStore.getMetrics().get(MetricKey.MEMORY_USAGE) != expected
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, blobStore.getMetrics().get(MetricKey.MEMORY_USAGE));
+  }
 }
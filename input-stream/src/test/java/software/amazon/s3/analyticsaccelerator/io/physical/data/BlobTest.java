@@ -23,6 +23,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import org.junit.jupiter.api.Test;
 import software.amazon.s3.analyticsaccelerator.TestTelemetry;
 import software.amazon.s3.analyticsaccelerator.common.Metrics;
@@ -33,6 +34,7 @@ import software.amazon.s3.analyticsaccelerator.io.physical.plan.IOPlanState;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
 import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
 import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
 import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
@@ -149,8 +151,7 @@ public class BlobTest {
 
     // Then: correct ranges are submitted
     assertEquals(SUBMITTED, execution.getState());
-    verify(blockManager).makeRangeAvailable(0, 101, ReadMode.COLUMN_PREFETCH);
-    verify(blockManager).makeRangeAvailable(999, 2, ReadMode.COLUMN_PREFETCH);
+    verify(blockManager).makeRangesAvailable(ranges, ReadMode.COLUMN_PREFETCH, null);
   }
 
   @Test
@@ -185,31 +186,59 @@ public class BlobTest {
   }
 
   @Test
-  public void testAsyncCleanupWithEmptyBlockStore() {
-    // Given: test blob with empty block store
+  public void testEvictHandsEvictedBlocksToBlockManager() {
+    // Given: test blob with blocks evicted from the index cache
     BlockManager blockManager = mock(BlockManager.class);
-    when(blockManager.isBlockStoreEmpty()).thenReturn(true);
     Blob blob = new Blob(objectKey, mockMetadataStore, blockManager, TestTelemetry.DEFAULT);
+    List<BlockKey> evicted =
+        Arrays.asList(
+            new BlockKey(objectKey, new Range(0, 99)),
+            new BlockKey(objectKey, new Range(100, 199)));
 
-    // When: asyncCleanup is called
-    blob.asyncCleanup();
+    // When: the evicted blocks are released
+    blob.evict(evicted);
 
-    // Then: cleanup is not called since store is empty
-    verify(blockManager, never()).cleanUp();
+    // Then: they are released together
+    verify(blockManager, times(1)).evict(evicted);
   }
 
   @Test
-  public void testAsyncCleanupWithNonEmptyBlockStore() {
-    // Given: test blob with non-empty block store
+  public void testEvictDoesNotWaitForReads() throws Exception {
+    // Given: test blob with a read in progress
     BlockManager blockManager = mock(BlockManager.class);
-    when(blockManager.isBlockStoreEmpty()).thenReturn(false);
     Blob blob = new Blob(objectKey, mockMetadataStore, blockManager, TestTelemetry.DEFAULT);
-
-    // When: asyncCleanup is called
-    blob.asyncCleanup();
-
-    // Then: cleanup is called
-    verify(blockManager, times(1)).cleanUp();
+    CountDownLatch readStarted = new CountDownLatch(1);
+    CountDownLatch readMayFinish = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              readStarted.countDown();
+              readMayFinish.await();
+              return null;
+            })
+        .when(blockManager)
+        .makePositionAvailable(anyLong(), any());
+    Thread reader =
+        new Thread(
+            () -> {
+              try {
+                blob.read(0);
+              } catch (Exception e) {
+                // The mocked block manager holds no block to read from
+              }
+            });
+    reader.start();
+    readStarted.await();
+    List<BlockKey> evicted = Collections.singletonList(new BlockKey(objectKey, new Range(0, 99)));
+
+    // When & Then: the evicted blocks are not released while the read is in progress
+    assertFalse(blob.evict(evicted));
+    verify(blockManager, never()).evict(any());
+
+    // When & Then: they are released once the read is done
+    readMayFinish.countDown();
+    reader.join();
+    assertTrue(blob.evict(evicted));
+    verify(blockManager, times(1)).evict(evicted);
   }
 
   @Test
@@ -247,7 +276,7 @@ public class BlobTest {
     BlockManager blockManager = mock(BlockManager.class);
     doThrow(new IOException("Simulated failure"))
         .when(blockManager)
-        .makeRangeAvailable(anyLong(), anyLong(), any(ReadMode.class));
+        .makeRangesAvailable(any(), any(ReadMode.class), any());
 
     Blob blob = new Blob(objectKey, mockMetadataStore, blockManager, TestTelemetry.DEFAULT);
     List<Range> ranges = Collections.singletonList(new Range(0, 100));
@@ -25,7 +25,9 @@ import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_MB;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
 import org.junit.jupiter.api.DisplayName;
@@ -39,6 +41,8 @@ import software.amazon.s3.analyticsaccelerator.common.Metrics;
 import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.*;
+import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
@@ -660,4 +664,396 @@ public class BlockManagerTest {
     verify(objectClient, times(0)).getObject(any(), any());
     assertFalse(blockManager.getBlock(0).isPresent());
   }
+
+  @Test
+  void testConcurrentReadersNeverFetchTheSameRangeTwice() throws Exception {
+    // Given: a large object, so the whole object is not prefetched up front
+    int objectSize = 16 * ONE_MB;
+    int readSize = 16 * ONE_KB;
+    StringBuilder content = new StringBuilder(objectSize);
+    for (int i = 0; i < objectSize; i++) {
+      content.append('a');
+    }
+    FakeObjectClient objectClient = new FakeObjectClient(content.toString());
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.DEFAULT,
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: several threads make the same ranges available, each in a different order
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int offset = t;
+      readers.add(
+          executor.submit(
+              () -> {
+                start.await();
+                int reads = objectSize / readSize;
+                for (int i = 0; i < reads; i++) {
+                  long pos = (long) ((i * 7 + offset) % reads) * readSize;
+                  blockManager.makeRangeAvailable(pos, readSize, ReadMode.SYNC);
+                  assertTrue(blockManager.getBlock(pos).isPresent());
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> reader : readers) {
+      reader.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then: the fetched ranges do not overlap
+    List<Range> requestedRanges = new ArrayList<>(objectClient.getRequestedRanges());
+    requestedRanges.sort((a, b) -> Long.compare(a.getStart(), b.getStart()));
+    for (int i = 1; i < requestedRanges.size(); i++) {
+      assertTrue(requestedRanges.get(i - 1).getEnd() < requestedRanges.get(i).getStart());
+    }
+  }
+
+  @Test
+  void testCloseRangesAreFetchedWithOneRequest() throws IOException {
+    // Given: an object that is not prefetched as a whole
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    Metrics metrics = new Metrics();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .readAheadBytes(ONE_KB)
+                .build(),
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: two ranges separated by a hole smaller than the coalescing gap are made available
+    List<Range> ranges = new ArrayList<>();
+    ranges.add(new Range(100 * ONE_KB, 100 * ONE_KB + 99));
+    ranges.add(new Range(0, 99));
+    blockManager.makeRangesAvailable(ranges, ReadMode.COLUMN_PREFETCH, null);
+
+    // Then: they are fetched with a single request that reads over the hole
+    assertEquals(1, objectClient.getGetRequestCount().get());
+    assertEquals(new Range(0, 100 * ONE_KB + 99), objectClient.getRequestedRanges().peek());
+    assertEquals(100 * ONE_KB - 100, metrics.get(MetricKey.OVER_READ_BYTES));
+  }
+
+  @Test
+  void testHolesWithCachedBytesAreNotReadOver() throws IOException {
+    // Given: an object with a cached block between two ranges
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    Metrics metrics = new Metrics();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .readAheadBytes(ONE_KB)
+                .build(),
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+    blockManager.makeRangeAvailable(50 * ONE_KB, 10, ReadMode.SYNC);
+
+    // When: ranges on either side of the cached block are made available
+    List<Range> ranges = new ArrayList<>();
+    ranges.add(new Range(0, 99));
+    ranges.add(new Range(100 * ONE_KB, 100 * ONE_KB + 99));
+    blockManager.makeRangesAvailable(ranges, ReadMode.COLUMN_PREFETCH, null);
+
+    // Then: each range is fetched on its own
+    assertEquals(3, objectClient.getGetRequestCount().get());
+    assertEquals(0, metrics.get(MetricKey.OVER_READ_BYTES));
+  }
+
+  @Test
+  void testReverseScanIsPrefetched() throws IOException {
+    // Given: an object read backwards, one kilobyte at a time
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    PhysicalIOConfiguration configuration =
+        PhysicalIOConfiguration.builder()
+            .smallObjectsPrefetchingEnabled(false)
+            .readAheadBytes(ONE_KB)
+            .build();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            configuration,
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+    PrefetchTracker prefetchTracker = new PrefetchTracker(configuration);
+
+    // When: the third read confirms the stride
+    blockManager.makeRangeAvailable(10 * ONE_KB, ONE_KB, ReadMode.SYNC, prefetchTracker);
+    blockManager.makeRangeAvailable(9 * ONE_KB, ONE_KB, ReadMode.SYNC, prefetchTracker);
+    blockManager.makeRangeAvailable(8 * ONE_KB, ONE_KB, ReadMode.SYNC, prefetchTracker);
+
+    // Then: the next read is prefetched
+    assertEquals(4, objectClient.getGetRequestCount().get());
+    assertTrue(blockManager.getBlock(7 * ONE_KB).isPresent());
+    assertEquals(ReadMode.STRIDE_PREFETCH, blockManager.getBlock(7 * ONE_KB).get().getReadMode());
+
+    // When: the prefetched read is served, the two following reads are prefetched with one request
+    blockManager.makeRangeAvailable(7 * ONE_KB, ONE_KB, ReadMode.SYNC, prefetchTracker);
+
+    // Then
+    assertEquals(5, objectClient.getGetRequestCount().get());
+    assertTrue(blockManager.getBlock(5 * ONE_KB).isPresent());
+    assertTrue(blockManager.getBlock(6 * ONE_KB).isPresent());
+  }
+
+  @Test
+  void testStreamsReadingTheSameObjectDetectStridesOnTheirOwn() throws IOException {
+    // Given: an object read backwards by one stream, while another stream reads it at random
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    PhysicalIOConfiguration configuration =
+        PhysicalIOConfiguration.builder()
+            .smallObjectsPrefetchingEnabled(false)
+            .readAheadBytes(ONE_KB)
+            .build();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            configuration,
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+    PrefetchTracker reverseScan = new PrefetchTracker(configuration);
+    PrefetchTracker randomReads = new PrefetchTracker(configuration);
+
+    // When: the reads of the two streams interleave
+    blockManager.makeRangeAvailable(10 * ONE_KB, ONE_KB, ReadMode.SYNC, reverseScan);
+    blockManager.makeRangeAvailable(500 * ONE_KB, ONE_KB, ReadMode.SYNC, randomReads);
+    blockManager.makeRangeAvailable(9 * ONE_KB, ONE_KB, ReadMode.SYNC, reverseScan);
+    blockManager.makeRangeAvailable(100 * ONE_KB, ONE_KB, ReadMode.SYNC, randomReads);
+    blockManager.makeRangeAvailable(8 * ONE_KB, ONE_KB, ReadMode.SYNC, reverseScan);
+
+    // Then: the stride of the reverse scan is detected, and its next read is prefetched
+    assertTrue(blockManager.getBlock(7 * ONE_KB).isPresent());
+    assertEquals(ReadMode.STRIDE_PREFETCH, blockManager.getBlock(7 * ONE_KB).get().getReadMode());
+    assertEquals(6, objectClient.getGetRequestCount().get());
+  }
+
+  @Test
+  void testReadsWithoutAStreamAreNotObserved() throws IOException {
+    // Given: an object read backwards, one kilobyte at a time, by reads that belong to no stream
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .readAheadBytes(ONE_KB)
+                .build(),
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When
+    blockManager.makeRangeAvailable(10 * ONE_KB, ONE_KB, ReadMode.SYNC);
+    blockManager.makeRangeAvailable(9 * ONE_KB, ONE_KB, ReadMode.SYNC);
+    blockManager.makeRangeAvailable(8 * ONE_KB, ONE_KB, ReadMode.SYNC);
+
+    // Then: nothing is prefetched, as there is no stream to cancel the prefetches
+    assertEquals(3, objectClient.getGetRequestCount().get());
+    assertFalse(blockManager.getBlock(7 * ONE_KB).isPresent());
+  }
+
+  @Test
+  void testBlockAlignedModeRoundsReadsToTheGrid() throws IOException {
+    // Given: a block manager aligning blocks to a grid of 4KB
+    int objectSize = 10 * ONE_KB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .readAheadBytes(100)
+                .blockSizeBytes(4 * ONE_KB)
+                .blockAlignmentEnabled(true)
+                .build(),
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: a read crossing a cell boundary, and one in the last, partial cell, are made available
+    blockManager.makeRangeAvailable(3 * ONE_KB, 2 * ONE_KB, ReadMode.SYNC);
+    blockManager.makeRangeAvailable(9 * ONE_KB, 10, ReadMode.SYNC);
+
+    // Then: whole cells are fetched, one block per cell
+    assertEquals(3, objectClient.getGetRequestCount().get());
+    assertEquals(new Range(0, 4 * ONE_KB - 1), getBlockRange(blockManager, 100));
+    assertEquals(new Range(4 * ONE_KB, 8 * ONE_KB - 1), getBlockRange(blockManager, 5 * ONE_KB));
+    assertEquals(new Range(8 * ONE_KB, objectSize - 1), getBlockRange(blockManager, 8 * ONE_KB));
+
+    // When: another read within the fetched cells is made available
+    blockManager.makeRangeAvailable(ONE_KB, 6 * ONE_KB, ReadMode.SYNC);
+
+    // Then: it is served by the existing blocks
+    assertEquals(3, objectClient.getGetRequestCount().get());
+  }
+
+  @Test
+  void testSpeculativeFetchesAreDegradedOrDroppedWithoutHeadroom() throws IOException {
+    // Given: a block manager with 200KB of memory, and reads that do not wait for headroom
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    Metrics metrics = new Metrics();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .memoryCapacityBytes(200 * ONE_KB)
+                .memoryReservationTimeoutMilliseconds(0)
+                .build(),
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: a prefetch larger than the headroom is made
+    blockManager.makeRangeAvailable(0, 512 * ONE_KB, ReadMode.ASYNC);
+
+    // Then: it is truncated to the headroom
+    assertEquals(new Range(0, 200 * ONE_KB - 1), getBlockRange(blockManager, 0));
+    assertFalse(blockManager.getBlock(200 * ONE_KB).isPresent());
+
+    // When: another prefetch is made with no headroom left
+    blockManager.makeRangeAvailable(600 * ONE_KB, 100 * ONE_KB, ReadMode.ASYNC);
+
+    // Then: it is dropped
+    assertFalse(blockManager.getBlock(600 * ONE_KB).isPresent());
+    assertEquals(412 * ONE_KB, metrics.get(MetricKey.PREFETCH_DROPPED_BYTES));
+
+    // When: a synchronous read is made with no headroom left
+    blockManager.makeRangeAvailable(800 * ONE_KB, 10, ReadMode.SYNC);
+
+    // Then: it goes over the capacity rather than fail
+    assertTrue(blockManager.getBlock(800 * ONE_KB).isPresent());
+    assertEquals(0, metrics.get(MetricKey.MEMORY_RESERVED));
+  }
+
+  @Test
+  void testSynchronousReadsDoNotWaitForHeadroomWhilePlanning() throws IOException {
+    // Given: a block manager whose memory is all taken, and reads that would wait a minute for it
+    int objectSize = ONE_MB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    Metrics metrics = new Metrics();
+    BlockManager blockManager =
+        new BlockManager(
+            ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+            objectClient,
+            ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder()
+                .smallObjectsPrefetchingEnabled(false)
+                .memoryCapacityBytes(1)
+                .memoryReservationTimeoutMilliseconds(60_000)
+                .build(),
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: a synchronous read is made available
+    long start = System.nanoTime();
+    blockManager.makeRangeAvailable(0, 10, ReadMode.SYNC);
+
+    // Then: it goes over the capacity straight away, waiting is left to callers holding no lock
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    assertTrue(blockManager.getBlock(0).isPresent());
+  }
+
+  @Test
+  void testTailOfHeadlessOpenIsKeptAsABlock() throws IOException {
+    // Given: a block manager, and the last 100 bytes of the object fetched by a HEAD-less open
+    int objectSize = ONE_KB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    BlockManager blockManager = getHeadlessOpenBlockManager(objectClient, objectSize);
+    byte[] tail = new byte[100];
+    Arrays.fill(tail, (byte) 7);
+
+    // When: the tail is added, and then read
+    blockManager.addTail(ObjectContent.builder().stream(new ByteArrayInputStream(tail)).build());
+    blockManager.makeRangeAvailable(objectSize - 100, 100, ReadMode.SYNC);
+
+    // Then: the read is served by the tail, without fetching it again
+    assertEquals(
+        new Range(objectSize - 100, objectSize - 1), getBlockRange(blockManager, objectSize - 1));
+    assertEquals(7, blockManager.getBlock(objectSize - 1).get().read(objectSize - 1));
+    assertEquals(0, objectClient.getGetRequestCount().get());
+  }
+
+  @Test
+  void testTailOfHeadlessOpenIsDiscardedWhenAlreadyPlanned() throws IOException {
+    // Given: a block manager that has fetched the end of the object already
+    int objectSize = ONE_KB;
+    FakeObjectClient objectClient = new FakeObjectClient(new String(new char[objectSize]));
+    BlockManager blockManager = getHeadlessOpenBlockManager(objectClient, objectSize);
+    blockManager.makeRangeAvailable(objectSize - 50, 50, ReadMode.SYNC);
+    InputStream tail = mock(InputStream.class);
+
+    // When: the tail is added
+    blockManager.addTail(ObjectContent.builder().stream(tail).build());
+
+    // Then: it is discarded rather than fetched twice
+    assertFalse(blockManager.getBlock(objectSize - 100).isPresent());
+    verify(tail).close();
+  }
+
+  private BlockManager getHeadlessOpenBlockManager(FakeObjectClient objectClient, int objectSize) {
+    return new BlockManager(
+        ObjectKey.builder().s3URI(testUri).etag(objectClient.getEtag()).build(),
+        objectClient,
+        ObjectMetadata.builder().contentLength(objectSize).etag(objectClient.getEtag()).build(),
+        TestTelemetry.DEFAULT,
+        PhysicalIOConfiguration.builder()
+            .smallObjectsPrefetchingEnabled(false)
+            .headlessOpenTailBytes(100)
+            .build(),
+        new Metrics(),
+        mock(BlobStoreIndexCache.class),
+        OpenStreamInformation.DEFAULT);
+  }
+
+  private static Range getBlockRange(BlockManager blockManager, long pos) {
+    return blockManager.getBlock(pos).get().getBlockKey().getRange();
+  }
 }
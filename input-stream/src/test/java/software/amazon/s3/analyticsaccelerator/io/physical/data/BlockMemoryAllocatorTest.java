@@ -0,0 +1,210 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+
+public class BlockMemoryAllocatorTest {
+  private static final int SLAB_SIZE = 16;
+
+  private static BlockMemoryAllocator offHeapAllocator(int slabCount) {
+    return new BlockMemoryAllocator(
+        PhysicalIOConfiguration.builder()
+            .offHeapMemoryEnabled(true)
+            .offHeapSlabSizeBytes(SLAB_SIZE)
+            .memoryCapacityBytes((long) slabCount * SLAB_SIZE)
+            .build());
+  }
+
+  private static byte[] testData(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 7);
+    }
+    return data;
+  }
+
+  @Test
+  void testConstructorThrowsOnNullConfiguration() {
+    assertThrows(NullPointerException.class, () -> new BlockMemoryAllocator(null));
+  }
+
+  @Test
+  void testHeapIsUsedWhenOffHeapMemoryIsDisabled() {
+    BlockMemoryAllocator allocator = new BlockMemoryAllocator(PhysicalIOConfiguration.DEFAULT);
+
+    BlockBuffer buffer = allocator.allocate(10 * 1024 * 1024);
+
+    assertInstanceOf(HeapBlockBuffer.class, buffer);
+    assertEquals(0, allocator.getAllocatedBytes());
+  }
+
+  @Test
+  void testBlocksSmallerThanSlabStayOnHeap() {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+
+    BlockBuffer buffer = allocator.allocate(SLAB_SIZE - 1);
+
+    assertInstanceOf(HeapBlockBuffer.class, buffer);
+    assertEquals(0, allocator.getAllocatedBytes());
+  }
+
+  @Test
+  void testSlabBufferRoundTripsDataAcrossSlabs() throws IOException {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+    byte[] data = testData(3 * SLAB_SIZE - 5);
+
+    BlockBuffer buffer = allocator.allocate(data.length);
+    assertInstanceOf(SlabBlockBuffer.class, buffer);
+    assertEquals(data.length, buffer.fill(new ByteArrayInputStream(data), length -> {}));
+
+    // Footprint is rounded up to whole slabs
+    assertEquals(3 * SLAB_SIZE, buffer.footprint());
+    assertEquals(data.length, buffer.length());
+
+    // Single bytes, including both sides of slab boundaries
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(Byte.toUnsignedInt(data[i]), buffer.get(i));
+    }
+
+    // Bulk read spanning all slabs, asking for more than is there
+    byte[] out = new byte[data.length + 10];
+    assertEquals(data.length - 3, buffer.get(3, out, 2, out.length - 2));
+    for (int i = 0; i < data.length - 3; i++) {
+      assertEquals(data[i + 3], out[i + 2]);
+    }
+  }
+
+  @Test
+  void testSlabBufferHandlesShortStreams() throws IOException {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+    byte[] data = testData(SLAB_SIZE + 2);
+
+    BlockBuffer buffer = allocator.allocate(2 * SLAB_SIZE);
+
+    assertEquals(data.length, buffer.fill(new ByteArrayInputStream(data), length -> {}));
+    assertEquals(data.length, buffer.length());
+    assertEquals(2, buffer.get(SLAB_SIZE, new byte[10], 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> buffer.get(data.length));
+  }
+
+  @Test
+  void testSlabBufferAppendsChunksAcrossSlabs() {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+    byte[] data = testData(2 * SLAB_SIZE + 3);
+
+    BlockBuffer buffer = allocator.allocate(data.length);
+    assertInstanceOf(SlabBlockBuffer.class, buffer);
+
+    // A heap chunk ending part way through the first slab, then a direct one spanning the rest
+    assertEquals(5, buffer.append(ByteBuffer.wrap(data, 0, 5)));
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    direct.put(data, 5, data.length - 5).flip();
+    assertEquals(data.length, buffer.append(direct));
+    assertFalse(direct.hasRemaining());
+
+    byte[] out = new byte[data.length];
+    assertEquals(data.length, buffer.get(0, out, 0, out.length));
+    assertArrayEquals(data, out);
+  }
+
+  @Test
+  void testAppendDropsBytesPastCapacity() {
+    BlockBuffer heap = BlockMemoryAllocator.HEAP.allocate(4);
+    BlockBuffer slabs = offHeapAllocator(4).allocate(SLAB_SIZE);
+    byte[] data = testData(SLAB_SIZE + 4);
+
+    assertEquals(4, heap.append(ByteBuffer.wrap(data)));
+    assertEquals(SLAB_SIZE, slabs.append(ByteBuffer.wrap(data)));
+    assertEquals(4, heap.append(ByteBuffer.wrap(data)));
+    assertEquals(Byte.toUnsignedInt(data[3]), heap.get(3));
+    assertEquals(Byte.toUnsignedInt(data[SLAB_SIZE - 1]), slabs.get(SLAB_SIZE - 1));
+  }
+
+  @Test
+  void testReleasedSlabsAreReused() {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+
+    BlockBuffer first = allocator.allocate(2 * SLAB_SIZE);
+    assertEquals(2 * SLAB_SIZE, allocator.getAllocatedBytes());
+    assertEquals(0, allocator.getPooledBytes());
+
+    first.close();
+    // Closing twice must not hand the slabs out twice
+    first.close();
+    assertEquals(2 * SLAB_SIZE, allocator.getPooledBytes());
+
+    BlockBuffer second = allocator.allocate(2 * SLAB_SIZE);
+    assertInstanceOf(SlabBlockBuffer.class, second);
+    assertEquals(2 * SLAB_SIZE, allocator.getAllocatedBytes());
+    assertEquals(0, allocator.getPooledBytes());
+  }
+
+  @Test
+  void testFallsBackToHeapWhenPoolIsExhausted() {
+    BlockMemoryAllocator allocator = offHeapAllocator(3);
+
+    BlockBuffer first = allocator.allocate(2 * SLAB_SIZE);
+    BlockBuffer second = allocator.allocate(2 * SLAB_SIZE);
+
+    assertInstanceOf(SlabBlockBuffer.class, first);
+    assertInstanceOf(HeapBlockBuffer.class, second);
+    assertEquals(3 * SLAB_SIZE, allocator.getAllocatedBytes());
+    // The slab taken for the failed allocation went back to the pool
+    assertEquals(SLAB_SIZE, allocator.getPooledBytes());
+
+    first.close();
+    assertInstanceOf(SlabBlockBuffer.class, allocator.allocate(3 * SLAB_SIZE));
+  }
+
+  @Test
+  void testSlabsIdleForAWholePeriodAreTrimmed() {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+    allocator.allocate(2 * SLAB_SIZE).close();
+
+    // The slabs have only just been returned, so they are kept for one more period
+    allocator.trimIdleSlabs();
+    assertEquals(2 * SLAB_SIZE, allocator.getPooledBytes());
+
+    allocator.trimIdleSlabs();
+    assertEquals(0, allocator.getPooledBytes());
+    assertEquals(0, allocator.getAllocatedBytes());
+
+    // The pool grows back when needed
+    assertInstanceOf(SlabBlockBuffer.class, allocator.allocate(4 * SLAB_SIZE));
+    assertEquals(4 * SLAB_SIZE, allocator.getAllocatedBytes());
+  }
+
+  @Test
+  void testSlabsInUseDuringAPeriodAreNotTrimmed() {
+    BlockMemoryAllocator allocator = offHeapAllocator(4);
+    allocator.allocate(2 * SLAB_SIZE).close();
+    allocator.trimIdleSlabs();
+
+    // One of the two pooled slabs is used during the period
+    allocator.allocate(SLAB_SIZE).close();
+    allocator.trimIdleSlabs();
+
+    assertEquals(SLAB_SIZE, allocator.getPooledBytes());
+    assertEquals(SLAB_SIZE, allocator.getAllocatedBytes());
+  }
+}
@@ -20,9 +20,12 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.concurrent.*;
@@ -213,6 +216,139 @@ public class BlockStoreTest {
     assertEquals(OptionalLong.of(15), blockStore.findNextLoadedByte(15));
   }
 
+  @SneakyThrows
+  @Test
+  public void test__blockStore__lookupsStayConsistentAfterCleanUp() {
+    // Given: BlockStore with blocks (0,9), (10,19), ..., (90,99)
+    FakeObjectClient fakeObjectClient =
+        new FakeObjectClient(new String(new byte[OBJECT_SIZE], StandardCharsets.UTF_8));
+    ObjectMetadata mockMetadataStore =
+        ObjectMetadata.builder().contentLength(OBJECT_SIZE).etag(ETAG).build();
+    BlobStoreIndexCache indexCache = mock(BlobStoreIndexCache.class);
+    BlockStore blockStore =
+        new BlockStore(objectKey, mockMetadataStore, mock(Metrics.class), indexCache);
+    for (int start = 0; start < OBJECT_SIZE; start += 10) {
+      BlockKey blockKey = new BlockKey(objectKey, new Range(start, start + 9));
+      when(indexCache.contains(blockKey)).thenReturn(start != 50);
+      blockStore.add(
+          blockKey,
+          new Block(
+              blockKey,
+              fakeObjectClient,
+              TestTelemetry.DEFAULT,
+              0,
+              ReadMode.SYNC,
+              DEFAULT_READ_TIMEOUT,
+              DEFAULT_READ_RETRY_COUNT,
+              mock(Metrics.class),
+              indexCache,
+              OpenStreamInformation.DEFAULT));
+    }
+    assertEquals(OptionalLong.empty(), blockStore.findNextMissingByte(0));
+
+    // When: the block (50,59) is no longer in the index cache and is cleaned up
+    blockStore.cleanUp();
+
+    // Then: lookups, gap finding and planning all see the hole
+    assertFalse(blockStore.getBlock(55).isPresent());
+    assertEquals(40, blockStore.getBlock(49).get().getBlockKey().getRange().getStart());
+    assertEquals(60, blockStore.getBlock(60).get().getBlockKey().getRange().getStart());
+    assertEquals(OptionalLong.of(50), blockStore.findNextMissingByte(0));
+    assertEquals(OptionalLong.of(60), blockStore.findNextLoadedByte(50));
+    assertEquals(
+        Collections.singletonList(new Range(50, 59)),
+        new IOPlanner(blockStore).planRead(0, OBJECT_SIZE - 1, OBJECT_SIZE - 1));
+  }
+
+  @SneakyThrows
+  @Test
+  public void test__blockStore__dropBeforeReleasesBlocksBehindPosition() {
+    // Given: BlockStore with blocks (0,9), (10,19), ..., (90,99)
+    FakeObjectClient fakeObjectClient =
+        new FakeObjectClient(new String(new byte[OBJECT_SIZE], StandardCharsets.UTF_8));
+    ObjectMetadata mockMetadataStore =
+        ObjectMetadata.builder().contentLength(OBJECT_SIZE).etag(ETAG).build();
+    BlobStoreIndexCache indexCache = mock(BlobStoreIndexCache.class);
+    Metrics metrics = new Metrics();
+    BlockStore blockStore = new BlockStore(objectKey, mockMetadataStore, metrics, indexCache);
+    for (int start = 0; start < OBJECT_SIZE; start += 10) {
+      BlockKey blockKey = new BlockKey(objectKey, new Range(start, start + 9));
+      metrics.add(MetricKey.MEMORY_USAGE, 10);
+      blockStore.add(
+          blockKey,
+          new Block(
+              blockKey,
+              fakeObjectClient,
+              TestTelemetry.DEFAULT,
+              0,
+              ReadMode.SYNC,
+              DEFAULT_READ_TIMEOUT,
+              DEFAULT_READ_RETRY_COUNT,
+              mock(Metrics.class),
+              indexCache,
+              OpenStreamInformation.DEFAULT));
+    }
+    assertTrue(blockStore.hasBlocksBefore(35));
+
+    // When: a reader has reached position 35
+    blockStore.dropBefore(35);
+
+    // Then: only the blocks that end before it are released, along with their index entries
+    assertFalse(blockStore.hasBlocksBefore(35));
+    assertTrue(blockStore.hasBlocksBefore(40));
+    assertFalse(blockStore.getBlock(29).isPresent());
+    assertTrue(blockStore.getBlock(30).isPresent());
+    assertEquals(70, metrics.get(MetricKey.MEMORY_USAGE));
+    verify(indexCache).invalidate(new BlockKey(objectKey, new Range(0, 9)));
+    verify(indexCache).invalidate(new BlockKey(objectKey, new Range(20, 29)));
+    verify(indexCache, times(0)).invalidate(new BlockKey(objectKey, new Range(30, 39)));
+  }
+
+  @SneakyThrows
+  @Test
+  public void test__blockStore__evictReleasesBlocksNoLongerInIndexCache() {
+    // Given: BlockStore with blocks (0,9), (10,19), ..., (90,99)
+    FakeObjectClient fakeObjectClient =
+        new FakeObjectClient(new String(new byte[OBJECT_SIZE], StandardCharsets.UTF_8));
+    ObjectMetadata mockMetadataStore =
+        ObjectMetadata.builder().contentLength(OBJECT_SIZE).etag(ETAG).build();
+    BlobStoreIndexCache indexCache = mock(BlobStoreIndexCache.class);
+    Metrics metrics = new Metrics();
+    BlockStore blockStore = new BlockStore(objectKey, mockMetadataStore, metrics, indexCache);
+    for (int start = 0; start < OBJECT_SIZE; start += 10) {
+      BlockKey blockKey = new BlockKey(objectKey, new Range(start, start + 9));
+      when(indexCache.contains(blockKey)).thenReturn(start != 50);
+      metrics.add(MetricKey.MEMORY_USAGE, 10);
+      blockStore.add(
+          blockKey,
+          new Block(
+              blockKey,
+              fakeObjectClient,
+              TestTelemetry.DEFAULT,
+              0,
+              ReadMode.SYNC,
+              DEFAULT_READ_TIMEOUT,
+              DEFAULT_READ_RETRY_COUNT,
+              mock(Metrics.class),
+              indexCache,
+              OpenStreamInformation.DEFAULT));
+    }
+    for (int start = 0; start < OBJECT_SIZE; start += 10) {
+      blockStore.getBlock(start).get().read(start);
+    }
+
+    // When: the blocks (50,59) and (60,69) are reported evicted, but (60,69) is back in the cache
+    blockStore.evict(
+        Arrays.asList(
+            new BlockKey(objectKey, new Range(50, 59)),
+            new BlockKey(objectKey, new Range(60, 69))));
+
+    // Then: only the block that is still evicted is released
+    assertFalse(blockStore.getBlock(55).isPresent());
+    assertTrue(blockStore.getBlock(65).isPresent());
+    assertEquals(90, metrics.get(MetricKey.MEMORY_USAGE));
+  }
+
   @Test
   public void test__blockStore__closesBlocks() {
     // Given: BlockStore with a block
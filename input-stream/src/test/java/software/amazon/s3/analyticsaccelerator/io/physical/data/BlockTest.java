@@ -19,9 +19,14 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -29,6 +34,8 @@ import software.amazon.s3.analyticsaccelerator.TestTelemetry;
 import software.amazon.s3.analyticsaccelerator.common.Metrics;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
 import software.amazon.s3.analyticsaccelerator.request.Range;
 import software.amazon.s3.analyticsaccelerator.request.ReadMode;
 import software.amazon.s3.analyticsaccelerator.util.*;
@@ -92,21 +99,22 @@ public class BlockTest {
             mockIndexCache,
             OpenStreamInformation.DEFAULT);
 
-    // Test when data is not in cache
-    when(mockIndexCache.contains(blockKey)).thenReturn(false);
+    int length = blockKey.getRange().getLength();
+
+    // Test when data is in cache
     int result = block.read(0);
 
-    // Verify
-    verify(mockIndexCache, times(2)).put(blockKey, blockKey.getRange().getLength());
-    verify(mockIndexCache, times(0)).getIfPresent(blockKey);
+    // Verify: the block was put in the cache once fetched, and its access is recorded
+    verify(mockIndexCache, times(1)).put(blockKey, length, CacheEntryClass.DATA);
+    verify(mockIndexCache).recordAccess(blockKey, length, CacheEntryClass.DATA);
     assertEquals(Byte.toUnsignedInt(testData[0]), result);
 
-    // Test when data is in cache
-    when(mockIndexCache.contains(blockKey)).thenReturn(true);
+    // Test when data is not in cache anymore
+    mockIndexCache.cleanUp();
     result = block.read(1);
 
-    // Verify
-    verify(mockIndexCache).getIfPresent(blockKey);
+    // Verify: the block is put back in the cache
+    verify(mockIndexCache, times(2)).put(blockKey, length, CacheEntryClass.DATA);
     assertEquals(Byte.toUnsignedInt(testData[1]), result);
   }
 
@@ -420,4 +428,261 @@ public class BlockTest {
     block.close();
     block.close();
   }
+
+  @SneakyThrows
+  @Test
+  void testReadIsServedWhileBlockIsStillFilling() {
+    // Given: a response that delivers the first half of the block, then stalls
+    byte[] data = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    int half = data.length / 2;
+    CountDownLatch restOfBody = new CountDownLatch(1);
+    InputStream stallingStream =
+        new InputStream() {
+          private int position = 0;
+
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            if (position == data.length) {
+              return -1;
+            }
+            if (position == half) {
+              try {
+                restOfBody.await();
+              } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+              }
+            }
+            int bytesRead = Math.min(len, (position < half ? half : data.length) - position);
+            System.arraycopy(data, position, b, off, bytesRead);
+            position += bytesRead;
+            return bytesRead;
+          }
+
+          @Override
+          public int read() {
+            throw new UnsupportedOperationException();
+          }
+        };
+
+    CompletableFuture<ObjectContent> response = new CompletableFuture<>();
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any())).thenReturn(response);
+    Metrics metrics = new Metrics();
+    Block block =
+        new Block(
+            new BlockKey(objectKey, new Range(0, data.length - 1)),
+            objectClient,
+            TestTelemetry.DEFAULT,
+            0,
+            ReadMode.SEQUENTIAL_FILE_PREFETCH,
+            DEFAULT_READ_TIMEOUT,
+            DEFAULT_READ_RETRY_COUNT,
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // The response arrives on another thread, which then fills the block
+    Thread responseThread =
+        new Thread(() -> response.complete(ObjectContent.builder().stream(stallingStream).build()));
+    responseThread.start();
+
+    // When: reading bytes from the first half
+    byte[] buf = new byte[4];
+    assertEquals(4, block.read(buf, 0, 4, 2));
+    assertEquals('0', block.read(0));
+
+    // Then: reads are served without waiting for the rest of the block
+    assertArrayEquals("2345".getBytes(StandardCharsets.UTF_8), buf);
+    assertFalse(block.isDataLoaded());
+    assertEquals(2, metrics.get(MetricKey.PARTIAL_BLOCK_READ));
+
+    // When: the rest of the block arrives, reads past the first half complete too
+    restOfBody.countDown();
+    assertEquals(4, block.read(buf, 0, 4, 12));
+    assertArrayEquals("cdef".getBytes(StandardCharsets.UTF_8), buf);
+
+    responseThread.join();
+  }
+
+  @Test
+  void testCancelledSpeculativeBlockIsFetchedAgainWhenRead() throws IOException {
+    // Given: a prefetched block whose first request does not respond
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any()))
+        .thenReturn(new CompletableFuture<>())
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ObjectContent.builder()
+                    .stream(new ByteArrayInputStream(TEST_DATA_BYTES))
+                    .build()));
+    Metrics metrics = new Metrics();
+    Block block =
+        new Block(
+            new BlockKey(objectKey, new Range(0, TEST_DATA_BYTES.length - 1)),
+            objectClient,
+            TestTelemetry.DEFAULT,
+            0,
+            ReadMode.ASYNC,
+            DEFAULT_READ_TIMEOUT,
+            DEFAULT_READ_RETRY_COUNT,
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: the prefetch is cancelled
+    assertTrue(block.cancelSpeculativeFetch());
+    assertFalse(block.cancelSpeculativeFetch());
+
+    // Then: the bytes it did not fetch are reported
+    assertEquals(TEST_DATA_BYTES.length, metrics.get(MetricKey.PREFETCH_CANCELLED_BYTES));
+    assertEquals(0, metrics.get(MetricKey.PREFETCH_WASTED_BYTES));
+
+    // When: the block is read anyway, its data is fetched again
+    assertEquals('t', block.read(0));
+    verify(objectClient, times(2)).getObject(any(), any());
+  }
+
+  @Test
+  void testClosedBlockIsNotFetchedAgain() throws IOException {
+    // Given: a prefetched block whose request does not respond
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any())).thenReturn(new CompletableFuture<>());
+    Block block =
+        new Block(
+            new BlockKey(objectKey, new Range(0, TEST_DATA_BYTES.length - 1)),
+            objectClient,
+            TestTelemetry.DEFAULT,
+            0,
+            ReadMode.ASYNC,
+            DEFAULT_READ_TIMEOUT,
+            DEFAULT_READ_RETRY_COUNT,
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    // When: the block is closed, and read from after that
+    block.close();
+
+    // Then: the read fails rather than fetching data nothing would release
+    assertThrows(IOException.class, () -> block.read(0));
+    assertFalse(block.cancelSpeculativeFetch());
+    verify(objectClient, times(1)).getObject(any(), any());
+  }
+
+  @Test
+  void testSyncBlockCannotBeCancelled() throws IOException {
+    Block block =
+        new Block(
+            new BlockKey(objectKey, new Range(0, TEST_DATA_BYTES.length - 1)),
+            new FakeObjectClient("test-data"),
+            TestTelemetry.DEFAULT,
+            0,
+            ReadMode.SYNC,
+            DEFAULT_READ_TIMEOUT,
+            DEFAULT_READ_RETRY_COUNT,
+            mock(Metrics.class),
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+
+    assertFalse(block.isSpeculative());
+    assertFalse(block.cancelSpeculativeFetch());
+  }
+
+  @SneakyThrows
+  @Test
+  void testNonBlockingIngestionServesReadsAsChunksArrive() {
+    // Given: an object client that hands the response over chunk by chunk
+    byte[] data = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    int half = data.length / 2;
+    CompletableFuture<Void> response = new CompletableFuture<>();
+    AtomicReference<ObjectContentSink> sink = new AtomicReference<>();
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              sink.set(invocation.getArgument(2));
+              return response;
+            });
+    Metrics metrics = new Metrics();
+    Block block = nonBlockingBlock(objectClient, data.length, DEFAULT_READ_TIMEOUT, metrics);
+
+    // When: the first half of the body arrives
+    sink.get().onResponse();
+    sink.get().onChunk(ByteBuffer.wrap(data, 0, half));
+
+    // Then: reads of the first half are served without waiting for the rest of the block
+    byte[] buf = new byte[4];
+    assertEquals(4, block.read(buf, 0, 4, 2));
+    assertArrayEquals("2345".getBytes(StandardCharsets.UTF_8), buf);
+    assertFalse(block.isDataLoaded());
+    assertEquals(1, metrics.get(MetricKey.PARTIAL_BLOCK_READ));
+
+    // When: the rest of the body arrives and the request completes
+    sink.get().onChunk(ByteBuffer.wrap(data, half, data.length - half));
+    response.complete(null);
+
+    // Then: the block is loaded, without a stream ever having been asked for
+    assertEquals(4, block.read(buf, 0, 4, 12));
+    assertArrayEquals("cdef".getBytes(StandardCharsets.UTF_8), buf);
+    assertTrue(block.isDataLoaded());
+    assertEquals(data.length, metrics.get(MetricKey.MEMORY_USAGE));
+    verify(objectClient, never()).getObject(any(), any());
+  }
+
+  @Test
+  void testNonBlockingIngestionFallsBackToStreamOfObjectClient() throws IOException {
+    Block block =
+        nonBlockingBlock(
+            new FakeObjectClient("test-data"),
+            TEST_DATA_BYTES.length,
+            DEFAULT_READ_TIMEOUT,
+            mock(Metrics.class));
+
+    byte[] buf = new byte[TEST_DATA_BYTES.length];
+    assertEquals(TEST_DATA_BYTES.length, block.read(buf, 0, buf.length, 0));
+    assertArrayEquals(TEST_DATA_BYTES, buf);
+  }
+
+  @Test
+  void testNonBlockingIngestionTimesOutAndAbortsTheRequest() throws IOException {
+    // Given: a response that stalls after its first chunk
+    CompletableFuture<Void> response = new CompletableFuture<>();
+    AtomicReference<ObjectContentSink> sink = new AtomicReference<>();
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              sink.set(invocation.getArgument(2));
+              return response;
+            });
+    Block block = nonBlockingBlock(objectClient, TEST_DATA_BYTES.length, 50, mock(Metrics.class));
+    sink.get().onResponse();
+    sink.get().onChunk(ByteBuffer.wrap(TEST_DATA_BYTES, 0, 4));
+
+    // When: the read timeout elapses, the read fails and the request is cancelled
+    assertThrows(IOException.class, () -> block.read(TEST_DATA_BYTES.length - 1));
+    assertTrue(response.isCancelled());
+
+    // Then: chunks still arriving are refused
+    assertThrows(
+        CancellationException.class,
+        () -> sink.get().onChunk(ByteBuffer.wrap(TEST_DATA_BYTES, 4, 4)));
+  }
+
+  private static Block nonBlockingBlock(
+      ObjectClient objectClient, int length, long readTimeout, Metrics metrics)
+      throws IOException {
+    return Block.builder()
+        .blockKey(new BlockKey(objectKey, new Range(0, length - 1)))
+        .objectClient(objectClient)
+        .telemetry(TestTelemetry.DEFAULT)
+        .readMode(ReadMode.SYNC)
+        .readTimeout(readTimeout)
+        .readRetryCount(1)
+        .aggregatingMetrics(metrics)
+        .indexCache(mock(BlobStoreIndexCache.class))
+        .openStreamInformation(OpenStreamInformation.DEFAULT)
+        .nonBlockingIngestion(true)
+        .build();
+  }
 }
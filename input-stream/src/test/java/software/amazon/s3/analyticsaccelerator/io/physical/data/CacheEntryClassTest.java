@@ -0,0 +1,53 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+public class CacheEntryClassTest {
+
+  @Test
+  void testFootersAndDictionariesAreMetadata() {
+    assertEquals(
+        CacheEntryClass.METADATA, CacheEntryClass.of(ReadMode.PREFETCH_TAIL, false, false));
+    assertEquals(
+        CacheEntryClass.METADATA, CacheEntryClass.of(ReadMode.DICTIONARY_PREFETCH, false, true));
+  }
+
+  @Test
+  void testUnreadSpeculativeBlocksArePrefetches() {
+    assertEquals(
+        CacheEntryClass.PREFETCH, CacheEntryClass.of(ReadMode.COLUMN_PREFETCH, true, false));
+    assertEquals(CacheEntryClass.PREFETCH, CacheEntryClass.of(ReadMode.SYNC, true, false));
+  }
+
+  @Test
+  void testReadOrRequestedBlocksAreData() {
+    assertEquals(CacheEntryClass.DATA, CacheEntryClass.of(ReadMode.COLUMN_PREFETCH, true, true));
+    assertEquals(CacheEntryClass.DATA, CacheEntryClass.of(ReadMode.SYNC, false, false));
+  }
+
+  @Test
+  void testEveryClassHasItsOwnMetrics() {
+    assertEquals(MetricKey.CACHE_HIT_METADATA, CacheEntryClass.METADATA.getHitKey());
+    assertEquals(MetricKey.CACHE_MISS_DATA, CacheEntryClass.DATA.getMissKey());
+    assertEquals(MetricKey.CACHE_HIT_PREFETCH, CacheEntryClass.PREFETCH.getHitKey());
+  }
+}
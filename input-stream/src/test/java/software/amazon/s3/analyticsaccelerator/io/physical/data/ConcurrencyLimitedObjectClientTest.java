@@ -0,0 +1,356 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.exceptions.ExceptionHandler;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.GetRequest;
+import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.request.Referrer;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+public class ConcurrencyLimitedObjectClientTest {
+  private static final S3URI TEST_URI = S3URI.of("foo", "bar");
+  private static final ObjectMetadata METADATA =
+      ObjectMetadata.builder().contentLength(1).etag("etag").build();
+
+  private static PhysicalIOConfiguration config(int min, int initial, int max) {
+    return PhysicalIOConfiguration.builder()
+        .concurrencyLimitEnabled(true)
+        .concurrencyLimitMin(min)
+        .concurrencyLimitInitial(initial)
+        .concurrencyLimitMax(max)
+        .concurrencyLimitBackoffRatio(0.5)
+        .build();
+  }
+
+  private static GetRequest getRequest(ReadMode readMode) {
+    return GetRequest.builder()
+        .s3Uri(TEST_URI)
+        .range(new Range(0, 0))
+        .etag("etag")
+        .referrer(new Referrer("bytes=0-0", readMode))
+        .build();
+  }
+
+  private static CompletableFuture<ObjectMetadata> head(ObjectClient objectClient) {
+    return objectClient.headObject(
+        HeadRequest.builder().s3Uri(TEST_URI).build(), OpenStreamInformation.DEFAULT);
+  }
+
+  private static CompletableFuture<ObjectContent> get(ObjectClient objectClient, ReadMode mode) {
+    return objectClient.getObject(getRequest(mode), OpenStreamInformation.DEFAULT);
+  }
+
+  private static ObjectContent content() {
+    return ObjectContent.builder().stream(new ByteArrayInputStream(new byte[1])).build();
+  }
+
+  private static Throwable slowDown() {
+    return new CompletionException(
+        ExceptionHandler.toIOException(
+            S3Exception.builder()
+                .statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                .build(),
+            TEST_URI));
+  }
+
+  @Test
+  void testDisabledLimitPassesRequestsThrough() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, PhysicalIOConfiguration.DEFAULT, metrics);
+
+    CompletableFuture<ObjectContent> response = get(objectClient, ReadMode.ASYNC);
+
+    assertSame(pending.gets.get(0), response);
+    assertEquals(0, metrics.get(MetricKey.CONCURRENCY_LIMIT));
+  }
+
+  @Test
+  @SneakyThrows
+  void testRequestsOverTheLimitWaitForAStreamToBeClosed() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(2, 2, 2), metrics);
+
+    CompletableFuture<ObjectContent> first = get(objectClient, ReadMode.SYNC);
+    get(objectClient, ReadMode.SYNC);
+    CompletableFuture<ObjectContent> third = get(objectClient, ReadMode.SYNC);
+
+    assertEquals(2, pending.gets.size());
+    assertEquals(1, metrics.get(MetricKey.REQUEST_QUEUE_DEPTH));
+    assertEquals(2, metrics.get(MetricKey.CONCURRENCY_LIMIT));
+
+    // A response frees its place once its stream is done with, not when it arrives
+    pending.gets.get(0).complete(content());
+    assertEquals(2, pending.gets.size());
+    try (InputStream stream = first.join().getStream()) {
+      assertEquals(0, stream.read());
+    }
+    assertEquals(3, pending.gets.size());
+    assertEquals(0, metrics.get(MetricKey.REQUEST_QUEUE_DEPTH));
+
+    pending.gets.get(2).complete(content());
+    assertNotNull(third.join().getStream());
+  }
+
+  @Test
+  @SneakyThrows
+  void testSynchronousReadsAreGrantedBeforeSpeculativeOnes() {
+    PendingObjectClient pending = new PendingObjectClient();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 1, 1), new Metrics());
+
+    head(objectClient);
+    List<CompletableFuture<ObjectContent>> responses = new ArrayList<>();
+    responses.add(get(objectClient, ReadMode.SEQUENTIAL_FILE_PREFETCH));
+    responses.add(get(objectClient, ReadMode.READ_VECTORED));
+    responses.add(get(objectClient, ReadMode.SYNC));
+    assertTrue(pending.gets.isEmpty());
+
+    // Each read is sent once the stream of the one before it is closed
+    pending.heads.get(0).complete(METADATA);
+    for (int i = 0; i < responses.size(); i++) {
+      assertEquals(i + 1, pending.gets.size());
+      pending.gets.get(i).complete(content());
+      responses.get(responses.size() - 1 - i).join().getStream().close();
+    }
+    assertEquals(ReadMode.SYNC, pending.readModes.get(0));
+    assertEquals(ReadMode.READ_VECTORED, pending.readModes.get(1));
+    assertEquals(ReadMode.SEQUENTIAL_FILE_PREFETCH, pending.readModes.get(2));
+  }
+
+  @Test
+  void testPriorityFollowsTheReadMode() {
+    assertEquals(ConcurrencyLimiter.PRIORITY_SYNC, ConcurrencyLimiter.priorityOf(ReadMode.SYNC));
+    assertEquals(
+        ConcurrencyLimiter.PRIORITY_DEFAULT, ConcurrencyLimiter.priorityOf(ReadMode.READ_VECTORED));
+    assertEquals(ConcurrencyLimiter.PRIORITY_DEFAULT, ConcurrencyLimiter.priorityOf(null));
+    assertEquals(
+        ConcurrencyLimiter.PRIORITY_SPECULATIVE,
+        ConcurrencyLimiter.priorityOf(ReadMode.COLUMN_PREFETCH));
+  }
+
+  @Test
+  void testThrottlingBacksTheLimitOffOncePerBurst() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 8, 8), metrics);
+
+    CompletableFuture<ObjectMetadata> first = head(objectClient);
+    CompletableFuture<ObjectMetadata> second = head(objectClient);
+    pending.heads.get(0).completeExceptionally(slowDown());
+    pending.heads.get(1).completeExceptionally(slowDown());
+
+    assertThrows(CompletionException.class, first::join);
+    assertThrows(CompletionException.class, second::join);
+    // Both were sent before the first back off, so only the first one counts
+    assertEquals(4, objectClient.getConcurrencyLimit());
+    assertEquals(4, metrics.get(MetricKey.CONCURRENCY_LIMIT));
+    assertEquals(2, metrics.get(MetricKey.THROTTLED_REQUEST_COUNT));
+
+    head(objectClient);
+    pending.heads.get(2).completeExceptionally(slowDown());
+    assertEquals(2, objectClient.getConcurrencyLimit());
+
+    // Never below the minimum
+    for (int i = 3; i < 6; i++) {
+      head(objectClient);
+      pending.heads.get(i).completeExceptionally(slowDown());
+    }
+    assertEquals(1, objectClient.getConcurrencyLimit());
+  }
+
+  @Test
+  void testFailuresThatAreNotThrottlingLeaveTheLimit() {
+    PendingObjectClient pending = new PendingObjectClient();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 8, 8), new Metrics());
+
+    head(objectClient);
+    pending.heads.get(0).completeExceptionally(new CompletionException(new RuntimeException()));
+
+    assertEquals(8, objectClient.getConcurrencyLimit());
+  }
+
+  @Test
+  @SneakyThrows
+  void testSlowResponsesBackTheLimitOff() {
+    PendingObjectClient pending = new PendingObjectClient();
+    PhysicalIOConfiguration configuration =
+        config(1, 8, 8).toBuilder().concurrencyLimitLatencyMilliseconds(1).build();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, configuration, new Metrics());
+
+    CompletableFuture<ObjectMetadata> response = head(objectClient);
+    Thread.sleep(10);
+    pending.heads.get(0).complete(METADATA);
+
+    assertSame(METADATA, response.join());
+    assertEquals(4, objectClient.getConcurrencyLimit());
+  }
+
+  @Test
+  void testQuickResponsesGrowTheLimitUpToTheMaximum() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 1, 2), metrics);
+
+    head(objectClient);
+    pending.heads.get(0).complete(METADATA);
+    assertEquals(2, objectClient.getConcurrencyLimit());
+    assertEquals(2, metrics.get(MetricKey.CONCURRENCY_LIMIT));
+
+    for (int i = 1; i < 10; i++) {
+      head(objectClient);
+      head(objectClient);
+      pending.heads.get(2 * i - 1).complete(METADATA);
+      pending.heads.get(2 * i).complete(METADATA);
+    }
+    assertEquals(2, objectClient.getConcurrencyLimit());
+  }
+
+  @Test
+  void testCancellingAQueuedRequestGivesUpItsPlace() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 1, 1), metrics);
+
+    CompletableFuture<ObjectContent> sent = get(objectClient, ReadMode.SYNC);
+    CompletableFuture<ObjectContent> queued = get(objectClient, ReadMode.ASYNC);
+    assertEquals(1, metrics.get(MetricKey.REQUEST_QUEUE_DEPTH));
+
+    queued.cancel(false);
+    assertEquals(0, metrics.get(MetricKey.REQUEST_QUEUE_DEPTH));
+
+    // Cancelling a sent request cancels it in the wrapped client, which frees its place
+    sent.cancel(false);
+    assertTrue(pending.gets.get(0).isCancelled());
+    get(objectClient, ReadMode.SYNC);
+    assertEquals(2, pending.gets.size());
+  }
+
+  @Test
+  void testSinkGetsHoldTheirPlaceUntilTheBodyHasArrived() {
+    PendingObjectClient pending = new PendingObjectClient();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 1, 1), new Metrics());
+    List<ByteBuffer> chunks = new ArrayList<>();
+
+    CompletableFuture<Void> first =
+        objectClient.getObject(
+            getRequest(ReadMode.SYNC), OpenStreamInformation.DEFAULT, chunks::add);
+    get(objectClient, ReadMode.SYNC);
+
+    pending.sinks.get(0).onResponse();
+    pending.sinks.get(0).onChunk(ByteBuffer.wrap(new byte[1]));
+    assertEquals(1, chunks.size());
+    assertTrue(pending.gets.isEmpty());
+
+    pending.sinkGets.get(0).complete(null);
+    first.join();
+    assertEquals(1, pending.gets.size());
+  }
+
+  @Test
+  void testClosingFailsQueuedRequests() {
+    PendingObjectClient pending = new PendingObjectClient();
+    Metrics metrics = new Metrics();
+    ConcurrencyLimitedObjectClient objectClient =
+        new ConcurrencyLimitedObjectClient(pending, config(1, 1, 1), metrics);
+
+    head(objectClient);
+    CompletableFuture<ObjectMetadata> queued = head(objectClient);
+    objectClient.close();
+
+    assertThrows(CompletionException.class, queued::join);
+    assertThrows(CompletionException.class, () -> head(objectClient).join());
+    assertEquals(0, metrics.get(MetricKey.REQUEST_QUEUE_DEPTH));
+    assertFalse(pending.closed);
+  }
+
+  /** Object client whose responses are completed by the test */
+  private static class PendingObjectClient implements ObjectClient {
+    private final List<CompletableFuture<ObjectMetadata>> heads = new ArrayList<>();
+    private final List<CompletableFuture<ObjectContent>> gets = new ArrayList<>();
+    private final List<ReadMode> readModes = new ArrayList<>();
+    private final List<CompletableFuture<Void>> sinkGets = new ArrayList<>();
+    private final List<ObjectContentSink> sinks = new ArrayList<>();
+    private boolean closed;
+
+    @Override
+    public CompletableFuture<ObjectMetadata> headObject(
+        HeadRequest headRequest, OpenStreamInformation openStreamInformation) {
+      CompletableFuture<ObjectMetadata> response = new CompletableFuture<>();
+      heads.add(response);
+      return response;
+    }
+
+    @Override
+    public CompletableFuture<ObjectContent> getObject(
+        GetRequest getRequest, OpenStreamInformation openStreamInformation) {
+      CompletableFuture<ObjectContent> response = new CompletableFuture<>();
+      gets.add(response);
+      readModes.add(getRequest.getReferrer().getReadMode());
+      return response;
+    }
+
+    @Override
+    public CompletableFuture<Void> getObject(
+        GetRequest getRequest,
+        OpenStreamInformation openStreamInformation,
+        ObjectContentSink sink) {
+      CompletableFuture<Void> response = new CompletableFuture<>();
+      sinkGets.add(response);
+      sinks.add(sink);
+      return response;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
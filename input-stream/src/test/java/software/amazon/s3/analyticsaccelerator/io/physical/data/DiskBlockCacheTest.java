@@ -0,0 +1,217 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.s3.analyticsaccelerator.TestTelemetry;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
+import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+import software.amazon.s3.analyticsaccelerator.util.StreamUtils;
+
+public class DiskBlockCacheTest {
+  private static final String TEST_DATA = "0123456789abcdefghijklmnopqrstuvwxyz";
+  private static final ObjectKey OBJECT_KEY =
+      ObjectKey.builder().s3URI(S3URI.of("foo", "bar")).etag("RANDOM").build();
+  private static final long TIMEOUT_MILLIS = 5_000;
+
+  @TempDir Path directory;
+
+  @Test
+  void testDisabledCacheHoldsNothing() throws IOException {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(PhysicalIOConfiguration.DEFAULT, metrics);
+
+    cache.spill(block(new FakeObjectClient(TEST_DATA), 0, 9, ReadMode.SYNC));
+
+    assertFalse(cache.isEnabled());
+    assertNull(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(0, 9))));
+    assertEquals(0, metrics.get(MetricKey.DISK_CACHE_MISS));
+  }
+
+  @Test
+  void testBlocksClosedRightAfterBeingSpilledAreWrittenWhole() throws Exception {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(config(1024), metrics);
+    Block block = block(new FakeObjectClient(TEST_DATA), 0, 19, ReadMode.SYNC);
+
+    // The block is closed while its data is still waiting to be written
+    cache.spill(block);
+    block.close();
+    awaitWrites(cache);
+
+    assertEquals(20, metrics.get(MetricKey.DISK_CACHE_USAGE));
+    assertEquals("0123", read(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(0, 3)))));
+    assertFalse(block.retainData().isPresent());
+    cache.close();
+  }
+
+  @Test
+  void testSpilledBlocksServeTheRangesTheyHold() throws Exception {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(config(1024), metrics);
+
+    cache.spill(block(new FakeObjectClient(TEST_DATA), 0, 19, ReadMode.SYNC));
+    awaitWrites(cache);
+    assertEquals(20, metrics.get(MetricKey.DISK_CACHE_USAGE));
+
+    // Any range within the block is served from disk
+    assertEquals("5678", read(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(5, 8)))));
+    assertEquals(1, metrics.get(MetricKey.DISK_CACHE_HIT));
+
+    // Ranges that are not wholly on disk are not
+    assertNull(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(15, 25))));
+    assertNull(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(20, 25))));
+    assertEquals(2, metrics.get(MetricKey.DISK_CACHE_MISS));
+
+    cache.close();
+  }
+
+  @Test
+  void testBlocksAreDeletedBeyondCapacity() throws Exception {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(config(20), metrics);
+    FakeObjectClient objectClient = new FakeObjectClient(TEST_DATA);
+
+    for (int start = 0; start < 30; start += 10) {
+      cache.spill(block(objectClient, start, start + 9, ReadMode.SYNC));
+      awaitWrites(cache);
+    }
+
+    // One of the three blocks has been deleted to keep within capacity
+    assertEquals(20, metrics.get(MetricKey.DISK_CACHE_USAGE));
+    assertEquals(2, countFiles());
+
+    // Closing the cache deletes its files
+    cache.close();
+    assertEquals(0, countFiles());
+    assertEquals(0, metrics.get(MetricKey.DISK_CACHE_USAGE));
+  }
+
+  @Test
+  void testUnreadPrefetchedBlocksAreNotSpilled() throws Exception {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(config(1024), metrics);
+    FakeObjectClient objectClient = new FakeObjectClient(TEST_DATA);
+
+    cache.spill(block(objectClient, 0, 9, ReadMode.ASYNC));
+    cache.spill(block(objectClient, 10, 19, ReadMode.SYNC));
+    awaitWrites(cache);
+    assertEquals(10, metrics.get(MetricKey.DISK_CACHE_USAGE));
+
+    assertNull(cache.getIfPresent(new BlockKey(OBJECT_KEY, new Range(0, 9))));
+    assertEquals(1, countFiles());
+    cache.close();
+  }
+
+  @Test
+  void testBlocksAreReadBackFromDiskInsteadOfFetched() throws Exception {
+    Metrics metrics = new Metrics();
+    DiskBlockCache cache = new DiskBlockCache(config(1024), metrics);
+    FakeObjectClient objectClient = new FakeObjectClient(TEST_DATA);
+    cache.spill(block(objectClient, 0, 19, ReadMode.SYNC));
+    awaitWrites(cache);
+    assertEquals(20, metrics.get(MetricKey.DISK_CACHE_USAGE));
+
+    Block block =
+        Block.builder()
+            .blockKey(new BlockKey(OBJECT_KEY, new Range(4, 11)))
+            .objectClient(objectClient)
+            .telemetry(TestTelemetry.DEFAULT)
+            .readMode(ReadMode.SYNC)
+            .readTimeout(120_000)
+            .readRetryCount(20)
+            .aggregatingMetrics(metrics)
+            .indexCache(mock(BlobStoreIndexCache.class))
+            .openStreamInformation(OpenStreamInformation.DEFAULT)
+            .diskBlockCache(cache)
+            .build();
+    byte[] buffer = new byte[8];
+    block.read(buffer, 0, buffer.length, 4);
+
+    assertArrayEquals("456789ab".getBytes(StandardCharsets.UTF_8), buffer);
+    assertEquals(1, objectClient.getGetRequestCount().get());
+    assertEquals(0, metrics.get(MetricKey.GET_REQUEST_COUNT));
+    cache.close();
+  }
+
+  private PhysicalIOConfiguration config(long capacityBytes) {
+    return PhysicalIOConfiguration.builder()
+        .diskCacheEnabled(true)
+        .diskCacheDirectory(directory.toString())
+        .diskCacheCapacityBytes(capacityBytes)
+        .build();
+  }
+
+  private static Block block(FakeObjectClient objectClient, long start, long end, ReadMode mode)
+      throws IOException {
+    return new Block(
+        new BlockKey(OBJECT_KEY, new Range(start, end)),
+        objectClient,
+        TestTelemetry.DEFAULT,
+        0,
+        mode,
+        120_000,
+        20,
+        new Metrics(),
+        mock(BlobStoreIndexCache.class),
+        OpenStreamInformation.DEFAULT);
+  }
+
+  private static String read(CompletableFuture<ObjectContent> content) throws Exception {
+    assertNotNull(content);
+    return new String(
+        StreamUtils.toByteArray(content.get(), OBJECT_KEY, new Range(0, 3), TIMEOUT_MILLIS),
+        StandardCharsets.UTF_8);
+  }
+
+  private static void awaitWrites(DiskBlockCache cache) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (cache.getPendingWriteBytes() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, cache.getPendingWriteBytes());
+  }
+
+  private long countFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+public class MemoryReservationGateTest {
+  private static final long CAPACITY = 1024 * ONE_KB;
+
+  @Test
+  void testSpeculativeReservationsAreAdmittedTruncatedOrDropped() {
+    Metrics metrics = new Metrics();
+    AtomicInteger cleanupRequests = new AtomicInteger();
+    MemoryReservationGate gate =
+        new MemoryReservationGate(config(100), metrics, cleanupRequests::incrementAndGet);
+
+    // Fits in the headroom
+    assertEquals(800 * ONE_KB, gate.tryReserve(800 * ONE_KB, 0));
+    assertEquals(0, cleanupRequests.get());
+
+    // Truncated to the headroom
+    assertEquals(224 * ONE_KB, gate.tryReserve(300 * ONE_KB, 0));
+    assertEquals(76 * ONE_KB, metrics.get(MetricKey.PREFETCH_DROPPED_BYTES));
+
+    // Dropped, no headroom is left
+    assertEquals(0, gate.tryReserve(10, 0));
+    assertEquals(2, cleanupRequests.get());
+    assertEquals(CAPACITY, metrics.get(MetricKey.MEMORY_RESERVED));
+    assertEquals(0, gate.getHeadroom());
+  }
+
+  @Test
+  void testSpeculativeReservationsAreNotTruncatedBelowTheirMinimum() {
+    MemoryReservationGate gate = new MemoryReservationGate(config(100), new Metrics());
+    gate.tryReserve(CAPACITY - 200 * ONE_KB, 0);
+
+    assertEquals(0, gate.tryReserve(300 * ONE_KB, 300 * ONE_KB));
+    assertEquals(200 * ONE_KB, gate.tryReserve(300 * ONE_KB, 100 * ONE_KB));
+  }
+
+  @Test
+  void testTinyHeadroomIsNotWorthAFetch() {
+    MemoryReservationGate gate = new MemoryReservationGate(config(100), new Metrics());
+    gate.tryReserve(CAPACITY - MemoryReservationGate.MIN_SPECULATIVE_RESERVATION_BYTES + 1, 0);
+
+    assertEquals(0, gate.tryReserve(ONE_KB * ONE_KB, 0));
+  }
+
+  @Test
+  void testUsedMemoryCountsAgainstTheHeadroom() {
+    Metrics metrics = new Metrics();
+    MemoryReservationGate gate = new MemoryReservationGate(config(100), metrics);
+
+    metrics.add(MetricKey.MEMORY_USAGE, 1000 * ONE_KB);
+    gate.tryReserve(20 * ONE_KB, 0);
+
+    assertEquals(4 * ONE_KB, gate.getHeadroom());
+    assertEquals(20 * ONE_KB, gate.getReservedBytes());
+    assertEquals(20 * ONE_KB, metrics.get(MetricKey.MEMORY_RESERVED));
+  }
+
+  @Test
+  void testReleaseGivesHeadroomBack() {
+    Metrics metrics = new Metrics();
+    MemoryReservationGate gate = new MemoryReservationGate(config(100), metrics);
+
+    gate.reserve(CAPACITY);
+    gate.release(CAPACITY);
+
+    assertEquals(CAPACITY, gate.getHeadroom());
+    assertEquals(0, metrics.get(MetricKey.MEMORY_RESERVED));
+  }
+
+  @Test
+  void testReserveGoesOverCapacityAfterTimeout() {
+    AtomicInteger cleanupRequests = new AtomicInteger();
+    MemoryReservationGate gate =
+        new MemoryReservationGate(config(0), new Metrics(), cleanupRequests::incrementAndGet);
+    gate.reserve(CAPACITY);
+
+    gate.reserve(ONE_KB);
+
+    assertEquals(-ONE_KB, gate.getHeadroom());
+    assertEquals(1, cleanupRequests.get());
+  }
+
+  @Test
+  void testReserveWaitsForRelease() throws Exception {
+    MemoryReservationGate gate = new MemoryReservationGate(config(60_000), new Metrics());
+    gate.reserve(CAPACITY);
+
+    CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> gate.reserve(ONE_KB));
+    Thread.sleep(50);
+    assertTrue(!waiter.isDone(), "reserve should wait for headroom");
+
+    gate.release(ONE_KB);
+    waiter.get(5, TimeUnit.SECONDS);
+    assertEquals(0, gate.getHeadroom());
+  }
+
+  @Test
+  void testAwaitingHeadroomDoesNotReserveIt() throws Exception {
+    MemoryReservationGate gate = new MemoryReservationGate(config(60_000), new Metrics());
+    gate.reserve(CAPACITY);
+
+    CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> gate.awaitHeadroom(ONE_KB));
+    Thread.sleep(50);
+    assertTrue(!waiter.isDone(), "awaitHeadroom should wait for headroom");
+
+    gate.release(ONE_KB);
+    waiter.get(5, TimeUnit.SECONDS);
+    assertEquals(ONE_KB, gate.getHeadroom());
+  }
+
+  @Test
+  void testForcedReservationsDoNotWait() {
+    MemoryReservationGate gate = new MemoryReservationGate(config(60_000), new Metrics());
+    gate.reserve(CAPACITY);
+
+    gate.forceReserve(ONE_KB);
+
+    assertEquals(-ONE_KB, gate.getHeadroom());
+  }
+
+  @Test
+  void testNegativeSizesAreRejected() {
+    MemoryReservationGate gate = new MemoryReservationGate(config(100), new Metrics());
+
+    assertThrows(IllegalArgumentException.class, () -> gate.tryReserve(-1, 0));
+    assertThrows(IllegalArgumentException.class, () -> gate.tryReserve(1, -1));
+    assertThrows(IllegalArgumentException.class, () -> gate.reserve(-1));
+    assertThrows(IllegalArgumentException.class, () -> gate.awaitHeadroom(-1));
+    assertThrows(IllegalArgumentException.class, () -> gate.forceReserve(-1));
+    assertThrows(IllegalArgumentException.class, () -> gate.release(-1));
+  }
+
+  private static PhysicalIOConfiguration config(long timeoutMilliseconds) {
+    return PhysicalIOConfiguration.builder()
+        .memoryCapacityBytes(CAPACITY)
+        .memoryReservationTimeoutMilliseconds(timeoutMilliseconds)
+        .build();
+  }
+}
@@ -15,24 +15,37 @@
  */
 package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import software.amazon.s3.analyticsaccelerator.TestTelemetry;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
 import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
 
@@ -114,4 +127,222 @@ public class MetadataStoreTest {
     result = metadataStore.evictKey(key);
     assertFalse(result, "Evicting existing key should return false");
   }
+
+  @Test
+  void testConcurrentLookupsShareOneHead() {
+    // Given: a HEAD that has not completed yet
+    ObjectClient objectClient = mock(ObjectClient.class);
+    CompletableFuture<ObjectMetadata> head = new CompletableFuture<>();
+    when(objectClient.headObject(any(), any())).thenReturn(head);
+    Metrics metrics = new Metrics();
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient, TestTelemetry.DEFAULT, PhysicalIOConfiguration.DEFAULT, metrics);
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the metadata is looked up twice before the HEAD completes
+    CompletableFuture<ObjectMetadata> first =
+        metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT);
+    CompletableFuture<ObjectMetadata> second =
+        metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT);
+
+    // Then: both lookups wait for the same HEAD
+    assertSame(first, second);
+    verify(objectClient, times(1)).headObject(any(), any());
+    assertEquals(1, metrics.get(MetricKey.HEAD_REQUEST_COUNT));
+    assertEquals(1, metrics.get(MetricKey.METADATA_CACHE_HIT));
+  }
+
+  @Test
+  void testMetadataExpiresAfterTtl() throws IOException {
+    // Given: a MetadataStore whose entries expire after a second
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.headObject(any(), any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(ObjectMetadata.builder().etag("random").build()));
+    AtomicLong time = new AtomicLong();
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient,
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().metadataStoreTtlMilliseconds(1000).build(),
+            new Metrics(),
+            time::get);
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the metadata is looked up before and after the TTL passed
+    metadataStore.get(key, OpenStreamInformation.DEFAULT);
+    time.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    metadataStore.get(key, OpenStreamInformation.DEFAULT);
+    verify(objectClient, times(1)).headObject(any(), any());
+    time.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+    metadataStore.get(key, OpenStreamInformation.DEFAULT);
+
+    // Then: the object store was accessed again once the TTL passed
+    verify(objectClient, times(2)).headObject(any(), any());
+  }
+
+  @Test
+  void testFailedHeadIsNotCached() {
+    // Given: a HEAD that fails
+    ObjectClient objectClient = mock(ObjectClient.class);
+    CompletableFuture<ObjectMetadata> failedHead = new CompletableFuture<>();
+    failedHead.completeExceptionally(new IOException("Server error"));
+    when(objectClient.headObject(any(), any())).thenReturn(failedHead);
+    MetadataStore metadataStore =
+        new MetadataStore(objectClient, TestTelemetry.DEFAULT, PhysicalIOConfiguration.DEFAULT);
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the metadata is looked up twice
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+
+    // Then: the HEAD is retried
+    verify(objectClient, times(2)).headObject(any(), any());
+  }
+
+  @Test
+  void testMissingObjectIsRememberedForNegativeTtl() {
+    // Given: a MetadataStore that remembers missing objects for a second
+    ObjectClient objectClient = mock(ObjectClient.class);
+    CompletableFuture<ObjectMetadata> notFound = new CompletableFuture<>();
+    notFound.completeExceptionally(new CompletionException(new FileNotFoundException("missing")));
+    when(objectClient.headObject(any(), any())).thenReturn(notFound);
+    AtomicLong time = new AtomicLong();
+    Metrics metrics = new Metrics();
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient,
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().metadataStoreNegativeTtlMilliseconds(1000).build(),
+            metrics,
+            time::get);
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the missing object is looked up twice within the negative TTL
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+
+    // Then: only the first lookup made a request
+    verify(objectClient, times(1)).headObject(any(), any());
+    assertEquals(1, metrics.get(MetricKey.METADATA_CACHE_HIT));
+
+    // When: the negative TTL passes
+    time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+
+    // Then: the object store is asked again
+    verify(objectClient, times(2)).headObject(any(), any());
+  }
+
+  @Test
+  void testStoredMetadataReplacesMissingObject() throws IOException {
+    // Given: an object remembered as missing
+    ObjectClient objectClient = mock(ObjectClient.class);
+    CompletableFuture<ObjectMetadata> notFound = new CompletableFuture<>();
+    notFound.completeExceptionally(new FileNotFoundException("missing"));
+    when(objectClient.headObject(any(), any())).thenReturn(notFound);
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient,
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().metadataStoreNegativeTtlMilliseconds(1000).build());
+    S3URI key = S3URI.of("foo", "bar");
+    assertThrows(
+        CompletionException.class,
+        () -> metadataStore.asyncGet(key, OpenStreamInformation.DEFAULT).join());
+
+    // When: metadata for the object is stored
+    ObjectMetadata objectMetadata = ObjectMetadata.builder().etag("random").build();
+    metadataStore.storeObjectMetadata(key, objectMetadata);
+
+    // Then: it is returned
+    assertEquals(objectMetadata, metadataStore.get(key, OpenStreamInformation.DEFAULT));
+  }
+
+  @Test
+  void testGetTailLearnsMetadataWithoutHead() throws IOException {
+    // Given: a MetadataStore with HEAD-less opens enabled
+    ObjectClient objectClient = mock(ObjectClient.class);
+    ObjectMetadata objectMetadata =
+        ObjectMetadata.builder().contentLength(100).etag("random").build();
+    ObjectContent tail =
+        ObjectContent.builder()
+            .stream(new ByteArrayInputStream(new byte[10]))
+            .metadata(objectMetadata)
+            .build();
+    when(objectClient.getObjectTail(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(tail));
+    Metrics metrics = new Metrics();
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient,
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().headlessOpenEnabled(true).build(),
+            metrics);
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the tail is fetched, and then the metadata looked up
+    Optional<ObjectContent> content = metadataStore.getTail(key, OpenStreamInformation.DEFAULT);
+
+    // Then: the metadata is learned from the GET of the tail
+    assertSame(tail, content.get());
+    assertEquals(objectMetadata, metadataStore.get(key, OpenStreamInformation.DEFAULT));
+    verify(objectClient, never()).headObject(any(), any());
+    assertEquals(1, metrics.get(MetricKey.GET_REQUEST_COUNT));
+
+    // When: the tail is asked for again
+    // Then: there is nothing to learn, so it is not fetched again
+    assertFalse(metadataStore.getTail(key, OpenStreamInformation.DEFAULT).isPresent());
+    verify(objectClient, times(1)).getObjectTail(any(), any());
+  }
+
+  @Test
+  void testGetTailIsEmptyWhenHeadlessOpenIsDisabled() {
+    // Given: a MetadataStore with the default configuration
+    ObjectClient objectClient = mock(ObjectClient.class);
+    MetadataStore metadataStore =
+        new MetadataStore(objectClient, TestTelemetry.DEFAULT, PhysicalIOConfiguration.DEFAULT);
+
+    // When: the tail is asked for
+    // Then: it is not fetched
+    assertFalse(
+        metadataStore.getTail(S3URI.of("foo", "bar"), OpenStreamInformation.DEFAULT).isPresent());
+    verify(objectClient, never()).getObjectTail(any(), any());
+  }
+
+  @Test
+  void testFailedGetOfTailFallsBackToHead() throws IOException {
+    // Given: a MetadataStore with HEAD-less opens enabled, and a GET of the tail that fails
+    ObjectClient objectClient = mock(ObjectClient.class);
+    CompletableFuture<ObjectContent> failedGet = new CompletableFuture<>();
+    failedGet.completeExceptionally(new IOException("Invalid range"));
+    when(objectClient.getObjectTail(any(), any())).thenReturn(failedGet);
+    ObjectMetadata objectMetadata = ObjectMetadata.builder().etag("random").build();
+    when(objectClient.headObject(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(objectMetadata));
+    MetadataStore metadataStore =
+        new MetadataStore(
+            objectClient,
+            TestTelemetry.DEFAULT,
+            PhysicalIOConfiguration.builder().headlessOpenEnabled(true).build());
+    S3URI key = S3URI.of("foo", "bar");
+
+    // When: the tail is fetched, and then the metadata looked up
+    assertFalse(metadataStore.getTail(key, OpenStreamInformation.DEFAULT).isPresent());
+
+    // Then: the metadata comes from a HEAD
+    assertEquals(objectMetadata, metadataStore.get(key, OpenStreamInformation.DEFAULT));
+    verify(objectClient, times(1)).headObject(any(), any());
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.TestTelemetry;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.util.BlockKey;
+import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+import software.amazon.s3.analyticsaccelerator.util.ObjectKey;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+@SuppressFBWarnings(
+    value = "NP_NONNULL_PARAM_VIOLATION",
+    justification = "We mean to pass nulls to checks")
+public class PrefetchTrackerTest {
+  private static final ObjectKey objectKey =
+      ObjectKey.builder().s3URI(S3URI.of("foo", "bar")).etag("RANDOM").build();
+  private static final PhysicalIOConfiguration configuration =
+      PhysicalIOConfiguration.builder().seekCancellationThresholdBytes(100).build();
+
+  @Test
+  void testConstructor() {
+    assertNotNull(new PrefetchTracker(configuration));
+    assertThrows(NullPointerException.class, () -> new PrefetchTracker(null));
+  }
+
+  @Test
+  void testOnlySpeculativeBlocksAreTracked() throws IOException {
+    // Given: a tracker and blocks that are still being fetched
+    PrefetchTracker tracker = new PrefetchTracker(configuration);
+    Metrics metrics = new Metrics();
+
+    // When: tracking blocks of sync and speculative reads
+    tracker.track(pendingBlock(0, 9, ReadMode.SYNC, metrics));
+    tracker.track(pendingBlock(10, 19, ReadMode.SEQUENTIAL_FILE_PREFETCH, metrics));
+    tracker.track(pendingBlock(20, 29, ReadMode.COLUMN_PREFETCH, metrics));
+
+    // Then: only the speculative blocks are tracked
+    assertEquals(2, tracker.size());
+  }
+
+  @Test
+  void testSmallSeekDoesNotCancelPrefetches() throws IOException {
+    // Given: a stream prefetching sequentially
+    PrefetchTracker tracker = new PrefetchTracker(configuration);
+    Metrics metrics = new Metrics();
+    Block block = pendingBlock(200, 299, ReadMode.SEQUENTIAL_FILE_PREFETCH, metrics);
+    tracker.track(block);
+
+    // When: the stream reads, then seeks within the threshold
+    assertEquals(0, tracker.onRead(0, 10));
+    assertEquals(0, tracker.onRead(100, 10));
+
+    // Then: the prefetch keeps going
+    assertEquals(1, tracker.size());
+    assertEquals(0, metrics.get(MetricKey.PREFETCH_CANCELLED_BYTES));
+  }
+
+  @Test
+  void testLargeSeekCancelsPrefetchesOutsideTheNewWindow() throws IOException {
+    // Given: a stream with prefetches before, inside and after the window it is going to seek to
+    PrefetchTracker tracker = new PrefetchTracker(configuration);
+    Metrics metrics = new Metrics();
+    Block behind = pendingBlock(10, 59, ReadMode.SEQUENTIAL_FILE_PREFETCH, metrics);
+    Block inWindow = pendingBlock(1000, 1049, ReadMode.ASYNC, metrics);
+    Block ahead = pendingBlock(2000, 2049, ReadMode.SEQUENTIAL_FILE_PREFETCH, metrics);
+    Block column = pendingBlock(3000, 3049, ReadMode.COLUMN_PREFETCH, metrics);
+    tracker.track(behind);
+    tracker.track(inWindow);
+    tracker.track(ahead);
+    tracker.track(column);
+    tracker.onRead(0, 10);
+
+    // When: the stream seeks further away than the threshold
+    assertEquals(2, tracker.onRead(1000, 10));
+
+    // Then: only the position driven prefetches outside the window are cancelled
+    assertTrue(behind.isDataLoaded());
+    assertTrue(ahead.isDataLoaded());
+    assertFalse(inWindow.isDataLoaded());
+    assertFalse(column.isDataLoaded());
+    assertEquals(2, tracker.size());
+    assertEquals(100, metrics.get(MetricKey.PREFETCH_CANCELLED_BYTES));
+    assertEquals(0, metrics.get(MetricKey.PREFETCH_WASTED_BYTES));
+  }
+
+  @Test
+  void testCancelAllCancelsEveryTrackedPrefetch() throws IOException {
+    // Given: a stream with prefetches in flight
+    PrefetchTracker tracker = new PrefetchTracker(configuration);
+    Metrics metrics = new Metrics();
+    Block sequential = pendingBlock(0, 49, ReadMode.SEQUENTIAL_FILE_PREFETCH, metrics);
+    Block column = pendingBlock(100, 149, ReadMode.COLUMN_PREFETCH, metrics);
+    tracker.track(sequential);
+    tracker.track(column);
+
+    // When: the stream is closed
+    assertEquals(2, tracker.cancelAll());
+
+    // Then: all prefetches are cancelled and nothing is tracked anymore
+    assertTrue(sequential.isDataLoaded());
+    assertTrue(column.isDataLoaded());
+    assertEquals(0, tracker.size());
+    assertEquals(100, metrics.get(MetricKey.PREFETCH_CANCELLED_BYTES));
+  }
+
+  @Test
+  void testBlocksThatHaveBeenReadAreNotCancelled() throws IOException {
+    // Given: a speculative block that has been read from
+    PrefetchTracker tracker = new PrefetchTracker(configuration);
+    Metrics metrics = new Metrics();
+    Block block =
+        new Block(
+            new BlockKey(objectKey, new Range(0, 8)),
+            new FakeObjectClient("test-data"),
+            TestTelemetry.DEFAULT,
+            0,
+            ReadMode.SEQUENTIAL_FILE_PREFETCH,
+            120_000,
+            20,
+            metrics,
+            mock(BlobStoreIndexCache.class),
+            OpenStreamInformation.DEFAULT);
+    tracker.track(block);
+    assertEquals('t', block.read(0));
+
+    // When: the stream is closed
+    assertEquals(0, tracker.cancelAll());
+
+    // Then: the block is left alone
+    assertFalse(block.cancelSpeculativeFetch());
+    assertEquals(0, block.getUnreadSpeculativeBytes());
+    assertEquals(0, metrics.get(MetricKey.PREFETCH_CANCELLED_BYTES));
+  }
+
+  /** Creates a block whose request never responds, unless it is cancelled */
+  private static Block pendingBlock(long start, long end, ReadMode readMode, Metrics metrics)
+      throws IOException {
+    ObjectClient objectClient = mock(ObjectClient.class);
+    when(objectClient.getObject(any(), any())).thenReturn(new CompletableFuture<>());
+    return new Block(
+        new BlockKey(objectKey, new Range(start, end)),
+        objectClient,
+        TestTelemetry.DEFAULT,
+        0,
+        readMode,
+        120_000,
+        20,
+        metrics,
+        mock(BlobStoreIndexCache.class),
+        OpenStreamInformation.DEFAULT);
+  }
+}
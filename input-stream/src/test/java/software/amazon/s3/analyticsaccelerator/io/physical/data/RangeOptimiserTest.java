@@ -16,8 +16,11 @@
 package software.amazon.s3.analyticsaccelerator.io.physical.data;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
 import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_MB;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -59,4 +62,99 @@ public class RangeOptimiserTest {
     expected.add(new Range(8 * ONE_MB, 16 * ONE_MB - 1));
     assertEquals(expected, splitRanges);
   }
+
+  @Test
+  public void test__alignRanges__rangesAreSplitAtGridBoundaries() {
+    // Given: a grid of 1KB cells, and ranges crossing cell boundaries
+    RangeOptimiser rangeOptimiser =
+        new RangeOptimiser(PhysicalIOConfiguration.builder().blockSizeBytes(ONE_KB).build());
+    List<Range> ranges = Arrays.asList(new Range(0, 2 * ONE_KB - 1), new Range(3000, 3100));
+
+    // When: alignRanges is called
+    List<Range> cells = rangeOptimiser.alignRanges(ranges);
+
+    // Then: every range is cut at the cell boundaries it crosses
+    assertEquals(
+        Arrays.asList(
+            new Range(0, ONE_KB - 1),
+            new Range(ONE_KB, 2 * ONE_KB - 1),
+            new Range(3000, 3 * ONE_KB - 1),
+            new Range(3 * ONE_KB, 3100)),
+        cells);
+  }
+
+  @Test
+  public void test__coalesceRanges__rangesWithSmallHolesAreMerged() {
+    // Given: unordered ranges separated by small holes, and one far away
+    RangeOptimiser rangeOptimiser = new RangeOptimiser(PhysicalIOConfiguration.DEFAULT);
+    List<Range> ranges =
+        Arrays.asList(new Range(200, 300), new Range(0, 100), new Range(ONE_MB, ONE_MB + 99));
+    List<Range> holes = new ArrayList<>();
+
+    // When: coalesceRanges is called
+    List<Range> coalesced =
+        rangeOptimiser.coalesceRanges(
+            ranges,
+            hole -> {
+              holes.add(hole);
+              return true;
+            });
+
+    // Then: the close ranges are merged over the hole between them
+    assertEquals(Arrays.asList(new Range(0, 300), new Range(ONE_MB, ONE_MB + 99)), coalesced);
+    assertEquals(Arrays.asList(new Range(101, 199)), holes);
+  }
+
+  @Test
+  public void test__coalesceRanges__overlappingRangesAreAlwaysMerged() {
+    // Given: coalescing over holes is disabled
+    RangeOptimiser rangeOptimiser =
+        new RangeOptimiser(PhysicalIOConfiguration.builder().coalesceMaxGapBytes(0).build());
+    List<Range> ranges =
+        Arrays.asList(
+            new Range(0, 100), new Range(50, 150), new Range(151, 200), new Range(300, 400));
+
+    // When: coalesceRanges is called
+    List<Range> coalesced = rangeOptimiser.coalesceRanges(ranges, hole -> true);
+
+    // Then: only overlapping and touching ranges are merged
+    assertEquals(Arrays.asList(new Range(0, 200), new Range(300, 400)), coalesced);
+  }
+
+  @Test
+  public void test__coalesceRanges__mergedSizeIsCapped() {
+    // Given: a cap on the size of coalesced ranges
+    RangeOptimiser rangeOptimiser =
+        new RangeOptimiser(
+            PhysicalIOConfiguration.builder()
+                .coalesceMaxGapBytes(ONE_KB)
+                .coalesceMaxSizeBytes(2 * ONE_KB)
+                .build());
+    List<Range> ranges =
+        Arrays.asList(
+            new Range(0, ONE_KB - 1),
+            new Range(ONE_KB + 10, 2 * ONE_KB - 11),
+            new Range(2 * ONE_KB, 3 * ONE_KB - 1));
+
+    // When: coalesceRanges is called
+    List<Range> coalesced = rangeOptimiser.coalesceRanges(ranges, hole -> true);
+
+    // Then: ranges are merged until the cap is reached
+    assertEquals(
+        Arrays.asList(new Range(0, 2 * ONE_KB - 11), new Range(2 * ONE_KB, 3 * ONE_KB - 1)),
+        coalesced);
+  }
+
+  @Test
+  public void test__coalesceRanges__rejectedHolesAreNotReadOver() {
+    // Given: close ranges
+    RangeOptimiser rangeOptimiser = new RangeOptimiser(PhysicalIOConfiguration.DEFAULT);
+    List<Range> ranges = Arrays.asList(new Range(0, 100), new Range(200, 300));
+
+    // When: coalesceRanges is called, but the hole must not be read over
+    List<Range> coalesced = rangeOptimiser.coalesceRanges(ranges, hole -> false);
+
+    // Then: the ranges are left alone
+    assertEquals(ranges, coalesced);
+  }
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.common.Metrics;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+import software.amazon.s3.analyticsaccelerator.util.MetricKey;
+
+public class RequestHedgerTest {
+  private static final long WAIT_SECONDS = 10;
+
+  private static PhysicalIOConfiguration config(double budgetRatio) {
+    return PhysicalIOConfiguration.builder()
+        .hedgingEnabled(true)
+        .hedgingMinDelayMilliseconds(1)
+        .hedgingBudgetRatio(budgetRatio)
+        .build();
+  }
+
+  private static ObjectContent content() {
+    return ObjectContent.builder().stream(new ByteArrayInputStream(new byte[1])).build();
+  }
+
+  /** Tracks enough quick responses for the hedger to start hedging */
+  private static void warmUp(RequestHedger hedger) {
+    for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+      hedger.get(() -> CompletableFuture.completedFuture(content())).join();
+    }
+    assertTrue(hedger.getHedgeDelayNanos() >= TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  @Test
+  void testDisabledHedgerIssuesTheRequestOnce() {
+    RequestHedger hedger = new RequestHedger(PhysicalIOConfiguration.DEFAULT, new Metrics());
+    CompletableFuture<ObjectContent> response = new CompletableFuture<>();
+
+    assertFalse(hedger.isEnabled());
+    assertSame(response, hedger.get(() -> response));
+  }
+
+  @Test
+  void testNothingIsHedgedUntilEnoughResponseTimesAreKnown() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      for (int i = 0; i < RequestHedger.MIN_SAMPLES - 1; i++) {
+        hedger.get(() -> CompletableFuture.completedFuture(content())).join();
+      }
+      assertEquals(-1, hedger.getHedgeDelayNanos());
+    }
+  }
+
+  @Test
+  void testHedgingDelayFollowsThePercentileOfResponseTimes() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      for (int i = 1; i <= 100; i++) {
+        hedger.recordTimeToFirstByte(TimeUnit.MILLISECONDS.toNanos(i));
+      }
+      // The delay is worked out after every 16 responses, last after the 96th
+      assertEquals(TimeUnit.MILLISECONDS.toNanos(92), hedger.getHedgeDelayNanos());
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testSlowRequestIsHedgedAndTheFirstResponseWins() {
+    Metrics metrics = new Metrics();
+    try (RequestHedger hedger = new RequestHedger(config(1.0), metrics)) {
+      warmUp(hedger);
+
+      // Given: a request that does not respond, and a hedge that does
+      CompletableFuture<ObjectContent> stuck = new CompletableFuture<>();
+      ObjectContent hedgeContent = content();
+      CompletableFuture<ObjectContent> result =
+          hedger.get(requests(stuck, CompletableFuture.completedFuture(hedgeContent)));
+
+      // Then: the response of the hedge is used, and the stuck request is cancelled
+      assertSame(hedgeContent, result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+      assertTrue(stuck.isCancelled());
+      assertEquals(1, metrics.get(MetricKey.HEDGED_REQUEST_COUNT));
+      assertEquals(1, metrics.get(MetricKey.HEDGED_REQUEST_WIN));
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testFailedRequestWaitsForItsHedge() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      warmUp(hedger);
+
+      CompletableFuture<ObjectContent> first = new CompletableFuture<>();
+      CompletableFuture<ObjectContent> second = new CompletableFuture<>();
+      CountDownLatch hedged = new CountDownLatch(1);
+      CompletableFuture<ObjectContent> result =
+          hedger.get(
+              requests(
+                  first,
+                  () -> {
+                    hedged.countDown();
+                    return second;
+                  }));
+      assertTrue(hedged.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+      // When: the first request fails, the result still waits for the hedge
+      first.completeExceptionally(new IllegalStateException("SlowDown"));
+      assertFalse(result.isDone());
+
+      ObjectContent content = content();
+      second.complete(content);
+      assertSame(content, result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testBudgetCapsHedges() {
+    Metrics metrics = new Metrics();
+    try (RequestHedger hedger = new RequestHedger(config(0.0), metrics)) {
+      warmUp(hedger);
+
+      CompletableFuture<ObjectContent> stuck = new CompletableFuture<>();
+      AtomicInteger requests = new AtomicInteger();
+      CompletableFuture<ObjectContent> result =
+          hedger.get(
+              () -> {
+                requests.incrementAndGet();
+                return stuck;
+              });
+
+      // The hedge is skipped rather than issued
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+      while (metrics.get(MetricKey.HEDGE_BUDGET_EXHAUSTED) == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(1, metrics.get(MetricKey.HEDGE_BUDGET_EXHAUSTED));
+      assertEquals(0, metrics.get(MetricKey.HEDGED_REQUEST_COUNT));
+      assertEquals(1, requests.get());
+      assertFalse(result.isDone());
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testLosingResponseIsClosed() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      warmUp(hedger);
+
+      // Given: a first request that responds even though it is cancelled
+      AtomicBoolean closed = new AtomicBoolean();
+      ObjectContent losing =
+          ObjectContent.builder()
+              .stream(
+                  new InputStream() {
+                    @Override
+                    public int read() {
+                      return -1;
+                    }
+
+                    @Override
+                    public void close() {
+                      closed.set(true);
+                    }
+                  })
+              .build();
+      CompletableFuture<ObjectContent> uncancellable =
+          new CompletableFuture<ObjectContent>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+              return false;
+            }
+          };
+      ObjectContent winning = content();
+      CompletableFuture<ObjectContent> result =
+          hedger.get(requests(uncancellable, CompletableFuture.completedFuture(winning)));
+      assertSame(winning, result.get(WAIT_SECONDS, TimeUnit.SECONDS));
+
+      // When: the first request responds late, its response is closed
+      uncancellable.complete(losing);
+      assertTrue(closed.get());
+    }
+  }
+
+  @Test
+  void testCancellingTheResultCancelsTheRequest() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      CompletableFuture<ObjectContent> response = new CompletableFuture<>();
+      hedger.get(() -> response).cancel(false);
+      assertTrue(response.isCancelled());
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testSlowIngestionIsHedgedAndOnlyTheFirstResponseIsHandedOver() {
+    Metrics metrics = new Metrics();
+    try (RequestHedger hedger = new RequestHedger(config(1.0), metrics)) {
+      warmUp(hedger);
+
+      // Given: a request that does not respond, whose hedge then responds
+      AtomicInteger responses = new AtomicInteger();
+      AtomicInteger chunks = new AtomicInteger();
+      ObjectContentSink sink =
+          new ObjectContentSink() {
+            @Override
+            public void onResponse() {
+              responses.incrementAndGet();
+            }
+
+            @Override
+            public void onChunk(ByteBuffer chunk) {
+              chunks.incrementAndGet();
+            }
+          };
+      List<ObjectContentSink> attemptSinks = new CopyOnWriteArrayList<>();
+      CompletableFuture<Void> uncancellable =
+          new CompletableFuture<Void>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+              return false;
+            }
+          };
+      CompletableFuture<Void> result =
+          hedger.get(
+              sink,
+              attemptSink -> {
+                attemptSinks.add(attemptSink);
+                if (attemptSinks.size() == 1) {
+                  return uncancellable;
+                }
+                attemptSink.onResponse();
+                attemptSink.onChunk(ByteBuffer.allocate(1));
+                return CompletableFuture.completedFuture(null);
+              });
+
+      // Then: the body of the hedge is handed over
+      result.get(WAIT_SECONDS, TimeUnit.SECONDS);
+      assertEquals(1, responses.get());
+      assertEquals(1, chunks.get());
+      assertEquals(1, metrics.get(MetricKey.HEDGED_REQUEST_WIN));
+
+      // When: the first request responds late, it is turned down before any of its body is taken
+      assertThrows(CancellationException.class, () -> attemptSinks.get(0).onResponse());
+      assertThrows(
+          CancellationException.class, () -> attemptSinks.get(0).onChunk(ByteBuffer.allocate(1)));
+      assertEquals(1, responses.get());
+      assertEquals(1, chunks.get());
+    }
+  }
+
+  @SneakyThrows
+  @Test
+  void testIngestionWaitsForTheBodyOfTheFirstResponse() {
+    try (RequestHedger hedger = new RequestHedger(config(1.0), new Metrics())) {
+      warmUp(hedger);
+
+      // Given: a request that responds straight away, but whose body has yet to arrive
+      CompletableFuture<Void> body = new CompletableFuture<>();
+      AtomicInteger requests = new AtomicInteger();
+      CompletableFuture<Void> result =
+          hedger.get(
+              chunk -> {},
+              attemptSink -> {
+                requests.incrementAndGet();
+                attemptSink.onResponse();
+                return body;
+              });
+
+      // Then: the request is not hedged, and the result completes with the body
+      Thread.sleep(TimeUnit.NANOSECONDS.toMillis(hedger.getHedgeDelayNanos()) + 50);
+      assertFalse(result.isDone());
+      assertEquals(1, requests.get());
+      body.complete(null);
+      result.get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private static Supplier<CompletableFuture<ObjectContent>> requests(
+      CompletableFuture<ObjectContent> first, CompletableFuture<ObjectContent> second) {
+    return requests(first, () -> second);
+  }
+
+  private static Supplier<CompletableFuture<ObjectContent>> requests(
+      CompletableFuture<ObjectContent> first, Supplier<CompletableFuture<ObjectContent>> second) {
+    AtomicInteger issued = new AtomicInteger();
+    return () -> issued.getAndIncrement() == 0 ? first : second.get();
+  }
+}
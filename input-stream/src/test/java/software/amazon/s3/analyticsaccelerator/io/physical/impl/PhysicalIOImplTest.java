@@ -21,9 +21,11 @@ import static org.mockito.Mockito.*;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -44,6 +46,7 @@ import software.amazon.s3.analyticsaccelerator.common.ObjectRange;
 import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.BlobStore;
 import software.amazon.s3.analyticsaccelerator.io.physical.data.MetadataStore;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
 import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
 import software.amazon.s3.analyticsaccelerator.util.FakeObjectClient;
 import software.amazon.s3.analyticsaccelerator.util.MetricKey;
@@ -401,6 +404,34 @@ public class PhysicalIOImplTest {
         "Memory usage should remain unchanged after close without eviction");
   }
 
+  @Test
+  void testTailIsClosedWhenMetadataCannotBeLoaded() throws IOException {
+    // Given: a tail that was fetched, and metadata that fails to load
+    InputStream tailStream = mock(InputStream.class);
+    MetadataStore metadataStore = mock(MetadataStore.class);
+    when(metadataStore.getTail(any(), any()))
+        .thenReturn(Optional.of(ObjectContent.builder().stream(tailStream).build()));
+    when(metadataStore.get(any(), any())).thenThrow(new IOException("Server error"));
+    BlobStore blobStore = mock(BlobStore.class);
+    when(blobStore.getConfiguration()).thenReturn(PhysicalIOConfiguration.DEFAULT);
+
+    // When: a stream is opened
+    assertThrows(
+        IOException.class,
+        () ->
+            new PhysicalIOImpl(
+                s3URI,
+                metadataStore,
+                blobStore,
+                TestTelemetry.DEFAULT,
+                OpenStreamInformation.DEFAULT,
+                executorService));
+
+    // Then: the tail is closed rather than leaked
+    verify(tailStream).close();
+    verify(blobStore, never()).addTail(any(), any(), any(), any());
+  }
+
   @Test
   void testCloseWithEviction() throws IOException {
     // Given
@@ -408,6 +439,7 @@ public class PhysicalIOImplTest {
     FakeObjectClient fakeObjectClient = new FakeObjectClient(TEST_DATA);
 
     BlobStore mockBlobStore = mock(BlobStore.class);
+    when(mockBlobStore.getConfiguration()).thenReturn(PhysicalIOConfiguration.DEFAULT);
     MetadataStore metadataStore =
         new MetadataStore(fakeObjectClient, TestTelemetry.DEFAULT, PhysicalIOConfiguration.DEFAULT);
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.prefetcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_KB;
+import static software.amazon.s3.analyticsaccelerator.util.Constants.ONE_MB;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.io.physical.PhysicalIOConfiguration;
+import software.amazon.s3.analyticsaccelerator.util.SequentialPrefetchStrategy;
+
+public class AdaptiveReadAheadPolicyTest {
+  private static final long TEN_MS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Test
+  void testFollowsGeometricProgressionBeforeMeasuring() {
+    AdaptiveReadAheadPolicy policy =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, new AtomicLong()::get);
+
+    assertEquals(2 * ONE_MB, policy.getSizeForGeneration(0));
+    assertEquals(4 * ONE_MB, policy.getSizeForGeneration(1));
+    assertEquals(8 * ONE_MB, policy.getSizeForGeneration(2));
+  }
+
+  @Test
+  void testRejectsNegativeGeneration() {
+    AdaptiveReadAheadPolicy policy = new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT);
+
+    assertThrows(IllegalArgumentException.class, () -> policy.getSizeForGeneration(-1));
+  }
+
+  @Test
+  void testCoversTwiceWhatIsConsumedWhileAPartArrives() {
+    AtomicLong clock = new AtomicLong();
+    AdaptiveReadAheadPolicy policy =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, clock::get);
+
+    // Consumer reads 1MB every 10ms, a part of 8MB arrives 20ms + 80ms after being requested
+    consume(policy, clock, ONE_MB, 5);
+    policy.onFetch(8 * ONE_MB, 2 * TEN_MS, 8 * TEN_MS);
+
+    // 100ms of consumption is 10MB
+    assertEquals(20 * ONE_MB, policy.getSizeForGeneration(0), ONE_KB);
+  }
+
+  @Test
+  void testSizesAreClamped() {
+    AtomicLong clock = new AtomicLong();
+    AdaptiveReadAheadPolicy slowConsumer =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, clock::get);
+    consume(slowConsumer, clock, ONE_KB, 5);
+    slowConsumer.onFetch(8 * ONE_MB, TEN_MS, TEN_MS);
+    assertEquals(AdaptiveReadAheadPolicy.MIN_PREFETCH_SIZE, slowConsumer.getSizeForGeneration(3));
+
+    AdaptiveReadAheadPolicy fastConsumer =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, clock::get);
+    consume(fastConsumer, clock, 100 * ONE_MB, 5);
+    fastConsumer.onFetch(8 * ONE_MB, 10 * TEN_MS, 10 * TEN_MS);
+    assertEquals(AdaptiveReadAheadPolicy.MAX_PREFETCH_SIZE, fastConsumer.getSizeForGeneration(0));
+  }
+
+  @Test
+  void testSmallRequestsDoNotMeasureThroughput() {
+    AtomicLong clock = new AtomicLong();
+    AdaptiveReadAheadPolicy policy =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, clock::get);
+
+    consume(policy, clock, ONE_MB, 5);
+    policy.onFetch(ONE_KB, TEN_MS, 1);
+
+    assertEquals(4 * ONE_MB, policy.getSizeForGeneration(1));
+  }
+
+  @Test
+  void testBacksOffWhenPrefetchedDataIsEvictedUnread() {
+    AtomicLong clock = new AtomicLong();
+    AdaptiveReadAheadPolicy policy =
+        new AdaptiveReadAheadPolicy(PhysicalIOConfiguration.DEFAULT, clock::get);
+    consume(policy, clock, ONE_MB, 5);
+    policy.onFetch(8 * ONE_MB, 2 * TEN_MS, 8 * TEN_MS);
+
+    policy.onUnreadEviction(ONE_MB);
+
+    // Halved, then recovering gradually
+    assertEquals(10 * ONE_MB, policy.getSizeForGeneration(0), ONE_KB);
+    assertEquals(12.5 * ONE_MB, policy.getSizeForGeneration(0), ONE_KB);
+  }
+
+  @Test
+  void testCreatePicksConfiguredStrategy() {
+    assertInstanceOf(
+        SequentialReadProgression.class, ReadAheadPolicy.create(PhysicalIOConfiguration.DEFAULT));
+    assertInstanceOf(
+        AdaptiveReadAheadPolicy.class,
+        ReadAheadPolicy.create(
+            PhysicalIOConfiguration.builder()
+                .sequentialPrefetchStrategy(SequentialPrefetchStrategy.ADAPTIVE)
+                .build()));
+  }
+
+  private static void consume(
+      AdaptiveReadAheadPolicy policy, AtomicLong clock, long bytesPerWindow, int windows) {
+    long pos = 0;
+    policy.onRead(pos, bytesPerWindow);
+    pos += bytesPerWindow;
+    for (int i = 0; i < windows; i++) {
+      clock.addAndGet(TEN_MS);
+      policy.onRead(pos, bytesPerWindow);
+      pos += bytesPerWindow;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.io.physical.prefetcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+
+public class StridePatternDetectorTest {
+
+  @Test
+  void testForwardStrideIsPredicted() {
+    StridePatternDetector detector = new StridePatternDetector(10_000);
+
+    assertTrue(detector.onRead(0, 10).isEmpty());
+    assertTrue(detector.onRead(100, 10).isEmpty());
+    List<Range> predicted = detector.onRead(200, 10);
+
+    assertEquals(Arrays.asList(new Range(300, 309)), predicted);
+  }
+
+  @Test
+  void testReverseScanIsPredicted() {
+    StridePatternDetector detector = new StridePatternDetector(10_000);
+
+    detector.onRead(900, 100);
+    detector.onRead(800, 100);
+    List<Range> predicted = detector.onRead(700, 100);
+
+    assertEquals(Arrays.asList(new Range(600, 699)), predicted);
+  }
+
+  @Test
+  void testPredictionsGrowWithConfidence() {
+    StridePatternDetector detector = new StridePatternDetector(100_000);
+
+    detector.onRead(0, 10);
+    detector.onRead(100, 10);
+    assertEquals(1, detector.onRead(200, 10).size());
+    assertEquals(2, detector.onRead(300, 10).size());
+    assertEquals(4, detector.onRead(400, 10).size());
+    assertEquals(StridePatternDetector.MAX_PREDICTED_READS, detector.onRead(500, 10).size());
+    assertEquals(StridePatternDetector.MAX_PREDICTED_READS, detector.onRead(600, 10).size());
+  }
+
+  @Test
+  void testBrokenPatternResetsConfidence() {
+    StridePatternDetector detector = new StridePatternDetector(10_000);
+
+    detector.onRead(0, 10);
+    detector.onRead(100, 10);
+    detector.onRead(200, 10);
+    assertEquals(2, detector.getConfidence());
+
+    assertTrue(detector.onRead(5_000, 10).isEmpty());
+    assertEquals(1, detector.getConfidence());
+  }
+
+  @Test
+  void testSequentialReadsAreNotStrided() {
+    StridePatternDetector detector = new StridePatternDetector(10_000);
+
+    assertTrue(detector.onRead(0, 100).isEmpty());
+    assertTrue(detector.onRead(100, 100).isEmpty());
+    assertTrue(detector.onRead(200, 100).isEmpty());
+    assertEquals(0, detector.getConfidence());
+  }
+
+  @Test
+  void testPredictionsStayWithinTheObject() {
+    StridePatternDetector detector = new StridePatternDetector(1_000);
+
+    detector.onRead(300, 100);
+    detector.onRead(200, 100);
+    detector.onRead(100, 100);
+    detector.onRead(0, 100);
+    assertTrue(detector.onRead(0, 100).isEmpty());
+
+    detector = new StridePatternDetector(1_100);
+    detector.onRead(600, 50);
+    detector.onRead(750, 50);
+    assertEquals(Arrays.asList(new Range(1050, 1099)), detector.onRead(900, 200));
+  }
+
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new StridePatternDetector(-1));
+    StridePatternDetector detector = new StridePatternDetector(1_000);
+    assertThrows(IllegalArgumentException.class, () -> detector.onRead(-1, 10));
+    assertThrows(IllegalArgumentException.class, () -> detector.onRead(0, -1));
+  }
+}
@@ -16,6 +16,8 @@
 package software.amazon.s3.analyticsaccelerator.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -24,6 +26,11 @@ import static org.mockito.Mockito.*;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
@@ -72,6 +79,29 @@ public class StreamUtilsTest {
     assertEquals("Hello World", new String(buf, StandardCharsets.UTF_8));
   }
 
+  @SneakyThrows
+  @Test
+  public void testToByteArrayReadsExactlyTheRequestedRange() {
+    // Given: objectContent with more bytes than the requested range
+    byte[] data = new byte[TEST_RANGE.getLength() + 10];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    InputStream inputStream = spy(new ByteArrayInputStream(data));
+    ObjectContent objectContent = ObjectContent.builder().stream(inputStream).build();
+
+    // When: toByteArray is called
+    byte[] buf =
+        StreamUtils.toByteArray(objectContent, TEST_OBJECT_KEY, TEST_RANGE, TIMEOUT_MILLIS);
+
+    // Then: exactly the bytes of the range are returned and the stream is closed
+    assertEquals(TEST_RANGE.getLength(), buf.length);
+    for (int i = 0; i < buf.length; i++) {
+      assertEquals(data[i], buf[i]);
+    }
+    verify(inputStream).close();
+  }
+
   @Test
   void toByteArrayShouldThrowTimeoutExceptionWhenStreamReadTakesTooLong() throws Exception {
     // Mock ObjectContent
@@ -96,4 +126,57 @@ public class StreamUtilsTest {
     // Verify the stream was accessed
     verify(mockContent).getStream();
   }
+
+  @Test
+  void readFullyFailsItsResultAtTimeoutEvenIfTheStreamIgnoresClose() throws Exception {
+    // Given: a stream whose read blocks until it is let go, ignoring interrupts and close
+    CountDownLatch letGo = new CountDownLatch(1);
+    InputStream stuckInputStream = mock(InputStream.class);
+    when(stuckInputStream.read(any(byte[].class), anyInt(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              while (true) {
+                try {
+                  letGo.await();
+                  return -1;
+                } catch (InterruptedException e) {
+                  // Keep blocking, like a stream stuck in a socket read
+                }
+              }
+            });
+    ObjectContent objectContent = ObjectContent.builder().stream(stuckInputStream).build();
+    CompletableFuture<Void> result = new CompletableFuture<>();
+
+    // When: the stream is read with a short timeout, on a thread of its own
+    CompletableFuture<Integer> read =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return StreamUtils.readFully(
+                    objectContent,
+                    inStream -> inStream.read(new byte[TEST_RANGE.getLength()], 0, 1),
+                    TEST_OBJECT_KEY,
+                    TEST_RANGE,
+                    100,
+                    result);
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+            });
+
+    // Then: the result is failed at the timeout, while the read is still stuck
+    ExecutionException failure =
+        assertThrows(
+            ExecutionException.class, () -> result.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    assertInstanceOf(TimeoutException.class, failure.getCause());
+    assertFalse(read.isDone());
+    verify(stuckInputStream, timeout(TIMEOUT_MILLIS)).close();
+
+    // Then: the read times out once the stream lets go
+    letGo.countDown();
+    ExecutionException readFailure =
+        assertThrows(
+            ExecutionException.class, () -> read.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    assertInstanceOf(TimeoutException.class, readFailure.getCause());
+  }
 }
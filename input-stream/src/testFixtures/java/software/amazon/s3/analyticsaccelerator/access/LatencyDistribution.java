@@ -0,0 +1,80 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.access;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+
+/** Distribution of a latency, such as the time to first byte of the requests to S3 */
+@FunctionalInterface
+public interface LatencyDistribution {
+  /** The z-score of the 99th percentile of the standard normal distribution */
+  double Z_99 = 2.326;
+
+  /**
+   * Draws a latency from the distribution.
+   *
+   * @param random source of randomness to draw with
+   * @return the latency, in nanoseconds
+   */
+  long sampleNanos(Random random);
+
+  /**
+   * A latency that is always the same.
+   *
+   * @param millis the latency, in milliseconds
+   * @return the distribution
+   */
+  static LatencyDistribution constant(long millis) {
+    Preconditions.checkArgument(millis >= 0, "`millis` must not be negative");
+    long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    return random -> nanos;
+  }
+
+  /**
+   * A latency drawn uniformly between two bounds.
+   *
+   * @param minMillis the lowest latency, in milliseconds
+   * @param maxMillis the highest latency, in milliseconds
+   * @return the distribution
+   */
+  static LatencyDistribution uniform(long minMillis, long maxMillis) {
+    Preconditions.checkArgument(minMillis >= 0, "`minMillis` must not be negative");
+    Preconditions.checkArgument(
+        minMillis <= maxMillis, "`minMillis` must not be greater than `maxMillis`");
+    long minNanos = TimeUnit.MILLISECONDS.toNanos(minMillis);
+    long spreadNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis) - minNanos;
+    return random -> minNanos + (long) (random.nextDouble() * spreadNanos);
+  }
+
+  /**
+   * A log-normal latency with the given median and 99th percentile. Time to first byte of S3 is
+   * close to log-normal, with a long tail: the 99th percentile is often several times the median.
+   *
+   * @param medianMillis the median latency, in milliseconds
+   * @param p99Millis the 99th percentile of the latency, in milliseconds
+   * @return the distribution
+   */
+  static LatencyDistribution logNormal(long medianMillis, long p99Millis) {
+    Preconditions.checkArgument(medianMillis > 0, "`medianMillis` must be positive");
+    Preconditions.checkArgument(
+        medianMillis <= p99Millis, "`medianMillis` must not be greater than `p99Millis`");
+    double medianNanos = TimeUnit.MILLISECONDS.toNanos(medianMillis);
+    double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+    return random -> (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+  }
+}
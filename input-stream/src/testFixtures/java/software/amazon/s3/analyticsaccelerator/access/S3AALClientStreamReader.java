@@ -25,12 +25,13 @@ import software.amazon.s3.analyticsaccelerator.S3SdkObjectClient;
 import software.amazon.s3.analyticsaccelerator.S3SeekableInputStream;
 import software.amazon.s3.analyticsaccelerator.S3SeekableInputStreamConfiguration;
 import software.amazon.s3.analyticsaccelerator.S3SeekableInputStreamFactory;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
 import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
 import software.amazon.s3.analyticsaccelerator.util.S3URI;
 
 /** Client stream reader based on AAL */
 public class S3AALClientStreamReader extends S3StreamReaderBase {
-  @NonNull @Getter private final S3SdkObjectClient sdkObjectClient;
+  @NonNull @Getter private final ObjectClient objectClient;
   @NonNull @Getter private final S3SeekableInputStreamFactory s3SeekableInputStreamFactory;
 
   /**
@@ -46,10 +47,27 @@ public class S3AALClientStreamReader extends S3StreamReaderBase {
       @NonNull S3SeekableInputStreamConfiguration configuration,
       @NonNull S3URI baseUri,
       int bufferSize) {
-    super(baseUri, bufferSize);
     // Create the SDK client, ensure it doesn't close the underlying client
-    this.sdkObjectClient = new S3SdkObjectClient(s3AsyncClient, false);
-    s3SeekableInputStreamFactory = new S3SeekableInputStreamFactory(sdkObjectClient, configuration);
+    this(new S3SdkObjectClient(s3AsyncClient, false), configuration, baseUri, bufferSize);
+  }
+
+  /**
+   * Creates an instance of {@link S3AALClientStreamReader} reading through the given object client,
+   * such as a {@link SimulatedS3ObjectClient}. The reader takes ownership of the client.
+   *
+   * @param objectClient the object client to read through
+   * @param configuration {@link S3SeekableInputStreamConfiguration}
+   * @param baseUri base URI for all objects
+   * @param bufferSize buffer size
+   */
+  public S3AALClientStreamReader(
+      @NonNull ObjectClient objectClient,
+      @NonNull S3SeekableInputStreamConfiguration configuration,
+      @NonNull S3URI baseUri,
+      int bufferSize) {
+    super(baseUri, bufferSize);
+    this.objectClient = objectClient;
+    s3SeekableInputStreamFactory = new S3SeekableInputStreamFactory(objectClient, configuration);
   }
 
   /**
@@ -120,6 +138,6 @@ public class S3AALClientStreamReader extends S3StreamReaderBase {
   public void close() throws IOException {
     // close the factory and the client
     this.s3SeekableInputStreamFactory.close();
-    this.sdkObjectClient.close();
+    this.objectClient.close();
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.access;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.common.Preconditions;
+
+/**
+ * How {@link SimulatedS3ObjectClient} models S3. Limits of 0 mean that there is no limit, and the
+ * default configuration adds nothing to the client it wraps.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class SimulatedS3Configuration {
+  /** Seed of the draws of latencies and failures */
+  @Builder.Default private long seed = 0;
+
+  /** Time from a request being sent to its first byte, or its failure, being received */
+  @Builder.Default
+  @NonNull
+  private LatencyDistribution firstByteLatency = LatencyDistribution.constant(0);
+
+  /** Bandwidth of a single connection, in bytes per second */
+  @Builder.Default private long connectionBytesPerSecond = 0;
+
+  /** Bandwidth shared by all connections, in bytes per second */
+  @Builder.Default private long aggregateBytesPerSecond = 0;
+
+  /** Number of requests in flight at once. Further requests wait for a connection to be free. */
+  @Builder.Default private int maxConnections = 0;
+
+  /** Probability that a request fails with a 503 SlowDown, between 0 and 1 */
+  @Builder.Default private double slowDownProbability = 0;
+
+  /** Default configuration, which models no latency, no limits and no failures */
+  public static final SimulatedS3Configuration DEFAULT = SimulatedS3Configuration.builder().build();
+
+  /**
+   * Constructs the configuration.
+   *
+   * @param seed seed of the draws of latencies and failures
+   * @param firstByteLatency time to first byte of every request
+   * @param connectionBytesPerSecond bandwidth of a single connection, in bytes per second
+   * @param aggregateBytesPerSecond bandwidth shared by all connections, in bytes per second
+   * @param maxConnections number of requests in flight at once
+   * @param slowDownProbability probability that a request fails with a 503 SlowDown
+   */
+  @Builder
+  private SimulatedS3Configuration(
+      long seed,
+      @NonNull LatencyDistribution firstByteLatency,
+      long connectionBytesPerSecond,
+      long aggregateBytesPerSecond,
+      int maxConnections,
+      double slowDownProbability) {
+    Preconditions.checkArgument(
+        connectionBytesPerSecond >= 0, "`connectionBytesPerSecond` must not be negative");
+    Preconditions.checkArgument(
+        aggregateBytesPerSecond >= 0, "`aggregateBytesPerSecond` must not be negative");
+    Preconditions.checkArgument(maxConnections >= 0, "`maxConnections` must not be negative");
+    Preconditions.checkArgument(
+        slowDownProbability >= 0 && slowDownProbability <= 1,
+        "`slowDownProbability` must be between 0 and 1");
+
+    this.seed = seed;
+    this.firstByteLatency = firstByteLatency;
+    this.connectionBytesPerSecond = connectionBytesPerSecond;
+    this.aggregateBytesPerSecond = aggregateBytesPerSecond;
+    this.maxConnections = maxConnections;
+    this.slowDownProbability = slowDownProbability;
+  }
+}
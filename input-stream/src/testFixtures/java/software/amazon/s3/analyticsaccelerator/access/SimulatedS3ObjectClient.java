@@ -0,0 +1,354 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator.access;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.s3.analyticsaccelerator.exceptions.ExceptionHandler;
+import software.amazon.s3.analyticsaccelerator.request.GetRequest;
+import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
+import software.amazon.s3.analyticsaccelerator.request.ObjectClient;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.TailRequest;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+/**
+ * An {@link ObjectClient} that serves the objects of another client the way S3 would, to tune
+ * prefetching and concurrency without S3. Wrapping a {@link
+ * software.amazon.s3.analyticsaccelerator.LocalFileObjectClient} runs the whole library against
+ * local files with the latencies, bandwidth and throttling of S3, as modelled by a {@link
+ * SimulatedS3Configuration}.
+ *
+ * <p>Every request holds one of a limited number of connections until its response has been read
+ * or closed, waits for its time to first byte, and may then fail with a 503 SlowDown, as the SDK
+ * client would report it. Responses are then streamed no faster than the bandwidth of a connection
+ * and the bandwidth shared by all connections allow.
+ *
+ * <p>Latencies and failures are drawn from a random source seeded with the seed of the
+ * configuration, the request and the number of times the same request has been made, so that runs
+ * with the same requests see the same latencies and failures whatever the order of the requests.
+ */
+public class SimulatedS3ObjectClient implements ObjectClient {
+  private static final int MAX_CHUNK_BYTES = 64 * 1024;
+
+  @Getter @NonNull private final ObjectClient delegate;
+  @Getter @NonNull private final SimulatedS3Configuration configuration;
+  private final ExecutorService executor;
+  private final Semaphore connections;
+  private final BandwidthPacer aggregateBandwidth;
+  private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+  private final AtomicLong headRequests = new AtomicLong();
+  private final AtomicLong getRequests = new AtomicLong();
+  private final AtomicLong slowDowns = new AtomicLong();
+  private final AtomicLong bytesServed = new AtomicLong();
+  private final AtomicInteger connectionsInUse = new AtomicInteger();
+  private final AtomicInteger peakConnectionsInUse = new AtomicInteger();
+
+  /**
+   * Creates a client serving the objects of the given client the way S3 would.
+   *
+   * @param delegate the client serving the objects
+   * @param configuration how to model S3
+   */
+  public SimulatedS3ObjectClient(
+      @NonNull ObjectClient delegate, @NonNull SimulatedS3Configuration configuration) {
+    this.delegate = delegate;
+    this.configuration = configuration;
+    this.executor =
+        Executors.newCachedThreadPool(
+            task -> {
+              Thread thread = new Thread(task, "simulated-s3");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.connections =
+        configuration.getMaxConnections() > 0
+            ? new Semaphore(configuration.getMaxConnections(), true)
+            : null;
+    this.aggregateBandwidth =
+        configuration.getAggregateBytesPerSecond() > 0
+            ? new BandwidthPacer(configuration.getAggregateBytesPerSecond())
+            : null;
+  }
+
+  @Override
+  public CompletableFuture<ObjectMetadata> headObject(
+      HeadRequest headRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = headRequest.getS3Uri();
+    return CompletableFuture.supplyAsync(
+        () -> {
+          headRequests.incrementAndGet();
+          acquireConnection();
+          try {
+            awaitFirstByte(s3Uri, "HEAD " + s3Uri);
+            return delegate.headObject(headRequest, openStreamInformation).join();
+          } finally {
+            releaseConnection();
+          }
+        },
+        executor);
+  }
+
+  @Override
+  public CompletableFuture<ObjectContent> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = getRequest.getS3Uri();
+    return get(
+        s3Uri,
+        "GET " + s3Uri + " " + getRequest.getRange().toHttpString(),
+        () -> delegate.getObject(getRequest, openStreamInformation).join());
+  }
+
+  @Override
+  public CompletableFuture<ObjectContent> getObjectTail(
+      TailRequest tailRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = tailRequest.getS3Uri();
+    return get(
+        s3Uri,
+        "GET " + s3Uri + " " + tailRequest.toHttpString(),
+        () -> delegate.getObjectTail(tailRequest, openStreamInformation).join());
+  }
+
+  /**
+   * Returns the number of requests made so far, and what they were served.
+   *
+   * @return the counts of the requests made so far
+   */
+  public RequestCounts getRequestCounts() {
+    return new RequestCounts(
+        headRequests.get(),
+        getRequests.get(),
+        slowDowns.get(),
+        bytesServed.get(),
+        peakConnectionsInUse.get());
+  }
+
+  /** Closes the wrapped client, and stops the threads of this one */
+  @Override
+  public void close() throws IOException {
+    executor.shutdown();
+    delegate.close();
+  }
+
+  private CompletableFuture<ObjectContent> get(
+      S3URI s3Uri, String request, Supplier<ObjectContent> response) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          getRequests.incrementAndGet();
+          acquireConnection();
+          try {
+            awaitFirstByte(s3Uri, request);
+            ObjectContent content = response.get();
+            return ObjectContent.builder()
+                .stream(new SimulatedResponseStream(content.getStream()))
+                .metadata(content.getMetadata())
+                .build();
+          } catch (RuntimeException e) {
+            releaseConnection();
+            throw e;
+          }
+        },
+        executor);
+  }
+
+  // Waits for the time to first byte of a request, and fails it if it is throttled
+  private void awaitFirstByte(S3URI s3Uri, String request) {
+    int attempt = attempts.computeIfAbsent(request, key -> new AtomicInteger()).getAndIncrement();
+    Random random = new Random(Objects.hash(configuration.getSeed(), request, attempt));
+    try {
+      sleepNanos(configuration.getFirstByteLatency().sampleNanos(random));
+    } catch (InterruptedIOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (random.nextDouble() < configuration.getSlowDownProbability()) {
+      slowDowns.incrementAndGet();
+      Throwable slowDown =
+          S3Exception.builder()
+              .statusCode(503)
+              .awsErrorDetails(
+                  AwsErrorDetails.builder()
+                      .errorCode("SlowDown")
+                      .errorMessage("Please reduce your request rate.")
+                      .build())
+              .message("Please reduce your request rate.")
+              .build();
+      throw new UncheckedIOException(ExceptionHandler.toIOException(slowDown, s3Uri));
+    }
+  }
+
+  private void acquireConnection() {
+    if (connections != null) {
+      try {
+        connections.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting"));
+      }
+    }
+    int inUse = connectionsInUse.incrementAndGet();
+    peakConnectionsInUse.accumulateAndGet(inUse, Math::max);
+  }
+
+  private void releaseConnection() {
+    connectionsInUse.decrementAndGet();
+    if (connections != null) {
+      connections.release();
+    }
+  }
+
+  private static void sleepNanos(long nanos) throws InterruptedIOException {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while simulating S3");
+    }
+  }
+
+  /** Counts of the requests made to a {@link SimulatedS3ObjectClient} */
+  @Value
+  public static class RequestCounts {
+    /** Number of HEAD requests */
+    long headRequests;
+
+    /** Number of GET requests, including those for the tail of an object */
+    long getRequests;
+
+    /** Number of requests that failed with a 503 SlowDown */
+    long slowDowns;
+
+    /** Number of bytes of the responses that have been read */
+    long bytesServed;
+
+    /** Highest number of requests that were in flight at once */
+    int peakConnectionsInUse;
+  }
+
+  /** Paces the bytes sent over a link of a given bandwidth */
+  private static final class BandwidthPacer {
+    private final double nanosPerByte;
+    private long nextFreeNanos = System.nanoTime();
+
+    BandwidthPacer(long bytesPerSecond) {
+      this.nanosPerByte = (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+    }
+
+    /**
+     * Books the link for sending the given number of bytes after the bytes already booked.
+     *
+     * @param bytes the number of bytes to send
+     * @return the time until the bytes have been sent, in nanoseconds
+     */
+    synchronized long book(int bytes) {
+      long now = System.nanoTime();
+      long start = Math.max(now, nextFreeNanos);
+      nextFreeNanos = start + (long) (bytes * nanosPerByte);
+      return nextFreeNanos - now;
+    }
+  }
+
+  /**
+   * Response stream that holds a connection until it is read to the end or closed, and is read no
+   * faster than the bandwidth allows.
+   */
+  private final class SimulatedResponseStream extends FilterInputStream {
+    private final BandwidthPacer connectionBandwidth;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    SimulatedResponseStream(InputStream response) {
+      super(response);
+      this.connectionBandwidth =
+          configuration.getConnectionBytesPerSecond() > 0
+              ? new BandwidthPacer(configuration.getConnectionBytesPerSecond())
+              : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      int read = read(buffer, 0, 1);
+      return read == -1 ? -1 : buffer[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, Math.min(length, MAX_CHUNK_BYTES));
+      if (read == -1) {
+        release();
+        return -1;
+      }
+      long waitNanos = 0;
+      if (connectionBandwidth != null) {
+        waitNanos = connectionBandwidth.book(read);
+      }
+      if (aggregateBandwidth != null) {
+        waitNanos = Math.max(waitNanos, aggregateBandwidth.book(read));
+      }
+      sleepNanos(waitNanos);
+      bytesServed.addAndGet(read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      byte[] buffer = new byte[(int) Math.min(n, MAX_CHUNK_BYTES)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        release();
+      }
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        releaseConnection();
+      }
+    }
+  }
+}
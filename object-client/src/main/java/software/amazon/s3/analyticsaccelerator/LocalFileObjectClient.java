@@ -0,0 +1,314 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.NonNull;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.ConfigurableTelemetry;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Operation;
+import software.amazon.s3.analyticsaccelerator.common.telemetry.Telemetry;
+import software.amazon.s3.analyticsaccelerator.request.*;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+/**
+ * Object client serving objects from files in a local directory, to run the library against
+ * datasets on disk without an object store. The object {@code s3://bucket/key} is the file {@code
+ * key} in the directory {@code bucket} under the root directory.
+ *
+ * <p>Ranged GETs are served with positional reads of a {@link FileChannel}, on the threads of the
+ * client. The ETag of an object is derived from the size and the last modified time of its file,
+ * and a GET of an object whose file has changed since its ETag was learnt fails, as a GET with an
+ * If-Match header would. Stream audit contexts and encryption secrets are ignored.
+ */
+public class LocalFileObjectClient implements ObjectClient {
+
+  @Getter @NonNull private final Path root;
+  @NonNull private final Telemetry telemetry;
+  @NonNull private final ExecutorService executor;
+
+  /**
+   * Create an instance of a client serving objects from files under the given directory, with
+   * default configuration.
+   *
+   * @param root the directory holding a directory for every bucket
+   */
+  public LocalFileObjectClient(@NonNull Path root) {
+    this(root, ObjectClientConfiguration.DEFAULT);
+  }
+
+  /**
+   * Create an instance of a client serving objects from files under the given directory.
+   *
+   * @param root the directory holding a directory for every bucket
+   * @param objectClientConfiguration Configuration for object client.
+   */
+  public LocalFileObjectClient(
+      @NonNull Path root, @NonNull ObjectClientConfiguration objectClientConfiguration) {
+    this.root = root.toAbsolutePath().normalize();
+    this.telemetry =
+        new ConfigurableTelemetry(objectClientConfiguration.getTelemetryConfiguration());
+    this.executor =
+        Executors.newCachedThreadPool(
+            task -> {
+              Thread thread = new Thread(task, "local-file-object-client");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Stops the threads of the client. Streams that are still open can still be read. */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  @Override
+  public CompletableFuture<ObjectMetadata> headObject(
+      HeadRequest headRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = headRequest.getS3Uri();
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_HEAD)
+                .attribute(ObjectClientTelemetry.uri(s3Uri))
+                .build(),
+        supplyAsync(s3Uri, () -> metadataOf(readAttributes(s3Uri))));
+  }
+
+  @Override
+  public CompletableFuture<ObjectContent> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = getRequest.getS3Uri();
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_GET)
+                .attribute(ObjectClientTelemetry.uri(s3Uri))
+                .attribute(ObjectClientTelemetry.rangeLength(getRequest.getRange()))
+                .attribute(ObjectClientTelemetry.range(getRequest.getRange()))
+                .build(),
+        supplyAsync(
+            s3Uri,
+            () -> {
+              FileChannel channel = open(s3Uri);
+              try {
+                ObjectMetadata metadata = metadataOf(readAttributes(s3Uri));
+                if (!metadata.getEtag().equals(getRequest.getEtag())) {
+                  throw new IOException(
+                      String.format(
+                          "Object %s has changed, expected ETag %s but found %s",
+                          s3Uri, getRequest.getEtag(), metadata.getEtag()));
+                }
+                Range range = getRequest.getRange();
+                if (range.getStart() >= metadata.getContentLength()) {
+                  throw new IOException(
+                      String.format(
+                          "Range %s of object %s of %d bytes is not satisfiable",
+                          range, s3Uri, metadata.getContentLength()));
+                }
+                long end = Math.min(range.getEnd(), metadata.getContentLength() - 1);
+                return ObjectContent.builder()
+                    .stream(new FileRangeInputStream(channel, range.getStart(), end + 1))
+                    .build();
+              } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+              }
+            }));
+  }
+
+  /**
+   * Opens the file of the object once, and learns its size and ETag from the file itself.
+   *
+   * @param tailRequest The request for the tail of the object to be sent
+   * @param openStreamInformation contains stream information
+   * @return an instance of {@link CompletableFuture} of type {@link ObjectContent}
+   */
+  @Override
+  public CompletableFuture<ObjectContent> getObjectTail(
+      TailRequest tailRequest, OpenStreamInformation openStreamInformation) {
+    S3URI s3Uri = tailRequest.getS3Uri();
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_GET_TAIL)
+                .attribute(ObjectClientTelemetry.uri(s3Uri))
+                .attribute(ObjectClientTelemetry.rangeLength(tailRequest.getLength()))
+                .build(),
+        supplyAsync(
+            s3Uri,
+            () -> {
+              FileChannel channel = open(s3Uri);
+              try {
+                ObjectMetadata metadata = metadataOf(readAttributes(s3Uri));
+                long contentLength = metadata.getContentLength();
+                return ObjectContent.builder()
+                    .stream(
+                        new FileRangeInputStream(
+                            channel,
+                            Math.max(0, contentLength - tailRequest.getLength()),
+                            contentLength))
+                    .metadata(metadata)
+                    .build();
+              } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+              }
+            }));
+  }
+
+  /**
+   * Resolves the file holding an object. Keys that would resolve to a file outside of the bucket
+   * directory, such as keys with {@code ..} segments, do not name any object.
+   *
+   * @param s3Uri the object
+   * @return the path of the file holding the object
+   * @throws FileNotFoundException if the key is outside of the bucket directory
+   */
+  Path pathOf(S3URI s3Uri) throws FileNotFoundException {
+    Path bucket = root.resolve(s3Uri.getBucket()).normalize();
+    Path path = bucket.resolve(s3Uri.getKey()).normalize();
+    if (!bucket.getParent().equals(root) || !path.startsWith(bucket) || path.equals(bucket)) {
+      throw new FileNotFoundException(String.format("Object not found %s", s3Uri));
+    }
+    return path;
+  }
+
+  /**
+   * Derives an ETag from the attributes of a file. The ETag changes whenever the file is rewritten,
+   * as long as its size or last modified time changes.
+   *
+   * @param attributes the attributes of the file
+   * @return the quoted ETag of the file
+   */
+  static String etagOf(BasicFileAttributes attributes) {
+    return String.format(
+        "\"%x-%x\"", attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size());
+  }
+
+  private static ObjectMetadata metadataOf(BasicFileAttributes attributes) {
+    return ObjectMetadata.builder()
+        .contentLength(attributes.size())
+        .etag(etagOf(attributes))
+        .build();
+  }
+
+  private BasicFileAttributes readAttributes(S3URI s3Uri) throws IOException {
+    try {
+      BasicFileAttributes attributes =
+          Files.readAttributes(pathOf(s3Uri), BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        throw new FileNotFoundException(String.format("Object not found %s", s3Uri));
+      }
+      return attributes;
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(String.format("Object not found %s", s3Uri));
+    }
+  }
+
+  private FileChannel open(S3URI s3Uri) throws IOException {
+    try {
+      return FileChannel.open(pathOf(s3Uri), StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(String.format("Object not found %s", s3Uri));
+    }
+  }
+
+  private <T> CompletableFuture<T> supplyAsync(S3URI s3Uri, IOSupplier<T> supplier) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return supplier.get();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          } catch (RuntimeException e) {
+            throw new UncheckedIOException(
+                new IOException(String.format("Error accessing %s", s3Uri), e));
+          }
+        },
+        executor);
+  }
+
+  /** Supplies a value, or fails with an {@link IOException} */
+  @FunctionalInterface
+  private interface IOSupplier<T> {
+    T get() throws IOException;
+  }
+
+  /** Stream of a range of a file, read with positional reads, which closes the file once closed */
+  private static final class FileRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    FileRangeInputStream(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      int read = read(buffer, 0, 1);
+      return read == -1 ? -1 : buffer[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      int toRead = (int) Math.min(length, end - position);
+      int read = channel.read(ByteBuffer.wrap(buffer, offset, toRead), position);
+      if (read == -1) {
+        // The file has been truncated since it was opened
+        throw new IOException("Unexpected end of file at position " + position);
+      }
+      position += read;
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
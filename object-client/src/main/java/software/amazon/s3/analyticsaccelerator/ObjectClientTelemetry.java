@@ -31,6 +31,7 @@ enum ObjectClientTelemetry {
   private final String name;
 
   public static final String OPERATION_GET = "s3.client.get";
+  public static final String OPERATION_GET_TAIL = "s3.client.get.tail";
   public static final String OPERATION_HEAD = "s3.client.head";
 
   /**
@@ -63,4 +64,14 @@ enum ObjectClientTelemetry {
     return Attribute.of(
         ObjectClientTelemetry.RANGE_LENGTH.getName(), Long.toString(range.getLength()));
   }
+
+  /**
+   * Creates an {@link Attribute} for the length of a range.
+   *
+   * @param length the length of the range
+   * @return The new instance of the {@link Attribute}.
+   */
+  public static Attribute rangeLength(long length) {
+    return Attribute.of(ObjectClientTelemetry.RANGE_LENGTH.getName(), Long.toString(length));
+  }
 }
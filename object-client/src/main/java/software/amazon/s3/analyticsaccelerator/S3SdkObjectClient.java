@@ -166,17 +166,134 @@ public class S3SdkObjectClient implements ObjectClient {
       GetRequest getRequest, OpenStreamInformation openStreamInformation) {
 
     GetObjectRequest.Builder builder =
-        GetObjectRequest.builder()
-            .bucket(getRequest.getS3Uri().getBucket())
-            .ifMatch(getRequest.getEtag())
-            .key(getRequest.getS3Uri().getKey());
+        getObjectRequestBuilder(
+                getRequest.getS3Uri(), getRequest.getReferrer(), openStreamInformation)
+            .ifMatch(getRequest.getEtag());
 
     final String range = getRequest.getRange().toHttpString();
     builder.range(range);
 
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_GET)
+                .attribute(ObjectClientTelemetry.uri(getRequest.getS3Uri()))
+                .attribute(ObjectClientTelemetry.rangeLength(getRequest.getRange()))
+                .attribute(ObjectClientTelemetry.range(getRequest.getRange()))
+                .build(),
+        s3AsyncClient
+            .getObject(builder.build(), AsyncResponseTransformer.toBlockingInputStream())
+            .thenApply(
+                responseInputStream -> ObjectContent.builder().stream(responseInputStream).build())
+            .exceptionally(handleException(getRequest.getS3Uri())));
+  }
+
+  /**
+   * Hands the body of the response to the sink as the SDK publishes it, rather than through a
+   * blocking stream, so that a transfer does not hold a thread for as long as it takes.
+   *
+   * @param getRequest The GET request to be sent
+   * @param openStreamInformation contains stream information
+   * @param sink the sink to hand the body of the response to
+   * @return an instance of {@link CompletableFuture} completed once the body has been handed over
+   */
+  @Override
+  public CompletableFuture<Void> getObject(
+      GetRequest getRequest, OpenStreamInformation openStreamInformation, ObjectContentSink sink) {
+
+    GetObjectRequest.Builder builder =
+        getObjectRequestBuilder(
+                getRequest.getS3Uri(), getRequest.getReferrer(), openStreamInformation)
+            .ifMatch(getRequest.getEtag())
+            .range(getRequest.getRange().toHttpString());
+
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_GET)
+                .attribute(ObjectClientTelemetry.uri(getRequest.getS3Uri()))
+                .attribute(ObjectClientTelemetry.rangeLength(getRequest.getRange()))
+                .attribute(ObjectClientTelemetry.range(getRequest.getRange()))
+                .build(),
+        s3AsyncClient
+            .getObject(builder.build(), new SinkResponseTransformer(sink))
+            .exceptionally(handleException(getRequest.getS3Uri())));
+  }
+
+  /**
+   * Makes a single GET with a suffix range for the tail of the object, and learns the size of the
+   * object from the Content-Range of the response, and its ETag from the ETag of the response.
+   *
+   * @param tailRequest The request for the tail of the object to be sent
+   * @param openStreamInformation contains stream information
+   * @return an instance of {@link CompletableFuture} of type {@link ObjectContent}
+   */
+  @Override
+  public CompletableFuture<ObjectContent> getObjectTail(
+      TailRequest tailRequest, OpenStreamInformation openStreamInformation) {
+
+    GetObjectRequest.Builder builder =
+        getObjectRequestBuilder(
+                tailRequest.getS3Uri(), tailRequest.getReferrer(), openStreamInformation)
+            .range(tailRequest.toHttpString());
+
+    return this.telemetry.measureCritical(
+        () ->
+            Operation.builder()
+                .name(ObjectClientTelemetry.OPERATION_GET_TAIL)
+                .attribute(ObjectClientTelemetry.uri(tailRequest.getS3Uri()))
+                .attribute(ObjectClientTelemetry.rangeLength(tailRequest.getLength()))
+                .build(),
+        s3AsyncClient
+            .getObject(builder.build(), AsyncResponseTransformer.toBlockingInputStream())
+            .thenApply(
+                responseInputStream ->
+                    ObjectContent.builder()
+                        .stream(responseInputStream)
+                        .metadata(
+                            ObjectMetadata.builder()
+                                .contentLength(
+                                    objectLength(
+                                        responseInputStream.response().contentRange(),
+                                        responseInputStream.response().contentLength()))
+                                .etag(responseInputStream.response().eTag())
+                                .build())
+                        .build())
+            .exceptionally(handleException(tailRequest.getS3Uri())));
+  }
+
+  /**
+   * Works out the length of the whole object from the response to a ranged GET. The length is the
+   * complete length of the Content-Range header, such as 42 in {@code bytes 22-41/42}. If there is
+   * no Content-Range, the response holds the whole object.
+   *
+   * @param contentRange the Content-Range header of the response, possibly null
+   * @param contentLength the Content-Length header of the response, possibly null
+   * @return the length of the object
+   */
+  static long objectLength(String contentRange, Long contentLength) {
+    if (contentRange == null) {
+      if (contentLength == null) {
+        throw new IllegalStateException("Response has neither Content-Range nor Content-Length");
+      }
+      return contentLength;
+    }
+    int separator = contentRange.lastIndexOf('/');
+    try {
+      return Long.parseLong(contentRange.substring(separator + 1).trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Unexpected Content-Range: " + contentRange, e);
+    }
+  }
+
+  private GetObjectRequest.Builder getObjectRequestBuilder(
+      S3URI s3Uri, Referrer referrer, OpenStreamInformation openStreamInformation) {
+    GetObjectRequest.Builder builder =
+        GetObjectRequest.builder().bucket(s3Uri.getBucket()).key(s3Uri.getKey());
+
     AwsRequestOverrideConfiguration.Builder requestOverrideConfigurationBuilder =
         AwsRequestOverrideConfiguration.builder()
-            .putHeader(HEADER_REFERER, getRequest.getReferrer().toString())
+            .putHeader(HEADER_REFERER, referrer.toString())
             .putHeader(HEADER_USER_AGENT, this.userAgent.getUserAgent());
 
     if (openStreamInformation.getStreamAuditContext() != null) {
@@ -195,20 +312,7 @@ public class S3SdkObjectClient implements ObjectClient {
           .sseCustomerKey(customerKey)
           .sseCustomerKeyMD5(customerKeyMd5);
     }
-
-    return this.telemetry.measureCritical(
-        () ->
-            Operation.builder()
-                .name(ObjectClientTelemetry.OPERATION_GET)
-                .attribute(ObjectClientTelemetry.uri(getRequest.getS3Uri()))
-                .attribute(ObjectClientTelemetry.rangeLength(getRequest.getRange()))
-                .attribute(ObjectClientTelemetry.range(getRequest.getRange()))
-                .build(),
-        s3AsyncClient
-            .getObject(builder.build(), AsyncResponseTransformer.toBlockingInputStream())
-            .thenApply(
-                responseInputStream -> ObjectContent.builder().stream(responseInputStream).build())
-            .exceptionally(handleException(getRequest.getS3Uri())));
+    return builder;
   }
 
   private <T> Function<Throwable, T> handleException(S3URI s3Uri) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import lombok.NonNull;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+
+/**
+ * Hands the body of a GET response to an {@link ObjectContentSink} as the SDK publishes it, so that
+ * no thread is blocked reading the body. The future completes once the whole body has been handed
+ * over.
+ *
+ * <p>The SDK may retry a request that fails part way through the body, in which case the body is
+ * published again from its start. As the request is pinned to the ETag of the object, the bytes
+ * are the same, so the ones the sink has been handed already are skipped and the sink sees the body
+ * exactly once.
+ */
+class SinkResponseTransformer implements AsyncResponseTransformer<GetObjectResponse, Void> {
+  private final ObjectContentSink sink;
+  private volatile CompletableFuture<Void> future;
+  private volatile boolean responded;
+
+  /** Number of bytes of the body handed to the sink, across all attempts */
+  private volatile long delivered;
+
+  /**
+   * Creates a new SinkResponseTransformer.
+   *
+   * @param sink the sink to hand the body to
+   */
+  SinkResponseTransformer(@NonNull ObjectContentSink sink) {
+    this.sink = sink;
+  }
+
+  @Override
+  public CompletableFuture<Void> prepare() {
+    // Called again for every attempt of the request
+    this.future = new CompletableFuture<>();
+    return this.future;
+  }
+
+  @Override
+  public void onResponse(GetObjectResponse response) {
+    if (!responded) {
+      responded = true;
+      try {
+        sink.onResponse();
+      } catch (RuntimeException e) {
+        this.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  @Override
+  public void onStream(SdkPublisher<ByteBuffer> publisher) {
+    publisher.subscribe(new BodySubscriber(this.future));
+  }
+
+  @Override
+  public void exceptionOccurred(Throwable error) {
+    this.future.completeExceptionally(error);
+  }
+
+  /** Subscribes to the body of one attempt of the request */
+  private final class BodySubscriber implements Subscriber<ByteBuffer> {
+    private final CompletableFuture<Void> attempt;
+    private Subscription subscription;
+
+    /** Number of bytes of the body published by this attempt */
+    private long position;
+
+    private BodySubscriber(CompletableFuture<Void> attempt) {
+      this.attempt = attempt;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      if (this.subscription != null || attempt.isDone()) {
+        subscription.cancel();
+        return;
+      }
+      this.subscription = subscription;
+      // The sink copies every chunk before returning, so there is no need to hold chunks back
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+      if (attempt.isDone()) {
+        return;
+      }
+      long end = position + chunk.remaining();
+      if (end > delivered) {
+        if (position < delivered) {
+          chunk.position(chunk.position() + (int) (delivered - position));
+        }
+        try {
+          sink.onChunk(chunk);
+        } catch (RuntimeException e) {
+          subscription.cancel();
+          attempt.completeExceptionally(e);
+          return;
+        }
+        delivered = end;
+      }
+      position = end;
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      attempt.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      attempt.complete(null);
+    }
+  }
+}
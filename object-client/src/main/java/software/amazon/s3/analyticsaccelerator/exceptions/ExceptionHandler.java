@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.stream.Stream;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
 import software.amazon.awssdk.services.s3.model.InvalidObjectStateException;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
@@ -46,6 +47,8 @@ public enum ExceptionHandler {
   SDK_GENERAL(
       SdkException.class, (cause, uri) -> createIOException("SDK error accessing %s", uri, cause));
 
+  private static final int SERVICE_UNAVAILABLE = 503;
+
   private final Class<? extends Exception> exceptionClass;
   private final ExceptionMapper mapper;
 
@@ -75,6 +78,24 @@ public enum ExceptionHandler {
         .orElseGet(() -> createIOException("Error accessing %s", uri, cause));
   }
 
+  /**
+   * Whether the passed exception, or any of its causes, is the object store throttling requests,
+   * such as a 503 SlowDown from S3.
+   *
+   * @param exception The exception to be checked
+   * @return true if requests were throttled
+   */
+  public static boolean isThrottling(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SdkServiceException) {
+        SdkServiceException serviceException = (SdkServiceException) cause;
+        return serviceException.isThrottlingException()
+            || serviceException.statusCode() == SERVICE_UNAVAILABLE;
+      }
+    }
+    return false;
+  }
+
   /**
    * Provides sample exceptions for all the exception types handled
    *
@@ -0,0 +1,175 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.s3.analyticsaccelerator.request.GetRequest;
+import software.amazon.s3.analyticsaccelerator.request.HeadRequest;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContent;
+import software.amazon.s3.analyticsaccelerator.request.ObjectMetadata;
+import software.amazon.s3.analyticsaccelerator.request.Range;
+import software.amazon.s3.analyticsaccelerator.request.ReadMode;
+import software.amazon.s3.analyticsaccelerator.request.Referrer;
+import software.amazon.s3.analyticsaccelerator.request.TailRequest;
+import software.amazon.s3.analyticsaccelerator.util.OpenStreamInformation;
+import software.amazon.s3.analyticsaccelerator.util.S3URI;
+
+public class LocalFileObjectClientTest {
+  private static final String DATA = "0123456789abcdefghij";
+  private static final S3URI S3_URI = S3URI.of("bucket", "dir/data.csv");
+
+  @TempDir Path root;
+  private LocalFileObjectClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(root.resolve("bucket").resolve("dir"));
+    Files.write(root.resolve("bucket").resolve("dir").resolve("data.csv"), bytes(DATA));
+    client = new LocalFileObjectClient(root);
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+  }
+
+  @Test
+  void testHeadObject() {
+    ObjectMetadata metadata = head(S3_URI);
+
+    assertEquals(DATA.length(), metadata.getContentLength());
+    assertEquals(metadata.getEtag(), head(S3_URI).getEtag());
+  }
+
+  @Test
+  void testGetObjectReadsRange() throws IOException {
+    assertEquals("2345", get(S3_URI, new Range(2, 5), head(S3_URI).getEtag()));
+  }
+
+  @Test
+  void testGetObjectClampsRangeToObject() throws IOException {
+    assertEquals("ghij", get(S3_URI, new Range(16, 100), head(S3_URI).getEtag()));
+  }
+
+  @Test
+  void testGetObjectFailsOnUnsatisfiableRange() {
+    String etag = head(S3_URI).getEtag();
+    assertThrowsIOException(IOException.class, () -> get(S3_URI, new Range(20, 30), etag));
+  }
+
+  @Test
+  void testGetObjectFailsOnceFileChanges() throws IOException {
+    String etag = head(S3_URI).getEtag();
+    Path file = root.resolve("bucket").resolve("dir").resolve("data.csv");
+    Files.write(file, bytes(DATA + DATA));
+    Files.setLastModifiedTime(
+        file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+    assertNotEquals(etag, head(S3_URI).getEtag());
+    assertThrowsIOException(IOException.class, () -> get(S3_URI, new Range(0, 3), etag));
+  }
+
+  @Test
+  void testMissingObjectsAreNotFound() {
+    assertThrowsIOException(
+        FileNotFoundException.class, () -> head(S3URI.of("bucket", "dir/missing.csv")));
+    assertThrowsIOException(FileNotFoundException.class, () -> head(S3URI.of("bucket", "dir")));
+    assertThrowsIOException(
+        FileNotFoundException.class, () -> head(S3URI.of("bucket", "../other/data.csv")));
+    assertThrowsIOException(
+        FileNotFoundException.class, () -> head(S3URI.of("..", "bucket/dir/data.csv")));
+  }
+
+  @Test
+  void testGetObjectTailLearnsMetadata() throws IOException {
+    ObjectContent content =
+        client
+            .getObjectTail(
+                TailRequest.builder()
+                    .s3Uri(S3_URI)
+                    .length(5)
+                    .referrer(new Referrer(null, ReadMode.SYNC))
+                    .build(),
+                OpenStreamInformation.DEFAULT)
+            .join();
+
+    assertEquals(head(S3_URI), content.getMetadata());
+    assertEquals("fghij", read(content));
+  }
+
+  private ObjectMetadata head(S3URI s3Uri) {
+    return client
+        .headObject(HeadRequest.builder().s3Uri(s3Uri).build(), OpenStreamInformation.DEFAULT)
+        .join();
+  }
+
+  private String get(S3URI s3Uri, Range range, String etag) throws IOException {
+    return read(
+        client
+            .getObject(
+                GetRequest.builder()
+                    .s3Uri(s3Uri)
+                    .range(range)
+                    .etag(etag)
+                    .referrer(new Referrer(range.toHttpString(), ReadMode.SYNC))
+                    .build(),
+                OpenStreamInformation.DEFAULT)
+            .join());
+  }
+
+  private static String read(ObjectContent content) throws IOException {
+    try (InputStream stream = content.getStream()) {
+      StringBuilder data = new StringBuilder();
+      byte[] buffer = new byte[3];
+      int read;
+      while ((read = stream.read(buffer, 0, buffer.length)) != -1) {
+        data.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+      }
+      return data.toString();
+    }
+  }
+
+  private static byte[] bytes(String data) {
+    return data.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void assertThrowsIOException(
+      Class<? extends IOException> expected, ThrowingRunnable runnable) {
+    CompletionException e = assertThrows(CompletionException.class, runnable::run);
+    assertInstanceOf(UncheckedIOException.class, e.getCause());
+    assertInstanceOf(expected, e.getCause().getCause());
+  }
+
+  /** A test action that may fail */
+  @FunctionalInterface
+  private interface ThrowingRunnable {
+    void run() throws IOException;
+  }
+}
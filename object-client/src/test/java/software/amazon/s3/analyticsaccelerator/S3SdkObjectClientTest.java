@@ -227,6 +227,54 @@ public class S3SdkObjectClientTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void testGetObjectTailLearnsMetadataFromResponse() {
+    S3AsyncClient mockS3AsyncClient = mock(S3AsyncClient.class);
+    when(mockS3AsyncClient.getObject(
+            any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new ResponseInputStream<>(
+                    GetObjectResponse.builder()
+                        .contentRange("bytes 22-41/42")
+                        .contentLength(20L)
+                        .eTag(ETAG)
+                        .build(),
+                    AbortableInputStreamSubscriber.builder().build())));
+    S3SdkObjectClient client = new S3SdkObjectClient(mockS3AsyncClient);
+
+    ObjectContent objectContent =
+        client
+            .getObjectTail(
+                TailRequest.builder()
+                    .s3Uri(TEST_URI)
+                    .length(20)
+                    .referrer(new Referrer("bytes=-20", ReadMode.PREFETCH_TAIL))
+                    .build(),
+                OpenStreamInformation.DEFAULT)
+            .join();
+
+    assertEquals(
+        ObjectMetadata.builder().contentLength(42).etag(ETAG).build(),
+        objectContent.getMetadata());
+    ArgumentCaptor<GetObjectRequest> requestCaptor =
+        ArgumentCaptor.forClass(GetObjectRequest.class);
+    verify(mockS3AsyncClient)
+        .getObject(requestCaptor.capture(), any(AsyncResponseTransformer.class));
+    assertEquals("bytes=-20", requestCaptor.getValue().range());
+    assertNull(requestCaptor.getValue().ifMatch());
+  }
+
+  @Test
+  void testObjectLength() {
+    assertEquals(42, S3SdkObjectClient.objectLength("bytes 22-41/42", 20L));
+    assertEquals(42, S3SdkObjectClient.objectLength(null, 42L));
+    assertThrows(
+        IllegalStateException.class, () -> S3SdkObjectClient.objectLength("bytes 22-41/*", 20L));
+    assertThrows(IllegalStateException.class, () -> S3SdkObjectClient.objectLength(null, null));
+  }
+
   @Test
   void testObjectClientClose() {
     try (S3AsyncClient s3AsyncClient = createMockClient()) {
@@ -452,6 +500,58 @@ public class S3SdkObjectClientTest {
     assertObjectClientExceptions(exception, future);
   }
 
+  @SuppressWarnings("unchecked")
+  @ParameterizedTest
+  @MethodSource("exceptions")
+  void testGetObjectIntoSinkExceptions(Exception exception) {
+    S3AsyncClient mockS3AsyncClient = mock(S3AsyncClient.class);
+    CompletableFuture<Void> failedFuture = new CompletableFuture<>();
+    failedFuture.completeExceptionally(exception);
+    when(mockS3AsyncClient.getObject(
+            any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+        .thenReturn(failedFuture);
+    S3SdkObjectClient client = new S3SdkObjectClient(mockS3AsyncClient);
+
+    GetRequest getRequest =
+        GetRequest.builder()
+            .s3Uri(TEST_URI)
+            .etag("RANDOM")
+            .range(new Range(0, 20))
+            .referrer(new Referrer("original-referrer", ReadMode.SYNC))
+            .build();
+    CompletableFuture<Void> future =
+        client.getObject(getRequest, OpenStreamInformation.DEFAULT, chunk -> {});
+    assertObjectClientExceptions(exception, future);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testGetObjectIntoSinkDoesNotBlockOnTheBody() {
+    S3AsyncClient mockS3AsyncClient = mock(S3AsyncClient.class);
+    when(mockS3AsyncClient.getObject(
+            any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    S3SdkObjectClient client = new S3SdkObjectClient(mockS3AsyncClient);
+
+    GetRequest getRequest =
+        GetRequest.builder()
+            .s3Uri(TEST_URI)
+            .etag(ETAG)
+            .range(new Range(0, 20))
+            .referrer(new Referrer("original-referrer", ReadMode.SYNC))
+            .build();
+    client.getObject(getRequest, OpenStreamInformation.DEFAULT, chunk -> {}).join();
+
+    ArgumentCaptor<GetObjectRequest> requestCaptor =
+        ArgumentCaptor.forClass(GetObjectRequest.class);
+    ArgumentCaptor<AsyncResponseTransformer> transformerCaptor =
+        ArgumentCaptor.forClass(AsyncResponseTransformer.class);
+    verify(mockS3AsyncClient).getObject(requestCaptor.capture(), transformerCaptor.capture());
+    assertInstanceOf(SinkResponseTransformer.class, transformerCaptor.getValue());
+    assertEquals("bytes=0-20", requestCaptor.getValue().range());
+    assertEquals(ETAG, requestCaptor.getValue().ifMatch());
+  }
+
   @SuppressWarnings("unchecked")
   private static S3AsyncClient createMockClient() {
     S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
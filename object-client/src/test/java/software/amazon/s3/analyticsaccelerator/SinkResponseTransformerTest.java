@@ -0,0 +1,155 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.s3.analyticsaccelerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.s3.analyticsaccelerator.request.ObjectContentSink;
+
+public class SinkResponseTransformerTest {
+
+  @Test
+  void testHandsChunksToSinkInOrder() {
+    RecordingSink sink = new RecordingSink();
+    SinkResponseTransformer transformer = new SinkResponseTransformer(sink);
+
+    CompletableFuture<Void> future = transformer.prepare();
+    transformer.onResponse(GetObjectResponse.builder().build());
+    transformer.onStream(publisherOf(new AtomicBoolean(), "hello ", "world"));
+
+    future.join();
+    assertEquals(1, sink.responses.get());
+    assertEquals("hello world", sink.body());
+  }
+
+  @Test
+  void testRetriedAttemptSkipsBytesAlreadyHandedOver() {
+    RecordingSink sink = new RecordingSink();
+    SinkResponseTransformer transformer = new SinkResponseTransformer(sink);
+
+    // The first attempt fails part way through the body
+    CompletableFuture<Void> first = transformer.prepare();
+    transformer.onResponse(GetObjectResponse.builder().build());
+    transformer.onStream(publisherOf(new AtomicBoolean(), "hel"));
+    transformer.exceptionOccurred(new IllegalStateException("Connection reset"));
+    assertTrue(first.isCompletedExceptionally());
+
+    // The retry publishes the body again from its start
+    CompletableFuture<Void> second = transformer.prepare();
+    transformer.onResponse(GetObjectResponse.builder().build());
+    transformer.onStream(publisherOf(new AtomicBoolean(), "he", "llo ", "world"));
+
+    second.join();
+    assertEquals(1, sink.responses.get());
+    assertEquals("hello world", sink.body());
+  }
+
+  @Test
+  void testSinkFailureCancelsTheBody() {
+    ObjectContentSink sink =
+        chunk -> {
+          throw new IllegalStateException("Block was closed");
+        };
+    SinkResponseTransformer transformer = new SinkResponseTransformer(sink);
+    AtomicBoolean cancelled = new AtomicBoolean();
+
+    CompletableFuture<Void> future = transformer.prepare();
+    transformer.onResponse(GetObjectResponse.builder().build());
+    transformer.onStream(publisherOf(cancelled, "hello"));
+
+    CompletionException exception = assertThrows(CompletionException.class, future::join);
+    assertInstanceOf(IllegalStateException.class, exception.getCause());
+    assertTrue(cancelled.get());
+  }
+
+  @Test
+  void testRequestFailureFailsTheFuture() {
+    SinkResponseTransformer transformer = new SinkResponseTransformer(new RecordingSink());
+
+    CompletableFuture<Void> future = transformer.prepare();
+    transformer.exceptionOccurred(new IllegalStateException("No response"));
+
+    CompletionException exception = assertThrows(CompletionException.class, future::join);
+    assertInstanceOf(IllegalStateException.class, exception.getCause());
+  }
+
+  /**
+   * Publishes chunks synchronously as soon as they are requested, then completes.
+   *
+   * @param cancelled set when the subscriber cancels
+   * @param chunks the chunks to publish
+   * @return the publisher
+   */
+  private static SdkPublisher<ByteBuffer> publisherOf(AtomicBoolean cancelled, String... chunks) {
+    return subscriber ->
+        subscriber.onSubscribe(
+            new Subscription() {
+              private boolean published;
+
+              @Override
+              public void request(long n) {
+                if (published) {
+                  return;
+                }
+                published = true;
+                for (String chunk : chunks) {
+                  if (cancelled.get()) {
+                    return;
+                  }
+                  subscriber.onNext(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+                }
+                subscriber.onComplete();
+              }
+
+              @Override
+              public void cancel() {
+                cancelled.set(true);
+              }
+            });
+  }
+
+  private static class RecordingSink implements ObjectContentSink {
+    private final AtomicInteger responses = new AtomicInteger();
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+    @Override
+    public void onResponse() {
+      responses.incrementAndGet();
+    }
+
+    @Override
+    public void onChunk(ByteBuffer chunk) {
+      byte[] bytes = new byte[chunk.remaining()];
+      chunk.get(bytes);
+      received.write(bytes, 0, bytes.length);
+    }
+
+    String body() {
+      return new String(received.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -19,7 +19,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.CompletionException;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
@@ -79,4 +81,25 @@ public class ExceptionHandlerTest {
     assertInstanceOf(IOException.class, exception);
     assertSame(cause, exception.getCause());
   }
+
+  @Test
+  void testIsThrottling() {
+    Throwable slowDown =
+        S3Exception.builder()
+            .statusCode(503)
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+            .build();
+    assertTrue(ExceptionHandler.isThrottling(slowDown));
+    assertTrue(ExceptionHandler.isThrottling(S3Exception.builder().statusCode(429).build()));
+    assertTrue(
+        ExceptionHandler.isThrottling(
+            new CompletionException(ExceptionHandler.toIOException(slowDown, TEST_URI))));
+
+    assertFalse(ExceptionHandler.isThrottling(S3Exception.builder().statusCode(500).build()));
+    assertFalse(
+        ExceptionHandler.isThrottling(NoSuchKeyException.builder().statusCode(404).build()));
+    assertFalse(ExceptionHandler.isThrottling(SdkClientException.builder().build()));
+    assertFalse(ExceptionHandler.isThrottling(new RuntimeException()));
+    assertFalse(ExceptionHandler.isThrottling(null));
+  }
 }